@@ -0,0 +1,46 @@
+package com.github.srini156.aerospike.client.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batch reads.
+ *
+ * @author srinivas.iyengar
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+    @Param({"10", "100"})
+    public int batchSize;
+
+    @Benchmark
+    public Record[] get(DataSet dataSet, KeyStream keys) {
+        return dataSet.client.get(null, keys.next(batchSize));
+    }
+
+    @Benchmark
+    public Record[] getBins(DataSet dataSet, KeyStream keys) {
+        return dataSet.client.get(null, keys.next(batchSize), DataSet.ID, DataSet.NAME);
+    }
+
+    @Benchmark
+    public boolean[] exists(DataSet dataSet, KeyStream keys) {
+        return dataSet.client.exists(null, keys.next(batchSize));
+    }
+}
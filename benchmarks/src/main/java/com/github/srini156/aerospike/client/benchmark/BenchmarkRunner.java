@@ -0,0 +1,45 @@
+package com.github.srini156.aerospike.client.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of <code>benchmarks.jar</code>. Takes the usual JMH arguments; unless
+ * <code>-t</code> is given every benchmark is run with 1, 4 and one thread per processor, and
+ * the GC profiler is always on so allocation rates (<code>gc.alloc.rate.norm</code>, bytes per
+ * operation) are reported next to throughput.
+ *
+ * @author srinivas.iyengar
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        List<Integer> threadCounts = commandLine.getThreads().hasValue()
+                ? Collections.singletonList(commandLine.getThreads().get())
+                : Arrays.asList(1, 4, Runtime.getRuntime().availableProcessors());
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
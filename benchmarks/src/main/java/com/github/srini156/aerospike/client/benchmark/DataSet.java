@@ -0,0 +1,68 @@
+package com.github.srini156.aerospike.client.benchmark;
+
+import java.util.Arrays;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.store.StorageEngine;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Client preloaded with <code>recordCount</code> records of four bins: an integer id, an
+ * integer counter, a short string and a blob of <code>recordSize</code> bytes, stored by the
+ * <code>engine</code> named: <code>index</code> or <code>hashMap</code>.
+ *
+ * @author srinivas.iyengar
+ */
+@State(Scope.Benchmark)
+public class DataSet {
+    static final String NAMESPACE = "test";
+    static final String SET = "bench";
+    static final String ID = "id";
+    static final String COUNTER = "counter";
+    static final String NAME = "name";
+    static final String PAYLOAD = "payload";
+
+    @Param({"100000"})
+    public int recordCount;
+
+    @Param({"16", "1024"})
+    public int recordSize;
+
+    @Param({"uniform", "zipfian"})
+    public String distribution;
+
+    @Param({"index", "hashMap"})
+    public String engine;
+
+    MockAerospikeClient client;
+    Key[] keys;
+    Bin payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.storageEngine = "hashMap".equals(engine) ? StorageEngine.hashMap() : StorageEngine.index();
+        client = new MockAerospikeClient(policy);
+        keys = new Key[recordCount];
+        byte[] bytes = new byte[recordSize];
+        Arrays.fill(bytes, (byte) 'x');
+        payload = new Bin(PAYLOAD, bytes);
+        for (int i = 0; i < recordCount; i++) {
+            keys[i] = new Key(NAMESPACE, SET, i);
+            client.put(null, keys[i], new Bin(ID, i), new Bin(COUNTER, 0), new Bin(NAME, "name-" + i), payload);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.srini156.aerospike.client.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.aerospike.client.Key;
+import com.github.srini156.aerospike.client.workload.KeyDistribution;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per thread stream of keys of the {@link DataSet}, following its key distribution.
+ *
+ * @author srinivas.iyengar
+ */
+@State(Scope.Thread)
+public class KeyStream {
+    private Key[] keys;
+    private KeyDistribution distribution;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp(DataSet dataSet) {
+        keys = dataSet.keys;
+        distribution = KeyDistribution.parse(dataSet.distribution, keys.length);
+        random = ThreadLocalRandom.current();
+    }
+
+    Key next() {
+        return keys[distribution.next(random)];
+    }
+
+    /**
+     * @return <code>size</code> keys drawn independently, so a batch can repeat hot keys
+     */
+    Key[] next(int size) {
+        Key[] batch = new Key[size];
+        for (int i = 0; i < size; i++) {
+            batch[i] = next();
+        }
+        return batch;
+    }
+}
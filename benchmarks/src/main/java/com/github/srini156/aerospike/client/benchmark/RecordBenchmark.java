@@ -0,0 +1,67 @@
+package com.github.srini156.aerospike.client.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single record commands.
+ *
+ * @author srinivas.iyengar
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordBenchmark {
+    private static final Bin SUFFIX = new Bin(DataSet.NAME, "!");
+    private static final Bin RESET = new Bin(DataSet.NAME, "name");
+    private static final Bin ONE = new Bin(DataSet.COUNTER, 1);
+
+    @Benchmark
+    public void put(DataSet dataSet, KeyStream keys) {
+        dataSet.client.put(null, keys.next(), dataSet.payload);
+    }
+
+    @Benchmark
+    public Record get(DataSet dataSet, KeyStream keys) {
+        return dataSet.client.get(null, keys.next());
+    }
+
+    @Benchmark
+    public Record getBins(DataSet dataSet, KeyStream keys) {
+        return dataSet.client.get(null, keys.next(), DataSet.ID, DataSet.NAME);
+    }
+
+    @Benchmark
+    public Record operate(DataSet dataSet, KeyStream keys) {
+        return dataSet.client.operate(null, keys.next(), Operation.add(ONE), Operation.get(DataSet.COUNTER));
+    }
+
+    /**
+     * Append followed by a put restoring the bin, otherwise hot keys grow without bound and the
+     * cost is dominated by copying ever longer strings. Compare with {@link #put}.
+     */
+    @Benchmark
+    public void appendThenReset(DataSet dataSet, KeyStream keys) {
+        Key key = keys.next();
+        dataSet.client.append(null, key, SUFFIX);
+        dataSet.client.put(null, key, RESET);
+    }
+
+    @Benchmark
+    public void add(DataSet dataSet, KeyStream keys) {
+        dataSet.client.add(null, keys.next(), ONE);
+    }
+}
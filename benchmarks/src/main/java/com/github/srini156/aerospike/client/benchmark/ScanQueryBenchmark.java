@@ -0,0 +1,93 @@
+package com.github.srini156.aerospike.client.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Full scans and secondary index range queries over the whole {@link DataSet}, its key
+ * distribution has no effect here. {@link #scanTombstones} scans a data set most of whose
+ * records were deleted durably, to weigh the tombstones scans step over.
+ *
+ * @author srinivas.iyengar
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ScanQueryBenchmark {
+    /**
+     * Fraction of the records a query matches, in percent.
+     */
+    @Param({"1", "10"})
+    public int selectivity;
+
+    @Benchmark
+    public void scanAll(DataSet dataSet, Blackhole blackhole) {
+        dataSet.client.scanAll(null, DataSet.NAMESPACE, DataSet.SET, (key, record) -> blackhole.consume(record));
+    }
+
+    @Benchmark
+    public void scanBins(DataSet dataSet, Blackhole blackhole) {
+        dataSet.client.scanAll(null, DataSet.NAMESPACE, DataSet.SET, (key, record) -> blackhole.consume(record),
+                DataSet.ID);
+    }
+
+    @Benchmark
+    public void scanTombstones(Graveyard graveyard, Blackhole blackhole) {
+        graveyard.client.scanAll(null, DataSet.NAMESPACE, DataSet.SET, (key, record) -> blackhole.consume(record));
+    }
+
+    @Benchmark
+    public void queryRange(DataSet dataSet, Blackhole blackhole) {
+        int width = Math.max(1, dataSet.recordCount * selectivity / 100);
+        int begin = ThreadLocalRandom.current().nextInt(dataSet.recordCount - width + 1);
+        Statement statement = new Statement();
+        statement.setNamespace(DataSet.NAMESPACE);
+        statement.setSetName(DataSet.SET);
+        statement.setFilter(Filter.range(DataSet.ID, begin, begin + width - 1));
+        try (RecordSet records = dataSet.client.query(null, statement)) {
+            while (records.next()) {
+                blackhole.consume(records.getRecord());
+            }
+        }
+    }
+
+    /**
+     * {@link DataSet} whose first <code>deletedPercent</code> percent of records were deleted
+     * durably, leaving tombstones the tomb-raider does not reclaim during the run.
+     */
+    @State(Scope.Benchmark)
+    public static class Graveyard extends DataSet {
+        @Param({"90"})
+        public int deletedPercent;
+
+        @Setup(Level.Trial)
+        public void deleteRecords() {
+            WritePolicy policy = new WritePolicy();
+            policy.durableDelete = true;
+            for (int i = 0; i < recordCount * deletedPercent / 100; i++) {
+                client.delete(policy, keys[i]);
+            }
+        }
+    }
+}
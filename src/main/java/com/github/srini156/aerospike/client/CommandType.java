@@ -0,0 +1,46 @@
+package com.github.srini156.aerospike.client;
+
+/**
+ * Commands served by {@link MockAerospikeClient}. Used to key simulation rules and
+ * instrumentation by the kind of work a caller issued.
+ *
+ * @author srinivas.iyengar
+ */
+public enum CommandType {
+    GET,
+    GET_HEADER,
+    EXISTS,
+    PUT,
+    APPEND,
+    PREPEND,
+    ADD,
+    DELETE,
+    TOUCH,
+    OPERATE,
+    BATCH_GET,
+    BATCH_GET_HEADER,
+    BATCH_EXISTS,
+    SCAN,
+    QUERY,
+    UDF,
+    TRUNCATE;
+
+    /**
+     * @return <code>true</code> if the command mutates the record it targets.
+     */
+    public boolean isWrite() {
+        switch (this) {
+            case PUT:
+            case APPEND:
+            case PREPEND:
+            case ADD:
+            case DELETE:
+            case TOUCH:
+            case OPERATE:
+            case UDF:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.srini156.aerospike.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.cluster.Cluster;
+import com.aerospike.client.cluster.Connection;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.Pool;
+import com.aerospike.client.command.Buffer;
+
+/**
+ * Client cluster of one node whose info requests are answered in-process. Tasks such as
+ * {@link com.aerospike.client.task.ExecuteTask} poll the server for their status over an info
+ * connection, so the cluster, the node and a pool of connections backed by in-memory streams
+ * are allocated without their network setup and wired together reflectively.
+ *
+ * @author srinivas.iyengar
+ */
+final class InfoLoopback {
+    private static final int CONNECTIONS = 8;
+    private static final long PROTO_INFO = 2L << 56 | 1L << 48;
+
+    private static final Object UNSAFE;
+    private static final Method ALLOCATE_INSTANCE;
+    private static final Field CLUSTER_NODES = field(Cluster.class, "nodes");
+    private static final Field CLUSTER_POOLS_PER_NODE = field(Cluster.class, "connPoolsPerNode");
+    private static final Field NODE_CLUSTER = field(Node.class, "cluster");
+    private static final Field NODE_NAME = field(Node.class, "name");
+    private static final Field NODE_POOLS = field(Node.class, "connectionPools");
+    private static final Field NODE_ACTIVE = field(Node.class, "active");
+    private static final Field POOL_TOTAL = field(Pool.class, "total");
+    private static final Field CONNECTION_SOCKET = field(Connection.class, "socket");
+    private static final Field CONNECTION_IN = field(Connection.class, "in");
+    private static final Field CONNECTION_OUT = field(Connection.class, "out");
+    private static final Field CONNECTION_POOL = field(Connection.class, "pool");
+    private static final Field CONNECTION_MAX_IDLE = field(Connection.class, "maxSocketIdle");
+    private static final Field CONNECTION_LAST_USED = field(Connection.class, "lastUsed");
+
+    static {
+        try {
+            Class<?> unsafe = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafe.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            UNSAFE = theUnsafe.get(null);
+            ALLOCATE_INSTANCE = unsafe.getMethod("allocateInstance", Class.class);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unsupported JVM, missing sun.misc.Unsafe", e);
+        }
+    }
+
+    private InfoLoopback() {
+    }
+
+    /**
+     * @param commands answers an info command, given with its parameters, with its value
+     * @return cluster of one node named <code>loopback</code>
+     */
+    static Cluster cluster(Function<String, String> commands) {
+        try {
+            Cluster cluster = allocate(Cluster.class);
+            Node node = allocate(Node.class);
+            Pool pool = new Pool(CONNECTIONS);
+            for (int i = 0; i < CONNECTIONS; i++) {
+                pool.offer(connection(pool, new Exchange(commands)));
+            }
+            // A full pool keeps the node from opening real connections when all are in use.
+            ((AtomicInteger) POOL_TOTAL.get(pool)).set(CONNECTIONS);
+            NODE_CLUSTER.set(node, cluster);
+            NODE_NAME.set(node, "loopback");
+            NODE_POOLS.set(node, new Pool[]{pool});
+            NODE_ACTIVE.setBoolean(node, true);
+            CLUSTER_NODES.set(cluster, new Node[]{node});
+            CLUSTER_POOLS_PER_NODE.setInt(cluster, 1);
+            return cluster;
+        } catch (ReflectiveOperationException e) {
+            throw new AerospikeException(e);
+        }
+    }
+
+    private static Connection connection(Pool pool, Exchange exchange) throws ReflectiveOperationException {
+        Connection connection = allocate(Connection.class);
+        CONNECTION_SOCKET.set(connection, new Socket() {
+            @Override
+            public void setSoTimeout(int timeout) {
+                // Nothing to wait for, answers are computed while reading.
+            }
+        });
+        CONNECTION_IN.set(connection, exchange.in);
+        CONNECTION_OUT.set(connection, exchange.request);
+        CONNECTION_POOL.set(connection, pool);
+        CONNECTION_MAX_IDLE.setLong(connection, Long.MAX_VALUE);
+        CONNECTION_LAST_USED.setLong(connection, System.nanoTime());
+        return connection;
+    }
+
+    private static <T> T allocate(Class<T> type) throws ReflectiveOperationException {
+        return type.cast(ALLOCATE_INSTANCE.invoke(UNSAFE, type));
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Unsupported aerospike-client version, missing " + type.getName() + "." + name, e);
+        }
+    }
+
+    /**
+     * Streams of one connection: the request written is answered once the client reads.
+     */
+    private static final class Exchange {
+        private final Function<String, String> commands;
+        private final ByteArrayOutputStream request = new ByteArrayOutputStream();
+        private ByteArrayInputStream response = new ByteArrayInputStream(new byte[0]);
+        private final InputStream in = new InputStream() {
+            @Override
+            public int read() {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (response.available() == 0) {
+                    respond();
+                }
+                return response.read(b, off, len);
+            }
+        };
+
+        private Exchange(Function<String, String> commands) {
+            this.commands = commands;
+        }
+
+        private void respond() {
+            byte[] message = request.toByteArray();
+            request.reset();
+            if (message.length <= 8) {
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            for (String command : new String(message, 8, message.length - 8, StandardCharsets.UTF_8).split("\n")) {
+                if (!command.isEmpty()) {
+                    text.append(command).append('\t').append(commands.apply(command)).append('\n');
+                }
+            }
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[8 + body.length];
+            Buffer.longToBytes(PROTO_INFO | body.length, bytes, 0);
+            System.arraycopy(body, 0, bytes, 8, body.length);
+            response = new ByteArrayInputStream(bytes);
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.github.srini156.aerospike.client;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
 
 import com.aerospike.client.AerospikeException;
 import com.aerospike.client.AerospikeException.InvalidNode;
@@ -15,15 +31,16 @@ import com.aerospike.client.Key;
 import com.aerospike.client.Language;
 import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
 import com.aerospike.client.ScanCallback;
 import com.aerospike.client.Value;
-import com.aerospike.client.Value.BooleanValue;
 import com.aerospike.client.admin.Privilege;
 import com.aerospike.client.admin.Role;
 import com.aerospike.client.admin.User;
 import com.aerospike.client.async.EventLoop;
 import com.aerospike.client.cluster.ClusterStats;
 import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.Partition;
 import com.aerospike.client.listener.*;
 import com.aerospike.client.policy.AdminPolicy;
 import com.aerospike.client.policy.BatchPolicy;
@@ -36,7 +53,28 @@ import com.aerospike.client.query.*;
 import com.aerospike.client.task.ExecuteTask;
 import com.aerospike.client.task.IndexTask;
 import com.aerospike.client.task.RegisterTask;
-import com.google.common.collect.Lists;
+import com.github.srini156.aerospike.client.cdc.ChangeListener;
+import com.github.srini156.aerospike.client.cdc.ChangeStream;
+import com.github.srini156.aerospike.client.cdc.ChangeSubscription;
+import com.github.srini156.aerospike.client.cluster.SimulatedCluster;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+import com.github.srini156.aerospike.client.cluster.Snapshot;
+import com.github.srini156.aerospike.client.job.BackgroundJob;
+import com.github.srini156.aerospike.client.job.BackgroundJobs;
+import com.github.srini156.aerospike.client.query.FilterMatcher;
+import com.github.srini156.aerospike.client.query.RecordSets;
+import com.github.srini156.aerospike.client.query.ResultSets;
+import com.github.srini156.aerospike.client.sim.FaultSimulator;
+import com.github.srini156.aerospike.client.sim.RateLimiter;
+import com.github.srini156.aerospike.client.store.BinNames;
+import com.github.srini156.aerospike.client.store.PackedBins;
+import com.github.srini156.aerospike.client.store.PartitionedStore;
+import com.github.srini156.aerospike.client.store.RecordUpdates;
+import com.github.srini156.aerospike.client.store.ScanSample;
+import com.github.srini156.aerospike.client.udf.JavaUdfs;
+import com.github.srini156.aerospike.client.udf.LuaUdfs;
+import com.github.srini156.aerospike.client.udf.MutableRecord;
+import com.github.srini156.aerospike.client.udf.UdfCall;
 
 /**
  * Mock Implementation of IAerospikeClient to allow cleaner unit testing.
@@ -44,13 +82,116 @@ import com.google.common.collect.Lists;
  * @author srinivas.iyengar
  */
 public class MockAerospikeClient implements IAerospikeClient {
-    private final Map<Key, Record> data = new ConcurrentHashMap<>();
+    private final MockClientPolicy clientPolicy;
+    private final FaultSimulator simulator;
+    private final boolean ownsSimulator;
+    private final SimulatedCluster cluster;
+    private final LuaUdfs luaUdfs;
+    private final JavaUdfs javaUdfs = new JavaUdfs();
+    private final BackgroundJobs jobs;
 
     /**
-     * Close all client connections to database server nodes.
+     * Mock client with default configuration.
+     */
+    public MockAerospikeClient() {
+        this(new MockClientPolicy());
+    }
+
+    /**
+     * Mock client with the given configuration.
+     *
+     * @param policy client configuration, pass in null for defaults
+     */
+    public MockAerospikeClient(MockClientPolicy policy) {
+        this(policy, null);
+    }
+
+    private MockAerospikeClient(MockClientPolicy policy, Snapshot snapshot) {
+        this.clientPolicy = policy == null ? new MockClientPolicy() : policy;
+        this.ownsSimulator = clientPolicy.simulator == null;
+        this.simulator = ownsSimulator ? new FaultSimulator() : clientPolicy.simulator;
+        this.cluster = new SimulatedCluster(clientPolicy, snapshot);
+        this.luaUdfs = new LuaUdfs(clientPolicy.udfStatePoolSize);
+        this.jobs = new BackgroundJobs(clientPolicy.backgroundThreads);
+    }
+
+    /**
+     * @return simulated server cluster holding the data, used to add or remove nodes
+     */
+    public SimulatedCluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Take a snapshot of all records, in time independent of their number: partitions share
+     * their data with the snapshot and copy it on their next write. Take it while no writes are
+     * in flight.
+     *
+     * @return snapshot to {@link #restore} or {@link #fork} from
+     */
+    public Snapshot snapshot() {
+        return cluster.snapshot();
+    }
+
+    /**
+     * Reset all records to a snapshot taken of this client or of the client it was forked from.
+     * Like taking the snapshot, this shares data instead of copying it. Registered UDFs and
+     * background jobs are left alone, and nothing is published to change subscribers.
+     *
+     * @param snapshot data to go back to
+     */
+    public void restore(Snapshot snapshot) {
+        cluster.restore(snapshot);
+    }
+
+    /**
+     * @return new client with the same policy whose cluster starts out with the records of this
+     * one, sharing them copy-on-write. Writes to either are invisible to the other. Registered
+     * UDFs are not carried over.
+     */
+    public MockAerospikeClient fork() {
+        return fork(snapshot());
+    }
+
+    /**
+     * @return new client with the same policy whose cluster starts out with the records of a
+     * snapshot, sharing them copy-on-write
+     */
+    public MockAerospikeClient fork(Snapshot snapshot) {
+        return new MockAerospikeClient(clientPolicy, snapshot);
+    }
+
+    /**
+     * Subscribe to the changes made to the data: every put, append, prepend, add, operate, UDF
+     * write, touch and delete, from this client, background jobs or server mode, and every
+     * truncate. Events are delivered in order on the subscription's own thread, in batches of
+     * whatever has been published meanwhile. <code>changeBufferSize</code> and
+     * <code>changeOverflow</code> on {@link MockClientPolicy} size the buffer and decide
+     * whether writes wait for slow subscribers or drop events.
+     *
+     * @param listener receives the changes
+     * @return subscription to close once done
+     */
+    public ChangeSubscription subscribe(ChangeListener listener) {
+        return cluster.subscribe(listener);
+    }
+
+    /**
+     * Close all client connections to database server nodes. Stops background jobs, change
+     * subscriptions and the simulated cluster's threads, and drops all records. A fault
+     * simulator the client created itself is closed too; one set on the policy is left to its
+     * owner.
      */
     public void close() {
-        data.clear();
+        jobs.close();
+        ChangeStream changes = cluster.getChanges();
+        if (changes != null) {
+            changes.close();
+        }
+        cluster.close();
+        if (ownsSimulator) {
+            simulator.close();
+        }
     }
 
     /**
@@ -65,13 +206,12 @@ public class MockAerospikeClient implements IAerospikeClient {
     }
 
     /**
-     * Return array of active server nodes in the cluster. <br>
-     * Always returns null - not implemented.
+     * Return array of active server nodes in the cluster.
      *
      * @return array of active nodes
      */
     public Node[] getNodes() {
-        return new Node[]{};
+        return cluster.getClientCluster().getNodes();
     }
 
     /**
@@ -80,7 +220,11 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @return list of active node names
      */
     public List<String> getNodeNames() {
-        return Lists.newLinkedList();
+        List<String> names = new ArrayList<>();
+        for (SimulatedNode node : cluster.getNodes()) {
+            names.add(node.getName());
+        }
+        return names;
     }
 
     /**
@@ -89,7 +233,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException.InvalidNode if node does not exist.
      */
     public Node getNode(String nodeName) throws InvalidNode {
-        throw new InvalidNode("Node not available");
+        return cluster.getClientCluster().getNode(nodeName);
     }
 
     @Override
@@ -108,7 +252,8 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if write fails
      */
     public void put(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
-        data.put(key, new Record(convertToMap(bins), 0, 0));
+        simulateWrite(CommandType.PUT, key, policy);
+        cluster.write(sentKey(key, policy), CommandType.PUT, RecordUpdates.put(bins));
     }
 
     @Override
@@ -133,20 +278,8 @@ public class MockAerospikeClient implements IAerospikeClient {
         // com.aerospike.client.AerospikeException: Error Code 12: Bin type
         // error
         // else, append the string.
-        if (!data.containsKey(key)) {
-            put(policy, key, bins);
-        } else {
-            final Map<String, Object> recordBins = data.get(key).bins;
-            for (final Bin bin : bins) {
-                recordBins.computeIfPresent(bin.name, (s, o) -> {
-                    if (o instanceof String) {
-                        return o.toString() + bin.value.toString();
-                    } else {
-                        throw new AerospikeException("Error Code 12: Bin type");
-                    }
-                });
-            }
-        }
+        simulateWrite(CommandType.APPEND, key, policy);
+        cluster.write(sentKey(key, policy), CommandType.APPEND, RecordUpdates.append(bins));
     }
 
     @Override
@@ -166,20 +299,8 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if prepend fails
      */
     public void prepend(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
-        if (!data.containsKey(key)) {
-            put(policy, key, bins);
-        } else {
-            final Map<String, Object> recordBins = data.get(key).bins;
-            for (final Bin bin : bins) {
-                recordBins.computeIfPresent(bin.name, (s, o) -> {
-                    if (o instanceof String) {
-                        return bin.value.toString() + o;
-                    } else {
-                        throw new AerospikeException("Error Code 12: Bin type");
-                    }
-                });
-            }
-        }
+        simulateWrite(CommandType.PREPEND, key, policy);
+        cluster.write(sentKey(key, policy), CommandType.PREPEND, RecordUpdates.prepend(bins));
     }
 
     @Override
@@ -199,22 +320,8 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if add fails
      */
     public void add(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
-        if (!data.containsKey(key)) {
-            put(policy, key, bins);
-        } else {
-            Map<String, Object> recordBins = data.get(key).bins;
-            for (Bin bin : bins) {
-                recordBins.computeIfPresent(bin.name, (s, o) -> {
-                    if (o instanceof Integer) {
-                        return bin.value.toInteger() + ((Integer) o);
-                    } else if (o instanceof Long) {
-                        return bin.value.toLong() + ((Long) o);
-                    } else {
-                        throw new AerospikeException("Error Code 12: Bin type");
-                    }
-                });
-            }
-        }
+        simulateWrite(CommandType.ADD, key, policy);
+        cluster.write(sentKey(key, policy), CommandType.ADD, RecordUpdates.add(bins));
     }
 
     @Override
@@ -224,7 +331,8 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     /**
      * Delete record for specified key. The policy specifies the transaction
-     * timeout.
+     * timeout. With {@link WritePolicy#durableDelete} the record leaves a tombstone, see
+     * {@link SimulatedCluster#write(Key, CommandType, boolean, java.util.function.UnaryOperator)}.
      *
      * @param policy delete configuration parameters, pass in null for defaults
      * @param key    unique record identifier
@@ -232,12 +340,9 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if delete fails
      */
     public boolean delete(WritePolicy policy, Key key) throws AerospikeException {
-        if (data.containsKey(key)) {
-            data.remove(key);
-            return true;
-        } else {
-            return false;
-        }
+        WritePolicy writePolicy = policy != null ? policy : clientPolicy.writePolicyDefault;
+        simulateWrite(CommandType.DELETE, key, writePolicy);
+        return cluster.delete(key, writePolicy.durableDelete);
     }
 
     @Override
@@ -245,9 +350,21 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     }
 
+    /**
+     * Remove records in specified namespace/set efficiently. Records last updated before the
+     * cutoff are invisible as soon as this returns and are dropped in the background, see
+     * {@link SimulatedCluster#truncate(String, String, Calendar)}.
+     *
+     * @param infoPolicy       info command configuration parameters, ignored
+     * @param ns               required namespace
+     * @param set              optional set name. Pass in null to delete all sets in namespace.
+     * @param beforeLastUpdate optional delete records before record last update time. If
+     *                         specified, value must be before the current time. Pass in null to
+     *                         delete all records in namespace/set regardless of last update time.
+     */
     @Override
-    public void truncate(InfoPolicy infoPolicy, String s, String s1, Calendar calendar) throws AerospikeException {
-
+    public void truncate(InfoPolicy infoPolicy, String ns, String set, Calendar beforeLastUpdate) throws AerospikeException {
+        cluster.truncate(ns, set, beforeLastUpdate);
     }
 
     /**
@@ -259,12 +376,9 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if touch fails
      */
     public void touch(WritePolicy policy, Key key) throws AerospikeException {
-        if (data.containsKey(key)) {
-            final Record record = data.remove(key);
-            data.put(key, new Record(record.bins, record.generation, policy.expiration));
-        } else {
-            throw new AerospikeException("Error Code 2: Key not found");
-        }
+        simulateWrite(CommandType.TOUCH, key, policy);
+        WritePolicy writePolicy = policy != null ? policy : clientPolicy.writePolicyDefault;
+        cluster.write(sentKey(key, writePolicy), CommandType.TOUCH, RecordUpdates.touch(writePolicy.expiration));
     }
 
     @Override
@@ -282,7 +396,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if command fails
      */
     public boolean exists(Policy policy, Key key) throws AerospikeException {
-        return data.containsKey(key);
+        return read(CommandType.EXISTS, policy, key) != null;
     }
 
     @Override
@@ -303,9 +417,10 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     @Deprecated
     public boolean[] exists(Policy policy, Key[] keys) throws AerospikeException {
+        simulate(CommandType.BATCH_EXISTS, namespaceOf(keys), policy, clientPolicy.batchPolicyDefault);
         boolean[] result = new boolean[keys.length];
         for (int idx = 0; idx < keys.length; idx++) {
-            result[idx] = data.containsKey(keys[idx]);
+            result[idx] = batchRead(policy, keys[idx]) != null;
         }
         return result;
     }
@@ -330,9 +445,16 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     }
 
+    /**
+     * Check if multiple record keys exist in one batch call, handing each key to the listener as
+     * soon as the node holding it has answered. The mock has no event loop, the batch runs on the
+     * calling thread.
+     */
     @Override
-    public void exists(EventLoop eventLoop, ExistsSequenceListener existsSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
-
+    public void exists(EventLoop eventLoop, ExistsSequenceListener listener, BatchPolicy policy, Key[] keys) throws AerospikeException {
+        complete(() -> streamBatch(CommandType.BATCH_EXISTS, policy, keys.length, idx -> keys[idx],
+                (record, idx) -> listener.onExists(keys[idx], record != null)),
+                listener::onSuccess, listener::onFailure);
     }
 
     /**
@@ -345,7 +467,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if read fails
      */
     public Record get(Policy policy, Key key) throws AerospikeException {
-        return data.get(key);
+        return copyOf(read(CommandType.GET, policy, key));
     }
 
     @Override
@@ -364,17 +486,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if read fails
      */
     public Record get(Policy policy, Key key, String... binNames) throws AerospikeException {
-        final Record record = data.get(key);
-        if (record == null) {
-            return null;
-        } else {
-            // filter bins.
-            Map<String, Object> filteredBins = new HashMap<>();
-            for (String bin : binNames) {
-                filteredBins.put(bin, record.bins.get(bin));
-            }
-            return new Record(filteredBins, record.generation, record.expiration);
-        }
+        return cluster.getBinNames(key.namespace).projection(binNames).apply(read(CommandType.GET, policy, key));
     }
 
     @Override
@@ -392,8 +504,10 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if read fails
      */
     public Record getHeader(Policy policy, Key key) throws AerospikeException {
-        Record record = data.get(key);
+        return doGetHeader(read(CommandType.GET_HEADER, policy, key));
+    }
 
+    private Record doGetHeader(Record record) {
         if (record == null) {
             return null;
         } else {
@@ -421,9 +535,10 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     @Deprecated
     public Record[] get(Policy policy, Key[] keys) throws AerospikeException {
+        simulate(CommandType.BATCH_GET, namespaceOf(keys), policy, clientPolicy.batchPolicyDefault);
         Record[] records = new Record[keys.length];
         for (int idx = 0; idx < records.length; idx++) {
-            records[idx] = get(policy, keys[idx]);
+            records[idx] = copyOf(batchRead(policy, keys[idx]));
         }
         return records;
     }
@@ -448,9 +563,16 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     }
 
+    /**
+     * Read multiple records for specified keys in one batch call, handing each record to the
+     * listener as soon as the node holding it has answered. If a key is not found, the record is
+     * null. The mock has no event loop, the batch runs on the calling thread.
+     */
     @Override
-    public void get(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
-
+    public void get(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys) throws AerospikeException {
+        complete(() -> streamBatch(CommandType.BATCH_GET, policy, keys.length, idx -> keys[idx],
+                (record, idx) -> listener.onRecord(keys[idx], copyOf(record))),
+                listener::onSuccess, listener::onFailure);
     }
 
     /**
@@ -468,9 +590,17 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     @Deprecated
     public Record[] get(Policy policy, Key[] keys, String... binNames) throws AerospikeException {
+        simulate(CommandType.BATCH_GET, namespaceOf(keys), policy, clientPolicy.batchPolicyDefault);
         Record[] records = new Record[keys.length];
+        // Resolved once per namespace, a batch usually has just one.
+        String namespace = null;
+        BinNames.Projection projection = null;
         for (int idx = 0; idx < records.length; idx++) {
-            records[idx] = get(policy, keys[idx], binNames);
+            if (!keys[idx].namespace.equals(namespace)) {
+                namespace = keys[idx].namespace;
+                projection = cluster.getBinNames(namespace).projection(binNames);
+            }
+            records[idx] = projection.apply(batchRead(policy, keys[idx]));
         }
         return records;
     }
@@ -497,9 +627,18 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     }
 
+    /**
+     * Read multiple record headers and bins for specified keys in one batch call, handing each
+     * record to the listener as soon as the node holding it has answered. The mock has no event
+     * loop, the batch runs on the calling thread.
+     */
     @Override
-    public void get(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys, String... strings) throws AerospikeException {
-
+    public void get(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys, String... binNames) throws AerospikeException {
+        Map<String, BinNames.Projection> projections = new HashMap<>();
+        complete(() -> streamBatch(CommandType.BATCH_GET, policy, keys.length, idx -> keys[idx],
+                (record, idx) -> listener.onRecord(keys[idx], projections.computeIfAbsent(keys[idx].namespace,
+                        namespace -> cluster.getBinNames(namespace).projection(binNames)).apply(record))),
+                listener::onSuccess, listener::onFailure);
     }
 
     /**
@@ -516,9 +655,10 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     @Deprecated
     public Record[] getHeader(Policy policy, Key[] keys) throws AerospikeException {
+        simulate(CommandType.BATCH_GET_HEADER, namespaceOf(keys), policy, clientPolicy.batchPolicyDefault);
         Record[] records = new Record[keys.length];
         for (int idx = 0; idx < records.length; idx++) {
-            records[idx] = getHeader(policy, keys[idx]);
+            records[idx] = doGetHeader(batchRead(policy, keys[idx]));
         }
         return records;
     }
@@ -543,9 +683,16 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     }
 
+    /**
+     * Read multiple record header data for specified keys in one batch call, handing each header
+     * to the listener as soon as the node holding it has answered. The mock has no event loop,
+     * the batch runs on the calling thread.
+     */
     @Override
-    public void getHeader(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
-
+    public void getHeader(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys) throws AerospikeException {
+        complete(() -> streamBatch(CommandType.BATCH_GET_HEADER, policy, keys.length, idx -> keys[idx],
+                (record, idx) -> listener.onRecord(keys[idx], doGetHeader(record))),
+                listener::onSuccess, listener::onFailure);
     }
 
     /**
@@ -563,24 +710,8 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if command fails
      */
     public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
-        Map<String, Object> bins = new HashMap<>();
-        //Add everything
-        for (Operation operation : operations) {
-            switch (operation.type) {
-                case ADD:
-                case APPEND:
-                case WRITE:
-                case PREPEND:
-                    bins.put(operation.binName, operation.value.getObject());
-            }
-        }
-
-        if (data.containsKey(key)) {
-            data.get(key).bins.putAll(bins);
-        } else {
-            data.put(key, new Record(bins, 0, 0));
-        }
-        return data.get(key);
+        simulateWrite(CommandType.OPERATE, key, policy);
+        return copyOf(cluster.write(sentKey(key, policy), CommandType.OPERATE, RecordUpdates.operate(operations)));
     }
 
     @Override
@@ -605,8 +736,12 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if scan fails
      */
     public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
-        throw new UnsupportedOperationException("scanAll is not supported in MockAerospike");
-
+        ScanPolicy scanPolicy = policy != null ? policy : clientPolicy.scanPolicyDefault;
+        scanPolicy.validate();
+        simulate(CommandType.SCAN, namespace, scanPolicy, clientPolicy.scanPolicyDefault);
+        for (SimulatedNode node : cluster.getNodes()) {
+            scanPartitions(scanPolicy, cluster.getMasterPartitions(node), namespace, setName, callback, binNames);
+        }
     }
 
     @Override
@@ -632,8 +767,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     public void scanNode(ScanPolicy policy, String nodeName, String namespace, String setName, ScanCallback callback, String... binNames)
             throws AerospikeException {
-        throw new UnsupportedOperationException("scanNode is not supported in MockAerospike");
-
+        scanNode(policy, getNode(nodeName), namespace, setName, callback, binNames);
     }
 
     /**
@@ -653,8 +787,44 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     public void scanNode(ScanPolicy policy, Node node, String namespace, String setName, ScanCallback callback, String... binNames)
             throws AerospikeException {
-        throw new UnsupportedOperationException("scanNode is not supported in MockAerospike");
+        ScanPolicy scanPolicy = policy != null ? policy : clientPolicy.scanPolicyDefault;
+        scanPolicy.validate();
+        simulate(CommandType.SCAN, namespace, scanPolicy, clientPolicy.scanPolicyDefault);
+        SimulatedNode simulatedNode = cluster.getNode(node.getName());
+        scanPartitions(scanPolicy, cluster.getMasterPartitions(simulatedNode), namespace, setName, callback, binNames);
+    }
 
+    /**
+     * Scan the partitions of one node. Like the server, the node reads only the policy's
+     * <code>scanPercent</code> of each partition and throttles the records it returns to
+     * <code>recordsPerSecond</code>, parking the scanning thread while it waits.
+     */
+    private void scanPartitions(ScanPolicy policy, List<Integer> partitionIds, String namespace, String setName,
+                                ScanCallback callback, String... binNames) {
+        ScanSample sample = new ScanSample(policy.scanPercent);
+        RateLimiter limiter = RateLimiter.of(policy.recordsPerSecond);
+        String[] read = PartitionedStore.binsToRead(policy.includeBinData, binNames, null);
+        BinNames.Projection projection = projection(namespace, binNames);
+        for (int partitionId : partitionIds) {
+            cluster.scan(namespace, partitionId, sample, read, (key, record) -> {
+                if (inSet(key, setName)) {
+                    throttle(limiter);
+                    callback.scanCallback(key, project(record, policy.includeBinData, projection));
+                }
+            });
+        }
+    }
+
+    private static void throttle(RateLimiter limiter) {
+        if (limiter == null) {
+            return;
+        }
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AerospikeException.ScanTerminated(e);
+        }
     }
 
     @Override
@@ -685,7 +855,12 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if register fails
      */
     public RegisterTask register(Policy policy, String clientPath, String serverPath, Language language) throws AerospikeException {
-        throw new UnsupportedOperationException("register is not supported in MockAerospike");
+        try {
+            byte[] code = Files.readAllBytes(Paths.get(clientPath));
+            return registerUdfString(policy, new String(code, StandardCharsets.UTF_8), serverPath, language);
+        } catch (IOException e) {
+            throw new AerospikeException("Failed to read file: " + clientPath, e);
+        }
     }
 
     /**
@@ -709,7 +884,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      * instead.
      */
     public Object execute(Policy policy, Key key, String packageName, String functionName, Value... args) throws AerospikeException {
-        throw new UnsupportedOperationException("execute is not supported in MockAerospike");
+        return execute(policy == null ? null : new WritePolicy(policy), key, packageName, functionName, args);
     }
 
     /**
@@ -730,7 +905,18 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if transaction fails
      */
     public Object execute(WritePolicy policy, Key key, String packageName, String functionName, Value... args) throws AerospikeException {
-        throw new UnsupportedOperationException("execute is not supported in MockAerospike");
+        simulateWrite(CommandType.UDF, key, policy);
+        UdfCall call = udfCall(key, packageName, functionName, args);
+        cluster.write(sentKey(key, policy), CommandType.UDF, call);
+        return call.getResult();
+    }
+
+    /**
+     * @return call of a Java function if one is registered under that name, else of a Lua one
+     */
+    private UdfCall udfCall(Key key, String packageName, String functionName, Value[] args) {
+        UdfCall call = javaUdfs.call(key, packageName, functionName, args);
+        return call != null ? call : luaUdfs.call(key, packageName, functionName, args);
     }
 
     @Override
@@ -758,7 +944,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     public ExecuteTask execute(Policy policy, Statement statement, String packageName, String functionName, Value... functionArgs)
             throws AerospikeException {
-        throw new UnsupportedOperationException("execute is not supported in MockAerospike");
+        return execute(policy == null ? null : new WritePolicy(policy), statement, packageName, functionName, functionArgs);
     }
 
     /**
@@ -778,12 +964,77 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     public ExecuteTask execute(WritePolicy policy, Statement statement, String packageName, String functionName, Value... functionArgs)
             throws AerospikeException {
-        throw new UnsupportedOperationException("execute is not supported in MockAerospike");
+        statement.setAggregateFunction(packageName, functionName, functionArgs);
+        return background(policy, statement, key -> cluster.write(key, CommandType.UDF,
+                existing(udfCall(key, packageName, functionName, functionArgs))));
     }
 
+    /**
+     * Apply operations on records that match the statement filter. Records are
+     * not returned to the client. This asynchronous server call will return
+     * before the command is complete. The user can optionally wait for command
+     * completion by using the returned ExecuteTask instance.
+     *
+     * @param writePolicy write configuration parameters, pass in null for defaults
+     * @param statement   record filter
+     * @param operations  list of operations to be performed on each record
+     * @throws AerospikeException if command fails
+     */
     @Override
     public ExecuteTask execute(WritePolicy writePolicy, Statement statement, Operation... operations) throws AerospikeException {
-        return null;
+        statement.setOperations(operations);
+        return background(writePolicy, statement, key -> cluster.write(key, CommandType.OPERATE,
+                existing(RecordUpdates.operate(operations))));
+    }
+
+    /**
+     * @param taskId task id of a statement passed to <code>execute</code>
+     * @return progress of the background job, null if there is no such job or it finished long
+     * ago
+     */
+    public BackgroundJob getJob(long taskId) {
+        return jobs.get(taskId);
+    }
+
+    /**
+     * Start a background job applying <code>apply</code> to the records matching the statement,
+     * over the master partitions of every node.
+     */
+    private ExecuteTask background(WritePolicy policy, Statement statement, Consumer<Key> apply) {
+        WritePolicy writePolicy = policy != null ? policy : clientPolicy.writePolicyDefault;
+        statement.prepare(false);
+        simulate(statement.isScan() ? CommandType.SCAN : CommandType.QUERY, statement.getNamespace(), writePolicy,
+                clientPolicy.writePolicyDefault);
+        FilterMatcher matcher = statement.getFilter() == null ? null : new FilterMatcher(statement.getFilter());
+        String[] read = PartitionedStore.binsToRead(false, null, matcher == null ? null : matcher.getBinName());
+        List<Integer> partitions = new ArrayList<>();
+        for (SimulatedNode node : cluster.getNodes()) {
+            partitions.addAll(cluster.getMasterPartitions(node));
+        }
+        jobs.submit(statement.getTaskId(), statement.isScan(), partitions, statement.getRecordsPerSecond(),
+                new BackgroundJobs.Work() {
+                    @Override
+                    public void scan(int partitionId, Consumer<Key> keys) {
+                        cluster.scan(statement.getNamespace(), partitionId, read, (key, record) -> {
+                            if (inSet(key, statement.getSetName()) && (matcher == null || matcher.matches(record))) {
+                                keys.accept(key);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void apply(Key key) {
+                        apply.accept(key);
+                    }
+                });
+        return Tasks.execute(writePolicy, statement, jobs);
+    }
+
+    /**
+     * @return update that leaves records deleted since a background job listed them alone
+     */
+    private static UnaryOperator<Record> existing(UnaryOperator<Record> update) {
+        return current -> current == null ? null : update.apply(current);
     }
 
     /**
@@ -799,7 +1050,7 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if query fails
      */
     public RecordSet query(QueryPolicy policy, Statement statement) throws AerospikeException {
-        throw new UnsupportedOperationException("query is not supported in MockAerospike");
+        return query(policy, statement, cluster.getNodes());
     }
 
     @Override
@@ -821,7 +1072,36 @@ public class MockAerospikeClient implements IAerospikeClient {
      * @throws AerospikeException if query fails
      */
     public RecordSet queryNode(QueryPolicy policy, Statement statement, Node node) throws AerospikeException {
-        throw new UnsupportedOperationException("queryNode is not supported in MockAerospike");
+        List<SimulatedNode> nodes = new ArrayList<>(1);
+        nodes.add(cluster.getNode(node.getName()));
+        return query(policy, statement, nodes);
+    }
+
+    private RecordSet query(QueryPolicy policy, Statement statement, List<SimulatedNode> nodes) {
+        QueryPolicy queryPolicy = policy != null ? policy : clientPolicy.queryPolicyDefault;
+        simulate(CommandType.QUERY, statement.getNamespace(), queryPolicy, clientPolicy.queryPolicyDefault);
+        FilterMatcher matcher = statement.getFilter() == null ? null : new FilterMatcher(statement.getFilter());
+        String[] binNames = statement.getBinNames() == null ? new String[0] : statement.getBinNames();
+        String[] read = PartitionedStore.binsToRead(queryPolicy.includeBinData, binNames,
+                matcher == null ? null : matcher.getBinName());
+        BinNames.Projection projection = projection(statement.getNamespace(), binNames);
+        return RecordSets.produce(queryPolicy.recordQueueSize, sink -> {
+            for (SimulatedNode node : nodes) {
+                for (int partitionId : cluster.getMasterPartitions(node)) {
+                    List<KeyRecord> matches = new ArrayList<>();
+                    cluster.scan(statement.getNamespace(), partitionId, read, (key, record) -> {
+                        if (inSet(key, statement.getSetName()) && (matcher == null || matcher.matches(record))) {
+                            matches.add(new KeyRecord(key, project(record, queryPolicy.includeBinData, projection)));
+                        }
+                    });
+                    for (KeyRecord match : matches) {
+                        if (!sink.put(match)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        });
     }
 
     @Override
@@ -859,7 +1139,8 @@ public class MockAerospikeClient implements IAerospikeClient {
      */
     public ResultSet queryAggregate(QueryPolicy policy, Statement statement, String packageName, String functionName, Value... functionArgs)
             throws AerospikeException {
-        throw new UnsupportedOperationException("queryAggregate is not supported in MockAerospike");
+        statement.setAggregateFunction(packageName, functionName, functionArgs);
+        return queryAggregate(policy, statement);
     }
 
     /**
@@ -1096,61 +1377,183 @@ public class MockAerospikeClient implements IAerospikeClient {
     }
 
     /**
-     * @param bins
-     * @return
+     * Play out the simulated latency and faults of a command, if a simulator is configured.
+     */
+    private void simulate(CommandType command, String namespace, Policy policy, Policy defaultPolicy) {
+        simulator.simulate(command, namespace, policy != null ? policy : defaultPolicy);
+    }
+
+    /**
+     * Play out a single record write, served by the master of the key's partition.
+     */
+    private void simulateWrite(CommandType command, Key key, WritePolicy policy) {
+        simulator.simulate(command, key.namespace, policy != null ? policy : clientPolicy.writePolicyDefault,
+                attempt -> cluster.getMaster(key).ruleForAttempt());
+    }
+
+    /**
+     * @return the key as the client sends it: with its user key only if the policy asks for
+     * the key to be stored with the record
+     */
+    private Key sentKey(Key key, WritePolicy policy) {
+        WritePolicy writePolicy = policy != null ? policy : clientPolicy.writePolicyDefault;
+        return writePolicy.sendKey || key.userKey == null ? key : new Key(key.namespace, key.digest, key.setName, null);
+    }
+
+    /**
+     * Play out a single record read against the replicas chosen by the policy's
+     * {@link com.aerospike.client.policy.Replica} setting, failing over on every retry like the
+     * client does, and return the record as held by the replica that answered.
+     */
+    private Record read(CommandType command, Policy policy, Key key) {
+        Policy readPolicy = policy != null ? policy : clientPolicy.readPolicyDefault;
+        Partition partition = cluster.routeRead(readPolicy, key);
+        SimulatedNode[] replica = new SimulatedNode[1];
+        simulator.simulate(command, key.namespace, readPolicy, attempt -> {
+            if (attempt > 0) {
+                partition.prepareRetryRead(false);
+            }
+            replica[0] = cluster.getNode(partition.getNodeRead(cluster.getClientCluster()));
+            return replica[0].ruleForAttempt();
+        });
+        return cluster.read(key, replica[0]);
+    }
+
+    /**
+     * Read one key of a batch from the replica the policy's first attempt would go to.
+     */
+    private Record batchRead(Policy policy, Key key) {
+        return cluster.read(key, batchNode(policy != null ? policy : clientPolicy.batchPolicyDefault, key));
+    }
+
+    private SimulatedNode batchNode(Policy policy, Key key) {
+        Partition partition = cluster.routeRead(policy, key);
+        return cluster.getNode(partition.getNodeRead(cluster.getClientCluster()));
+    }
+
+    /**
+     * Read the keys of an async batch and hand each record to <code>consumer</code> with the
+     * key's position, in key order. Like the client, which sends one command per node and
+     * streams each node's records as they arrive, the latency and faults of a node are played
+     * out once, before the first of its keys is read; a key is handed over as soon as its node
+     * has answered. Nothing is collected, so the first record does not wait for the whole batch.
+     *
+     * @throws AerospikeException if a node fails, the keys of nodes that answered before it
+     *                            have been handed over
      */
-    private Map<String, Object> convertToMap(Bin[] bins) {
-        Map<String, Object> binMap = new HashMap<>(bins.length);
-        for (Bin bin : bins) {
-            if (bin.value instanceof BooleanValue) {
-                binMap.put(bin.name, bin.value.toLong());
-            } else {
-                binMap.put(bin.name, bin.value.getObject());
+    private void streamBatch(CommandType command, Policy policy, int size, IntFunction<Key> keys,
+                             ObjIntConsumer<Record> consumer) {
+        Policy batchPolicy = policy != null ? policy : clientPolicy.batchPolicyDefault;
+        Set<SimulatedNode> answered = new HashSet<>();
+        for (int idx = 0; idx < size; idx++) {
+            Key key = keys.apply(idx);
+            SimulatedNode node = batchNode(batchPolicy, key);
+            if (answered.add(node)) {
+                simulator.simulate(command, key.namespace, batchPolicy, attempt -> node.ruleForAttempt());
             }
+            consumer.accept(cluster.read(key, node), idx);
         }
-        return binMap;
+    }
+
+    /**
+     * Run an async command, ending it with <code>onSuccess</code> or, if it fails,
+     * <code>onFailure</code> like the client reports errors of async commands.
+     */
+    private static void complete(Runnable command, Runnable onSuccess, Consumer<AerospikeException> onFailure) {
+        try {
+            command.run();
+        } catch (AerospikeException e) {
+            onFailure.accept(e);
+            return;
+        }
+        onSuccess.run();
+    }
+
+    private static boolean inSet(Key key, String setName) {
+        return setName == null || setName.isEmpty() || setName.equals(key.setName);
+    }
+
+    /**
+     * Copy of a stored record as a scan or query returns it.
+     */
+    private static Record project(Record record, boolean includeBinData, BinNames.Projection projection) {
+        if (!includeBinData) {
+            return new Record(null, record.generation, record.expiration);
+        }
+        if (projection != null) {
+            return projection.apply(record);
+        }
+        return copyOf(record);
+    }
+
+    /**
+     * @return a stored record for the caller to keep, its bins a copy that shares the stored
+     * values until the caller changes it, so changes reach neither the store nor its snapshots
+     * and forks
+     */
+    private static Record copyOf(Record record) {
+        return record == null || record.bins == null ? record
+                : new Record(PackedBins.copyOf(record.bins), record.generation, record.expiration);
+    }
+
+    /**
+     * @return bins of the namespace to pick from each record, null if <code>binNames</code> asks
+     * for all of them
+     */
+    private BinNames.Projection projection(String namespace, String[] binNames) {
+        return binNames == null || binNames.length == 0 ? null : cluster.getBinNames(namespace).projection(binNames);
+    }
+
+    private static String namespaceOf(Key[] keys) {
+        return keys.length == 0 ? null : keys[0].namespace;
     }
 
     @Override
     public Policy getReadPolicyDefault() {
-        // TODO Auto-generated method stub
-        return null;
+        return clientPolicy.readPolicyDefault;
     }
 
     @Override
     public WritePolicy getWritePolicyDefault() {
-        // TODO Auto-generated method stub
-        return null;
+        return clientPolicy.writePolicyDefault;
     }
 
     @Override
     public ScanPolicy getScanPolicyDefault() {
-        // TODO Auto-generated method stub
-        return null;
+        return clientPolicy.scanPolicyDefault;
     }
 
     @Override
     public QueryPolicy getQueryPolicyDefault() {
-        // TODO Auto-generated method stub
-        return null;
+        return clientPolicy.queryPolicyDefault;
     }
 
     @Override
     public BatchPolicy getBatchPolicyDefault() {
-        // TODO Auto-generated method stub
-        return null;
+        return clientPolicy.batchPolicyDefault;
     }
 
     @Override
     public InfoPolicy getInfoPolicyDefault() {
-        // TODO Auto-generated method stub
-        return null;
+        return clientPolicy.infoPolicyDefault;
     }
 
+    /**
+     * Read multiple records for specified batch keys in one batch call, each with the bins its
+     * {@link BatchRead} asks for. The records are set on the batch keys; keys not found get a
+     * null record.
+     *
+     * @param policy  batch configuration parameters, pass in null for defaults
+     * @param records list of unique record identifiers and the bins to retrieve
+     * @throws AerospikeException if read fails
+     */
     @Override
     public void get(BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
-        // TODO Auto-generated method stub
-
+        simulate(CommandType.BATCH_GET, records.isEmpty() ? null : records.get(0).key.namespace, policy,
+                clientPolicy.batchPolicyDefault);
+        for (BatchRead record : records) {
+            record.record = readBins(record, batchRead(policy, record.key));
+        }
     }
 
     @Override
@@ -1158,37 +1561,214 @@ public class MockAerospikeClient implements IAerospikeClient {
 
     }
 
+    /**
+     * Read multiple records for specified batch keys in one batch call, handing each batch key to
+     * the listener, its record set, as soon as the node holding it has answered. The mock has no
+     * event loop, the batch runs on the calling thread.
+     */
     @Override
-    public void get(EventLoop eventLoop, BatchSequenceListener batchSequenceListener, BatchPolicy batchPolicy, List<BatchRead> list) throws AerospikeException {
+    public void get(EventLoop eventLoop, BatchSequenceListener listener, BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
+        complete(() -> streamBatch(CommandType.BATCH_GET, policy, records.size(), idx -> records.get(idx).key,
+                (record, idx) -> {
+                    BatchRead batchRead = records.get(idx);
+                    batchRead.record = readBins(batchRead, record);
+                    listener.onRecord(batchRead);
+                }),
+                listener::onSuccess, listener::onFailure);
+    }
 
+    /**
+     * @return the bins of a stored record a batch key asks for
+     */
+    private Record readBins(BatchRead batchRead, Record record) {
+        if (batchRead.readAllBins) {
+            return copyOf(record);
+        }
+        if (batchRead.binNames == null || batchRead.binNames.length == 0) {
+            return doGetHeader(record);
+        }
+        return cluster.getBinNames(batchRead.key.namespace).projection(batchRead.binNames).apply(record);
     }
 
 
+    /**
+     * Register package located in a resource containing user defined functions with server.
+     * The mock registers the package before returning, so the returned task is already done.
+     *
+     * @param policy         generic configuration parameters, pass in null for defaults
+     * @param resourceLoader class loader where resource is located
+     * @param resourcePath   class path where Lua resource is located
+     * @param serverPath     path to store user defined functions on the server
+     * @param language       language of user defined functions, only Lua is supported
+     * @throws AerospikeException if register fails
+     */
     @Override
     public RegisterTask register(Policy policy, ClassLoader resourceLoader, String resourcePath, String serverPath, Language language)
             throws AerospikeException {
-        // TODO Auto-generated method stub
-        return null;
+        try (InputStream in = resourceLoader.getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                throw new AerospikeException("Failed to read resource: " + resourcePath);
+            }
+            ByteArrayOutputStream code = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                code.write(buffer, 0, read);
+            }
+            return registerUdfString(policy, new String(code.toByteArray(), StandardCharsets.UTF_8), serverPath, language);
+        } catch (IOException e) {
+            throw new AerospikeException("Failed to read resource: " + resourcePath, e);
+        }
     }
 
+    /**
+     * Register UDF functions located in a code string with server. The module is compiled
+     * before returning, re-registering a module replaces it for all calls that start afterwards.
+     *
+     * @param policy     generic configuration parameters, pass in null for defaults
+     * @param code       code string containing user defined functions
+     * @param serverPath path to store user defined functions on the server
+     * @param language   language of user defined functions, only Lua is supported
+     * @throws AerospikeException if the language is not Lua or the code does not compile
+     */
     @Override
-    public RegisterTask registerUdfString(Policy policy, String s, String s1, Language language) throws AerospikeException {
-        return null;
+    public RegisterTask registerUdfString(Policy policy, String code, String serverPath, Language language) throws AerospikeException {
+        if (language != Language.LUA) {
+            throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Unsupported UDF language " + language);
+        }
+        luaUdfs.register(serverPath, code);
+        String packageName = serverPath.endsWith(".lua") ? serverPath.substring(0, serverPath.length() - 4) : serverPath;
+        return Tasks.completed(new RegisterTask(cluster.getClientCluster(),
+                policy != null ? policy : clientPolicy.readPolicyDefault, packageName));
     }
 
+    /**
+     * Register a Java function as a record UDF. {@link #execute(WritePolicy, Key, String, String, Value...)}
+     * calls it directly with the record, under the record lock, ahead of any Lua function of the
+     * same package and function name. Bin changes are stored once the function calls
+     * {@link MutableRecord#update()} or {@link MutableRecord#create()}.
+     * <pre>
+     * client.registerUdf("counter", "increment", (rec, args) -&gt; {
+     *     rec.put("n", ((Long) rec.get("n")) + args[0].toLong());
+     *     rec.update();
+     *     return rec.get("n");
+     * });
+     * </pre>
+     *
+     * @param packageName  package name passed to execute
+     * @param functionName function name passed to execute
+     * @param function     receives the record and the arguments, returns the UDF's result
+     */
+    public void registerUdf(String packageName, String functionName, BiFunction<MutableRecord, Value[], Object> function) {
+        javaUdfs.register(packageName, functionName, function);
+    }
+
+    /**
+     * Remove the Java functions of a package registered with
+     * {@link #registerUdf(String, String, BiFunction)}.
+     */
+    public void removeJavaUdfs(String packageName) {
+        javaUdfs.remove(packageName);
+    }
+
+    /**
+     * Remove user defined function from server nodes.
+     *
+     * @param policy     info configuration parameters, pass in null for defaults
+     * @param serverPath location of UDF on server nodes. Example: mylua.lua
+     */
     @Override
     public void removeUdf(InfoPolicy policy, String serverPath) throws AerospikeException {
-        // TODO Auto-generated method stub
+        luaUdfs.remove(serverPath);
     }
 
+    /**
+     * Execute query and apply the statement's aggregation function, registered with one of the
+     * <code>register</code> methods. The master partitions of every node are aggregated in
+     * parallel up to the first reduce of the stream, and the partial results combined by the
+     * rest of the stream as the client's final reduce.
+     *
+     * @param policy    generic configuration parameters, pass in null for defaults
+     * @param statement database query command with aggregate functions already initialized by
+     *                  {@link Statement#setAggregateFunction}
+     * @return result iterator
+     * @throws AerospikeException if query fails
+     */
     @Override
     public ResultSet queryAggregate(QueryPolicy policy, Statement statement) throws AerospikeException {
-        // TODO Auto-generated method stub
-        return null;
+        return queryAggregate(policy, statement, cluster.getNodes());
     }
 
+    /**
+     * Execute query on a single server node and apply the statement's aggregation function.
+     *
+     * @param queryPolicy generic configuration parameters, pass in null for defaults
+     * @param statement   database query command with aggregate functions already initialized
+     * @param node        server node to execute query
+     * @return result iterator
+     * @throws AerospikeException if query fails
+     */
     @Override
     public ResultSet queryAggregateNode(QueryPolicy queryPolicy, Statement statement, Node node) throws AerospikeException {
-        return null;
+        List<SimulatedNode> nodes = new ArrayList<>(1);
+        nodes.add(cluster.getNode(node.getName()));
+        return queryAggregate(queryPolicy, statement, nodes);
+    }
+
+    private ResultSet queryAggregate(QueryPolicy policy, Statement statement, List<SimulatedNode> nodes) {
+        QueryPolicy queryPolicy = policy != null ? policy : clientPolicy.queryPolicyDefault;
+        simulate(CommandType.QUERY, statement.getNamespace(), queryPolicy, clientPolicy.queryPolicyDefault);
+        FilterMatcher matcher = statement.getFilter() == null ? null : new FilterMatcher(statement.getFilter());
+        // Nodes aggregate their partitions on as many threads as there are cores to share.
+        int slicesPerNode = Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, nodes.size()));
+        List<Iterator<KeyRecord>> sources = new ArrayList<>();
+        for (SimulatedNode node : nodes) {
+            List<Integer> partitions = cluster.getMasterPartitions(node);
+            for (int slice = 0; slice < slicesPerNode && slice < partitions.size(); slice++) {
+                List<Integer> slicePartitions = new ArrayList<>();
+                for (int i = slice; i < partitions.size(); i += slicesPerNode) {
+                    slicePartitions.add(partitions.get(i));
+                }
+                sources.add(matches(statement, matcher, slicePartitions));
+            }
+        }
+        return ResultSets.produce(statement, queryPolicy.recordQueueSize, sink -> luaUdfs.aggregate(
+                statement.getPackageName(), statement.getFunctionName(), statement.getFunctionArgs(), sources,
+                queryPolicy.recordQueueSize, sink));
+    }
+
+    /**
+     * @return records of the partitions matching the statement, one partition scanned at a time,
+     * with just the statement's bins if it names any
+     */
+    private Iterator<KeyRecord> matches(Statement statement, FilterMatcher matcher, List<Integer> partitions) {
+        Iterator<Integer> remaining = partitions.iterator();
+        String[] binNames = statement.getBinNames();
+        BinNames.Projection projection = projection(statement.getNamespace(), binNames);
+        String[] read = PartitionedStore.binsToRead(true, binNames, matcher == null ? null : matcher.getBinName());
+        return new Iterator<KeyRecord>() {
+            private Iterator<KeyRecord> partition = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!partition.hasNext() && remaining.hasNext()) {
+                    List<KeyRecord> matches = new ArrayList<>();
+                    cluster.scan(statement.getNamespace(), remaining.next(), read, (key, record) -> {
+                        if (inSet(key, statement.getSetName()) && (matcher == null || matcher.matches(record))) {
+                            matches.add(new KeyRecord(key, projection != null ? projection.apply(record) : copyOf(record)));
+                        }
+                    });
+                    partition = matches.iterator();
+                }
+                return partition.hasNext();
+            }
+
+            @Override
+            public KeyRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return partition.next();
+            }
+        };
     }
 }
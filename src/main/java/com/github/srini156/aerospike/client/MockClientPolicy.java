@@ -0,0 +1,168 @@
+package com.github.srini156.aerospike.client;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.InfoPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.github.srini156.aerospike.client.cdc.ChangeStream;
+import com.github.srini156.aerospike.client.sim.FaultSimulator;
+import com.github.srini156.aerospike.client.store.BinNames;
+import com.github.srini156.aerospike.client.store.StorageEngine;
+
+/**
+ * Container object for {@link MockAerospikeClient} configuration. Mirrors
+ * {@link com.aerospike.client.policy.ClientPolicy} so the mock can be configured the same way as
+ * the real client, plus the knobs that only make sense for a simulated server.
+ *
+ * @author srinivas.iyengar
+ */
+public class MockClientPolicy {
+    /**
+     * Default read policy that is used when read command's policy is null.
+     */
+    public Policy readPolicyDefault = new Policy();
+
+    /**
+     * Default write policy that is used when write command's policy is null.
+     */
+    public WritePolicy writePolicyDefault = new WritePolicy();
+
+    /**
+     * Default scan policy that is used when scan command's policy is null.
+     */
+    public ScanPolicy scanPolicyDefault = new ScanPolicy();
+
+    /**
+     * Default query policy that is used when query command's policy is null.
+     */
+    public QueryPolicy queryPolicyDefault = new QueryPolicy();
+
+    /**
+     * Default batch policy that is used when batch command's policy is null.
+     */
+    public BatchPolicy batchPolicyDefault = new BatchPolicy();
+
+    /**
+     * Default info policy that is used when info command's policy is null.
+     */
+    public InfoPolicy infoPolicyDefault = new InfoPolicy();
+
+    /**
+     * Latency and fault injection applied before every command. Default: null, commands are
+     * answered immediately and never fail.
+     */
+    public FaultSimulator simulator;
+
+    /**
+     * Number of simulated server nodes. Default: 1
+     */
+    public int nodeCount = 1;
+
+    /**
+     * Number of copies of each partition, capped by the number of nodes. Default: 2
+     */
+    public int replicationFactor = 2;
+
+    /**
+     * Number of threads migrating partitions after nodes join or leave. Default: 1
+     */
+    public int migrateThreads = 1;
+
+    /**
+     * Microseconds to sleep after migrating each record, like the server's
+     * <code>migrate-sleep</code>. Default: 0
+     */
+    public int migrateSleepMicros;
+
+    /**
+     * Most writes of one record that a write may queue behind before it fails with
+     * {@link com.aerospike.client.ResultCode#KEY_BUSY}, like the server's
+     * <code>transaction-pending-limit</code>, whose default is 20. 0 for unlimited. Default: 0
+     */
+    public int transactionPendingLimit;
+
+    /**
+     * Number of most read and most written keys to track, see
+     * {@link com.github.srini156.aerospike.client.cluster.SimulatedCluster#getHotKeys()}. The
+     * statistics are also registered as an MBean until the client is closed. 0 disables
+     * tracking. Default: 0
+     */
+    public int hotKeys;
+
+    /**
+     * Sets whose records are stored column by column, given as <code>namespace.set</code>, see
+     * {@link com.github.srini156.aerospike.client.cluster.SimulatedCluster#setColumnar}. Suits
+     * sets that are mostly scanned or queried for a few of their bins. Default: none
+     */
+    public Set<String> columnarSets = new HashSet<>();
+
+    /**
+     * Most distinct bin names a namespace holds, like the server's bin-name table. A write
+     * adding a name beyond it fails with {@link com.aerospike.client.ResultCode#BIN_NAME_TOO_LONG}.
+     * Default: 32767
+     */
+    public int binNameLimit = BinNames.LIMIT;
+
+    /**
+     * Engine storing the partitions of every node, e.g. {@link StorageEngine#hashMap()}.
+     * Snapshots can only be restored into clusters using the same engine. Default:
+     * {@link StorageEngine#index()}
+     */
+    public StorageEngine storageEngine = StorageEngine.index();
+
+    /**
+     * Milliseconds a tombstone left by a durable delete is kept before the tomb-raider may
+     * remove it, like the server's <code>tomb-raider-eligible-age</code>. Default: 86400000
+     */
+    public long tombRaiderEligibleAgeMillis = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Milliseconds between tomb-raider runs, like the server's <code>tomb-raider-period</code>,
+     * 0 to only remove tombstones when
+     * {@link com.github.srini156.aerospike.client.cluster.SimulatedCluster#raidTombstones()} is
+     * called. Default: 86400000
+     */
+    public long tombRaiderPeriodMillis = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Track server rack data, mirrors {@link com.aerospike.client.policy.ClientPolicy#rackAware}.
+     * Needed for {@link com.aerospike.client.policy.Replica#PREFER_RACK} reads. Default: false
+     */
+    public boolean rackAware;
+
+    /**
+     * Rack where this client instance resides, mirrors
+     * {@link com.aerospike.client.policy.ClientPolicy#rackId}. Default: 0
+     */
+    public int rackId;
+
+    /**
+     * Number of idle Lua interpreters kept for UDF calls. Default: 8
+     */
+    public int udfStatePoolSize = 8;
+
+    /**
+     * Number of threads running the background scan and query jobs started by
+     * <code>execute</code> with a statement, like the server's <code>scan-threads</code>.
+     * Default: 4
+     */
+    public int backgroundThreads = 4;
+
+    /**
+     * Number of events the change stream buffers for its slowest subscriber, rounded up to a
+     * power of two. Default: 8192
+     */
+    public int changeBufferSize = 8192;
+
+    /**
+     * What writes do when the change stream is full. Listeners must not write to the cluster
+     * with {@link ChangeStream.Overflow#BLOCK}. Default: {@link ChangeStream.Overflow#BLOCK}
+     */
+    public ChangeStream.Overflow changeOverflow = ChangeStream.Overflow.BLOCK;
+}
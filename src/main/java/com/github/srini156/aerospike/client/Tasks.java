@@ -0,0 +1,55 @@
+package com.github.srini156.aerospike.client;
+
+import java.lang.reflect.Field;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.Task;
+import com.github.srini156.aerospike.client.job.BackgroundJobs;
+
+/**
+ * Tasks for commands the mock completes before returning. The client's tasks poll the servers
+ * over the network until they report completion, so they are marked done reflectively. Tasks of
+ * background jobs poll an {@link InfoLoopback} instead.
+ *
+ * @author srinivas.iyengar
+ */
+final class Tasks {
+    private static final Field DONE = field(Task.class, "done");
+
+    private Tasks() {
+    }
+
+    /**
+     * @return <code>task</code>, with {@link Task#isDone()} returning true
+     */
+    static <T extends Task> T completed(T task) {
+        try {
+            DONE.setBoolean(task, true);
+        } catch (IllegalAccessException e) {
+            throw new AerospikeException(e);
+        }
+        return task;
+    }
+
+    /**
+     * @param jobs background jobs the task's status is looked up in
+     * @return task whose status polls find the job of the statement's task id in <code>jobs</code>
+     */
+    static ExecuteTask execute(Policy policy, Statement statement, BackgroundJobs jobs) {
+        return new ExecuteTask(InfoLoopback.cluster(command -> command.startsWith("jobs:") ? jobs.info(command) : ""),
+                policy, statement);
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Unsupported aerospike-client version, missing " + type.getName() + "." + name, e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.srini156.aerospike.client.cdc;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * One mutation published by a {@link ChangeStream}. Events are slots of the stream's ring and
+ * are reused once every subscriber has moved past them, so a listener must copy whatever it
+ * keeps beyond {@link ChangeListener#onChange}.
+ *
+ * @author srinivas.iyengar
+ */
+public final class ChangeEvent {
+    private CommandType type;
+    private Key key;
+    private Record record;
+    private String namespace;
+    private String setName;
+    private long lastUpdateTime;
+    /**
+     * Sequence of the event the slot holds, written last by the publisher.
+     */
+    volatile long sequence = -1;
+
+    ChangeEvent() {
+    }
+
+    void set(CommandType type, Key key, Record record, String namespace, String setName, long lastUpdateTime) {
+        this.type = type;
+        this.key = key;
+        this.record = record;
+        this.namespace = namespace;
+        this.setName = setName;
+        this.lastUpdateTime = lastUpdateTime;
+    }
+
+    /**
+     * @return command that caused the change. Writes that removed the record, such as an
+     * operate deleting its last bin, are reported as {@link CommandType#DELETE}.
+     */
+    public CommandType getType() {
+        return type;
+    }
+
+    /**
+     * @return key of the record, null for {@link CommandType#TRUNCATE}
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @return record as stored after the change, null for deletes and truncates
+     */
+    public Record getRecord() {
+        return record;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return set of the record, or set truncated, null if none
+     */
+    public String getSetName() {
+        return setName;
+    }
+
+    /**
+     * @return last-update-time the change was stored with in nanoseconds since the epoch, the
+     * cutoff of a truncate
+     */
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + (key != null ? key : namespace + ":" + setName) + " " + record;
+    }
+}
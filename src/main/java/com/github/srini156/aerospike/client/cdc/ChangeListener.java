@@ -0,0 +1,21 @@
+package com.github.srini156.aerospike.client.cdc;
+
+/**
+ * Consumer of the events of a {@link ChangeStream}, called on the subscription's own thread
+ * with every event in sequence order.
+ *
+ * @author srinivas.iyengar
+ */
+@FunctionalInterface
+public interface ChangeListener {
+    /**
+     * Handle one event. Throwing ends the subscription, see
+     * {@link ChangeSubscription#getFailure()}.
+     *
+     * @param event      the change, only valid during the call
+     * @param sequence   position of the event in the stream
+     * @param endOfBatch <code>true</code> for the last event that was available when the batch
+     *                   was taken, a good point to flush downstream
+     */
+    void onChange(ChangeEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,225 @@
+package com.github.srini156.aerospike.client.cdc;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * Change-data-capture stream of the mutations applied to a cluster, the way XDR ships them.
+ * <p>
+ * Events go through a ring of preallocated {@link ChangeEvent} slots shared by all
+ * subscribers. Publishers claim a sequence with a compare-and-set, fill the slot and publish it
+ * by writing its sequence, without taking a lock. A publisher may only reuse a slot once every
+ * subscriber has moved past it. If the ring is full it waits or drops the event, depending on
+ * the {@link Overflow} setting. While nobody subscribes, publishing reads one field and
+ * returns.
+ *
+ * @author srinivas.iyengar
+ */
+public final class ChangeStream {
+    private static final ChangeSubscription[] NONE = new ChangeSubscription[0];
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final long BLOCK_PARK_NANOS = 1_000;
+
+    /**
+     * What a publisher does when the slowest subscriber is a whole ring behind.
+     */
+    public enum Overflow {
+        /**
+         * Wait for the subscriber to catch up, slowing down writers. Writers wait while holding
+         * their record's lock, so listeners must not write to the cluster: a listener waiting for
+         * a record locked by a writer that waits for the listener would hang both. A writer
+         * interrupted while waiting drops its event, counted in {@link #getDropped()}, and keeps
+         * its interrupt status.
+         */
+        BLOCK,
+        /**
+         * Drop the event for every subscriber and count it in {@link #getDropped()}.
+         */
+        DROP
+    }
+
+    private final ChangeEvent[] ring;
+    private final int mask;
+    private final Overflow overflow;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long gate = -1;
+    private volatile ChangeSubscription[] subscriptions = NONE;
+
+    /**
+     * @param capacity number of events the ring holds, rounded up to a power of two
+     * @param overflow what to do when it is full
+     */
+    public ChangeStream(int capacity, Overflow overflow) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        size = size < capacity ? size << 1 : size;
+        this.ring = new ChangeEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new ChangeEvent();
+        }
+        this.mask = size - 1;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Attach a listener, which receives the events published from now on.
+     */
+    public synchronized ChangeSubscription subscribe(ChangeListener listener) {
+        ChangeSubscription subscription = new ChangeSubscription(this, listener, claimed.get(),
+                "mock-aerospike-changes-" + THREAD_ID.incrementAndGet());
+        ChangeSubscription[] current = subscriptions;
+        ChangeSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+        subscription.start();
+        return subscription;
+    }
+
+    synchronized void remove(ChangeSubscription subscription) {
+        ChangeSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                ChangeSubscription[] updated = new ChangeSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if any listener is attached
+     */
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    /**
+     * Publish a record write or delete.
+     *
+     * @param record record as stored, null for a delete
+     */
+    public void publish(CommandType type, Key key, Record record, long lastUpdateTime) {
+        publish(type, key, record, key.namespace, key.setName, lastUpdateTime);
+    }
+
+    /**
+     * Publish a truncate of a set or, if <code>setName</code> is null, of a namespace.
+     */
+    public void publishTruncate(String namespace, String setName, long cutoff) {
+        publish(CommandType.TRUNCATE, null, null, namespace, setName, cutoff);
+    }
+
+    private void publish(CommandType type, Key key, Record record, String namespace, String setName,
+                         long lastUpdateTime) {
+        if (subscriptions.length == 0) {
+            return;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            return;
+        }
+        ChangeEvent event = ring[(int) sequence & mask];
+        event.set(type, key, record, namespace, setName, lastUpdateTime);
+        event.sequence = sequence;
+    }
+
+    /**
+     * @return claimed sequence, -1 if the event is dropped
+     */
+    private long claim() {
+        while (true) {
+            long last = claimed.get();
+            long next = last + 1;
+            long wrapPoint = next - ring.length;
+            if (wrapPoint > gate) {
+                long slowest = slowest();
+                gate = slowest;
+                if (wrapPoint > slowest) {
+                    if (overflow == Overflow.DROP) {
+                        dropped.incrementAndGet();
+                        return -1;
+                    }
+                    LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                    if (subscriptions.length == 0) {
+                        return -1;
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        dropped.incrementAndGet();
+                        return -1;
+                    }
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long slowest() {
+        long slowest = claimed.get();
+        for (ChangeSubscription subscription : subscriptions) {
+            slowest = Math.min(slowest, subscription.getSequence());
+        }
+        return slowest;
+    }
+
+    /**
+     * @return highest sequence from <code>next</code> on whose events, and those before it,
+     * have been published, <code>next - 1</code> if there is none
+     */
+    long available(long next) {
+        long last = claimed.get();
+        long available = next - 1;
+        while (available < last && ring[(int) (available + 1) & mask].sequence == available + 1) {
+            available++;
+        }
+        return available;
+    }
+
+    ChangeEvent slot(long sequence) {
+        return ring[(int) sequence & mask];
+    }
+
+    /**
+     * @return number of slots in the ring
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return sequence of the last event claimed by a publisher, -1 if none
+     */
+    public long getSequence() {
+        return claimed.get();
+    }
+
+    /**
+     * @return number of events dropped because the ring was full, or because a writer waiting
+     * for room was interrupted
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Detach every listener.
+     */
+    public void close() {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.srini156.aerospike.client.cdc;
+
+import java.io.Closeable;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A listener attached to a {@link ChangeStream}, fed by its own daemon thread. The thread takes
+ * every event published so far as one batch, hands them to the listener and only then moves its
+ * cursor, which frees the slots for publishers. While nothing is published it backs off from
+ * yielding to parking for up to a millisecond, so publishers never have to wake it.
+ *
+ * @author srinivas.iyengar
+ */
+public final class ChangeSubscription implements Closeable {
+    private static final int SPINS = 64;
+    private static final long MIN_PARK_NANOS = 10_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final ChangeStream stream;
+    private final ChangeListener listener;
+    private final Thread thread;
+    private volatile long cursor;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    ChangeSubscription(ChangeStream stream, ChangeListener listener, long cursor, String threadName) {
+        this.stream = stream;
+        this.listener = listener;
+        this.cursor = cursor;
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * @return sequence of the last event handed to the listener, -1 if none
+     */
+    public long getSequence() {
+        return cursor;
+    }
+
+    /**
+     * @return exception the listener threw, which ended the subscription, null if none
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Detach the listener. Events not handed to it yet are discarded. Waits for a call to the
+     * listener in progress unless made by the listener itself.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        stream.remove(this);
+        if (Thread.currentThread() != thread) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        int idle = 0;
+        long park = MIN_PARK_NANOS;
+        while (!closed) {
+            long next = cursor + 1;
+            long available = stream.available(next);
+            if (available < next) {
+                if (++idle < SPINS) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, park);
+                    park = Math.min(MAX_PARK_NANOS, park * 2);
+                }
+                continue;
+            }
+            idle = 0;
+            park = MIN_PARK_NANOS;
+            try {
+                for (long sequence = next; sequence <= available; sequence++) {
+                    listener.onChange(stream.slot(sequence), sequence, sequence == available);
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                closed = true;
+                stream.remove(this);
+                return;
+            }
+            cursor = available;
+        }
+    }
+}
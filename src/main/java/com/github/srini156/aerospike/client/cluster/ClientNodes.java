@@ -0,0 +1,100 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Host;
+import com.aerospike.client.cluster.Cluster;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.NodeValidator;
+
+/**
+ * Builds the client's own {@link Node} objects for simulated nodes. The client only creates
+ * nodes after validating them over the network, so the validator fields and the cluster's node
+ * table are filled in reflectively.
+ *
+ * @author srinivas.iyengar
+ */
+final class ClientNodes {
+    private static final int FEATURES = Node.HAS_GEO | Node.HAS_TRUNCATE_NS | Node.HAS_BIT_OP
+            | Node.HAS_INDEX_EXISTS | Node.HAS_PEERS | Node.HAS_REPLICAS | Node.HAS_CLUSTER_STABLE
+            | Node.HAS_LUT_NOW | Node.HAS_PARTITION_SCAN;
+
+    private static final Field VALIDATOR_NAME = field(NodeValidator.class, "name");
+    private static final Field VALIDATOR_ALIASES = field(NodeValidator.class, "aliases");
+    private static final Field VALIDATOR_HOST = field(NodeValidator.class, "primaryHost");
+    private static final Field VALIDATOR_ADDRESS = field(NodeValidator.class, "primaryAddress");
+    private static final Field VALIDATOR_FEATURES = field(NodeValidator.class, "features");
+    private static final Field CLUSTER_NODES = field(Cluster.class, "nodes");
+    private static final Field NODE_RACKS = field(Node.class, "racks");
+    private static final Field NODE_ACTIVE = field(Node.class, "active");
+
+    private ClientNodes() {
+    }
+
+    /**
+     * @return client node handle for a simulated node
+     */
+    static Node newNode(Cluster cluster, String name, Host host) {
+        NodeValidator validator = new NodeValidator();
+        List<Host> aliases = new ArrayList<>(1);
+        aliases.add(host);
+        try {
+            VALIDATOR_NAME.set(validator, name);
+            VALIDATOR_ALIASES.set(validator, aliases);
+            VALIDATOR_HOST.set(validator, host);
+            VALIDATOR_ADDRESS.set(validator, InetSocketAddress.createUnresolved(host.name, host.port));
+            VALIDATOR_FEATURES.setInt(validator, FEATURES);
+        } catch (IllegalAccessException e) {
+            throw new AerospikeException(e);
+        }
+        return new Node(cluster, validator);
+    }
+
+    /**
+     * Replace the active node list that {@link Cluster#getNodes()} returns.
+     */
+    static void setNodes(Cluster cluster, Node[] nodes) {
+        try {
+            CLUSTER_NODES.set(cluster, nodes);
+        } catch (IllegalAccessException e) {
+            throw new AerospikeException(e);
+        }
+    }
+
+    /**
+     * Replace the namespace to rack id map consulted by {@link Node#hasRack(String, int)}.
+     */
+    static void setRacks(Node node, Map<String, Integer> racks) {
+        try {
+            NODE_RACKS.set(node, racks);
+        } catch (IllegalAccessException e) {
+            throw new AerospikeException(e);
+        }
+    }
+
+    /**
+     * Mark a node inactive without {@link Node#close()}, which expects a tend connection.
+     */
+    static void deactivate(Node node) {
+        try {
+            NODE_ACTIVE.setBoolean(node, false);
+        } catch (IllegalAccessException e) {
+            throw new AerospikeException(e);
+        }
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Unsupported aerospike-client version, missing " + type.getName() + "." + name, e);
+        }
+    }
+}
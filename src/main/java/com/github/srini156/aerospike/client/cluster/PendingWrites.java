@@ -0,0 +1,117 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+
+/**
+ * Per-record queue accounting, the server's <code>transaction-pending-limit</code>. A write
+ * enters the queue of its record before waiting for the record lock and leaves it when done; a
+ * write that would find more than <code>limit</code> writes ahead of it fails with
+ * {@link ResultCode#KEY_BUSY} instead.
+ * <p>
+ * Queues are counted per {@link RecordLocks} stripe, which is what a write actually waits for,
+ * so an uncontended write only increments and decrements one counter. Writes that find their
+ * stripe busy are reported per record, for the {@link #TRACKED} most contended records until
+ * {@link #clear()}.
+ *
+ * @author srinivas.iyengar
+ */
+final class PendingWrites {
+    /**
+     * Most records whose contention is reported. A contended record not seen yet replaces the
+     * least contended one once this many are tracked.
+     */
+    static final int TRACKED = 100;
+
+    private static final Comparator<RecordContention> MOST_CONTENDED = Comparator
+            .comparingLong(RecordContention::getRejected)
+            .thenComparingLong(RecordContention::getQueued).reversed();
+
+    private final RecordLocks locks;
+    private final int limit;
+    private final AtomicIntegerArray pending;
+    private final Map<Key, RecordContention> records = new HashMap<>();
+
+    /**
+     * @param locks stripes the writes are serialized on
+     * @param limit most writes a write may queue behind, 0 for unlimited
+     */
+    PendingWrites(RecordLocks locks, int limit) {
+        this.locks = locks;
+        this.limit = Math.max(0, limit);
+        this.pending = new AtomicIntegerArray(locks.stripes());
+    }
+
+    /**
+     * Queue a write of <code>key</code>, to be followed by {@link #exit} once it is done.
+     *
+     * @throws AerospikeException with {@link ResultCode#KEY_BUSY} if the queue is full
+     */
+    void enter(Key key) {
+        int stripe = locks.stripe(key);
+        int ahead = pending.getAndIncrement(stripe);
+        if (ahead == 0) {
+            return;
+        }
+        boolean busy = limit > 0 && ahead > limit;
+        if (busy) {
+            pending.decrementAndGet(stripe);
+        }
+        contended(key, ahead, busy);
+        if (busy) {
+            throw new AerospikeException(ResultCode.KEY_BUSY);
+        }
+    }
+
+    void exit(Key key) {
+        pending.decrementAndGet(locks.stripe(key));
+    }
+
+    private synchronized void contended(Key key, int ahead, boolean busy) {
+        RecordContention record = records.get(key);
+        if (record == null) {
+            if (records.size() >= TRACKED) {
+                records.remove(Collections.max(records.values(), MOST_CONTENDED).getKey());
+            }
+            record = new RecordContention(key);
+            records.put(key, record);
+        }
+        if (busy) {
+            record.rejected++;
+            return;
+        }
+        record.queued++;
+        if (ahead + 1 > record.maxPending) {
+            record.maxPending = ahead + 1;
+        }
+    }
+
+    /**
+     * @return contended records, most rejected and then most queued first, with the writes
+     * pending on their stripe right now
+     */
+    synchronized List<RecordContention> contended() {
+        List<RecordContention> contended = new ArrayList<>(records.values());
+        for (RecordContention record : contended) {
+            record.pending = pending.get(locks.stripe(record.getKey()));
+        }
+        contended.sort(MOST_CONTENDED);
+        return contended;
+    }
+
+    /**
+     * Forget the contention seen so far.
+     */
+    synchronized void clear() {
+        records.clear();
+    }
+}
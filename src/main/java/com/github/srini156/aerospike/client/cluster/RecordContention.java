@@ -0,0 +1,61 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import com.aerospike.client.Key;
+
+/**
+ * Contention seen on one record: writes that had to queue behind another write of the same
+ * record and writes rejected with {@link com.aerospike.client.ResultCode#KEY_BUSY}. Only the most
+ * contended records are tracked.
+ *
+ * @author srinivas.iyengar
+ */
+public final class RecordContention {
+    private final Key key;
+    volatile int pending;
+    volatile int maxPending;
+    volatile long queued;
+    volatile long rejected;
+
+    RecordContention(Key key) {
+        this.key = key;
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @return writes running or waiting right now on the lock stripe of the record, which records
+     * whose digests hash alike share
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return most writes of the record that were running or waiting at the same time
+     */
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * @return writes that found another write of the record in progress and had to wait
+     */
+    public long getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return writes failed with <code>KEY_BUSY</code> because too many were waiting already
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return key + ": pending=" + pending + ", maxPending=" + maxPending + ", queued=" + queued
+                + ", rejected=" + rejected;
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aerospike.client.Key;
+
+/**
+ * Striped per-record locks. Writes and migrations of the same record are serialized on the
+ * stripe its digest hashes to, so a migrating copy can never overwrite a newer write.
+ *
+ * @author srinivas.iyengar
+ */
+final class RecordLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    RecordLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes));
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    ReentrantLock lockFor(Key key) {
+        return stripes[stripe(key)];
+    }
+
+    /**
+     * @return index of the stripe the key's writes are serialized on
+     */
+    int stripe(Key key) {
+        byte[] digest = key.digest;
+        // Bytes 4-7 of the digest, the partition id comes from bytes 0-1.
+        int hash = (digest[4] & 0xFF) | (digest[5] & 0xFF) << 8 | (digest[6] & 0xFF) << 16 | (digest[7] & 0xFF) << 24;
+        return hash & mask;
+    }
+
+    int stripes() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,1169 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Host;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.cluster.Cluster;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.cluster.Partitions;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.Policy;
+import com.github.srini156.aerospike.client.CommandType;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.cdc.ChangeListener;
+import com.github.srini156.aerospike.client.cdc.ChangeStream;
+import com.github.srini156.aerospike.client.cdc.ChangeSubscription;
+import com.github.srini156.aerospike.client.stats.HotKeys;
+import com.github.srini156.aerospike.client.store.PartitionImage;
+import com.github.srini156.aerospike.client.store.BinNames;
+import com.github.srini156.aerospike.client.store.PartitionedStore;
+import com.github.srini156.aerospike.client.store.ScanSample;
+import com.github.srini156.aerospike.client.store.SetNames;
+import com.github.srini156.aerospike.client.store.StorageEngine;
+import com.github.srini156.aerospike.client.store.Truncations;
+
+/**
+ * In-process cluster of simulated server nodes. Every partition is owned by
+ * <code>replicationFactor</code> nodes, the first of which is its master, and the ownership is
+ * published through the client's own {@link Partitions} map so commands are routed exactly as
+ * the real client would route them.
+ * <p>
+ * Adding or removing a node rebalances ownership. A removed master's replica is promoted straight
+ * away, while copying partitions to their new owners happens in the background, one partition
+ * and one record at a time: incoming nodes receive every write made during the migration and
+ * the copy of each record is taken under its record lock, so migrations compete with client
+ * writes the same way they do on a real cluster during a rolling restart.
+ *
+ * @author srinivas.iyengar
+ */
+public class SimulatedCluster implements Closeable {
+    /**
+     * Number of partitions per namespace.
+     */
+    public static final int PARTITIONS = Node.PARTITIONS;
+
+    private static final SimulatedNode[] NO_NODES = new SimulatedNode[0];
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final AtomicInteger CLUSTER_ID = new AtomicInteger();
+
+    private final int replicationFactor;
+    private final int migrateThreads;
+    private final long migrateSleepNanos;
+    private final ClusterView view;
+    private final List<SimulatedNode> nodes = new CopyOnWriteArrayList<>();
+    private final Map<String, SimulatedNode> nodesByName = new ConcurrentHashMap<>();
+    private final PartitionState[] partitions = new PartitionState[PARTITIONS];
+    private final RecordLocks locks = new RecordLocks(1024);
+    private final PendingWrites pendingWrites;
+    private final HotKeys hotKeys;
+    private final ObjectName hotKeysName;
+    private final BlockingQueue<PartitionState> migrations = new LinkedBlockingQueue<>();
+    private final AtomicInteger pendingMigrations = new AtomicInteger();
+    private final AtomicInteger peersGeneration = new AtomicInteger();
+    private final AtomicInteger partitionGeneration = new AtomicInteger();
+    private final int changeBufferSize;
+    private final ChangeStream.Overflow changeOverflow;
+    private volatile ChangeStream changes;
+    private final AtomicLong lastUpdateTime = new AtomicLong();
+    private final Truncations truncations = new Truncations();
+    private final SetNames setNames;
+    private final StorageEngine storageEngine;
+    private final AtomicInteger pendingTruncations = new AtomicInteger();
+    private final int clusterId = CLUSTER_ID.incrementAndGet();
+    private final Object membership = new Object();
+    private Thread[] migrators;
+    private ExecutorService truncator;
+    private volatile ScheduledExecutorService tombRaider;
+    private final long tombRaiderEligibleAgeNanos;
+    private final long tombRaiderPeriodMillis;
+    private int nodeSequence;
+
+    /**
+     * @param policy cluster size, replication factor and migration settings
+     */
+    public SimulatedCluster(MockClientPolicy policy) {
+        this(policy, null);
+    }
+
+    /**
+     * Cluster starting out with the data of a snapshot, which may have been taken of a cluster
+     * of another size.
+     *
+     * @param policy   cluster size, replication factor and migration settings
+     * @param snapshot data to start with, null for none
+     */
+    public SimulatedCluster(MockClientPolicy policy, Snapshot snapshot) {
+        if (policy.nodeCount < 1) {
+            throw new IllegalArgumentException("Cluster needs at least one node: " + policy.nodeCount);
+        }
+        if (policy.replicationFactor < 1) {
+            throw new IllegalArgumentException("Replication factor must be positive: " + policy.replicationFactor);
+        }
+        this.replicationFactor = policy.replicationFactor;
+        this.migrateThreads = Math.max(1, policy.migrateThreads);
+        this.migrateSleepNanos = TimeUnit.MICROSECONDS.toNanos(policy.migrateSleepMicros);
+        this.pendingWrites = new PendingWrites(locks, policy.transactionPendingLimit);
+        this.hotKeys = policy.hotKeys > 0 ? new HotKeys(policy.hotKeys, PARTITIONS, SimulatedCluster::partitionId) : null;
+        this.changeBufferSize = policy.changeBufferSize;
+        this.changeOverflow = policy.changeOverflow;
+        this.view = new ClusterView(policy);
+        this.setNames = snapshot != null ? snapshot.setNames : new SetNames(policy.binNameLimit);
+        this.storageEngine = policy.storageEngine;
+        this.tombRaiderEligibleAgeNanos = TimeUnit.MILLISECONDS.toNanos(policy.tombRaiderEligibleAgeMillis);
+        this.tombRaiderPeriodMillis = policy.tombRaiderPeriodMillis;
+        for (String set : policy.columnarSets) {
+            int dot = set.indexOf('.');
+            if (dot < 0) {
+                throw new IllegalArgumentException("Columnar set must be given as namespace.set: " + set);
+            }
+            setNames.setColumnar(set.substring(0, dot), set.substring(dot + 1), true);
+        }
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions[i] = new PartitionState(i);
+        }
+        synchronized (membership) {
+            for (int i = 0; i < policy.nodeCount; i++) {
+                nodes.add(newNode());
+            }
+            publishNodes();
+            // Initial ownership needs no data movement.
+            for (PartitionState state : partitions) {
+                synchronized (state) {
+                    state.ownership = new Ownership(owners(state.id), NO_NODES);
+                }
+            }
+        }
+        if (snapshot != null) {
+            restore(snapshot);
+        }
+        this.hotKeysName = hotKeys != null ? register(hotKeys) : null;
+    }
+
+    private ObjectName register(HotKeys hotKeys) {
+        try {
+            ObjectName name = new ObjectName("com.github.srini156.aerospike:type=HotKeys,cluster=" + clusterId);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(hotKeys, name);
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register hot key statistics", e);
+        }
+    }
+
+    /**
+     * @return counter bumped whenever nodes join or leave, served as the
+     * <code>peers-generation</code> info value
+     */
+    public int getPeersGeneration() {
+        return peersGeneration.get();
+    }
+
+    /**
+     * @return counter bumped whenever partition ownership changes, served as the
+     * <code>partition-generation</code> info value
+     */
+    public int getPartitionGeneration() {
+        return partitionGeneration.get();
+    }
+
+    /**
+     * @return namespaces the cluster holds
+     */
+    public Set<String> getNamespaces() {
+        return Collections.unmodifiableSet(view.partitionMap.keySet());
+    }
+
+    /**
+     * Declare a namespace before anything is written to it, the way a server is configured with
+     * its namespaces, so clients can route commands for it straight away.
+     */
+    public void addNamespace(String namespace) {
+        ensureNamespace(namespace);
+    }
+
+    /**
+     * @return partition id of the key, the same one the client routes by
+     */
+    public static int partitionId(Key key) {
+        byte[] digest = key.digest;
+        int value = (digest[0] & 0xFF) | (digest[1] & 0xFF) << 8;
+        return value % PARTITIONS;
+    }
+
+    /**
+     * @return client side view of the cluster whose {@link Cluster#partitionMap} reflects the
+     * simulated ownership
+     */
+    public Cluster getClientCluster() {
+        return view;
+    }
+
+    /**
+     * @return active nodes
+     */
+    public List<SimulatedNode> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    /**
+     * @throws AerospikeException.InvalidNode if the node is not part of the cluster
+     */
+    public SimulatedNode getNode(String nodeName) throws AerospikeException.InvalidNode {
+        SimulatedNode node = nodesByName.get(nodeName);
+        if (node == null) {
+            throw new AerospikeException.InvalidNode("Invalid node name: " + nodeName);
+        }
+        return node;
+    }
+
+    /**
+     * @return simulated node behind a client node handle
+     * @throws AerospikeException.InvalidNode if the node is not part of the cluster
+     */
+    public SimulatedNode getNode(Node node) throws AerospikeException.InvalidNode {
+        return getNode(node.getName());
+    }
+
+    /**
+     * @return master of the partition the key belongs to
+     */
+    public SimulatedNode getMaster(Key key) {
+        return master(partitions[partitionId(key)]);
+    }
+
+    /**
+     * @return replication factor the cluster was configured with
+     */
+    public int getReplicationFactor() {
+        return replicationFactor;
+    }
+
+    /**
+     * @return nodes holding a partition, master first
+     */
+    public List<SimulatedNode> getReplicas(int partitionId) {
+        return Arrays.asList(partitions[partitionId].ownership.replicas);
+    }
+
+    /**
+     * @return ids of the partitions the node is master of
+     */
+    public List<Integer> getMasterPartitions(SimulatedNode node) {
+        List<Integer> owned = new ArrayList<>();
+        for (PartitionState state : partitions) {
+            SimulatedNode[] replicas = state.ownership.replicas;
+            if (replicas.length > 0 && replicas[0] == node) {
+                owned.add(state.id);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * @return record from the partition's master or null if it does not exist
+     */
+    public Record read(Key key) {
+        PartitionState state = partitions[partitionId(key)];
+        if (hotKeys != null) {
+            hotKeys.recordRead(key);
+        }
+        return master(state).getStore().get(state.id, key);
+    }
+
+    /**
+     * Route a read the way the client does for the policy's
+     * {@link com.aerospike.client.policy.Replica} setting.
+     *
+     * @return partition whose {@link Partition#getNodeRead(Cluster)} picks the node of each
+     * attempt
+     */
+    public Partition routeRead(Policy policy, Key key) {
+        ensureNamespace(key.namespace);
+        return Partition.read(view, policy, key);
+    }
+
+    /**
+     * Read a record from the copy held by <code>node</code>. A node that does not hold the
+     * partition proxies the read to the master, like the server does.
+     *
+     * @return record or null if it does not exist on that copy
+     */
+    public Record read(Key key, SimulatedNode node) {
+        PartitionState state = partitions[partitionId(key)];
+        if (hotKeys != null) {
+            hotKeys.recordRead(key);
+        }
+        SimulatedNode[] replicas = state.ownership.replicas;
+        SimulatedNode source = indexOf(replicas, node) >= 0 ? node : master(state, replicas);
+        return source.getStore().get(state.id, key);
+    }
+
+    /**
+     * Apply a read-modify-write to a record under its record lock, then replicate the result to
+     * every replica and to nodes the partition is migrating to. Changes are published to
+     * {@link #subscribe change subscribers} in the order the record lock grants them.
+     *
+     * @param key     record key
+     * @param command command the write is for, reported to change subscribers
+     * @param update  receives the current record or null, returns the record to store or null to
+     *                delete it. Exceptions thrown by it abort the write.
+     * @return record returned by <code>update</code>, its bin names interned in the namespace's
+     * {@link BinNames}
+     * @throws AerospikeException with {@link ResultCode#KEY_BUSY} if too many writes of the record
+     *                            are pending already, see
+     *                            {@link MockClientPolicy#transactionPendingLimit}, or with
+     *                            {@link ResultCode#BIN_NAME_TOO_LONG} if the record adds a bin
+     *                            name to a namespace that has {@link MockClientPolicy#binNameLimit}
+     *                            already
+     */
+    public Record write(Key key, CommandType command, UnaryOperator<Record> update) {
+        return write(key, command, false, update);
+    }
+
+    /**
+     * Apply a write like {@link #write(Key, CommandType, UnaryOperator)}, leaving a tombstone if
+     * it deletes the record durably. A tombstone keeps the record's generation, so the record
+     * written again counts on from it, and is replicated and migrated like a record while reads
+     * and scans skip it. The {@link #raidTombstones() tomb-raider} removes tombstones once they
+     * are {@link MockClientPolicy#tombRaiderEligibleAgeMillis old enough}.
+     *
+     * @param durableDelete <code>true</code> to leave a tombstone if <code>update</code> deletes
+     *                      the record
+     */
+    public Record write(Key key, CommandType command, boolean durableDelete, UnaryOperator<Record> update) {
+        ensureNamespace(key.namespace);
+        PartitionState state = partitions[partitionId(key)];
+        if (hotKeys != null) {
+            hotKeys.recordWrite(key);
+        }
+        pendingWrites.enter(key);
+        ReentrantLock lock = locks.lockFor(key);
+        lock.lock();
+        try {
+            Ownership ownership = state.ownership;
+            Record stored = master(state, ownership.replicas).getStore().getEntry(state.id, key);
+            Record current = PartitionedStore.isTombstone(stored) ? null : stored;
+            Record updated = nextGeneration(stored, setNames.binNames(key.namespace).intern(update.apply(current)));
+            Record entry = updated;
+            if (updated == null && current != null && durableDelete) {
+                entry = nextGeneration(stored, PartitionedStore.tombstone(0));
+                tombRaider();
+            }
+            long updateTime = nextUpdateTime();
+            // Deleting a record that is only a tombstone leaves the tombstone as it was.
+            if (updated != null || stored == current) {
+                replicate(state.id, key, entry, updateTime, ownership.replicas);
+                copy(state.id, key, entry, updateTime, ownership.incoming);
+                Ownership latest = state.ownership;
+                if (latest != ownership) {
+                    // A migration started or finished meanwhile and may not see this write.
+                    replicate(state.id, key, entry, updateTime, latest.replicas);
+                    copy(state.id, key, entry, updateTime, latest.incoming);
+                }
+            }
+            ChangeStream stream = changes;
+            if (stream != null && (updated != null || current != null)) {
+                stream.publish(updated == null ? CommandType.DELETE : command, key, updated, updateTime);
+            }
+            return updated;
+        } finally {
+            lock.unlock();
+            pendingWrites.exit(key);
+        }
+    }
+
+    /**
+     * @return <code>updated</code> with the generation after <code>current</code>'s, like the
+     * server counts the writes of a record, wrapping around after 65535. A record returned
+     * unchanged keeps its generation.
+     */
+    private static Record nextGeneration(Record current, Record updated) {
+        if (updated == null || updated == current) {
+            return updated;
+        }
+        int generation = current == null || current.generation >= 0xFFFF ? 1 : current.generation + 1;
+        return updated.generation == generation ? updated : new Record(updated.bins, generation, updated.expiration);
+    }
+
+    /**
+     * @return records whose writes had to queue or failed with {@link ResultCode#KEY_BUSY}, most
+     * rejected and then most queued first
+     */
+    public List<RecordContention> getContention() {
+        return pendingWrites.contended();
+    }
+
+    /**
+     * Forget the contention reported by {@link #getContention()} so far.
+     */
+    public void clearContention() {
+        pendingWrites.clear();
+    }
+
+    /**
+     * @return most read and most written keys, sets and partitions, null unless enabled by
+     * {@link MockClientPolicy#hotKeys}
+     */
+    public HotKeys getHotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * @return <code>true</code> if the record existed
+     */
+    public boolean delete(Key key) {
+        return delete(key, false);
+    }
+
+    /**
+     * @param durable <code>true</code> to leave a tombstone, see
+     *                {@link #write(Key, CommandType, boolean, UnaryOperator)}
+     * @return <code>true</code> if the record existed
+     */
+    public boolean delete(Key key, boolean durable) {
+        boolean[] existed = new boolean[1];
+        write(key, CommandType.DELETE, durable, current -> {
+            existed[0] = current != null;
+            return null;
+        });
+        return existed[0];
+    }
+
+    /**
+     * Visit the records of one partition of a namespace on its master.
+     */
+    public void scan(String namespace, int partitionId, BiConsumer<Key, Record> consumer) {
+        scan(namespace, partitionId, (String[]) null, consumer);
+    }
+
+    /**
+     * Visit the records of one partition of a namespace on its master, reading only some of
+     * their bins.
+     *
+     * @param binNames bins the consumer needs, null for all, see
+     *                 {@link PartitionedStore#forEach(String, int, int, String[], BiConsumer)}
+     */
+    public void scan(String namespace, int partitionId, String[] binNames, BiConsumer<Key, Record> consumer) {
+        PartitionState state = partitions[partitionId];
+        master(state).getStore().forEach(namespace, partitionId, Integer.MAX_VALUE, binNames, consumer);
+    }
+
+    /**
+     * Visit a sample of the records of one partition of a namespace on its master.
+     *
+     * @param sample share of the partition to read
+     */
+    public void scan(String namespace, int partitionId, ScanSample sample, BiConsumer<Key, Record> consumer) {
+        scan(namespace, partitionId, sample, null, consumer);
+    }
+
+    /**
+     * Visit a sample of the records of one partition of a namespace on its master, reading only
+     * some of their bins.
+     *
+     * @param sample   share of the partition to read
+     * @param binNames bins the consumer needs, null for all
+     */
+    public void scan(String namespace, int partitionId, ScanSample sample, String[] binNames,
+                     BiConsumer<Key, Record> consumer) {
+        PartitionedStore store = master(partitions[partitionId]).getStore();
+        store.forEach(namespace, partitionId, sample.limit(store.size(namespace, partitionId)), binNames, consumer);
+    }
+
+    /**
+     * @return bin-name table of the namespace, which stored records take their bin names from
+     */
+    public BinNames getBinNames(String namespace) {
+        return setNames.binNames(namespace);
+    }
+
+    /**
+     * Store the records of a set column by column, or row by row again, from their next write
+     * on. Scans, queries and aggregations that project bins then read only those bins' columns;
+     * point reads rebuild whole records.
+     */
+    public void setColumnar(String namespace, String setName, boolean columnar) {
+        setNames.setColumnar(namespace, setName, columnar);
+    }
+
+    /**
+     * Attach a listener to the cluster's change stream, which carries every write, delete and
+     * truncate from now on. The stream's ring is allocated by the first subscription, so
+     * writes pay nothing for it until then.
+     *
+     * @return subscription to close once done
+     */
+    public ChangeSubscription subscribe(ChangeListener listener) {
+        ChangeStream stream = changes;
+        if (stream == null) {
+            synchronized (membership) {
+                stream = changes;
+                if (stream == null) {
+                    stream = new ChangeStream(changeBufferSize, changeOverflow);
+                    changes = stream;
+                }
+            }
+        }
+        return stream.subscribe(listener);
+    }
+
+    /**
+     * @return change stream, null if nobody subscribed yet
+     */
+    public ChangeStream getChanges() {
+        return changes;
+    }
+
+    /**
+     * Take a snapshot of the data. Each partition is frozen as its master holds it; partitions
+     * share their index tables with the snapshot until they are next written to, so this takes
+     * the same time whatever the number of records. Take it while no writes are in flight to get
+     * a consistent cut across partitions.
+     */
+    public Snapshot snapshot() {
+        PartitionImage[] images = new PartitionImage[PARTITIONS];
+        for (PartitionState state : partitions) {
+            images[state.id] = master(state).getStore().freeze(state.id);
+        }
+        return new Snapshot(setNames, images, truncations.copy(), new HashSet<>(getNamespaces()));
+    }
+
+    /**
+     * Replace all data with a snapshot: every node holding or receiving a partition gets the
+     * partition's image, others drop it, and truncation cutoffs are reset to the snapshot's.
+     * Restoring shares index tables like taking the snapshot does, and is not published to change
+     * subscribers. Restore while no writes are in flight.
+     *
+     * @throws IllegalArgumentException if the snapshot was taken of an unrelated cluster
+     */
+    public void restore(Snapshot snapshot) {
+        if (snapshot.setNames != setNames) {
+            throw new IllegalArgumentException("Snapshot was taken of another cluster");
+        }
+        for (String namespace : snapshot.namespaces) {
+            ensureNamespace(namespace);
+        }
+        truncations.restore(snapshot.truncations);
+        for (PartitionState state : partitions) {
+            state.migration.lock();
+            try {
+                Ownership ownership = state.ownership;
+                for (SimulatedNode node : nodes) {
+                    if (indexOf(ownership.replicas, node) >= 0 || indexOf(ownership.incoming, node) >= 0) {
+                        node.getStore().restore(state.id, snapshot.partitions[state.id]);
+                    } else {
+                        node.getStore().clear(state.id);
+                    }
+                }
+            } finally {
+                state.migration.unlock();
+            }
+        }
+    }
+
+    /**
+     * Truncate a set or a whole namespace. Records last updated before the cutoff disappear from
+     * reads and scans immediately; they are removed from every node in the background, one
+     * partition at a time.
+     *
+     * @param setName          set to truncate, null for the whole namespace
+     * @param beforeLastUpdate cutoff, null for now
+     * @throws AerospikeException with {@link ResultCode#PARAMETER_ERROR} if the cutoff is in
+     *                            the future
+     */
+    public void truncate(String namespace, String setName, Calendar beforeLastUpdate) {
+        long cutoff;
+        if (beforeLastUpdate == null) {
+            cutoff = nextUpdateTime();
+        } else {
+            if (beforeLastUpdate.getTimeInMillis() > System.currentTimeMillis()) {
+                throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Truncate cutoff is in the future");
+            }
+            cutoff = TimeUnit.MILLISECONDS.toNanos(beforeLastUpdate.getTimeInMillis());
+        }
+        truncations.truncate(namespace, setName, cutoff);
+        ChangeStream stream = changes;
+        if (stream != null) {
+            stream.publishTruncate(namespace, setName, cutoff);
+        }
+        ExecutorService executor = truncator();
+        pendingTruncations.addAndGet(PARTITIONS);
+        for (int i = 0; i < PARTITIONS; i++) {
+            int partitionId = i;
+            executor.execute(() -> {
+                try {
+                    for (SimulatedNode node : nodes) {
+                        node.getStore().dropTruncated(namespace, setName, partitionId);
+                    }
+                } finally {
+                    if (pendingTruncations.decrementAndGet() == 0) {
+                        synchronized (pendingTruncations) {
+                            pendingTruncations.notifyAll();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return number of partitions whose truncated records are still being dropped
+     */
+    public int getPendingTruncations() {
+        return pendingTruncations.get();
+    }
+
+    /**
+     * Wait for truncated records to be dropped from every node.
+     *
+     * @return <code>true</code> if the drops completed in time
+     */
+    public boolean awaitTruncations(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pendingTruncations) {
+            while (pendingTruncations.get() > 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(pendingTruncations, left);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove the tombstones of durable deletes that are older than
+     * {@link MockClientPolicy#tombRaiderEligibleAgeMillis} from every node, like the server's
+     * tomb-raider. Runs every {@link MockClientPolicy#tombRaiderPeriodMillis} in the background
+     * once a tombstone has been written, and does nothing while migrations are pending, as a
+     * tombstone may still have to reach a node that holds an older copy of the record.
+     *
+     * @return number of tombstones removed, counting each copy
+     */
+    public int raidTombstones() {
+        if (pendingMigrations.get() > 0) {
+            return 0;
+        }
+        long before = nextUpdateTime() - tombRaiderEligibleAgeNanos;
+        int dropped = 0;
+        for (int i = 0; i < PARTITIONS; i++) {
+            for (SimulatedNode node : nodes) {
+                dropped += node.getStore().dropTombstones(i, before);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * @return number of tombstones on all nodes, counting each copy
+     */
+    public long getTombstoneCount() {
+        long count = 0;
+        for (SimulatedNode node : nodes) {
+            count += node.getTombstoneCount();
+        }
+        return count;
+    }
+
+    /**
+     * Add an empty node. It takes over its share of partitions as migrations complete.
+     *
+     * @return the new node
+     */
+    public SimulatedNode addNode() {
+        synchronized (membership) {
+            SimulatedNode node = newNode();
+            nodes.add(node);
+            publishNodes();
+            for (PartitionState state : partitions) {
+                scheduleMigration(state);
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Remove a node and drop its data. Replicas of the partitions it was master of are promoted
+     * immediately, lost copies are re-replicated in the background.
+     *
+     * @throws AerospikeException.InvalidNode if the node is not part of the cluster
+     */
+    public void removeNode(String nodeName) throws AerospikeException.InvalidNode {
+        synchronized (membership) {
+            SimulatedNode node = getNode(nodeName);
+            if (nodes.size() == 1) {
+                throw new IllegalStateException("Cannot remove the last node of the cluster");
+            }
+            nodesByName.remove(nodeName);
+            nodes.remove(node);
+            publishNodes();
+            for (PartitionState state : partitions) {
+                synchronized (state) {
+                    Ownership ownership = state.ownership;
+                    SimulatedNode[] replicas = without(ownership.replicas, node);
+                    if (replicas.length == 0) {
+                        // Without any copy left the partition restarts empty on its new owners.
+                        replicas = owners(state.id);
+                    }
+                    state.ownership = new Ownership(replicas, without(ownership.incoming, node));
+                    publishPartition(state);
+                }
+                scheduleMigration(state);
+            }
+            node.deactivate();
+        }
+    }
+
+    /**
+     * @return number of partitions waiting for or in migration
+     */
+    public int getPendingMigrations() {
+        return pendingMigrations.get();
+    }
+
+    /**
+     * Wait for the cluster to settle after membership changes.
+     *
+     * @return <code>true</code> if all migrations completed in time
+     */
+    public boolean awaitMigrations(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pendingMigrations) {
+            while (pendingMigrations.get() > 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(pendingMigrations, left);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drop all records on all nodes.
+     */
+    public void clear() {
+        for (SimulatedNode node : nodes) {
+            node.getStore().clear();
+        }
+    }
+
+    /**
+     * Stop migrations and replication, drop all records.
+     */
+    @Override
+    public void close() {
+        synchronized (membership) {
+            if (migrators != null) {
+                for (Thread migrator : migrators) {
+                    migrator.interrupt();
+                }
+            }
+            if (truncator != null) {
+                truncator.shutdownNow();
+            }
+            if (tombRaider != null) {
+                tombRaider.shutdownNow();
+            }
+            for (SimulatedNode node : nodes) {
+                node.deactivate();
+            }
+        }
+        ChangeStream stream = changes;
+        if (stream != null) {
+            stream.close();
+        }
+        view.close();
+        if (hotKeysName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(hotKeysName);
+            } catch (JMException e) {
+                // Already unregistered by an earlier close.
+            }
+        }
+    }
+
+    private SimulatedNode newNode() {
+        int index = nodeSequence++;
+        String name = String.format("BB9%04X%08X", clusterId & 0xFFFF, index);
+        Node node = ClientNodes.newNode(view, name, new Host("127.0.0.1", 3000 + index));
+        SimulatedNode simulated = new SimulatedNode(name, node, truncations, setNames, storageEngine);
+        simulated.setNamespaces(new HashSet<>(view.partitionMap.keySet()));
+        nodesByName.put(name, simulated);
+        return simulated;
+    }
+
+    private void publishNodes() {
+        Node[] clientNodes = new Node[nodes.size()];
+        int i = 0;
+        for (SimulatedNode node : nodes) {
+            clientNodes[i++] = node.getNode();
+        }
+        ClientNodes.setNodes(view, clientNodes);
+        peersGeneration.incrementAndGet();
+    }
+
+    /**
+     * Rank the active nodes for a partition by rendezvous hashing, so a membership change only
+     * moves the partitions whose owners actually change.
+     */
+    private SimulatedNode[] owners(int partitionId) {
+        List<SimulatedNode> candidates = new ArrayList<>(nodes);
+        candidates.sort(Comparator.comparingLong((SimulatedNode node) -> score(node, partitionId)).reversed());
+        int count = Math.min(replicationFactor, candidates.size());
+        return candidates.subList(0, count).toArray(new SimulatedNode[count]);
+    }
+
+    private static long score(SimulatedNode node, int partitionId) {
+        long z = node.getName().hashCode() * 0x9E3779B97F4A7C15L + partitionId;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static SimulatedNode master(PartitionState state) {
+        return master(state, state.ownership.replicas);
+    }
+
+    private static SimulatedNode master(PartitionState state, SimulatedNode[] replicas) {
+        if (replicas.length == 0) {
+            throw new AerospikeException(ResultCode.PARTITION_UNAVAILABLE, "Partition " + state.id + " has no owner");
+        }
+        return replicas[0];
+    }
+
+    /**
+     * @return last-update-time for a write, in nanoseconds since the epoch and strictly
+     * increasing so a truncation cutoff taken now separates earlier writes from later ones
+     */
+    private long nextUpdateTime() {
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        return lastUpdateTime.updateAndGet(last -> Math.max(last + 1, now));
+    }
+
+    /**
+     * Apply a write on the master and send it to the replicas, which may lag behind.
+     */
+    private static void replicate(int partitionId, Key key, Record record, long updateTime,
+                                  SimulatedNode[] replicas) {
+        for (int i = 0; i < replicas.length; i++) {
+            if (i == 0) {
+                replicas[i].apply(partitionId, key, record, updateTime);
+            } else {
+                replicas[i].replicaWrite(partitionId, key, record, updateTime);
+            }
+        }
+    }
+
+    private static void copy(int partitionId, Key key, Record record, long updateTime, SimulatedNode[] targets) {
+        for (SimulatedNode node : targets) {
+            node.apply(partitionId, key, record, updateTime);
+        }
+    }
+
+    private ExecutorService truncator() {
+        synchronized (membership) {
+            if (truncator == null) {
+                truncator = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "mock-aerospike-truncate-" + THREAD_ID.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return truncator;
+        }
+    }
+
+    /**
+     * Start the periodic tomb-raider unless it runs already or is disabled.
+     */
+    private void tombRaider() {
+        if (tombRaider != null || tombRaiderPeriodMillis <= 0) {
+            return;
+        }
+        synchronized (membership) {
+            if (tombRaider == null) {
+                tombRaider = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "mock-aerospike-tomb-raider-" + THREAD_ID.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                tombRaider.scheduleWithFixedDelay(this::raidTombstones, tombRaiderPeriodMillis, tombRaiderPeriodMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void ensureNamespace(String namespace) {
+        if (view.partitionMap.containsKey(namespace)) {
+            return;
+        }
+        synchronized (membership) {
+            if (view.partitionMap.containsKey(namespace)) {
+                return;
+            }
+            Partitions clientPartitions = new Partitions(PARTITIONS, replicationFactor, false);
+            fill(clientPartitions);
+            HashMap<String, Partitions> partitionMap = new HashMap<>(view.partitionMap);
+            partitionMap.put(namespace, clientPartitions);
+            view.partitionMap = partitionMap;
+            partitionGeneration.incrementAndGet();
+            // Catch up with ownership changes made before the map was visible to them.
+            fill(clientPartitions);
+            for (SimulatedNode node : nodes) {
+                node.setNamespaces(new HashSet<>(partitionMap.keySet()));
+            }
+        }
+    }
+
+    private void fill(Partitions clientPartitions) {
+        for (PartitionState state : partitions) {
+            synchronized (state) {
+                publishPartition(state, clientPartitions);
+            }
+        }
+    }
+
+    private void publishPartition(PartitionState state) {
+        for (Partitions clientPartitions : view.partitionMap.values()) {
+            publishPartition(state, clientPartitions);
+        }
+        partitionGeneration.incrementAndGet();
+    }
+
+    private static void publishPartition(PartitionState state, Partitions clientPartitions) {
+        SimulatedNode[] replicas = state.ownership.replicas;
+        for (int i = 0; i < clientPartitions.replicas.length; i++) {
+            Node node = i < replicas.length ? replicas[i].getNode() : null;
+            clientPartitions.replicas[i].set(state.id, node);
+        }
+    }
+
+    private void scheduleMigration(PartitionState state) {
+        if (!state.queued.compareAndSet(false, true)) {
+            return;
+        }
+        pendingMigrations.incrementAndGet();
+        startMigrators();
+        migrations.add(state);
+    }
+
+    private void startMigrators() {
+        synchronized (membership) {
+            if (migrators != null) {
+                return;
+            }
+            migrators = new Thread[migrateThreads];
+            for (int i = 0; i < migrateThreads; i++) {
+                Thread migrator = new Thread(this::runMigrations, "mock-aerospike-migrate-" + THREAD_ID.incrementAndGet());
+                migrator.setDaemon(true);
+                migrator.start();
+                migrators[i] = migrator;
+            }
+        }
+    }
+
+    private void runMigrations() {
+        while (!Thread.currentThread().isInterrupted()) {
+            PartitionState state;
+            try {
+                state = migrations.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            state.queued.set(false);
+            state.migration.lock();
+            try {
+                migrate(state);
+            } finally {
+                state.migration.unlock();
+                if (pendingMigrations.decrementAndGet() == 0) {
+                    synchronized (pendingMigrations) {
+                        pendingMigrations.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    private void migrate(PartitionState state) {
+        SimulatedNode[] source;
+        SimulatedNode[] target;
+        SimulatedNode[] receivers;
+        synchronized (state) {
+            source = state.ownership.replicas;
+            target = owners(state.id);
+            if (Arrays.equals(source, target)) {
+                return;
+            }
+            List<SimulatedNode> incoming = new ArrayList<>();
+            for (SimulatedNode node : target) {
+                if (indexOf(source, node) < 0) {
+                    // Drop whatever an earlier, aborted migration left behind.
+                    node.getStore().clear(state.id);
+                    incoming.add(node);
+                }
+            }
+            receivers = incoming.toArray(NO_NODES);
+            state.ownership = new Ownership(source, receivers);
+        }
+
+        SimulatedNode master = source[0];
+        if (receivers.length > 0) {
+            for (String namespace : master.getStore().getNamespaces()) {
+                master.getStore().forEachEntry(namespace, state.id, (key, record) -> copy(state.id, key, master, receivers));
+            }
+        }
+
+        synchronized (state) {
+            SimulatedNode[] previous = state.ownership.replicas;
+            if (!master.isActive() || !allActive(target)) {
+                // Membership changed underneath, the migration scheduled by that change redoes it.
+                state.ownership = new Ownership(previous, NO_NODES);
+                return;
+            }
+            state.ownership = new Ownership(target, NO_NODES);
+            publishPartition(state);
+            for (SimulatedNode node : previous) {
+                if (indexOf(target, node) < 0) {
+                    node.getStore().clear(state.id);
+                }
+            }
+        }
+    }
+
+    private void copy(int partitionId, Key key, SimulatedNode master, SimulatedNode[] receivers) {
+        ReentrantLock lock = locks.lockFor(key);
+        lock.lock();
+        try {
+            Record record = master.getStore().getEntry(partitionId, key);
+            if (record != null) {
+                copy(partitionId, key, record, master.getStore().getLastUpdateTime(partitionId, key), receivers);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (migrateSleepNanos > 0) {
+            LockSupport.parkNanos(this, migrateSleepNanos);
+        }
+    }
+
+    private static boolean allActive(SimulatedNode[] nodes) {
+        for (SimulatedNode node : nodes) {
+            if (!node.isActive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(SimulatedNode[] nodes, SimulatedNode node) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static SimulatedNode[] without(SimulatedNode[] nodes, SimulatedNode node) {
+        int index = indexOf(nodes, node);
+        if (index < 0) {
+            return nodes;
+        }
+        SimulatedNode[] result = new SimulatedNode[nodes.length - 1];
+        System.arraycopy(nodes, 0, result, 0, index);
+        System.arraycopy(nodes, index + 1, result, index, nodes.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Migration state of one partition. Ownership changes are made while synchronized on it.
+     */
+    private static final class PartitionState {
+        private final int id;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private final ReentrantLock migration = new ReentrantLock();
+        private volatile Ownership ownership = new Ownership(NO_NODES, NO_NODES);
+
+        private PartitionState(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Nodes holding a partition, master first, and nodes it is being migrated to. Replaced as a
+     * whole so a writer always sees a consistent pair.
+     */
+    private static final class Ownership {
+        private final SimulatedNode[] replicas;
+        private final SimulatedNode[] incoming;
+
+        private Ownership(SimulatedNode[] replicas, SimulatedNode[] incoming) {
+            this.replicas = replicas;
+            this.incoming = incoming;
+        }
+    }
+
+    /**
+     * Client cluster that never tends: nodes and partitions are pushed into it by the simulation.
+     */
+    private static final class ClusterView extends Cluster {
+        private ClusterView(MockClientPolicy policy) {
+            super(clientPolicy(policy), new Host[]{new Host("127.0.0.1", 3000)});
+            tendValid = true;
+        }
+
+        private static ClientPolicy clientPolicy(MockClientPolicy mockPolicy) {
+            ClientPolicy policy = new ClientPolicy();
+            policy.failIfNotConnected = false;
+            policy.rackAware = mockPolicy.rackAware;
+            policy.rackId = mockPolicy.rackId;
+            return policy;
+        }
+
+        @Override
+        public void initTendThread(boolean failIfNotConnected) {
+            // Nothing to tend, membership changes are published by SimulatedCluster.
+        }
+
+        @Override
+        public void close() {
+            getThreadPool().shutdown();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.cluster.Node;
+import com.github.srini156.aerospike.client.sim.FaultRule;
+import com.github.srini156.aerospike.client.store.PartitionedStore;
+import com.github.srini156.aerospike.client.store.SetNames;
+import com.github.srini156.aerospike.client.store.StorageEngine;
+import com.github.srini156.aerospike.client.store.Truncations;
+
+/**
+ * One in-process server node of a {@link SimulatedCluster}. Holds the records of every
+ * partition it is master or replica of.
+ * <p>
+ * Each node can be given its own latency and error profile, be made unavailable, be placed in a
+ * rack and lag behind its masters when applying replica writes.
+ *
+ * @author srinivas.iyengar
+ */
+public final class SimulatedNode {
+    private static final FaultRule UNAVAILABLE = new FaultRule().error(ResultCode.SERVER_NOT_AVAILABLE, 1.0);
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private final String name;
+    private final Node node;
+    private final PartitionedStore store;
+    private final Queue<ReplicaWrite> laggingWrites = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private volatile boolean active = true;
+    private volatile boolean available = true;
+    private volatile FaultRule faultRule;
+    private volatile long replicationLagNanos;
+    private volatile int rackId;
+    private volatile Set<String> namespaces = Collections.emptySet();
+    private Thread replicator;
+
+    SimulatedNode(String name, Node node, Truncations truncations, SetNames setNames, StorageEngine storageEngine) {
+        this.name = name;
+        this.node = node;
+        this.store = new PartitionedStore(truncations, setNames, storageEngine);
+    }
+
+    /**
+     * @return node name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return client side handle of this node, as returned by
+     * {@link com.aerospike.client.IAerospikeClient#getNodes()}
+     */
+    public Node getNode() {
+        return node;
+    }
+
+    /**
+     * @return records held by this node
+     */
+    public PartitionedStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return number of master and replica records held by this node, tombstones not included
+     */
+    public long getRecordCount() {
+        return store.size() - store.countTombstones();
+    }
+
+    /**
+     * @return number of tombstones of durable deletes held by this node, counted by visiting
+     * every entry
+     */
+    public long getTombstoneCount() {
+        return store.countTombstones();
+    }
+
+    /**
+     * @return <code>false</code> once the node has been removed from the cluster
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return <code>false</code> while the node refuses connections
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Make the node refuse (or accept again) commands, as if its process was stopped while the
+     * client still believes it is part of the cluster. Attempts sent to it fail with
+     * {@link ResultCode#SERVER_NOT_AVAILABLE} and are retried according to the policy.
+     *
+     * @param available <code>false</code> to take the node down
+     * @return this node
+     */
+    public SimulatedNode setAvailable(boolean available) {
+        this.available = available;
+        return this;
+    }
+
+    /**
+     * @return latency and error profile of this node, null if it has none
+     */
+    public FaultRule getFaultRule() {
+        return faultRule;
+    }
+
+    /**
+     * @param faultRule latency and error profile added to every command attempt this node
+     *                  serves, null to remove
+     * @return this node
+     */
+    public SimulatedNode setFaultRule(FaultRule faultRule) {
+        this.faultRule = faultRule;
+        return this;
+    }
+
+    /**
+     * @return rule for a command attempt served by this node: an immediate
+     * {@link ResultCode#SERVER_NOT_AVAILABLE} while the node is unavailable, else its fault rule
+     */
+    public FaultRule ruleForAttempt() {
+        return available ? faultRule : UNAVAILABLE;
+    }
+
+    /**
+     * @return rack the node is in
+     */
+    public int getRackId() {
+        return rackId;
+    }
+
+    /**
+     * Place the node in a rack, used by {@link com.aerospike.client.policy.Replica#PREFER_RACK}
+     * reads.
+     *
+     * @param rackId rack id
+     * @return this node
+     */
+    public SimulatedNode setRackId(int rackId) {
+        this.rackId = rackId;
+        publishRack();
+        return this;
+    }
+
+    /**
+     * @return delay before replica writes show up on this node
+     */
+    public long getReplicationLag(TimeUnit unit) {
+        return unit.convert(replicationLagNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Delay writes this node receives as a replica, so reads served by it can miss recent
+     * writes. Writes are still applied in order.
+     *
+     * @param lag  delay, 0 to apply replica writes immediately
+     * @param unit unit of <code>lag</code>
+     * @return this node
+     */
+    public SimulatedNode setReplicationLag(long lag, TimeUnit unit) {
+        this.replicationLagNanos = unit.toNanos(lag);
+        return this;
+    }
+
+    /**
+     * @return number of replica writes received but not applied yet
+     */
+    public int getPendingReplicaWrites() {
+        return pendingWrites.get();
+    }
+
+    /**
+     * Apply a write received from a partition's master, honouring the replication lag.
+     *
+     * @param record         record to store, null to delete
+     * @param lastUpdateTime time of the write on the master
+     */
+    void replicaWrite(int partitionId, Key key, Record record, long lastUpdateTime) {
+        long lag = replicationLagNanos;
+        if (lag <= 0 && pendingWrites.get() == 0) {
+            apply(partitionId, key, record, lastUpdateTime);
+            return;
+        }
+        // Once lagging, queue every write so they are applied in order.
+        pendingWrites.incrementAndGet();
+        laggingWrites.add(new ReplicaWrite(partitionId, key, record, lastUpdateTime, System.nanoTime() + lag));
+        LockSupport.unpark(replicator());
+    }
+
+    void apply(int partitionId, Key key, Record record, long lastUpdateTime) {
+        if (record == null) {
+            store.remove(partitionId, key);
+        } else {
+            store.put(partitionId, key, record, lastUpdateTime);
+        }
+    }
+
+    void setNamespaces(Set<String> namespaces) {
+        this.namespaces = namespaces;
+        publishRack();
+    }
+
+    void deactivate() {
+        active = false;
+        store.clear();
+        ClientNodes.deactivate(node);
+        synchronized (this) {
+            if (replicator != null) {
+                LockSupport.unpark(replicator);
+            }
+        }
+    }
+
+    private synchronized void publishRack() {
+        Map<String, Integer> racks = new HashMap<>();
+        for (String namespace : namespaces) {
+            racks.put(namespace, rackId);
+        }
+        ClientNodes.setRacks(node, racks);
+    }
+
+    private synchronized Thread replicator() {
+        if (replicator == null) {
+            replicator = new Thread(this::applyLaggingWrites, "mock-aerospike-replica-" + THREAD_ID.incrementAndGet());
+            replicator.setDaemon(true);
+            replicator.start();
+        }
+        return replicator;
+    }
+
+    private void applyLaggingWrites() {
+        while (active) {
+            ReplicaWrite write = laggingWrites.peek();
+            if (write == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            long wait = write.applyAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            apply(write.partitionId, write.key, write.record, write.lastUpdateTime);
+            laggingWrites.poll();
+            pendingWrites.decrementAndGet();
+        }
+        laggingWrites.clear();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static final class ReplicaWrite {
+        private final int partitionId;
+        private final Key key;
+        private final Record record;
+        private final long lastUpdateTime;
+        private final long applyAt;
+
+        private ReplicaWrite(int partitionId, Key key, Record record, long lastUpdateTime, long applyAt) {
+            this.partitionId = partitionId;
+            this.key = key;
+            this.record = record;
+            this.lastUpdateTime = lastUpdateTime;
+            this.applyAt = applyAt;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.Set;
+
+import com.github.srini156.aerospike.client.store.PartitionImage;
+import com.github.srini156.aerospike.client.store.SetNames;
+import com.github.srini156.aerospike.client.store.Truncations;
+
+/**
+ * Frozen data of a {@link SimulatedCluster}: an image of each partition as held by its master
+ * and the truncation cutoffs. Images share index tables with the cluster copy-on-write, so a
+ * snapshot is cheap to take and only costs memory for the partitions written to afterwards.
+ * A snapshot can be restored any number of times, into the cluster it was taken of or into
+ * clusters forked from it.
+ *
+ * @author srinivas.iyengar
+ */
+public final class Snapshot {
+    final SetNames setNames;
+    final PartitionImage[] partitions;
+    final Truncations truncations;
+    final Set<String> namespaces;
+
+    Snapshot(SetNames setNames, PartitionImage[] partitions, Truncations truncations, Set<String> namespaces) {
+        this.setNames = setNames;
+        this.partitions = partitions;
+        this.truncations = truncations;
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * @return number of records held, including tombstones and truncated records that have not
+     * been dropped yet
+     */
+    public long size() {
+        long size = 0;
+        for (PartitionImage partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.srini156.aerospike.client.job;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a background scan or query job started by
+ * {@link com.github.srini156.aerospike.client.MockAerospikeClient#execute}.
+ *
+ * @author srinivas.iyengar
+ */
+public final class BackgroundJob {
+    private final long taskId;
+    private final boolean scan;
+    private final int partitions;
+    private final AtomicInteger partitionsDone = new AtomicInteger();
+    private final AtomicLong recordsSucceeded = new AtomicLong();
+    private final AtomicLong recordsFailed = new AtomicLong();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean abandoned;
+    private volatile Throwable failure;
+
+    BackgroundJob(long taskId, boolean scan, int partitions) {
+        this.taskId = taskId;
+        this.scan = scan;
+        this.partitions = partitions;
+    }
+
+    public long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * @return <code>true</code> for a job without a filter, which the server runs as a scan
+     */
+    public boolean isScan() {
+        return scan;
+    }
+
+    /**
+     * @return percentage of the job's partitions that have been processed
+     */
+    public int getProgress() {
+        return partitions == 0 ? 100 : partitionsDone.get() * 100 / partitions;
+    }
+
+    public long getRecordsSucceeded() {
+        return recordsSucceeded.get();
+    }
+
+    /**
+     * @return number of records the job failed to apply to, those errors are not reported
+     * otherwise
+     */
+    public long getRecordsFailed() {
+        return recordsFailed.get();
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * @return <code>true</code> if the job was stopped before processing every partition
+     */
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * @return what made a worker of the job fail, which abandoned the job; null if none did
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Wait for the job to finish.
+     *
+     * @return <code>true</code> if it finished, <code>false</code> if the timeout elapsed first
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * @return job details in the format of the server's <code>jobs</code> info command
+     */
+    public String info() {
+        String status = !isDone() ? "active(ok)" : abandoned ? "done(abandoned-unknown)" : "done(ok)";
+        return "trid=" + taskId + ":module=" + (scan ? "scan" : "query") + ":status=" + status
+                + ":job-progress=" + getProgress() + ":recs-succeeded=" + getRecordsSucceeded()
+                + ":recs-failed=" + getRecordsFailed();
+    }
+
+    void recordDone(boolean succeeded) {
+        (succeeded ? recordsSucceeded : recordsFailed).incrementAndGet();
+    }
+
+    /**
+     * @return <code>true</code> if that was the job's last partition
+     */
+    boolean partitionDone() {
+        return partitionsDone.incrementAndGet() == partitions;
+    }
+
+    void finish(boolean abandoned, Throwable failure) {
+        this.abandoned = abandoned;
+        this.failure = failure;
+        done.countDown();
+    }
+}
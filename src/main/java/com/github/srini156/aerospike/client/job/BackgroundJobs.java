@@ -0,0 +1,179 @@
+package com.github.srini156.aerospike.client.job;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.github.srini156.aerospike.client.sim.RateLimiter;
+
+/**
+ * Runs background scan and query jobs on a fixed pool of threads, like the server's
+ * <code>scan-threads</code>. A job is processed partition by partition: its workers take the next
+ * partition, list the records it applies to and apply the job to each of them, throttled to the
+ * job's records per second. A worker that fails abandons the job, whose other workers stop at
+ * the next record. Finished jobs are remembered until {@value #MAX_DONE} newer ones
+ * have finished, so their status can still be looked up.
+ *
+ * @author srinivas.iyengar
+ */
+public final class BackgroundJobs {
+    private static final int MAX_DONE = 100;
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    /**
+     * What a job does.
+     */
+    public interface Work {
+        /**
+         * List the keys of the records of a partition the job applies to. An exception thrown
+         * abandons the job, see {@link BackgroundJob#getFailure()}.
+         */
+        void scan(int partitionId, Consumer<Key> keys);
+
+        /**
+         * Apply the job to one record.
+         *
+         * @throws AerospikeException if it fails for that record, which only counts as a failed
+         *                            record of the job, as does any other runtime exception
+         */
+        void apply(Key key);
+    }
+
+    private final int threads;
+    private final ExecutorService workers;
+    private final Map<Long, BackgroundJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<Long> done = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param threads number of threads shared by all jobs
+     */
+    public BackgroundJobs(int threads) {
+        this.threads = Math.max(1, threads);
+        this.workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "mock-aerospike-job-" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start a job.
+     *
+     * @param taskId           id the job is looked up by
+     * @param scan             <code>true</code> if the job is a scan, <code>false</code> for a query
+     * @param partitions       partitions to process
+     * @param recordsPerSecond throttle, 0 for unlimited
+     * @param work             what the job does
+     * @return the running job
+     */
+    public BackgroundJob submit(long taskId, boolean scan, List<Integer> partitions, int recordsPerSecond, Work work) {
+        BackgroundJob job = new BackgroundJob(taskId, scan, partitions.size());
+        jobs.put(taskId, job);
+        if (partitions.isEmpty()) {
+            finish(job, false, null);
+            return job;
+        }
+        RateLimiter limiter = RateLimiter.of(recordsPerSecond);
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Math.min(threads, partitions.size()); i++) {
+            workers.execute(() -> {
+                try {
+                    for (int index = next.getAndIncrement(); index < partitions.size() && !job.isDone();
+                         index = next.getAndIncrement()) {
+                        process(job, partitions.get(index), limiter, work);
+                    }
+                } catch (InterruptedException e) {
+                    finish(job, true, null);
+                } catch (RuntimeException | Error e) {
+                    // The partition can never be completed, nor can the job.
+                    finish(job, true, e);
+                }
+            });
+        }
+        return job;
+    }
+
+    private void process(BackgroundJob job, int partitionId, RateLimiter limiter, Work work) throws InterruptedException {
+        List<Key> keys = new ArrayList<>();
+        work.scan(partitionId, keys::add);
+        for (Key key : keys) {
+            if (job.isDone()) {
+                // Abandoned by another worker or by close().
+                return;
+            }
+            if (limiter != null) {
+                limiter.acquire();
+            } else if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            try {
+                work.apply(key);
+                job.recordDone(true);
+            } catch (RuntimeException e) {
+                job.recordDone(false);
+            }
+        }
+        if (job.partitionDone()) {
+            finish(job, false, null);
+        }
+    }
+
+    private synchronized void finish(BackgroundJob job, boolean abandoned, Throwable failure) {
+        if (job.isDone()) {
+            return;
+        }
+        job.finish(abandoned, failure);
+        done.add(job.getTaskId());
+        while (done.size() > MAX_DONE) {
+            Long oldest = done.poll();
+            if (oldest != null) {
+                jobs.remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * @return job of that task id, null if there is none or it finished long ago
+     */
+    public BackgroundJob get(long taskId) {
+        return jobs.get(taskId);
+    }
+
+    /**
+     * Answer the server's <code>jobs</code> info command.
+     *
+     * @param command e.g. <code>jobs:module=scan;cmd=get-job;trid=123</code>
+     * @return job details, <code>ERROR:2:job not found</code> if there is no such job
+     */
+    public String info(String command) {
+        int colon = command.indexOf(':');
+        for (String parameter : command.substring(colon + 1).split(";")) {
+            if (parameter.startsWith("trid=")) {
+                BackgroundJob job = jobs.get(Long.parseLong(parameter.substring(5)));
+                if (job != null) {
+                    return job.info();
+                }
+            }
+        }
+        return "ERROR:2:job not found";
+    }
+
+    /**
+     * Abandon running jobs and stop the threads.
+     */
+    public void close() {
+        workers.shutdownNow();
+        for (BackgroundJob job : jobs.values()) {
+            finish(job, true, null);
+        }
+    }
+}
@@ -0,0 +1,878 @@
+package com.github.srini156.aerospike.client.nearcache;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.AerospikeException.InvalidNode;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.Value;
+import com.aerospike.client.admin.Privilege;
+import com.aerospike.client.admin.Role;
+import com.aerospike.client.admin.User;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.cluster.ClusterStats;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.listener.*;
+import com.aerospike.client.policy.AdminPolicy;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.InfoPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.ResultSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.IndexTask;
+import com.aerospike.client.task.RegisterTask;
+
+/**
+ * Write-through near cache in front of another client, e.g. a real
+ * {@link com.aerospike.client.AerospikeClient} or a
+ * {@link com.github.srini156.aerospike.client.MockAerospikeClient} standing in for one.
+ * Single-record and batch reads are served from a bounded {@link RecordCache}. A cached record
+ * expires with its time to live, capped by {@link NearCachePolicy#maxTtl}. Writes go to the
+ * delegate and then drop the record from the cache, so the next read fetches the new version.
+ * Commands that can change any record, such as truncates and background executes, drop the
+ * whole cache. Everything else is passed through.
+ * <p>
+ * A read that overlaps a write of the same record must not cache what it read, because that
+ * may be the old version. Writes bump a version counter of the key's stripe before and after
+ * they run. A read result is cached only if its stripe's version did not change while the read
+ * was in progress. A result is also never cached over a newer generation of the same record.
+ * Writes made by other clients are caught by the TTL or by
+ * {@link NearCachePolicy#revalidateMillis generation checks}.
+ *
+ * @author srinivas.iyengar
+ */
+public class NearCacheClient implements IAerospikeClient {
+    private static final int STRIPES = 1024;
+
+    private final IAerospikeClient delegate;
+    private final RecordCache cache;
+    private final long maxTtlNanos;
+    private final long revalidateNanos;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Near cache with default configuration.
+     *
+     * @param delegate client that reads and writes go to
+     */
+    public NearCacheClient(IAerospikeClient delegate) {
+        this(delegate, new NearCachePolicy());
+    }
+
+    /**
+     * @param delegate client that reads and writes go to
+     * @param policy   cache configuration, pass in null for defaults
+     */
+    public NearCacheClient(IAerospikeClient delegate, NearCachePolicy policy) {
+        NearCachePolicy cachePolicy = policy != null ? policy : new NearCachePolicy();
+        this.delegate = delegate;
+        this.cache = new RecordCache(cachePolicy.maxRecords);
+        this.maxTtlNanos = cachePolicy.maxTtl > 0 ? TimeUnit.SECONDS.toNanos(cachePolicy.maxTtl) : Long.MAX_VALUE / 2;
+        this.revalidateNanos = cachePolicy.revalidateMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(cachePolicy.revalidateMillis) : 0;
+    }
+
+    public IAerospikeClient getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return reads served from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return reads that went to the delegate
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return records evicted to make room for others
+     */
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * @return number of records cached
+     */
+    public int getCachedRecords() {
+        return cache.size();
+    }
+
+    /**
+     * Drop a record from the cache, e.g. after learning that another client changed it.
+     */
+    public void invalidate(Key key) {
+        versions.incrementAndGet(stripe(key));
+        cache.remove(key);
+    }
+
+    /**
+     * Drop every record from the cache.
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        cache.clear();
+    }
+
+    private static int stripe(Key key) {
+        byte[] digest = key.digest;
+        return ((digest[8] & 0xFF) | (digest[9] & 0xFF) << 8) & (STRIPES - 1);
+    }
+
+    /**
+     * @return full record of the key, from the cache or else read from the delegate and cached
+     */
+    private Record read(Policy policy, Key key) {
+        long now = System.nanoTime();
+        RecordCache.Entry entry = cache.get(key, now);
+        if (entry != null) {
+            Record cached = entry.record;
+            if (isFresh(entry, now) || revalidate(policy, key, entry, cached, now)) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+        long version = versions.get(stripe(key));
+        Record record = delegate.get(policy, key);
+        if (record == null) {
+            cache.remove(key);
+        } else {
+            cache(key, record, version);
+        }
+        return record;
+    }
+
+    /**
+     * @return cached records of the keys that need no revalidation, null for the others
+     */
+    private Record[] cached(Key[] keys) {
+        long now = System.nanoTime();
+        Record[] records = new Record[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            RecordCache.Entry entry = cache.get(keys[i], now);
+            if (entry != null && isFresh(entry, now)) {
+                records[i] = entry.record;
+                hits.increment();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return keys whose records were not cached
+     */
+    private static Key[] missing(Key[] keys, Record[] records) {
+        List<Key> missing = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (records[i] == null) {
+                missing.add(keys[i]);
+            }
+        }
+        return missing.toArray(new Key[0]);
+    }
+
+    private boolean isFresh(RecordCache.Entry entry, long now) {
+        return revalidateNanos == 0 || now - entry.validatedAt < revalidateNanos;
+    }
+
+    /**
+     * @return <code>true</code> if the server still has the cached generation of the record
+     */
+    private boolean revalidate(Policy policy, Key key, RecordCache.Entry entry, Record cached, long now) {
+        Record header = delegate.getHeader(policy, key);
+        if (header != null && header.generation == cached.generation) {
+            entry.validatedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    private void cache(Key key, Record record, long version) {
+        int stripe = stripe(key);
+        long now = System.nanoTime();
+        int ttl = record.getTimeToLive();
+        long ttlNanos = ttl < 0 ? Long.MAX_VALUE / 2 : TimeUnit.SECONDS.toNanos(ttl);
+        cache.put(key, record, now + Math.min(ttlNanos, maxTtlNanos), now, () -> versions.get(stripe) == version);
+    }
+
+    /**
+     * Run a write of a record through the delegate, keeping reads that overlap it from caching
+     * what they read.
+     */
+    private <T> T write(Key key, Command<T> command) {
+        int stripe = stripe(key);
+        versions.incrementAndGet(stripe);
+        try {
+            return command.run();
+        } finally {
+            versions.incrementAndGet(stripe);
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * Start an asynchronous write of a record, keeping the record out of the cache until the
+     * write completes.
+     */
+    private void writeAsync(Key key, Runnable command) {
+        versions.incrementAndGet(stripe(key));
+        cache.remove(key);
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            completed(key);
+            throw e;
+        }
+    }
+
+    private void completed(Key key) {
+        versions.incrementAndGet(stripe(key));
+        cache.remove(key);
+    }
+
+    private static Record project(Record record, String... binNames) {
+        if (record == null) {
+            return null;
+        }
+        Map<String, Object> bins = new HashMap<>();
+        for (String bin : binNames) {
+            if (record.bins != null && record.bins.containsKey(bin)) {
+                bins.put(bin, record.bins.get(bin));
+            }
+        }
+        return new Record(bins, record.generation, record.expiration);
+    }
+
+    private static Record header(Record record) {
+        return record == null ? null : new Record(null, record.generation, record.expiration);
+    }
+
+    @FunctionalInterface
+    private interface Command<T> {
+        T run();
+    }
+
+    @Override
+    public Policy getReadPolicyDefault() {
+        return delegate.getReadPolicyDefault();
+    }
+
+    @Override
+    public WritePolicy getWritePolicyDefault() {
+        return delegate.getWritePolicyDefault();
+    }
+
+    @Override
+    public ScanPolicy getScanPolicyDefault() {
+        return delegate.getScanPolicyDefault();
+    }
+
+    @Override
+    public QueryPolicy getQueryPolicyDefault() {
+        return delegate.getQueryPolicyDefault();
+    }
+
+    @Override
+    public BatchPolicy getBatchPolicyDefault() {
+        return delegate.getBatchPolicyDefault();
+    }
+
+    @Override
+    public InfoPolicy getInfoPolicyDefault() {
+        return delegate.getInfoPolicyDefault();
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+        delegate.close();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public Node[] getNodes() {
+        return delegate.getNodes();
+    }
+
+    @Override
+    public List<String> getNodeNames() {
+        return delegate.getNodeNames();
+    }
+
+    @Override
+    public Node getNode(String nodeName) throws InvalidNode {
+        return delegate.getNode(nodeName);
+    }
+
+    @Override
+    public ClusterStats getClusterStats() {
+        return delegate.getClusterStats();
+    }
+
+    @Override
+    public void put(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        write(key, () -> {
+            delegate.put(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void put(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        writeAsync(key, () -> delegate.put(eventLoop, completing(key, writeListener), writePolicy, key, bins));
+    }
+
+    @Override
+    public void append(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        write(key, () -> {
+            delegate.append(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void append(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        writeAsync(key, () -> delegate.append(eventLoop, completing(key, writeListener), writePolicy, key, bins));
+    }
+
+    @Override
+    public void prepend(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        write(key, () -> {
+            delegate.prepend(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void prepend(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        writeAsync(key, () -> delegate.prepend(eventLoop, completing(key, writeListener), writePolicy, key, bins));
+    }
+
+    @Override
+    public void add(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        write(key, () -> {
+            delegate.add(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void add(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        writeAsync(key, () -> delegate.add(eventLoop, completing(key, writeListener), writePolicy, key, bins));
+    }
+
+    @Override
+    public boolean delete(WritePolicy policy, Key key) throws AerospikeException {
+        return write(key, () -> delegate.delete(policy, key));
+    }
+
+    @Override
+    public void delete(EventLoop eventLoop, DeleteListener deleteListener, WritePolicy writePolicy, Key key) throws AerospikeException {
+        writeAsync(key, () -> delegate.delete(eventLoop, new DeleteListener() {
+            @Override
+            public void onSuccess(Key key, boolean existed) {
+                completed(key);
+                deleteListener.onSuccess(key, existed);
+            }
+
+            @Override
+            public void onFailure(AerospikeException exception) {
+                completed(key);
+                deleteListener.onFailure(exception);
+            }
+        }, writePolicy, key));
+    }
+
+    @Override
+    public void truncate(InfoPolicy infoPolicy, String ns, String set, Calendar beforeLastUpdate) throws AerospikeException {
+        try {
+            delegate.truncate(infoPolicy, ns, set, beforeLastUpdate);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void touch(WritePolicy policy, Key key) throws AerospikeException {
+        write(key, () -> {
+            delegate.touch(policy, key);
+            return null;
+        });
+    }
+
+    @Override
+    public void touch(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key) throws AerospikeException {
+        writeAsync(key, () -> delegate.touch(eventLoop, completing(key, writeListener), writePolicy, key));
+    }
+
+    @Override
+    public boolean exists(Policy policy, Key key) throws AerospikeException {
+        if (cached(new Key[]{key})[0] != null) {
+            return true;
+        }
+        misses.increment();
+        return delegate.exists(policy, key);
+    }
+
+    @Override
+    public void exists(EventLoop eventLoop, ExistsListener existsListener, Policy policy, Key key) throws AerospikeException {
+        delegate.exists(eventLoop, existsListener, policy, key);
+    }
+
+    @Override
+    public boolean[] exists(BatchPolicy policy, Key[] keys) throws AerospikeException {
+        Record[] records = cached(keys);
+        Key[] missing = missing(keys, records);
+        boolean[] found = missing.length > 0 ? delegate.exists(policy, missing) : new boolean[0];
+        misses.add(missing.length);
+        boolean[] exists = new boolean[keys.length];
+        for (int i = 0, next = 0; i < keys.length; i++) {
+            exists[i] = records[i] != null || found[next++];
+        }
+        return exists;
+    }
+
+    @Override
+    public void exists(EventLoop eventLoop, ExistsArrayListener existsArrayListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.exists(eventLoop, existsArrayListener, batchPolicy, keys);
+    }
+
+    @Override
+    public void exists(EventLoop eventLoop, ExistsSequenceListener existsSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.exists(eventLoop, existsSequenceListener, batchPolicy, keys);
+    }
+
+    @Override
+    public Record get(Policy policy, Key key) throws AerospikeException {
+        return read(policy, key);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordListener recordListener, Policy policy, Key key) throws AerospikeException {
+        delegate.get(eventLoop, recordListener, policy, key);
+    }
+
+    @Override
+    public Record get(Policy policy, Key key, String... binNames) throws AerospikeException {
+        return project(read(policy, key), binNames);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordListener recordListener, Policy policy, Key key, String... binNames) throws AerospikeException {
+        delegate.get(eventLoop, recordListener, policy, key, binNames);
+    }
+
+    @Override
+    public Record getHeader(Policy policy, Key key) throws AerospikeException {
+        Record cached = cached(new Key[]{key})[0];
+        if (cached != null) {
+            return header(cached);
+        }
+        misses.increment();
+        return delegate.getHeader(policy, key);
+    }
+
+    @Override
+    public void getHeader(EventLoop eventLoop, RecordListener recordListener, Policy policy, Key key) throws AerospikeException {
+        delegate.getHeader(eventLoop, recordListener, policy, key);
+    }
+
+    @Override
+    public void get(BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
+        delegate.get(policy, records);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, BatchListListener batchListListener, BatchPolicy batchPolicy, List<BatchRead> list) throws AerospikeException {
+        delegate.get(eventLoop, batchListListener, batchPolicy, list);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, BatchSequenceListener batchSequenceListener, BatchPolicy batchPolicy, List<BatchRead> list) throws AerospikeException {
+        delegate.get(eventLoop, batchSequenceListener, batchPolicy, list);
+    }
+
+    @Override
+    public Record[] get(BatchPolicy policy, Key[] keys) throws AerospikeException {
+        Record[] records = cached(keys);
+        Key[] missing = missing(keys, records);
+        if (missing.length == 0) {
+            return records;
+        }
+        misses.add(missing.length);
+        long[] missingVersions = new long[missing.length];
+        for (int i = 0; i < missing.length; i++) {
+            missingVersions[i] = versions.get(stripe(missing[i]));
+        }
+        Record[] fetched = delegate.get(policy, missing);
+        for (int i = 0, next = 0; i < keys.length; i++) {
+            if (records[i] == null) {
+                Record record = fetched[next];
+                if (record != null) {
+                    cache(keys[i], record, missingVersions[next]);
+                }
+                records[i] = record;
+                next++;
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordArrayListener recordArrayListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.get(eventLoop, recordArrayListener, batchPolicy, keys);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.get(eventLoop, recordSequenceListener, batchPolicy, keys);
+    }
+
+    @Override
+    public Record[] get(BatchPolicy policy, Key[] keys, String... binNames) throws AerospikeException {
+        Record[] records = get(policy, keys);
+        for (int i = 0; i < records.length; i++) {
+            records[i] = project(records[i], binNames);
+        }
+        return records;
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordArrayListener recordArrayListener, BatchPolicy batchPolicy, Key[] keys, String... binNames) throws AerospikeException {
+        delegate.get(eventLoop, recordArrayListener, batchPolicy, keys, binNames);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys, String... binNames) throws AerospikeException {
+        delegate.get(eventLoop, recordSequenceListener, batchPolicy, keys, binNames);
+    }
+
+    @Override
+    public Record[] getHeader(BatchPolicy policy, Key[] keys) throws AerospikeException {
+        Record[] records = cached(keys);
+        Key[] missing = missing(keys, records);
+        Record[] fetched = missing.length > 0 ? delegate.getHeader(policy, missing) : new Record[0];
+        misses.add(missing.length);
+        for (int i = 0, next = 0; i < keys.length; i++) {
+            records[i] = records[i] != null ? header(records[i]) : fetched[next++];
+        }
+        return records;
+    }
+
+    @Override
+    public void getHeader(EventLoop eventLoop, RecordArrayListener recordArrayListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.getHeader(eventLoop, recordArrayListener, batchPolicy, keys);
+    }
+
+    @Override
+    public void getHeader(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.getHeader(eventLoop, recordSequenceListener, batchPolicy, keys);
+    }
+
+    @Override
+    public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
+        return write(key, () -> delegate.operate(policy, key, operations));
+    }
+
+    @Override
+    public void operate(EventLoop eventLoop, RecordListener recordListener, WritePolicy writePolicy, Key key, Operation... operations) throws AerospikeException {
+        writeAsync(key, () -> delegate.operate(eventLoop, new RecordListener() {
+            @Override
+            public void onSuccess(Key key, Record record) {
+                completed(key);
+                recordListener.onSuccess(key, record);
+            }
+
+            @Override
+            public void onFailure(AerospikeException exception) {
+                completed(key);
+                recordListener.onFailure(exception);
+            }
+        }, writePolicy, key, operations));
+    }
+
+    @Override
+    public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanAll(policy, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanAll(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, ScanPolicy scanPolicy, String namespace, String setName, String... binNames) throws AerospikeException {
+        delegate.scanAll(eventLoop, recordSequenceListener, scanPolicy, namespace, setName, binNames);
+    }
+
+    @Override
+    public void scanNode(ScanPolicy policy, String nodeName, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanNode(policy, nodeName, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanNode(ScanPolicy policy, Node node, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanNode(policy, node, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanPartitions(ScanPolicy scanPolicy, PartitionFilter partitionFilter, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanPartitions(scanPolicy, partitionFilter, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanPartitions(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, ScanPolicy scanPolicy, PartitionFilter partitionFilter, String namespace, String setName, String... binNames) throws AerospikeException {
+        delegate.scanPartitions(eventLoop, recordSequenceListener, scanPolicy, partitionFilter, namespace, setName, binNames);
+    }
+
+    @Override
+    public RegisterTask register(Policy policy, String clientPath, String serverPath, Language language) throws AerospikeException {
+        return delegate.register(policy, clientPath, serverPath, language);
+    }
+
+    @Override
+    public RegisterTask register(Policy policy, ClassLoader resourceLoader, String resourcePath, String serverPath, Language language) throws AerospikeException {
+        return delegate.register(policy, resourceLoader, resourcePath, serverPath, language);
+    }
+
+    @Override
+    public RegisterTask registerUdfString(Policy policy, String code, String serverPath, Language language) throws AerospikeException {
+        return delegate.registerUdfString(policy, code, serverPath, language);
+    }
+
+    @Override
+    public void removeUdf(InfoPolicy policy, String serverPath) throws AerospikeException {
+        delegate.removeUdf(policy, serverPath);
+    }
+
+    @Override
+    public Object execute(WritePolicy policy, Key key, String packageName, String functionName, Value... args) throws AerospikeException {
+        return write(key, () -> delegate.execute(policy, key, packageName, functionName, args));
+    }
+
+    @Override
+    public void execute(EventLoop eventLoop, ExecuteListener executeListener, WritePolicy writePolicy, Key key, String packageName, String functionName, Value... functionArgs) throws AerospikeException {
+        writeAsync(key, () -> delegate.execute(eventLoop, new ExecuteListener() {
+            @Override
+            public void onSuccess(Key key, Object obj) {
+                completed(key);
+                executeListener.onSuccess(key, obj);
+            }
+
+            @Override
+            public void onFailure(AerospikeException exception) {
+                completed(key);
+                executeListener.onFailure(exception);
+            }
+        }, writePolicy, key, packageName, functionName, functionArgs));
+    }
+
+    /**
+     * Start a background job on the delegate and drop the whole cache. Records the job changes
+     * after this returns can be cached before the change, until they expire or are revalidated.
+     */
+    @Override
+    public ExecuteTask execute(WritePolicy policy, Statement statement, String packageName, String functionName, Value... functionArgs) throws AerospikeException {
+        try {
+            return delegate.execute(policy, statement, packageName, functionName, functionArgs);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Start a background job on the delegate and drop the whole cache, see
+     * {@link #execute(WritePolicy, Statement, String, String, Value...)}.
+     */
+    @Override
+    public ExecuteTask execute(WritePolicy writePolicy, Statement statement, Operation... operations) throws AerospikeException {
+        try {
+            return delegate.execute(writePolicy, statement, operations);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public RecordSet query(QueryPolicy policy, Statement statement) throws AerospikeException {
+        return delegate.query(policy, statement);
+    }
+
+    @Override
+    public void query(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, QueryPolicy queryPolicy, Statement statement) throws AerospikeException {
+        delegate.query(eventLoop, recordSequenceListener, queryPolicy, statement);
+    }
+
+    @Override
+    public RecordSet queryNode(QueryPolicy policy, Statement statement, Node node) throws AerospikeException {
+        return delegate.queryNode(policy, statement, node);
+    }
+
+    @Override
+    public RecordSet queryPartitions(QueryPolicy queryPolicy, Statement statement, PartitionFilter partitionFilter) throws AerospikeException {
+        return delegate.queryPartitions(queryPolicy, statement, partitionFilter);
+    }
+
+    @Override
+    public void queryPartitions(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, QueryPolicy queryPolicy, Statement statement, PartitionFilter partitionFilter) throws AerospikeException {
+        delegate.queryPartitions(eventLoop, recordSequenceListener, queryPolicy, statement, partitionFilter);
+    }
+
+    @Override
+    public ResultSet queryAggregate(QueryPolicy policy, Statement statement, String packageName, String functionName, Value... functionArgs) throws AerospikeException {
+        return delegate.queryAggregate(policy, statement, packageName, functionName, functionArgs);
+    }
+
+    @Override
+    public ResultSet queryAggregate(QueryPolicy policy, Statement statement) throws AerospikeException {
+        return delegate.queryAggregate(policy, statement);
+    }
+
+    @Override
+    public ResultSet queryAggregateNode(QueryPolicy queryPolicy, Statement statement, Node node) throws AerospikeException {
+        return delegate.queryAggregateNode(queryPolicy, statement, node);
+    }
+
+    @Override
+    public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName, String binName, IndexType indexType) throws AerospikeException {
+        return delegate.createIndex(policy, namespace, setName, indexName, binName, indexType);
+    }
+
+    @Override
+    public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName, String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+        return delegate.createIndex(policy, namespace, setName, indexName, binName, indexType, indexCollectionType);
+    }
+
+    @Override
+    public void createIndex(EventLoop eventLoop, IndexListener indexListener, Policy policy, String namespace, String setName, String indexName, String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+        delegate.createIndex(eventLoop, indexListener, policy, namespace, setName, indexName, binName, indexType, indexCollectionType);
+    }
+
+    @Override
+    public IndexTask dropIndex(Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+        return delegate.dropIndex(policy, namespace, setName, indexName);
+    }
+
+    @Override
+    public void dropIndex(EventLoop eventLoop, IndexListener indexListener, Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+        delegate.dropIndex(eventLoop, indexListener, policy, namespace, setName, indexName);
+    }
+
+    @Override
+    public void info(EventLoop eventLoop, InfoListener infoListener, InfoPolicy infoPolicy, Node node, String... commands) throws AerospikeException {
+        delegate.info(eventLoop, infoListener, infoPolicy, node, commands);
+    }
+
+    @Override
+    public void createUser(AdminPolicy policy, String user, String password, List<String> roles) throws AerospikeException {
+        delegate.createUser(policy, user, password, roles);
+    }
+
+    @Override
+    public void dropUser(AdminPolicy policy, String user) throws AerospikeException {
+        delegate.dropUser(policy, user);
+    }
+
+    @Override
+    public void changePassword(AdminPolicy policy, String user, String password) throws AerospikeException {
+        delegate.changePassword(policy, user, password);
+    }
+
+    @Override
+    public void grantRoles(AdminPolicy policy, String user, List<String> roles) throws AerospikeException {
+        delegate.grantRoles(policy, user, roles);
+    }
+
+    @Override
+    public void revokeRoles(AdminPolicy policy, String user, List<String> roles) throws AerospikeException {
+        delegate.revokeRoles(policy, user, roles);
+    }
+
+    @Override
+    public void createRole(AdminPolicy policy, String roleName, List<Privilege> privileges) throws AerospikeException {
+        delegate.createRole(policy, roleName, privileges);
+    }
+
+    @Override
+    public void dropRole(AdminPolicy policy, String roleName) throws AerospikeException {
+        delegate.dropRole(policy, roleName);
+    }
+
+    @Override
+    public void grantPrivileges(AdminPolicy policy, String roleName, List<Privilege> privileges) throws AerospikeException {
+        delegate.grantPrivileges(policy, roleName, privileges);
+    }
+
+    @Override
+    public void revokePrivileges(AdminPolicy policy, String roleName, List<Privilege> privileges) throws AerospikeException {
+        delegate.revokePrivileges(policy, roleName, privileges);
+    }
+
+    @Override
+    public User queryUser(AdminPolicy policy, String user) throws AerospikeException {
+        return delegate.queryUser(policy, user);
+    }
+
+    @Override
+    public List<User> queryUsers(AdminPolicy policy) throws AerospikeException {
+        return delegate.queryUsers(policy);
+    }
+
+    @Override
+    public Role queryRole(AdminPolicy policy, String roleName) throws AerospikeException {
+        return delegate.queryRole(policy, roleName);
+    }
+
+    @Override
+    public List<Role> queryRoles(AdminPolicy policy) throws AerospikeException {
+        return delegate.queryRoles(policy);
+    }
+
+    private WriteListener completing(Key key, WriteListener listener) {
+        return new WriteListener() {
+            @Override
+            public void onSuccess(Key written) {
+                completed(key);
+                listener.onSuccess(written);
+            }
+
+            @Override
+            public void onFailure(AerospikeException exception) {
+                completed(key);
+                listener.onFailure(exception);
+            }
+        };
+    }
+}
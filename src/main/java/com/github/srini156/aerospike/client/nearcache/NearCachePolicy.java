@@ -0,0 +1,27 @@
+package com.github.srini156.aerospike.client.nearcache;
+
+/**
+ * Container object for {@link NearCacheClient} configuration.
+ *
+ * @author srinivas.iyengar
+ */
+public class NearCachePolicy {
+    /**
+     * Most records kept in the cache. Default: 10000
+     */
+    public int maxRecords = 10000;
+
+    /**
+     * Longest time in seconds a record is served from the cache. 0 means the record's own
+     * time to live is the only limit. Default: 0
+     */
+    public int maxTtl;
+
+    /**
+     * Milliseconds after which a cached record is checked against the server before it is
+     * served. The check is a header read, and the cached copy is used only if the server still
+     * has the same generation. It catches writes made by other clients. 0 trusts the cache until
+     * the record expires. Default: 0
+     */
+    public int revalidateMillis;
+}
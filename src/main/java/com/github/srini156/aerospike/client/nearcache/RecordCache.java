@@ -0,0 +1,199 @@
+package com.github.srini156.aerospike.client.nearcache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.github.srini156.aerospike.client.stats.CountMinSketch;
+
+/**
+ * Bounded record cache with W-TinyLFU eviction. New records enter a small LRU admission window.
+ * Records leaving the window compete with the least recently used record of the main area, and
+ * the one accessed more often recently stays. Access frequencies come from a
+ * {@link CountMinSketch} that is halved every <code>10 * capacity</code> accesses. The main area
+ * is a segmented LRU: a record read again while on probation moves to the protected segment, so
+ * a one-off scan cannot flush records that are read over and over.
+ * <p>
+ * All methods synchronize on the cache. Reads also reorder the LRU lists, so a read-write lock
+ * would not help.
+ *
+ * @author srinivas.iyengar
+ */
+final class RecordCache {
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+    private final int sampleSize;
+    private final CountMinSketch sketch;
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>();
+    private final LinkedHashMap<Key, Entry> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<Key, Entry> protectedEntries = new LinkedHashMap<>();
+    private int accesses;
+    private long evictions;
+
+    /**
+     * @param capacity most records cached
+     */
+    RecordCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Cache needs room for at least 2 records: " + capacity);
+        }
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+        this.sampleSize = 10 * capacity;
+        this.sketch = new CountMinSketch(4 * capacity);
+    }
+
+    /**
+     * @return cached entry of the key, null if it is not cached or has expired
+     */
+    synchronized Entry get(Key key, long now) {
+        recordAccess(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (now - entry.expiresAt >= 0) {
+            remove(key);
+            return null;
+        }
+        if (entry.segment == window) {
+            moveToEnd(window, entry);
+        } else if (entry.segment == probation) {
+            probation.remove(key);
+            append(protectedEntries, entry);
+            if (protectedEntries.size() > protectedCapacity) {
+                append(probation, removeEldest(protectedEntries));
+            }
+        } else {
+            moveToEnd(protectedEntries, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Cache a record read from the server, unless a newer generation is cached already.
+     *
+     * @param valid checked under the cache's lock, the record is only cached if it still holds
+     */
+    synchronized void put(Key key, Record record, long expiresAt, long now, Validity valid) {
+        if (!valid.holds()) {
+            return;
+        }
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.record.generation <= record.generation) {
+                entry.record = record;
+                entry.expiresAt = expiresAt;
+                entry.validatedAt = now;
+            }
+            return;
+        }
+        entry = new Entry(key, record, expiresAt, now);
+        entries.put(key, entry);
+        append(window, entry);
+        if (window.size() > windowCapacity) {
+            admit(removeEldest(window));
+        }
+    }
+
+    private void admit(Entry candidate) {
+        if (probation.size() + protectedEntries.size() < mainCapacity) {
+            append(probation, candidate);
+            return;
+        }
+        Entry victim = probation.isEmpty() ? protectedEntries.values().iterator().next()
+                : probation.values().iterator().next();
+        if (sketch.estimate(candidate.key.digest) > sketch.estimate(victim.key.digest)) {
+            remove(victim.key);
+            append(probation, candidate);
+        } else {
+            entries.remove(candidate.key);
+            candidate.segment = null;
+        }
+        evictions++;
+    }
+
+    synchronized void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            entry.segment.remove(key);
+            entry.segment = null;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        window.clear();
+        probation.clear();
+        protectedEntries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return records evicted to make room for others
+     */
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void recordAccess(Key key) {
+        sketch.add(key.digest);
+        if (++accesses >= sampleSize) {
+            sketch.halve();
+            accesses = 0;
+        }
+    }
+
+    private static void append(LinkedHashMap<Key, Entry> segment, Entry entry) {
+        segment.put(entry.key, entry);
+        entry.segment = segment;
+    }
+
+    private static void moveToEnd(LinkedHashMap<Key, Entry> segment, Entry entry) {
+        segment.remove(entry.key);
+        segment.put(entry.key, entry);
+    }
+
+    private static Entry removeEldest(LinkedHashMap<Key, Entry> segment) {
+        Iterator<Entry> eldest = segment.values().iterator();
+        Entry entry = eldest.next();
+        eldest.remove();
+        return entry;
+    }
+
+    /**
+     * Condition a read result must still meet when it is about to be cached.
+     */
+    @FunctionalInterface
+    interface Validity {
+        boolean holds();
+    }
+
+    /**
+     * A cached record. Fields are only accessed under the cache's lock, or after
+     * {@link #get} returned the entry, when a stale read is harmless.
+     */
+    static final class Entry {
+        final Key key;
+        volatile Record record;
+        volatile long expiresAt;
+        volatile long validatedAt;
+        private LinkedHashMap<Key, Entry> segment;
+
+        private Entry(Key key, Record record, long expiresAt, long validatedAt) {
+            this.key = key;
+            this.record = record;
+            this.expiresAt = expiresAt;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
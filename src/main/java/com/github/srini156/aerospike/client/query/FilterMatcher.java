@@ -0,0 +1,111 @@
+package com.github.srini156.aerospike.client.query;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexCollectionType;
+
+/**
+ * Evaluates a secondary index {@link Filter} against a stored record, the way the server matches
+ * index entries. {@link Filter} keeps its bin name and bounds private, they are read reflectively.
+ *
+ * @author srinivas.iyengar
+ */
+public final class FilterMatcher {
+    private static final Field NAME = field("name");
+    private static final Field COLLECTION_TYPE = field("colType");
+    private static final Field VALUE_TYPE = field("valType");
+    private static final Field BEGIN = field("begin");
+    private static final Field END = field("end");
+
+    private final String binName;
+    private final IndexCollectionType collectionType;
+    private final int valueType;
+    private final Value begin;
+    private final Value end;
+
+    /**
+     * @param filter statement filter
+     * @throws UnsupportedOperationException for geo filters
+     */
+    public FilterMatcher(Filter filter) {
+        try {
+            this.binName = (String) NAME.get(filter);
+            this.collectionType = (IndexCollectionType) COLLECTION_TYPE.get(filter);
+            this.valueType = VALUE_TYPE.getInt(filter);
+            this.begin = (Value) BEGIN.get(filter);
+            this.end = (Value) END.get(filter);
+        } catch (IllegalAccessException e) {
+            throw new AerospikeException(e);
+        }
+        if (valueType != ParticleType.INTEGER && valueType != ParticleType.STRING) {
+            throw new UnsupportedOperationException("geo filters are not supported in MockAerospike");
+        }
+    }
+
+    /**
+     * @return name of the bin the filter is on
+     */
+    public String getBinName() {
+        return binName;
+    }
+
+    /**
+     * @return <code>true</code> if the record would be found through the filter's index
+     */
+    public boolean matches(Record record) {
+        if (record.bins == null) {
+            return false;
+        }
+        Object value = record.bins.get(binName);
+        if (value == null) {
+            return false;
+        }
+        switch (collectionType == null ? IndexCollectionType.DEFAULT : collectionType) {
+            case LIST:
+                return value instanceof Collection && matchesAny((Collection<?>) value);
+            case MAPKEYS:
+                return value instanceof Map && matchesAny(((Map<?, ?>) value).keySet());
+            case MAPVALUES:
+                return value instanceof Map && matchesAny(((Map<?, ?>) value).values());
+            default:
+                return matchesValue(value);
+        }
+    }
+
+    private boolean matchesAny(Collection<?> values) {
+        for (Object value : values) {
+            if (value != null && matchesValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesValue(Object value) {
+        if (valueType == ParticleType.STRING) {
+            return value instanceof String && value.equals(begin.getObject());
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            long number = ((Number) value).longValue();
+            return number >= begin.toLong() && number <= end.toLong();
+        }
+        return false;
+    }
+
+    private static Field field(String name) {
+        try {
+            Field field = Filter.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Unsupported aerospike-client version, missing Filter." + name, e);
+        }
+    }
+}
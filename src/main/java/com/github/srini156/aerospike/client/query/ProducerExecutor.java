@@ -0,0 +1,40 @@
+package com.github.srini156.aerospike.client.query;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.query.IQueryExecutor;
+
+/**
+ * Executor of a record or result set fed by a producer thread instead of server nodes. Closing
+ * the set early interrupts the producer; an exception the producer failed with is rethrown to
+ * the consumer.
+ *
+ * @author srinivas.iyengar
+ */
+final class ProducerExecutor implements IQueryExecutor {
+    volatile Exception exception;
+    volatile Thread thread;
+
+    @Override
+    public void stopThreads(Exception cause) {
+        if (exception == null) {
+            exception = cause;
+        }
+        thread.interrupt();
+    }
+
+    @Override
+    public void checkForException() {
+        Exception e = exception;
+        if (e == null || e instanceof AerospikeException.QueryTerminated) {
+            return;
+        }
+        if (e instanceof AerospikeException) {
+            throw (AerospikeException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        throw new AerospikeException(ResultCode.QUERY_GENERIC, e);
+    }
+}
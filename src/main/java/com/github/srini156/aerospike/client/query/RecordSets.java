@@ -0,0 +1,119 @@
+package com.github.srini156.aerospike.client.query;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.query.IQueryExecutor;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.RecordSet;
+
+/**
+ * Creates {@link RecordSet}s fed by a producer thread. The client only builds record sets inside
+ * its own query executor, so the constructor and <code>put</code>/<code>abort</code> are invoked
+ * reflectively.
+ *
+ * @author srinivas.iyengar
+ */
+public final class RecordSets {
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final Constructor<RecordSet> CONSTRUCTOR;
+    private static final MethodHandle PUT;
+    private static final MethodHandle ABORT;
+
+    static {
+        try {
+            CONSTRUCTOR = RecordSet.class.getDeclaredConstructor(IQueryExecutor.class, int.class);
+            CONSTRUCTOR.setAccessible(true);
+            Method put = RecordSet.class.getDeclaredMethod("put", KeyRecord.class);
+            put.setAccessible(true);
+            Method abort = RecordSet.class.getDeclaredMethod("abort");
+            abort.setAccessible(true);
+            PUT = MethodHandles.lookup().unreflect(put);
+            ABORT = MethodHandles.lookup().unreflect(abort);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unsupported aerospike-client version", e);
+        }
+    }
+
+    private RecordSets() {
+    }
+
+    /**
+     * Source of the records of a record set.
+     */
+    @FunctionalInterface
+    public interface Producer {
+        /**
+         * Emit records until done or until <code>sink</code> returns false.
+         *
+         * @param sink accepts a record, returns false once the consumer closed the record set
+         */
+        void produce(Sink sink) throws Exception;
+    }
+
+    /**
+     * Receives produced records.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * @return <code>false</code> if the record set was closed and producing should stop
+         */
+        boolean put(KeyRecord record);
+    }
+
+    /**
+     * Start a daemon thread running <code>producer</code> and return the record set it feeds.
+     * Exceptions thrown by the producer are rethrown from {@link RecordSet#next()}.
+     *
+     * @param capacity number of records buffered before the producer blocks
+     * @param producer source of the records
+     * @return record set to iterate
+     */
+    public static RecordSet produce(int capacity, Producer producer) {
+        ProducerExecutor executor = new ProducerExecutor();
+        RecordSet recordSet;
+        try {
+            recordSet = CONSTRUCTOR.newInstance(executor, Math.max(1, capacity));
+        } catch (ReflectiveOperationException e) {
+            throw new AerospikeException(e);
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                producer.produce(record -> put(recordSet, record));
+                put(recordSet, RecordSet.END);
+            } catch (Exception e) {
+                executor.exception = e;
+                abort(recordSet);
+            }
+        }, "mock-aerospike-query-" + THREAD_ID.incrementAndGet());
+        executor.thread = thread;
+        thread.setDaemon(true);
+        thread.start();
+        return recordSet;
+    }
+
+    private static boolean put(RecordSet recordSet, KeyRecord record) {
+        try {
+            return (boolean) PUT.invokeExact(recordSet, record);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new AerospikeException(t);
+        }
+    }
+
+    private static void abort(RecordSet recordSet) {
+        try {
+            ABORT.invokeExact(recordSet);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new AerospikeException(t);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.github.srini156.aerospike.client.query;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.query.IQueryExecutor;
+import com.aerospike.client.query.QueryAggregateExecutor;
+import com.aerospike.client.query.ResultSet;
+import com.aerospike.client.query.Statement;
+
+/**
+ * Creates {@link ResultSet}s fed by a producer thread, the aggregation counterpart of
+ * {@link RecordSets}. <code>ResultSet</code> is final and only constructed by the client, so its
+ * constructor is invoked reflectively, and it runs.
+ * <p>
+ * Clients that build result sets over an {@link IQueryExecutor} get a {@link ProducerExecutor}
+ * like record sets do. Up to aerospike-client 4.4.9 a result set talks to a
+ * {@link QueryAggregateExecutor} instead, whose only constructor starts querying server nodes.
+ * For those the executor is allocated without running its constructor and given just the state
+ * that <code>stopThreads</code> and <code>checkForException</code> use; every field this needs is
+ * looked up once, so a client that has neither layout fails the first aggregate query with
+ * {@link ResultCode#UNSUPPORTED_FEATURE} rather than misbehaving.
+ *
+ * @author srinivas.iyengar
+ */
+public final class ResultSets {
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final Constructor<ResultSet> CONSTRUCTOR;
+    private static final MethodHandle ABORT;
+    private static final LegacyExecutor LEGACY;
+    private static final String UNSUPPORTED;
+
+    static {
+        Constructor<ResultSet> constructor = null;
+        MethodHandle abort = null;
+        LegacyExecutor legacy = null;
+        String unsupported = null;
+        try {
+            try {
+                constructor = ResultSet.class.getDeclaredConstructor(IQueryExecutor.class, int.class);
+                Method method = ResultSet.class.getDeclaredMethod("abort");
+                method.setAccessible(true);
+                abort = MethodHandles.lookup().unreflect(method);
+            } catch (NoSuchMethodException e) {
+                constructor = ResultSet.class.getDeclaredConstructor(QueryAggregateExecutor.class, int.class);
+                legacy = new LegacyExecutor();
+            }
+            constructor.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            constructor = null;
+            unsupported = "Aggregate queries are not supported with this aerospike-client version: " + e;
+        }
+        CONSTRUCTOR = constructor;
+        ABORT = abort;
+        LEGACY = legacy;
+        UNSUPPORTED = unsupported;
+    }
+
+    private ResultSets() {
+    }
+
+    /**
+     * Source of the results of a result set.
+     */
+    @FunctionalInterface
+    public interface Producer {
+        /**
+         * Emit results until done or until <code>sink</code> returns false.
+         *
+         * @param sink accepts a result, returns false once the consumer closed the result set
+         */
+        void produce(Predicate<Object> sink) throws Exception;
+    }
+
+    /**
+     * Start a daemon thread running <code>producer</code> and return the result set it feeds.
+     * Exceptions thrown by the producer are rethrown from {@link ResultSet#next()}.
+     *
+     * @param statement statement the results are for
+     * @param capacity  number of results buffered before the producer blocks
+     * @param producer  source of the results
+     * @return result set to iterate
+     * @throws AerospikeException with {@link ResultCode#UNSUPPORTED_FEATURE} if the client's
+     *                            result sets cannot be created
+     */
+    public static ResultSet produce(Statement statement, int capacity, Producer producer) {
+        if (UNSUPPORTED != null) {
+            throw new AerospikeException(ResultCode.UNSUPPORTED_FEATURE, UNSUPPORTED);
+        }
+        ProducerExecutor producerExecutor = LEGACY == null ? new ProducerExecutor() : null;
+        QueryAggregateExecutor legacyExecutor;
+        ResultSet resultSet;
+        try {
+            legacyExecutor = LEGACY == null ? null : LEGACY.allocate(statement);
+            resultSet = CONSTRUCTOR.newInstance(LEGACY == null ? producerExecutor : legacyExecutor,
+                    Math.max(1, capacity));
+            if (LEGACY != null) {
+                LEGACY.resultSet.set(legacyExecutor, resultSet);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new AerospikeException(e);
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                producer.produce(resultSet::put);
+                resultSet.put(ResultSet.END);
+            } catch (Exception e) {
+                if (legacyExecutor != null) {
+                    legacyExecutor.stopThreads(e);
+                } else {
+                    producerExecutor.exception = e;
+                    abort(resultSet);
+                }
+            }
+        }, "mock-aerospike-aggregate-query-" + THREAD_ID.incrementAndGet());
+        if (producerExecutor != null) {
+            producerExecutor.thread = thread;
+        }
+        thread.setDaemon(true);
+        thread.start();
+        return resultSet;
+    }
+
+    private static void abort(ResultSet resultSet) {
+        try {
+            ABORT.invoke(resultSet);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new AerospikeException(t);
+        }
+    }
+
+    /**
+     * The state of an aerospike-client 4.4.9 <code>QueryAggregateExecutor</code> a result set
+     * uses.
+     */
+    private static final class LegacyExecutor {
+        private final Object unsafe;
+        private final Method allocateInstance;
+        private final Field statement;
+        private final Field threads;
+        private final Field done;
+        private final Field completedCount;
+        private final Field inputQueue;
+        private final Field resultSet;
+
+        LegacyExecutor() throws ReflectiveOperationException {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+            Class<?> executor = QueryAggregateExecutor.class.getSuperclass();
+            statement = field(executor, "statement", Statement.class);
+            threads = field(executor, "threads", Object[].class);
+            done = field(executor, "done", AtomicBoolean.class);
+            completedCount = field(executor, "completedCount", AtomicInteger.class);
+            inputQueue = field(QueryAggregateExecutor.class, "inputQueue", ArrayBlockingQueue.class);
+            resultSet = field(QueryAggregateExecutor.class, "resultSet", ResultSet.class);
+        }
+
+        QueryAggregateExecutor allocate(Statement statement) throws ReflectiveOperationException {
+            QueryAggregateExecutor executor = (QueryAggregateExecutor) allocateInstance.invoke(unsafe,
+                    QueryAggregateExecutor.class);
+            this.statement.set(executor, statement);
+            threads.set(executor, Array.newInstance(threads.getType().getComponentType(), 0));
+            done.set(executor, new AtomicBoolean());
+            completedCount.set(executor, new AtomicInteger());
+            inputQueue.set(executor, new ArrayBlockingQueue<>(1));
+            return executor;
+        }
+
+        /**
+         * @return the field, which must be able to hold a value of <code>type</code>
+         */
+        private static Field field(Class<?> owner, String name, Class<?> type) throws ReflectiveOperationException {
+            Field field = owner.getDeclaredField(name);
+            boolean fits = type.isArray() ? field.getType().isArray() : field.getType().isAssignableFrom(type);
+            if (!fits) {
+                throw new NoSuchFieldException(owner.getName() + "." + name + " is a " + field.getType().getName());
+            }
+            field.setAccessible(true);
+            return field;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.command.Buffer;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+import com.github.srini156.aerospike.client.sim.FaultRule;
+
+/**
+ * Client connection to one simulated node. Messages are served one at a time: reading stops
+ * while a response is delayed or still being written, which is what the synchronous client
+ * expects and keeps a slow reader from buffering a whole scan in memory.
+ *
+ * @author srinivas.iyengar
+ */
+final class Connection implements IoLoop.Handler {
+    private static final int PROTO_HEADER_SIZE = 8;
+    private static final int PROTO_COMPRESSED = 4;
+
+    private final MockAerospikeServer server;
+    private final IoLoop loop;
+    private final SocketChannel channel;
+    private final SimulatedNode node;
+    private final BufferPool pool;
+    private final Queue<ByteBuffer> outbound = new ArrayDeque<>();
+    private SelectionKey key;
+    private ByteBuffer inbound;
+    private Response pending;
+    private int pendingType;
+    private boolean delayed;
+    private boolean closed;
+
+    Connection(MockAerospikeServer server, IoLoop loop, SocketChannel channel, SimulatedNode node) {
+        this.server = server;
+        this.loop = loop;
+        this.channel = channel;
+        this.node = node;
+        this.pool = server.getBufferPool();
+        this.inbound = pool.acquire(pool.getBufferSize());
+    }
+
+    SimulatedNode getNode() {
+        return node;
+    }
+
+    /**
+     * Start serving, must be called on the connection's loop.
+     */
+    void open() {
+        try {
+            channel.socket().setTcpNoDelay(true);
+            key = loop.register(channel, SelectionKey.OP_READ, this);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    @Override
+    public void ready(SelectionKey key) throws IOException {
+        if (key.isWritable() && flush()) {
+            pump();
+            process();
+        }
+        if (!closed && key.isReadable()) {
+            if (channel.read(inbound) < 0) {
+                close();
+                return;
+            }
+            process();
+        }
+    }
+
+    /**
+     * Serve buffered messages until one of them needs to wait.
+     */
+    private void process() throws IOException {
+        while (!closed && pending == null && !delayed && inbound.position() >= PROTO_HEADER_SIZE) {
+            long proto = Buffer.bytesToLong(inbound.array(), 0);
+            int total = checkSize(PROTO_HEADER_SIZE + (proto & 0xFFFFFFFFFFFFL));
+            int type = (int) (proto >> 48 & 0xFF);
+            if (total > inbound.capacity()) {
+                grow(total);
+            }
+            if (inbound.position() < total) {
+                break;
+            }
+            serve(type, inbound.array(), total);
+            if (closed) {
+                return;
+            }
+            inbound.flip();
+            inbound.position(total);
+            inbound.compact();
+            shrink();
+        }
+        updateInterest();
+    }
+
+    private void serve(int type, byte[] data, int length) throws IOException {
+        if (!node.isActive() || !node.isAvailable()) {
+            close();
+            return;
+        }
+        FaultRule rule = type == ResponseWriter.PROTO_INFO ? null : node.getFaultRule();
+        if (rule == null) {
+            respond(type, execute(type, data, length));
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int error = rule.sampleError(random);
+        if (error == ResultCode.SERVER_NOT_AVAILABLE) {
+            close();
+            return;
+        }
+        long latency = rule.sampleLatency(random);
+        if (latency <= 0) {
+            respond(type, error == ResultCode.OK ? execute(type, data, length) : MessageCommands.status(error));
+            return;
+        }
+        byte[] message = Arrays.copyOf(data, length);
+        delayed = true;
+        loop.schedule(latency, () -> {
+            delayed = false;
+            if (closed) {
+                return;
+            }
+            try {
+                respond(type, error == ResultCode.OK ? execute(type, message, length) : MessageCommands.status(error));
+                process();
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        });
+    }
+
+    private Response execute(int type, byte[] data, int length) throws IOException {
+        switch (type) {
+            case ResponseWriter.PROTO_INFO:
+                String response = server.getInfoCommands().execute(
+                        new String(data, PROTO_HEADER_SIZE, length - PROTO_HEADER_SIZE, StandardCharsets.UTF_8), node);
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                return out -> {
+                    out.write(bytes);
+                    return true;
+                };
+            case ResponseWriter.PROTO_MSG:
+                return server.getMessageCommands().execute(new Request(data, PROTO_HEADER_SIZE), node);
+            case PROTO_COMPRESSED:
+                return server.getMessageCommands().execute(new Request(inflate(data, length), PROTO_HEADER_SIZE), node);
+            default:
+                throw new IOException("Unknown proto type " + type);
+        }
+    }
+
+    /**
+     * @return <code>size</code> as an int
+     * @throws IOException if it is beyond {@link MockServerPolicy#maxMessageSize}, which closes
+     *                     the connection
+     */
+    private int checkSize(long size) throws IOException {
+        int max = server.getPolicy().maxMessageSize;
+        if (size < PROTO_HEADER_SIZE || size > max) {
+            throw new IOException("Message size " + size + " is outside " + PROTO_HEADER_SIZE + ".." + max);
+        }
+        return (int) size;
+    }
+
+    /**
+     * @return uncompressed message, including its own proto header
+     */
+    private byte[] inflate(byte[] data, int length) throws IOException {
+        if (length < 2 * PROTO_HEADER_SIZE) {
+            throw new IOException("Compressed message is truncated");
+        }
+        int uncompressedSize = checkSize(Buffer.bytesToLong(data, PROTO_HEADER_SIZE));
+        byte[] message = new byte[uncompressedSize];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 2 * PROTO_HEADER_SIZE, length - 2 * PROTO_HEADER_SIZE);
+            if (inflater.inflate(message) != uncompressedSize) {
+                throw new IOException("Compressed message is truncated");
+            }
+            return message;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void respond(int type, Response response) throws IOException {
+        pending = response;
+        pendingType = type == ResponseWriter.PROTO_INFO ? ResponseWriter.PROTO_INFO : ResponseWriter.PROTO_MSG;
+        pump();
+    }
+
+    /**
+     * Encode the next part of the pending response and send it. Long responses continue from the
+     * loop's task queue so other connections are served in between, or from a timer if the
+     * response asked to wait.
+     */
+    private void pump() throws IOException {
+        if (closed || pending == null || !outbound.isEmpty()) {
+            return;
+        }
+        ResponseWriter out = new ResponseWriter(pool, pendingType);
+        if (pending.write(out)) {
+            pending = null;
+        }
+        outbound.addAll(out.finish());
+        if (flush() && pending != null) {
+            Runnable resume = () -> {
+                try {
+                    pump();
+                    process();
+                } catch (IOException | RuntimeException e) {
+                    close();
+                }
+            };
+            long delay = pending.resumeDelayNanos();
+            if (delay > 0) {
+                loop.schedule(delay, resume);
+            } else {
+                loop.execute(resume);
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if everything queued has been sent
+     */
+    private boolean flush() throws IOException {
+        for (ByteBuffer buffer = outbound.peek(); buffer != null; buffer = outbound.peek()) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                updateInterest();
+                return false;
+            }
+            pool.release(outbound.poll());
+        }
+        updateInterest();
+        return true;
+    }
+
+    private void updateInterest() {
+        if (closed) {
+            return;
+        }
+        int ops = 0;
+        if (!outbound.isEmpty()) {
+            ops = SelectionKey.OP_WRITE;
+        } else if (pending == null && !delayed) {
+            ops = SelectionKey.OP_READ;
+        }
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+        }
+    }
+
+    private void grow(int capacity) {
+        ByteBuffer larger = pool.acquire(capacity);
+        inbound.flip();
+        larger.put(inbound);
+        pool.release(inbound);
+        inbound = larger;
+    }
+
+    /**
+     * Go back to a pooled buffer once an oversized message has been served.
+     */
+    private void shrink() {
+        if (inbound.capacity() == pool.getBufferSize() || inbound.position() > pool.getBufferSize()) {
+            return;
+        }
+        ByteBuffer pooled = pool.acquire(pool.getBufferSize());
+        inbound.flip();
+        pooled.put(inbound);
+        inbound = pooled;
+    }
+
+    /**
+     * Close the connection from another thread.
+     */
+    void closeLater() {
+        loop.execute(this::close);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending = null;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already closed by the peer.
+        }
+        pool.release(inbound);
+        for (ByteBuffer buffer = outbound.poll(); buffer != null; buffer = outbound.poll()) {
+            pool.release(buffer);
+        }
+        server.closed(this);
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+
+import com.github.srini156.aerospike.client.cluster.SimulatedCluster;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+
+/**
+ * Answers the info commands a client sends while seeding and tending the cluster, plus a few
+ * commonly scripted ones. Unknown commands get an empty value, like the server does.
+ *
+ * @author srinivas.iyengar
+ */
+final class InfoCommands {
+    /**
+     * Features the client looks for. <code>pscans</code> is left out so scans and queries use
+     * one command per node.
+     */
+    private static final String FEATURES = "peers;replicas;cluster-stable;truncate-namespace;lut-now;blob-bits";
+
+    private final MockAerospikeServer server;
+    private final SimulatedCluster cluster;
+
+    InfoCommands(MockAerospikeServer server, SimulatedCluster cluster) {
+        this.server = server;
+        this.cluster = cluster;
+    }
+
+    /**
+     * @param request newline separated commands, each optionally followed by
+     *                <code>:parameters</code>
+     * @return tab separated command and value lines
+     */
+    String execute(String request, SimulatedNode node) {
+        StringBuilder response = new StringBuilder();
+        if (request.trim().isEmpty()) {
+            return response.append("node\t").append(node.getName()).append('\n').toString();
+        }
+        for (String command : request.split("\n")) {
+            if (!command.isEmpty()) {
+                response.append(command).append('\t').append(value(command, node)).append('\n');
+            }
+        }
+        return response.toString();
+    }
+
+    private String value(String command, SimulatedNode node) {
+        int colon = command.indexOf(':');
+        String name = colon < 0 ? command : command.substring(0, colon);
+        if (name.startsWith("namespace/")) {
+            return namespace(name.substring("namespace/".length()), node);
+        }
+        switch (name) {
+            case "node":
+                return node.getName();
+            case "build":
+                return "4.4.0.0";
+            case "edition":
+                return "Aerospike Mock Edition";
+            case "features":
+                return FEATURES;
+            case "cluster-name":
+                return server.getPolicy().clusterName == null ? "null" : server.getPolicy().clusterName;
+            case "namespaces":
+                return String.join(";", cluster.getNamespaces());
+            case "partition-generation":
+            case "rebalance-generation":
+                return Integer.toString(cluster.getPartitionGeneration());
+            case "cluster-stable":
+                return Integer.toHexString(cluster.getPartitionGeneration());
+            case "peers-generation":
+                server.syncNodes();
+                return Integer.toString(cluster.getPeersGeneration());
+            case "peers-clear-std":
+            case "peers-clear-alt":
+            case "peers-tls-std":
+            case "peers-tls-alt":
+                return peers(node);
+            case "service":
+            case "service-clear-std":
+            case "service-clear-alt":
+                return server.getHost() + ':' + server.getPort(node.getName());
+            case "replicas":
+                return replicas(node, true);
+            case "replicas-all":
+                return replicas(node, false);
+            case "rack-ids":
+                return rackIds(node);
+            case "truncate":
+            case "truncate-namespace":
+                return truncate(colon < 0 ? "" : command.substring(colon + 1));
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * @return <code>generation,defaultPort,[[name,tlsName,[host:port]],...]</code> of the other
+     * nodes
+     */
+    private String peers(SimulatedNode self) {
+        server.syncNodes();
+        int generation = cluster.getPeersGeneration();
+        StringBuilder peers = new StringBuilder();
+        peers.append(generation).append(',').append(server.getPolicy().port).append(",[");
+        boolean first = true;
+        for (SimulatedNode node : cluster.getNodes()) {
+            int port = server.getPort(node.getName());
+            if (node == self || port < 0) {
+                continue;
+            }
+            if (!first) {
+                peers.append(',');
+            }
+            first = false;
+            peers.append('[').append(node.getName()).append(",,[").append(server.getHost()).append(':')
+                    .append(port).append("]]");
+        }
+        return peers.append(']').toString();
+    }
+
+    /**
+     * @return <code>namespace:[regime,]count,bitmap,...;</code> with one base64 bitmap of
+     * partitions per replica index, the master first
+     */
+    private String replicas(SimulatedNode node, boolean withRegime) {
+        int replicationFactor = cluster.getReplicationFactor();
+        byte[][] bitmaps = new byte[replicationFactor][SimulatedCluster.PARTITIONS / 8];
+        for (int partitionId = 0; partitionId < SimulatedCluster.PARTITIONS; partitionId++) {
+            List<SimulatedNode> replicas = cluster.getReplicas(partitionId);
+            for (int i = 0; i < replicas.size() && i < replicationFactor; i++) {
+                if (replicas.get(i) == node) {
+                    bitmaps[i][partitionId >> 3] |= 0x80 >> (partitionId & 7);
+                }
+            }
+        }
+        StringBuilder value = new StringBuilder();
+        for (String namespace : cluster.getNamespaces()) {
+            value.append(namespace).append(':');
+            if (withRegime) {
+                value.append("0,");
+            }
+            value.append(replicationFactor);
+            for (byte[] bitmap : bitmaps) {
+                value.append(',').append(Base64.getEncoder().encodeToString(bitmap));
+            }
+            value.append(';');
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return <code>objects=n;tombstones=n</code> of the node's master and replica copies in the
+     * namespace
+     */
+    private String namespace(String namespace, SimulatedNode node) {
+        if (!cluster.getNamespaces().contains(namespace)) {
+            return "type=unknown";
+        }
+        long entries = 0;
+        long tombstones = 0;
+        for (int partitionId = 0; partitionId < SimulatedCluster.PARTITIONS; partitionId++) {
+            entries += node.getStore().size(namespace, partitionId);
+            tombstones += node.getStore().countTombstones(namespace, partitionId);
+        }
+        return "objects=" + (entries - tombstones) + ";tombstones=" + tombstones;
+    }
+
+    /**
+     * @param parameters <code>namespace=ns[;set=set][;lut=nanos|now]</code>
+     */
+    private String truncate(String parameters) {
+        Map<String, String> values = new HashMap<>();
+        for (String parameter : parameters.split(";")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                values.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+            }
+        }
+        String namespace = values.get("namespace");
+        if (namespace == null) {
+            return "ERROR::namespace-missing";
+        }
+        Calendar beforeLastUpdate = null;
+        String lut = values.get("lut");
+        if (lut != null && !lut.equals("now")) {
+            beforeLastUpdate = Calendar.getInstance();
+            beforeLastUpdate.setTimeInMillis(TimeUnit.NANOSECONDS.toMillis(Long.parseLong(lut)));
+        }
+        try {
+            cluster.truncate(namespace, values.get("set"), beforeLastUpdate);
+        } catch (AerospikeException e) {
+            return "ERROR:" + e.getResultCode() + ":" + e.getMessage();
+        }
+        return "ok";
+    }
+
+    private String rackIds(SimulatedNode node) {
+        StringBuilder value = new StringBuilder();
+        for (String namespace : cluster.getNamespaces()) {
+            value.append(namespace).append(':').append(node.getRackId()).append(';');
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selector thread. Channels are registered and timers scheduled from other threads through
+ * {@link #execute(Runnable)}, so every handler only ever runs on its loop and needs no locking.
+ *
+ * @author srinivas.iyengar
+ */
+final class IoLoop implements Runnable, Closeable {
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+    private volatile boolean running = true;
+
+    IoLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Run a task on the loop thread.
+     */
+    void execute(Runnable task) {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Register a channel with this loop, must be called on the loop thread.
+     */
+    SelectionKey register(SelectableChannel channel, int interestOps, Handler handler) throws IOException {
+        channel.configureBlocking(false);
+        return channel.register(selector, interestOps, handler);
+    }
+
+    /**
+     * Run a task on the loop thread after a delay, must be called on the loop thread.
+     */
+    void schedule(long delayNanos, Runnable task) {
+        timers.add(new Timer(System.nanoTime() + delayNanos, task));
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(runTimers());
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    Handler handler = (Handler) key.attachment();
+                    try {
+                        if (key.isValid()) {
+                            handler.ready(key);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        handler.close();
+                    }
+                }
+                for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                    task.run();
+                }
+            }
+        } catch (IOException e) {
+            // The selector only fails once closed.
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                ((Handler) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to release.
+            }
+        }
+    }
+
+    /**
+     * Stop the loop and close every channel registered with it.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run due timers.
+     *
+     * @return milliseconds until the next timer, 0 if there is none
+     */
+    private long runTimers() {
+        while (!timers.isEmpty()) {
+            long delay = timers.peek().deadline - System.nanoTime();
+            if (delay > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(delay));
+            }
+            timers.poll().task.run();
+        }
+        return 0;
+    }
+
+    /**
+     * Channel attached to a loop.
+     */
+    interface Handler {
+        /**
+         * Called when the channel is ready for one of its interest operations. Throwing closes
+         * the handler.
+         */
+        void ready(SelectionKey key) throws IOException;
+
+        void close();
+    }
+
+    private static final class Timer implements Comparable<Timer> {
+        private final long deadline;
+        private final Runnable task;
+
+        private Timer(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            return Long.compare(deadline - other.deadline, 0);
+        }
+    }
+}
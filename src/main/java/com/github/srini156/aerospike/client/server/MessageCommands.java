@@ -0,0 +1,417 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.command.Buffer;
+import com.aerospike.client.command.FieldType;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.KeyRecord;
+import com.github.srini156.aerospike.client.CommandType;
+import com.github.srini156.aerospike.client.cluster.SimulatedCluster;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+import com.github.srini156.aerospike.client.query.FilterMatcher;
+import com.github.srini156.aerospike.client.sim.RateLimiter;
+import com.github.srini156.aerospike.client.store.PartitionedStore;
+import com.github.srini156.aerospike.client.store.RecordUpdates;
+import com.github.srini156.aerospike.client.store.ScanSample;
+
+/**
+ * Runs <code>as_msg</code> requests received by a node against the simulated cluster: single
+ * record reads and writes, batch index reads, scans and secondary index queries.
+ *
+ * @author srinivas.iyengar
+ */
+final class MessageCommands {
+    private final SimulatedCluster cluster;
+    private final int streamBudget;
+
+    MessageCommands(SimulatedCluster cluster, int streamBudget) {
+        this.cluster = cluster;
+        this.streamBudget = streamBudget;
+    }
+
+    /**
+     * @return response to a request served by <code>node</code>
+     */
+    Response execute(Request request, SimulatedNode node) {
+        try {
+            if (request.hasField(FieldType.UDF_FUNCTION) || request.unsupportedOperation() >= 0) {
+                return status(ResultCode.UNSUPPORTED_FEATURE);
+            }
+            if ((request.info1 & Request.INFO1_BATCH) != 0) {
+                return batch(request, node);
+            }
+            if (request.hasField(FieldType.DIGEST_RIPE)) {
+                return single(request, node);
+            }
+            if (request.hasField(FieldType.INDEX_RANGE)) {
+                return query(request, node);
+            }
+            return scan(request, node);
+        } catch (RuntimeException e) {
+            return status(resultCode(e));
+        }
+    }
+
+    /**
+     * @return result code sent back for a failed command
+     */
+    static int resultCode(RuntimeException e) {
+        if (e instanceof UnsupportedOperationException) {
+            return ResultCode.UNSUPPORTED_FEATURE;
+        }
+        if (e instanceof AerospikeException) {
+            int resultCode = ((AerospikeException) e).getResultCode();
+            if (resultCode > 0 && resultCode <= 0xFF) {
+                return resultCode;
+            }
+        }
+        return ResultCode.SERVER_ERROR;
+    }
+
+    /**
+     * @return header-only response, flagged as the last message so it also ends multi-record
+     * commands
+     */
+    static Response status(int resultCode) {
+        return out -> {
+            out.writeStatus(ResponseWriter.INFO3_LAST, resultCode);
+            return true;
+        };
+    }
+
+    private Response single(Request request, SimulatedNode node) {
+        Key key = request.key();
+        if ((request.info2 & Request.INFO2_WRITE) != 0) {
+            return write(request, key);
+        }
+        Record record = cluster.read(key, node);
+        if (record == null) {
+            return status(ResultCode.KEY_NOT_FOUND_ERROR);
+        }
+        String[] binNames = request.readBinNames();
+        boolean includeBins = (request.info1 & Request.INFO1_NOBINDATA) == 0;
+        return out -> {
+            writeRecord(out, 0, record, null, 0, binNames, includeBins);
+            return true;
+        };
+    }
+
+    private Response write(Request request, Key key) {
+        if ((request.info2 & Request.INFO2_DELETE) != 0) {
+            boolean durable = (request.info2 & Request.INFO2_DURABLE_DELETE) != 0;
+            return status(cluster.delete(key, durable) ? ResultCode.OK : ResultCode.KEY_NOT_FOUND_ERROR);
+        }
+        Operation[] operations = request.operations;
+        Record record;
+        boolean read = false;
+        if (request.allOperations(Operation.Type.WRITE)) {
+            record = cluster.write(key, CommandType.PUT, RecordUpdates.put(bins(operations)));
+        } else if (request.allOperations(Operation.Type.ADD)) {
+            record = cluster.write(key, CommandType.ADD, RecordUpdates.add(bins(operations)));
+        } else if (request.allOperations(Operation.Type.APPEND)) {
+            record = cluster.write(key, CommandType.APPEND, RecordUpdates.append(bins(operations)));
+        } else if (request.allOperations(Operation.Type.PREPEND)) {
+            record = cluster.write(key, CommandType.PREPEND, RecordUpdates.prepend(bins(operations)));
+        } else if (operations.length == 1 && request.allOperations(Operation.Type.TOUCH)) {
+            record = cluster.write(key, CommandType.TOUCH, RecordUpdates.touch(request.expiration));
+        } else {
+            record = cluster.write(key, CommandType.OPERATE, RecordUpdates.operate(operations));
+            read = (request.info1 & Request.INFO1_READ) != 0;
+        }
+        String[] binNames = request.readBinNames();
+        boolean includeBins = read;
+        return out -> {
+            writeRecord(out, 0, record, null, 0, binNames, includeBins);
+            return true;
+        };
+    }
+
+    private Response batch(Request request, SimulatedNode node) {
+        int fieldType = request.hasField(FieldType.BATCH_INDEX_WITH_SET)
+                ? FieldType.BATCH_INDEX_WITH_SET : FieldType.BATCH_INDEX;
+        byte[] data = request.data;
+        int offset = request.fieldOffset(fieldType);
+        int count = Buffer.bytesToInt(data, offset);
+        offset += 5;
+        int[] indexes = new int[count];
+        Record[] records = new Record[count];
+        String[][] binNames = new String[count][];
+        boolean[] includeBins = new boolean[count];
+        // Rows repeat the namespace, set and bins of the previous row unless they say otherwise.
+        String namespace = null;
+        String setName = null;
+        for (int i = 0; i < count; i++) {
+            indexes[i] = Buffer.bytesToInt(data, offset);
+            byte[] digest = Arrays.copyOfRange(data, offset + 4, offset + 24);
+            offset += 24;
+            if (data[offset++] == 0) {
+                includeBins[i] = (data[offset] & Request.INFO1_NOBINDATA) == 0;
+                int fieldCount = Buffer.bytesToShort(data, offset + 1);
+                int opCount = Buffer.bytesToShort(data, offset + 3);
+                offset += 5;
+                setName = null;
+                for (int f = 0; f < fieldCount; f++) {
+                    int length = Buffer.bytesToInt(data, offset) - 1;
+                    int type = data[offset + 4];
+                    offset += ResponseWriter.FIELD_HEADER_SIZE;
+                    if (type == FieldType.NAMESPACE) {
+                        namespace = Buffer.utf8ToString(data, offset, length);
+                    } else if (type == FieldType.TABLE) {
+                        setName = Buffer.utf8ToString(data, offset, length);
+                    }
+                    offset += length;
+                }
+                binNames[i] = opCount == 0 ? null : new String[opCount];
+                for (int o = 0; o < opCount; o++) {
+                    int size = Buffer.bytesToInt(data, offset);
+                    binNames[i][o] = Buffer.utf8ToString(data, offset + 8, data[offset + 7] & 0xFF);
+                    offset += size + 4;
+                }
+            } else {
+                includeBins[i] = includeBins[i - 1];
+                binNames[i] = binNames[i - 1];
+            }
+            records[i] = cluster.read(new Key(namespace, digest, setName, null), node);
+        }
+        return out -> {
+            for (int i = 0; i < count; i++) {
+                if (records[i] == null) {
+                    out.reserve(ResponseWriter.MSG_HEADER_SIZE);
+                    out.writeHeader(0, ResultCode.KEY_NOT_FOUND_ERROR, 0, 0, indexes[i], 0, 0);
+                } else {
+                    writeRecord(out, 0, records[i], null, indexes[i], binNames[i], includeBins[i]);
+                }
+            }
+            out.writeStatus(ResponseWriter.INFO3_LAST, ResultCode.OK);
+            return true;
+        };
+    }
+
+    private Response scan(Request request, SimulatedNode node) {
+        String namespace = request.stringField(FieldType.NAMESPACE);
+        String setName = request.stringField(FieldType.TABLE);
+        boolean includeBins = (request.info1 & Request.INFO1_NOBINDATA) == 0;
+        int percent = 100;
+        if (request.hasField(FieldType.SCAN_OPTIONS)) {
+            percent = request.data[request.fieldOffset(FieldType.SCAN_OPTIONS) + 1];
+            if (percent <= 0 || percent > 100) {
+                return status(ResultCode.PARAMETER_ERROR);
+            }
+        }
+        RateLimiter limiter = null;
+        if (request.hasField(FieldType.RECORDS_PER_SECOND)) {
+            limiter = RateLimiter.of(Buffer.bytesToInt(request.data, request.fieldOffset(FieldType.RECORDS_PER_SECOND)));
+        }
+        return new RecordStream(node, namespace, setName, null, request.readBinNames(), includeBins,
+                new ScanSample(percent), limiter);
+    }
+
+    private Response query(Request request, SimulatedNode node) {
+        String namespace = request.stringField(FieldType.NAMESPACE);
+        String setName = request.stringField(FieldType.TABLE);
+        FilterMatcher matcher = new FilterMatcher(filter(request));
+        String[] binNames = null;
+        if (request.hasField(FieldType.QUERY_BINLIST)) {
+            byte[] data = request.data;
+            int offset = request.fieldOffset(FieldType.QUERY_BINLIST);
+            binNames = new String[data[offset++] & 0xFF];
+            for (int i = 0; i < binNames.length; i++) {
+                int length = data[offset++] & 0xFF;
+                binNames[i] = Buffer.utf8ToString(data, offset, length);
+                offset += length;
+            }
+        }
+        boolean includeBins = (request.info1 & Request.INFO1_NOBINDATA) == 0;
+        return new RecordStream(node, namespace, setName, matcher, binNames, includeBins, new ScanSample(100), null);
+    }
+
+    /**
+     * Rebuild the statement filter from its index range field.
+     */
+    private static Filter filter(Request request) {
+        byte[] data = request.data;
+        int offset = request.fieldOffset(FieldType.INDEX_RANGE) + 1;
+        int nameLength = data[offset++] & 0xFF;
+        String name = Buffer.utf8ToString(data, offset, nameLength);
+        offset += nameLength;
+        int valueType = data[offset++];
+        int beginLength = Buffer.bytesToInt(data, offset);
+        int beginOffset = offset + 4;
+        int endOffset = beginOffset + beginLength + 4;
+        IndexCollectionType collectionType = IndexCollectionType.DEFAULT;
+        if (request.hasField(FieldType.INDEX_TYPE)) {
+            collectionType = IndexCollectionType.values()[data[request.fieldOffset(FieldType.INDEX_TYPE)]];
+        }
+        switch (valueType) {
+            case ParticleType.INTEGER:
+                return Filter.range(name, collectionType, Buffer.bytesToLong(data, beginOffset),
+                        Buffer.bytesToLong(data, endOffset));
+            case ParticleType.STRING:
+                return Filter.contains(name, collectionType, Buffer.utf8ToString(data, beginOffset, beginLength));
+            default:
+                throw new UnsupportedOperationException("geo filters are not supported in MockAerospike");
+        }
+    }
+
+    private static Bin[] bins(Operation[] operations) {
+        Bin[] bins = new Bin[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            bins[i] = new Bin(operations[i].binName, operations[i].value);
+        }
+        return bins;
+    }
+
+    /**
+     * Write one record message.
+     *
+     * @param key        key fields to send, as scans and queries do, or null
+     * @param binNames   bins to send, null for all
+     * @param includeBins <code>false</code> to send the header only
+     */
+    static void writeRecord(ResponseWriter out, int info3, Record record, Key key, int batchIndex,
+                            String[] binNames, boolean includeBins) {
+        List<byte[]> names = new ArrayList<>();
+        List<Value> values = new ArrayList<>();
+        if (includeBins && record.bins != null) {
+            if (binNames == null) {
+                for (Map.Entry<String, Object> bin : record.bins.entrySet()) {
+                    names.add(Buffer.stringToUtf8(bin.getKey()));
+                    values.add(Value.get(bin.getValue()));
+                }
+            } else {
+                for (String binName : binNames) {
+                    if (record.bins.containsKey(binName)) {
+                        names.add(Buffer.stringToUtf8(binName));
+                        values.add(Value.get(record.bins.get(binName)));
+                    }
+                }
+            }
+        }
+        int[] sizes = new int[values.size()];
+        int size = ResponseWriter.MSG_HEADER_SIZE;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = values.get(i).estimateSize();
+            size += ResponseWriter.OP_HEADER_SIZE + names.get(i).length + sizes[i];
+        }
+        int fieldCount = 0;
+        byte[] namespace = null;
+        byte[] setName = null;
+        Value userKey = null;
+        int userKeySize = 0;
+        if (key != null) {
+            namespace = Buffer.stringToUtf8(key.namespace);
+            size += ResponseWriter.FIELD_HEADER_SIZE + namespace.length;
+            size += ResponseWriter.FIELD_HEADER_SIZE + key.digest.length;
+            fieldCount += 2;
+            if (key.setName != null) {
+                setName = Buffer.stringToUtf8(key.setName);
+                size += ResponseWriter.FIELD_HEADER_SIZE + setName.length;
+                fieldCount++;
+            }
+            if (key.userKey != null) {
+                userKey = key.userKey;
+                userKeySize = userKey.estimateSize();
+                size += ResponseWriter.FIELD_HEADER_SIZE + 1 + userKeySize;
+                fieldCount++;
+            }
+        }
+        out.reserve(size);
+        out.writeHeader(info3, ResultCode.OK, record.generation, record.expiration, batchIndex,
+                fieldCount, sizes.length);
+        if (key != null) {
+            out.writeField(FieldType.NAMESPACE, namespace);
+            if (setName != null) {
+                out.writeField(FieldType.TABLE, setName);
+            }
+            out.writeField(FieldType.DIGEST_RIPE, key.digest);
+            if (userKey != null) {
+                out.writeField(FieldType.KEY, userKey, userKeySize);
+            }
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            out.writeBin(names.get(i), values.get(i), sizes[i]);
+        }
+    }
+
+    /**
+     * Records of the partitions a node is master of, written a few partitions at a time so a scan
+     * of a large namespace never sits in memory as a whole. A sampled scan reads only its share
+     * of each partition. A throttled scan stops writing when it runs out of permits and asks to
+     * be resumed once the next one is due, instead of holding up the loop.
+     */
+    private final class RecordStream implements Response {
+        private final String namespace;
+        private final String setName;
+        private final FilterMatcher matcher;
+        private final String[] binNames;
+        private final boolean includeBins;
+        private final Iterator<Integer> partitions;
+        private final ScanSample sample;
+        private final RateLimiter limiter;
+        private final String[] read;
+        private final ArrayDeque<KeyRecord> partition = new ArrayDeque<>();
+        private long resumeDelayNanos;
+
+        private RecordStream(SimulatedNode node, String namespace, String setName, FilterMatcher matcher,
+                             String[] binNames, boolean includeBins, ScanSample sample, RateLimiter limiter) {
+            this.namespace = namespace;
+            this.setName = setName == null || setName.isEmpty() ? null : setName;
+            this.matcher = matcher;
+            this.binNames = binNames;
+            this.includeBins = includeBins;
+            this.partitions = cluster.getMasterPartitions(node).iterator();
+            this.sample = sample;
+            this.limiter = limiter;
+            this.read = PartitionedStore.binsToRead(includeBins, binNames, matcher == null ? null : matcher.getBinName());
+        }
+
+        @Override
+        public boolean write(ResponseWriter out) {
+            resumeDelayNanos = 0;
+            while (true) {
+                for (KeyRecord next = partition.peek(); next != null; next = partition.peek()) {
+                    long wait = limiter == null ? 0 : limiter.tryAcquire();
+                    if (wait > 0) {
+                        resumeDelayNanos = wait;
+                        return false;
+                    }
+                    partition.poll();
+                    writeRecord(out, 0, next.record, next.key, 0, binNames, includeBins);
+                    if (out.size() >= streamBudget) {
+                        return false;
+                    }
+                }
+                if (!partitions.hasNext()) {
+                    break;
+                }
+                cluster.scan(namespace, partitions.next(), sample, read, (key, record) -> {
+                    if ((setName == null || setName.equals(key.setName)) && (matcher == null || matcher.matches(record))) {
+                        partition.add(new KeyRecord(key, record));
+                    }
+                });
+            }
+            out.writeStatus(ResponseWriter.INFO3_LAST, ResultCode.OK);
+            return true;
+        }
+
+        @Override
+        public long resumeDelayNanos() {
+            return resumeDelayNanos;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.Host;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.cluster.SimulatedCluster;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+
+/**
+ * Serves the records of a {@link MockAerospikeClient} over the Aerospike wire protocol, so the
+ * real {@link com.aerospike.client.AerospikeClient}, asbenchmark or any other client can be
+ * pointed at it. Every simulated node listens on its own port and is announced to clients
+ * through the usual peers and partition map info commands; nodes added to or removed from the
+ * cluster are picked up on the next tend.
+ * <p>
+ * Single record reads and writes, operate with read, write and arithmetic operations, batch
+ * reads, scans and queries are supported. UDFs and CDT operations are answered with
+ * {@link com.aerospike.client.ResultCode#UNSUPPORTED_FEATURE}. Node availability and fault
+ * rules apply to commands received over the wire the same way they do to the mock client.
+ * <pre>
+ * MockServerPolicy policy = new MockServerPolicy();
+ * policy.port = 0;
+ * try (MockAerospikeServer server = new MockAerospikeServer(new MockAerospikeClient(), policy).start();
+ *      AerospikeClient client = new AerospikeClient(null, server.getHosts())) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author srinivas.iyengar
+ */
+public class MockAerospikeServer implements Closeable {
+    private final MockAerospikeClient client;
+    private final SimulatedCluster cluster;
+    private final MockServerPolicy policy;
+    private final BufferPool pool;
+    private final InfoCommands infoCommands;
+    private final MessageCommands messageCommands;
+    private final Map<String, Listener> listeners = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private IoLoop[] loops;
+    private int nextPort;
+    private int syncedGeneration = -1;
+
+    /**
+     * Serve the records of the given client with the default policy.
+     */
+    public MockAerospikeServer(MockAerospikeClient client) {
+        this(client, new MockServerPolicy());
+    }
+
+    /**
+     * Serve the records of the given client.
+     */
+    public MockAerospikeServer(MockAerospikeClient client, MockServerPolicy policy) {
+        this.client = client;
+        this.cluster = client.getCluster();
+        this.policy = policy;
+        this.pool = new BufferPool(policy.bufferSize, policy.maxPooledBuffers);
+        this.infoCommands = new InfoCommands(this, cluster);
+        // Stream a few buffers per turn of a scan before letting other connections in.
+        this.messageCommands = new MessageCommands(cluster, 4 * policy.bufferSize);
+        this.nextPort = policy.port;
+    }
+
+    /**
+     * Bind every node and start serving.
+     *
+     * @return this server
+     * @throws UncheckedIOException if a port cannot be bound
+     */
+    public synchronized MockAerospikeServer start() {
+        if (loops != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        for (String namespace : policy.namespaces) {
+            cluster.addNamespace(namespace);
+        }
+        loops = new IoLoop[Math.max(1, policy.ioThreads)];
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new IoLoop("mock-aerospike-io-" + i);
+                loops[i].start();
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+        try {
+            syncNodes();
+        } catch (UncheckedIOException e) {
+            close();
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * @return the client whose records are served
+     */
+    public MockAerospikeClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return configuration of this server
+     */
+    public MockServerPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return address the nodes listen on
+     */
+    public String getHost() {
+        return policy.host;
+    }
+
+    /**
+     * @return port the node listens on, -1 if it is not served
+     */
+    public int getPort(String nodeName) {
+        Listener listener = listeners.get(nodeName);
+        return listener == null ? -1 : listener.port;
+    }
+
+    /**
+     * @return seed hosts of every node, to be passed to the client
+     */
+    public Host[] getHosts() {
+        List<Host> hosts = new ArrayList<>();
+        for (SimulatedNode node : cluster.getNodes()) {
+            int port = getPort(node.getName());
+            if (port >= 0) {
+                hosts.add(new Host(policy.host, port));
+            }
+        }
+        return hosts.toArray(new Host[0]);
+    }
+
+    /**
+     * Stop listening and close every connection.
+     */
+    @Override
+    public synchronized void close() {
+        if (loops == null) {
+            return;
+        }
+        for (Listener listener : listeners.values()) {
+            listener.close();
+        }
+        listeners.clear();
+        for (IoLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+        connections.clear();
+        loops = null;
+    }
+
+    /**
+     * Bring the listeners in line with the nodes of the cluster: bind nodes that joined, close
+     * nodes that left together with their connections.
+     */
+    synchronized void syncNodes() {
+        int generation = cluster.getPeersGeneration();
+        if (loops == null || generation == syncedGeneration) {
+            return;
+        }
+        syncedGeneration = generation;
+        List<SimulatedNode> nodes = cluster.getNodes();
+        for (SimulatedNode node : nodes) {
+            if (!listeners.containsKey(node.getName())) {
+                listeners.put(node.getName(), bind(node));
+            }
+        }
+        for (Listener listener : listeners.values()) {
+            if (!nodes.contains(listener.node)) {
+                listeners.remove(listener.node.getName());
+                listener.close();
+                for (Connection connection : connections) {
+                    if (connection.getNode() == listener.node) {
+                        connection.closeLater();
+                    }
+                }
+            }
+        }
+    }
+
+    BufferPool getBufferPool() {
+        return pool;
+    }
+
+    InfoCommands getInfoCommands() {
+        return infoCommands;
+    }
+
+    MessageCommands getMessageCommands() {
+        return messageCommands;
+    }
+
+    void closed(Connection connection) {
+        connections.remove(connection);
+    }
+
+    private Listener bind(SimulatedNode node) {
+        try {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.socket().setReuseAddress(true);
+            channel.bind(new InetSocketAddress(policy.host, policy.port == 0 ? 0 : nextPort++));
+            Listener listener = new Listener(node, channel);
+            loops[0].execute(listener::open);
+            return listener;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind node " + node.getName(), e);
+        }
+    }
+
+    /**
+     * Run a server until the process is stopped.
+     * <p>
+     * Usage: <code>MockAerospikeServer [port] [nodes]</code>
+     */
+    public static void main(String[] args) throws InterruptedException {
+        MockClientPolicy clientPolicy = new MockClientPolicy();
+        MockServerPolicy policy = new MockServerPolicy();
+        if (args.length > 0) {
+            policy.port = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            clientPolicy.nodeCount = Integer.parseInt(args[1]);
+        }
+        MockAerospikeServer server = new MockAerospikeServer(new MockAerospikeClient(clientPolicy), policy).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        for (SimulatedNode node : server.cluster.getNodes()) {
+            System.out.println(node.getName() + " listening on " + policy.host + ':' + server.getPort(node.getName()));
+        }
+        new CountDownLatch(1).await();
+    }
+
+    /**
+     * Accepts connections for one node and spreads them over the loops.
+     */
+    private final class Listener implements IoLoop.Handler {
+        private final SimulatedNode node;
+        private final ServerSocketChannel channel;
+        private final IoLoop[] loops;
+        private final int port;
+
+        private Listener(SimulatedNode node, ServerSocketChannel channel) {
+            this.node = node;
+            this.channel = channel;
+            this.loops = MockAerospikeServer.this.loops;
+            this.port = channel.socket().getLocalPort();
+        }
+
+        private void open() {
+            try {
+                loops[0].register(channel, SelectionKey.OP_ACCEPT, this);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void ready(SelectionKey key) throws IOException {
+            for (SocketChannel accepted = channel.accept(); accepted != null; accepted = channel.accept()) {
+                IoLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                Connection connection = new Connection(MockAerospikeServer.this, loop, accepted, node);
+                connections.add(connection);
+                loop.execute(connection::open);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to release.
+            }
+        }
+    }
+}
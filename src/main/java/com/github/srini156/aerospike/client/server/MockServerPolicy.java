@@ -0,0 +1,53 @@
+package com.github.srini156.aerospike.client.server;
+
+/**
+ * Container object for {@link MockAerospikeServer} configuration.
+ *
+ * @author srinivas.iyengar
+ */
+public class MockServerPolicy {
+    /**
+     * Address the nodes listen on and advertise to clients as peers. Default: 127.0.0.1
+     */
+    public String host = "127.0.0.1";
+
+    /**
+     * Port of the first node, further nodes listen on the following ports. 0 binds every node to
+     * an ephemeral port, see {@link MockAerospikeServer#getPort(String)}. Default: 3000
+     */
+    public int port = 3000;
+
+    /**
+     * Number of selector threads serving connections. Default: number of processors
+     */
+    public int ioThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Size of pooled network buffers in bytes. Larger messages get a dedicated buffer.
+     * Default: 64 KB
+     */
+    public int bufferSize = 64 * 1024;
+
+    /**
+     * Maximum number of idle buffers kept in the pool. Default: 1024
+     */
+    public int maxPooledBuffers = 1024;
+
+    /**
+     * Largest message accepted from a client in bytes, including its proto header and after
+     * decompression. A connection announcing a larger message is closed before anything is
+     * allocated for it. Default: 128 MB, the server's limit
+     */
+    public int maxMessageSize = 128 * 1024 * 1024;
+
+    /**
+     * Namespaces the server is configured with. Default: test
+     */
+    public String[] namespaces = {"test"};
+
+    /**
+     * Cluster name returned to clients that set
+     * {@link com.aerospike.client.policy.ClientPolicy#clusterName}. Default: null
+     */
+    public String clusterName;
+}
@@ -0,0 +1,179 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.util.Arrays;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Value;
+import com.aerospike.client.command.Buffer;
+import com.aerospike.client.command.FieldType;
+
+/**
+ * Decoded <code>as_msg</code> request: header, fields by type and operations. Field values are
+ * left in the message bytes and decoded on demand.
+ *
+ * @author srinivas.iyengar
+ */
+final class Request {
+    static final int INFO1_READ = 1;
+    static final int INFO1_GET_ALL = 2;
+    static final int INFO1_BATCH = 8;
+    static final int INFO1_NOBINDATA = 32;
+
+    static final int INFO2_WRITE = 1;
+    static final int INFO2_DELETE = 2;
+    static final int INFO2_DURABLE_DELETE = 16;
+
+    private static final int FIELD_TYPES = 64;
+    private static final Operation.Type[] OPERATION_TYPES = new Operation.Type[16];
+
+    static {
+        for (Operation.Type type : new Operation.Type[]{Operation.Type.READ, Operation.Type.WRITE,
+                Operation.Type.ADD, Operation.Type.APPEND, Operation.Type.PREPEND, Operation.Type.TOUCH,
+                Operation.Type.DELETE}) {
+            OPERATION_TYPES[type.protocolType] = type;
+        }
+    }
+
+    final byte[] data;
+    final int info1;
+    final int info2;
+    final int info3;
+    final int generation;
+    final int expiration;
+    final Operation[] operations;
+    private final int[] fieldOffsets = new int[FIELD_TYPES];
+    private final int[] fieldLengths = new int[FIELD_TYPES];
+    private int unsupportedOperation = -1;
+
+    /**
+     * @param data   message bytes
+     * @param offset start of the <code>as_msg</code> header, after the proto header
+     */
+    Request(byte[] data, int offset) {
+        this.data = data;
+        int headerSize = data[offset] & 0xFF;
+        info1 = data[offset + 1] & 0xFF;
+        info2 = data[offset + 2] & 0xFF;
+        info3 = data[offset + 3] & 0xFF;
+        generation = Buffer.bytesToInt(data, offset + 6);
+        expiration = Buffer.bytesToInt(data, offset + 10);
+        int fieldCount = Buffer.bytesToShort(data, offset + 18);
+        int opCount = Buffer.bytesToShort(data, offset + 20);
+        offset += headerSize;
+
+        Arrays.fill(fieldOffsets, -1);
+        for (int i = 0; i < fieldCount; i++) {
+            int length = Buffer.bytesToInt(data, offset) - 1;
+            int type = data[offset + 4] & 0xFF;
+            offset += ResponseWriter.FIELD_HEADER_SIZE;
+            if (type < FIELD_TYPES) {
+                fieldOffsets[type] = offset;
+                fieldLengths[type] = length;
+            }
+            offset += length;
+        }
+        operations = new Operation[opCount];
+        for (int i = 0; i < opCount; i++) {
+            operations[i] = operation(offset);
+            offset += Buffer.bytesToInt(data, offset) + 4;
+        }
+    }
+
+    boolean hasField(int type) {
+        return fieldOffsets[type] >= 0;
+    }
+
+    int fieldOffset(int type) {
+        return fieldOffsets[type];
+    }
+
+    int fieldLength(int type) {
+        return fieldLengths[type];
+    }
+
+    String stringField(int type) {
+        return hasField(type) ? Buffer.utf8ToString(data, fieldOffsets[type], fieldLengths[type]) : null;
+    }
+
+    /**
+     * @return key of a single record command
+     */
+    Key key() {
+        byte[] digest = Arrays.copyOfRange(data, fieldOffsets[FieldType.DIGEST_RIPE],
+                fieldOffsets[FieldType.DIGEST_RIPE] + fieldLengths[FieldType.DIGEST_RIPE]);
+        Value userKey = null;
+        if (hasField(FieldType.KEY)) {
+            int offset = fieldOffsets[FieldType.KEY];
+            userKey = Buffer.bytesToKeyValue(data[offset], data, offset + 1, fieldLengths[FieldType.KEY] - 1);
+        }
+        return new Key(stringField(FieldType.NAMESPACE), digest, stringField(FieldType.TABLE), userKey);
+    }
+
+    /**
+     * @return protocol type of the first operation this server cannot run, -1 if there is none
+     */
+    int unsupportedOperation() {
+        return unsupportedOperation;
+    }
+
+    /**
+     * @return <code>true</code> if every operation is of the given type
+     */
+    boolean allOperations(Operation.Type type) {
+        if (operations.length == 0) {
+            return false;
+        }
+        for (Operation operation : operations) {
+            if (operation == null || operation.type != type) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return names of the bins read by the operations, null if all bins are read
+     */
+    String[] readBinNames() {
+        if ((info1 & INFO1_GET_ALL) != 0) {
+            return null;
+        }
+        int count = 0;
+        for (Operation operation : operations) {
+            if (operation.type == Operation.Type.READ && operation.binName != null) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        String[] binNames = new String[count];
+        count = 0;
+        for (Operation operation : operations) {
+            if (operation.type == Operation.Type.READ && operation.binName != null) {
+                binNames[count++] = operation.binName;
+            }
+        }
+        return binNames;
+    }
+
+    private Operation operation(int offset) {
+        int size = Buffer.bytesToInt(data, offset);
+        int protocolType = data[offset + 4] & 0xFF;
+        int particleType = data[offset + 5] & 0xFF;
+        int nameLength = data[offset + 7] & 0xFF;
+        Operation.Type type = protocolType < OPERATION_TYPES.length ? OPERATION_TYPES[protocolType] : null;
+        if (type == null) {
+            if (unsupportedOperation < 0) {
+                unsupportedOperation = protocolType;
+            }
+            return null;
+        }
+        String name = nameLength == 0 ? null : Buffer.utf8ToString(data, offset + 8, nameLength);
+        int valueOffset = offset + 8 + nameLength;
+        int valueLength = size - 4 - nameLength;
+        Value value = Value.get(Buffer.bytesToParticle(particleType, data, valueOffset, valueLength));
+        return new Operation(type, name, value);
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.srini156.aerospike.client.server;
+
+/**
+ * Response to one request, written in one go or, for scans and queries, in parts as the
+ * connection drains.
+ *
+ * @author srinivas.iyengar
+ */
+@FunctionalInterface
+interface Response {
+    /**
+     * Write the next part of the response.
+     *
+     * @return <code>true</code> once the whole response has been written
+     */
+    boolean write(ResponseWriter out);
+
+    /**
+     * @return nanoseconds to wait before writing the next part, 0 to continue as soon as the
+     * connection has drained
+     */
+    default long resumeDelayNanos() {
+        return 0;
+    }
+}
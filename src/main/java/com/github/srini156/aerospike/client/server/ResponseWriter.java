@@ -0,0 +1,154 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aerospike.client.Value;
+import com.aerospike.client.command.Buffer;
+
+/**
+ * Encodes a response into pooled buffers. Each buffer carries one proto message, so a large scan
+ * is sent as a series of groups the way the server streams it and no buffer has to be grown.
+ *
+ * @author srinivas.iyengar
+ */
+final class ResponseWriter {
+    static final int PROTO_INFO = 1;
+    static final int PROTO_MSG = 3;
+
+    static final int INFO3_LAST = 1;
+
+    static final int MSG_HEADER_SIZE = 22;
+    static final int FIELD_HEADER_SIZE = 5;
+    static final int OP_HEADER_SIZE = 8;
+
+    private static final int PROTO_HEADER_SIZE = 8;
+
+    private final BufferPool pool;
+    private final int protoType;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private ByteBuffer current;
+    private byte[] data;
+    private int offset;
+    private int size;
+
+    ResponseWriter(BufferPool pool, int protoType) {
+        this.pool = pool;
+        this.protoType = protoType;
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    int size() {
+        return size + (current == null ? 0 : offset);
+    }
+
+    /**
+     * Make room for <code>length</code> more bytes, starting a new proto message if the current
+     * buffer is full.
+     */
+    void reserve(int length) {
+        if (current != null && offset + length <= current.capacity()) {
+            return;
+        }
+        closeGroup();
+        current = pool.acquire(length + PROTO_HEADER_SIZE);
+        data = current.array();
+        offset = PROTO_HEADER_SIZE;
+    }
+
+    /**
+     * Write a message header, the message must have been reserved.
+     */
+    void writeHeader(int info3, int resultCode, int generation, int expiration, int batchIndex,
+                     int fieldCount, int opCount) {
+        data[offset] = MSG_HEADER_SIZE;
+        data[offset + 1] = 0;
+        data[offset + 2] = 0;
+        data[offset + 3] = (byte) info3;
+        data[offset + 4] = 0;
+        data[offset + 5] = (byte) resultCode;
+        Buffer.intToBytes(generation, data, offset + 6);
+        Buffer.intToBytes(expiration, data, offset + 10);
+        Buffer.intToBytes(batchIndex, data, offset + 14);
+        Buffer.shortToBytes(fieldCount, data, offset + 18);
+        Buffer.shortToBytes(opCount, data, offset + 20);
+        offset += MSG_HEADER_SIZE;
+    }
+
+    /**
+     * Write a header-only message.
+     */
+    void writeStatus(int info3, int resultCode) {
+        reserve(MSG_HEADER_SIZE);
+        writeHeader(info3, resultCode, 0, 0, 0, 0, 0);
+    }
+
+    void writeField(int type, byte[] bytes) {
+        writeFieldHeader(type, bytes.length);
+        System.arraycopy(bytes, 0, data, offset, bytes.length);
+        offset += bytes.length;
+    }
+
+    /**
+     * Write a user key field: particle type followed by the value.
+     */
+    void writeField(int type, Value value, int valueSize) {
+        writeFieldHeader(type, valueSize + 1);
+        data[offset++] = (byte) value.getType();
+        offset += value.write(data, offset);
+    }
+
+    void writeBin(byte[] name, Value value, int valueSize) {
+        Buffer.intToBytes(name.length + valueSize + 4, data, offset);
+        data[offset + 4] = 1;
+        data[offset + 5] = (byte) value.getType();
+        data[offset + 6] = 0;
+        data[offset + 7] = (byte) name.length;
+        offset += OP_HEADER_SIZE;
+        System.arraycopy(name, 0, data, offset, name.length);
+        offset += name.length;
+        offset += value.write(data, offset);
+    }
+
+    /**
+     * Write raw bytes, used for info responses.
+     */
+    void write(byte[] bytes) {
+        reserve(bytes.length);
+        System.arraycopy(bytes, 0, data, offset, bytes.length);
+        offset += bytes.length;
+    }
+
+    /**
+     * @return buffers ready to be sent, positioned at their start
+     */
+    List<ByteBuffer> finish() {
+        closeGroup();
+        List<ByteBuffer> result = new ArrayList<>(buffers);
+        buffers.clear();
+        return result;
+    }
+
+    private void writeFieldHeader(int type, int length) {
+        Buffer.intToBytes(length + 1, data, offset);
+        data[offset + 4] = (byte) type;
+        offset += FIELD_HEADER_SIZE;
+    }
+
+    private void closeGroup() {
+        if (current == null) {
+            return;
+        }
+        long proto = (offset - PROTO_HEADER_SIZE) | 2L << 56 | (long) protoType << 48;
+        Buffer.longToBytes(proto, data, 0);
+        current.position(0);
+        current.limit(offset);
+        buffers.add(current);
+        size += offset;
+        current = null;
+        data = null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.srini156.aerospike.client.sim;
+
+import java.util.Random;
+
+import com.aerospike.client.ResultCode;
+
+/**
+ * Latency and error profile applied to each attempt of a simulated command.
+ * <p>
+ * Error rates are independent probabilities checked in the order they were added, e.g.
+ * <pre>
+ * new FaultRule()
+ *     .latency(LatencyDistribution.logNormal(2, 0.6, TimeUnit.MILLISECONDS))
+ *     .error(ResultCode.KEY_BUSY, 0.001)
+ *     .error(ResultCode.DEVICE_OVERLOAD, 0.0005);
+ * </pre>
+ *
+ * @author srinivas.iyengar
+ */
+public final class FaultRule {
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+    private volatile ErrorRate[] errors = new ErrorRate[0];
+
+    /**
+     * @param latency distribution of server side latency for one attempt
+     * @return this rule
+     */
+    public FaultRule latency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Fail a fraction of attempts with the given result code. {@link ResultCode#TIMEOUT} and
+     * {@link ResultCode#SERVER_NOT_AVAILABLE} are treated like a server side timeout and a
+     * refused connection and retried according to the policy, all other codes are returned to
+     * the caller straight away.
+     *
+     * @param resultCode result code to fail with, e.g. {@link ResultCode#KEY_BUSY}
+     * @param rate       probability between 0 and 1
+     * @return this rule
+     */
+    public synchronized FaultRule error(int resultCode, double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + rate);
+        }
+        ErrorRate[] current = errors;
+        ErrorRate[] updated = new ErrorRate[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = new ErrorRate(resultCode, rate);
+        errors = updated;
+        return this;
+    }
+
+    /**
+     * @return latency distribution of this rule
+     */
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return latency of one attempt in nanoseconds
+     */
+    public long sampleLatency(Random random) {
+        return Math.max(0, latency.sampleNanos(random));
+    }
+
+    /**
+     * @return result code to fail the attempt with or {@link ResultCode#OK}
+     */
+    public int sampleError(Random random) {
+        for (ErrorRate error : errors) {
+            if (error.rate > 0 && random.nextDouble() < error.rate) {
+                return error.resultCode;
+            }
+        }
+        return ResultCode.OK;
+    }
+
+    private static final class ErrorRate {
+        private final int resultCode;
+        private final double rate;
+
+        private ErrorRate(int resultCode, double rate) {
+            this.resultCode = resultCode;
+            this.rate = rate;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.github.srini156.aerospike.client.sim;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.Policy;
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * Injects latency and errors into {@link com.github.srini156.aerospike.client.MockAerospikeClient}
+ * commands, honouring the timeout and retry settings of the command's {@link Policy} the same way
+ * the real client does:
+ * <ul>
+ * <li>each attempt is bounded by <code>socketTimeout</code>, capped by what is left of
+ * <code>totalTimeout</code>. An attempt whose simulated latency exceeds that bound is cut off at
+ * the deadline and fails with a client side {@link AerospikeException.Timeout}.</li>
+ * <li>timed out attempts are retried up to <code>maxRetries</code> times, sleeping
+ * <code>sleepBetweenRetries</code> in between, as long as <code>totalTimeout</code> allows.</li>
+ * <li>{@link ResultCode#TIMEOUT} and {@link ResultCode#SERVER_NOT_AVAILABLE} are retried like
+ * timeouts and connection failures, all other injected error codes fail the command
+ * immediately.</li>
+ * </ul>
+ * Rules are resolved from the most to the least specific: namespace and command, command,
+ * namespace, default. On top of that, the node serving an attempt can add its own rule. Delays
+ * are scheduled on a {@link TimerWheel}, started on first use, so waiting callers are parked
+ * rather than sleeping in their own timer.
+ *
+ * @author srinivas.iyengar
+ */
+public class FaultSimulator implements Closeable {
+    private static final int ANY_COMMAND = CommandType.values().length;
+
+    private final long tickNanos;
+    private volatile TimerWheel wheel;
+    private volatile boolean closed;
+    private final AtomicReferenceArray<FaultRule> commandRules =
+            new AtomicReferenceArray<>(CommandType.values().length);
+    private final Map<String, AtomicReferenceArray<FaultRule>> namespaceRules = new ConcurrentHashMap<>();
+    private volatile FaultRule defaultRule;
+
+    /**
+     * Simulator with a one millisecond timer resolution.
+     */
+    public FaultSimulator() {
+        this(1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param tickDuration resolution of the timer wheel used for delays
+     * @param unit         unit of <code>tickDuration</code>
+     */
+    public FaultSimulator(long tickDuration, TimeUnit unit) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+    }
+
+    /**
+     * @param rule rule applied to commands no other rule matches, null to disable
+     * @return this simulator
+     */
+    public FaultSimulator setDefault(FaultRule rule) {
+        this.defaultRule = rule;
+        return this;
+    }
+
+    /**
+     * @param command command type
+     * @param rule    rule applied to the command in every namespace, null to remove
+     * @return this simulator
+     */
+    public FaultSimulator forCommand(CommandType command, FaultRule rule) {
+        commandRules.set(command.ordinal(), rule);
+        return this;
+    }
+
+    /**
+     * @param namespace namespace name
+     * @param rule      rule applied to every command on the namespace, null to remove
+     * @return this simulator
+     */
+    public FaultSimulator forNamespace(String namespace, FaultRule rule) {
+        rulesOf(namespace).set(ANY_COMMAND, rule);
+        return this;
+    }
+
+    /**
+     * @param namespace namespace name
+     * @param command   command type
+     * @param rule      rule applied to the command on the namespace, null to remove
+     * @return this simulator
+     */
+    public FaultSimulator forCommand(String namespace, CommandType command, FaultRule rule) {
+        rulesOf(namespace).set(command.ordinal(), rule);
+        return this;
+    }
+
+    /**
+     * @return rule that applies to the command or null if the command is not simulated
+     */
+    public FaultRule ruleFor(String namespace, CommandType command) {
+        AtomicReferenceArray<FaultRule> rules = namespace == null ? null : namespaceRules.get(namespace);
+        FaultRule rule;
+        if (rules != null && (rule = rules.get(command.ordinal())) != null) {
+            return rule;
+        }
+        if ((rule = commandRules.get(command.ordinal())) != null) {
+            return rule;
+        }
+        if (rules != null && (rule = rules.get(ANY_COMMAND)) != null) {
+            return rule;
+        }
+        return defaultRule;
+    }
+
+    /**
+     * Play out the simulated network and server time of one command. Returns once the command
+     * may be applied to the store, blocking the caller for the simulated latency.
+     *
+     * @param command   command type
+     * @param namespace namespace the command targets, null for multi-namespace commands
+     * @param policy    policy of the command, timeouts and retries are taken from it
+     * @throws AerospikeException if an error was injected or the command timed out
+     */
+    public void simulate(CommandType command, String namespace, Policy policy) throws AerospikeException {
+        simulate(command, namespace, policy, null);
+    }
+
+    /**
+     * Play out a command whose attempts may each be served by a different node, like reads that
+     * fail over to another replica.
+     *
+     * @param command      command type
+     * @param namespace    namespace the command targets, null for multi-namespace commands
+     * @param policy       policy of the command, timeouts and retries are taken from it
+     * @param attemptRules called once per attempt, in order, with the zero based attempt number.
+     *                     Returns the rule of the node serving it, or null. May itself be null.
+     * @return zero based number of the attempt that succeeded
+     * @throws AerospikeException if an error was injected or the command timed out
+     */
+    public int simulate(CommandType command, String namespace, Policy policy, IntFunction<FaultRule> attemptRules)
+            throws AerospikeException {
+        FaultRule rule = ruleFor(namespace, command);
+        if (rule == null && attemptRules == null) {
+            return 0;
+        }
+        Random random = ThreadLocalRandom.current();
+        long totalTimeout = TimeUnit.MILLISECONDS.toNanos(policy.totalTimeout);
+        long socketTimeout = TimeUnit.MILLISECONDS.toNanos(policy.socketTimeout);
+        long sleepBetweenRetries = TimeUnit.MILLISECONDS.toNanos(policy.sleepBetweenRetries);
+        long deadline = 0;
+        if (totalTimeout > 0) {
+            deadline = System.nanoTime() + totalTimeout;
+            if (socketTimeout == 0 || socketTimeout > totalTimeout) {
+                socketTimeout = totalTimeout;
+            }
+        }
+
+        int iteration = 0;
+        boolean clientTimeout;
+        int resultCode;
+        while (true) {
+            FaultRule nodeRule = attemptRules == null ? null : attemptRules.apply(iteration);
+            if (rule == null && nodeRule == null) {
+                return iteration;
+            }
+            long latency = sampleLatency(rule, random) + sampleLatency(nodeRule, random);
+            if (socketTimeout > 0 && latency >= socketTimeout) {
+                // Cut the attempt off at its deadline instead of waiting for the slow response.
+                await(socketTimeout);
+                clientTimeout = true;
+                resultCode = ResultCode.TIMEOUT;
+            } else {
+                await(latency);
+                resultCode = nodeRule == null ? ResultCode.OK : nodeRule.sampleError(random);
+                if (resultCode == ResultCode.OK && rule != null) {
+                    resultCode = rule.sampleError(random);
+                }
+                if (resultCode == ResultCode.OK) {
+                    return iteration;
+                }
+                if (resultCode != ResultCode.TIMEOUT && resultCode != ResultCode.SERVER_NOT_AVAILABLE) {
+                    AerospikeException ae = new AerospikeException(resultCode);
+                    ae.setPolicy(policy);
+                    ae.setIteration(iteration + 1);
+                    throw ae;
+                }
+                clientTimeout = false;
+            }
+
+            if (++iteration > policy.maxRetries) {
+                if (resultCode == ResultCode.SERVER_NOT_AVAILABLE) {
+                    AerospikeException.Connection ae = new AerospikeException.Connection(resultCode, "Node not available");
+                    ae.setPolicy(policy);
+                    ae.setIteration(iteration);
+                    throw ae;
+                }
+                break;
+            }
+            if (deadline > 0) {
+                long remaining = deadline - System.nanoTime() - sleepBetweenRetries;
+                if (remaining <= 0) {
+                    clientTimeout = true;
+                    break;
+                }
+                if (remaining < socketTimeout) {
+                    socketTimeout = remaining;
+                }
+            }
+            await(sleepBetweenRetries);
+        }
+        AerospikeException.Timeout timeout = new AerospikeException.Timeout(policy, clientTimeout);
+        timeout.setPolicy(policy);
+        timeout.setIteration(iteration);
+        throw timeout;
+    }
+
+    /**
+     * Stop the timer thread. Commands waiting on a delay and commands delayed afterwards fail
+     * with {@link ResultCode#CLIENT_ERROR}.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (wheel != null) {
+                wheel.close();
+            }
+        }
+    }
+
+    private static long sampleLatency(FaultRule rule, Random random) {
+        return rule == null ? 0 : rule.sampleLatency(random);
+    }
+
+    private TimerWheel wheel() {
+        TimerWheel current = wheel;
+        if (current == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw closedError();
+                }
+                if (wheel == null) {
+                    wheel = new TimerWheel(tickNanos, TimeUnit.NANOSECONDS, 512);
+                }
+                current = wheel;
+            }
+        }
+        return current;
+    }
+
+    private AtomicReferenceArray<FaultRule> rulesOf(String namespace) {
+        return namespaceRules.computeIfAbsent(namespace, ns -> new AtomicReferenceArray<>(ANY_COMMAND + 1));
+    }
+
+    private void await(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        if (nanos < tickNanos) {
+            // Below the wheel's resolution, park for the exact time instead of rounding up a tick.
+            long end = System.nanoTime() + nanos;
+            long left;
+            while ((left = end - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, left);
+                checkInterrupt(null);
+            }
+            return;
+        }
+        final Thread waiter = Thread.currentThread();
+        TimerWheel.Timeout timeout;
+        try {
+            timeout = wheel().schedule(() -> LockSupport.unpark(waiter), nanos, TimeUnit.NANOSECONDS);
+        } catch (IllegalStateException e) {
+            throw closedError();
+        }
+        while (!timeout.isFired()) {
+            if (timeout.isCancelled()) {
+                throw closedError();
+            }
+            LockSupport.park(this);
+            checkInterrupt(timeout);
+        }
+    }
+
+    private static AerospikeException closedError() {
+        return new AerospikeException(ResultCode.CLIENT_ERROR, "Fault simulator is closed");
+    }
+
+    private static void checkInterrupt(TimerWheel.Timeout timeout) {
+        if (Thread.currentThread().isInterrupted()) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            throw new AerospikeException(ResultCode.CLIENT_ERROR, "Interrupted while simulating latency");
+        }
+    }
+}
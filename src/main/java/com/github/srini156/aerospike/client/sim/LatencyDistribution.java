@@ -0,0 +1,101 @@
+package com.github.srini156.aerospike.client.sim;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of simulated server latencies.
+ *
+ * @author srinivas.iyengar
+ */
+public interface LatencyDistribution {
+
+    /**
+     * Draw the next latency.
+     *
+     * @param random random source owned by the calling thread
+     * @return latency in nanoseconds, never negative
+     */
+    long sampleNanos(Random random);
+
+    /**
+     * @return distribution that never delays a command
+     */
+    static LatencyDistribution none() {
+        return random -> 0L;
+    }
+
+    /**
+     * @param latency constant latency
+     * @param unit    unit of <code>latency</code>
+     * @return distribution that always returns the same latency
+     */
+    static LatencyDistribution fixed(long latency, TimeUnit unit) {
+        final long nanos = unit.toNanos(latency);
+        return random -> nanos;
+    }
+
+    /**
+     * Log-normal latencies, the usual shape of storage and network response times: most commands
+     * finish close to the median and a long tail stretches to the right.
+     *
+     * @param median median latency
+     * @param sigma  standard deviation of the underlying normal distribution. 0.5 gives a p99 of
+     *               roughly 3x the median, 1.0 roughly 10x.
+     * @param unit   unit of <code>median</code>
+     * @return log-normal distribution
+     */
+    static LatencyDistribution logNormal(long median, double sigma, TimeUnit unit) {
+        final double mu = Math.log(unit.toNanos(median));
+        return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    /**
+     * Replay latencies recorded in a histogram, e.g. exported from the server's
+     * <code>asloglatency</code> or a client side HdrHistogram. A bucket is picked with probability
+     * proportional to its count and a latency is drawn uniformly inside it.
+     *
+     * @param upperBounds ascending upper bound of each bucket, the lower bound of the first bucket
+     *                    is zero
+     * @param counts      number of samples recorded in each bucket
+     * @param unit        unit of <code>upperBounds</code>
+     * @return histogram backed distribution
+     */
+    static LatencyDistribution histogram(long[] upperBounds, long[] counts, TimeUnit unit) {
+        if (upperBounds.length != counts.length || upperBounds.length == 0) {
+            throw new IllegalArgumentException("Histogram needs one count per bucket");
+        }
+        final long[] bounds = new long[upperBounds.length];
+        final long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0 && upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must be ascending");
+            }
+            bounds[i] = unit.toNanos(upperBounds[i]);
+            total += counts[i];
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Histogram is empty");
+        }
+        final long samples = total;
+        return random -> {
+            long pick = (long) (random.nextDouble() * samples);
+            // First bucket whose cumulative count exceeds the pick.
+            int lo = 0;
+            int hi = cumulative.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] > pick) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            int idx = lo;
+            long low = idx == 0 ? 0 : bounds[idx - 1];
+            return low + (long) (random.nextDouble() * (bounds[idx] - low));
+        };
+    }
+}
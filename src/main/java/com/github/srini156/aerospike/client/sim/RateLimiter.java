@@ -0,0 +1,80 @@
+package com.github.srini156.aerospike.client.sim;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket handing out permits at a fixed rate, the way the server throttles scans and
+ * background jobs to their <code>recordsPerSecond</code>. Up to a tenth of a second's worth of
+ * permits accumulate while nobody asks for them. A caller that finds the bucket empty takes a
+ * permit on credit and parks until it has been paid back, so waiting threads do not spin and
+ * are served in the order they arrived. Callers that must not block, such as a selector thread,
+ * use {@link #tryAcquire()} and come back once the permit is due.
+ *
+ * @author srinivas.iyengar
+ */
+public final class RateLimiter {
+    private final double permitsPerNano;
+    private final double maxPermits;
+    private double permits = 1;
+    private long refilledAt = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond rate, must be positive
+     */
+    public RateLimiter(int permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.maxPermits = Math.max(1, permitsPerSecond / 10.0);
+    }
+
+    /**
+     * @return limiter for <code>permitsPerSecond</code>, null if it is 0 or less, meaning
+     * unlimited
+     */
+    public static RateLimiter of(int permitsPerSecond) {
+        return permitsPerSecond > 0 ? new RateLimiter(permitsPerSecond) : null;
+    }
+
+    /**
+     * Take a permit, parking the calling thread until it is due.
+     *
+     * @throws InterruptedException if the thread is interrupted while parked
+     */
+    public void acquire() throws InterruptedException {
+        long due;
+        synchronized (this) {
+            long now = refill();
+            permits--;
+            due = permits >= 0 ? now : now + (long) (-permits / permitsPerNano);
+        }
+        for (long now = System.nanoTime(); now < due; now = System.nanoTime()) {
+            LockSupport.parkNanos(this, due - now);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Take a permit if one is available, without blocking.
+     *
+     * @return 0 if a permit was taken, otherwise nanoseconds until one will be available
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (permits >= 1) {
+            permits--;
+            return 0;
+        }
+        return Math.max(1, (long) ((1 - permits) / permitsPerNano));
+    }
+
+    private long refill() {
+        long now = System.nanoTime();
+        permits = Math.min(maxPermits, permits + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        return now;
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.srini156.aerospike.client.sim;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel. A single daemon thread advances the wheel one tick at a time and fires the
+ * tasks whose deadline fell into the elapsed tick, so any number of pending delays costs one
+ * thread and one small object each. Tasks run on the wheel thread and must be short, typically
+ * they just wake up the thread that is waiting on them.
+ *
+ * @author srinivas.iyengar
+ */
+public final class TimerWheel implements Closeable {
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param tickDuration resolution of the wheel, deadlines are rounded up to the next tick
+     * @param unit         unit of <code>tickDuration</code>
+     * @param wheelSize    number of buckets, rounded up to a power of two
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, "mock-aerospike-timer-" + THREAD_ID.incrementAndGet());
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Run <code>task</code> on the wheel thread once <code>delay</code> has elapsed.
+     *
+     * @param task  action to run, must not block
+     * @param delay time to wait
+     * @param unit  unit of <code>delay</code>
+     * @return handle that can cancel the task before it fires
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer wheel is closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + unit.toNanos(delay));
+        pending.add(timeout);
+        if (!running) {
+            // Closed meanwhile, the wheel thread may have drained the queue already.
+            abortPending();
+        }
+        return timeout;
+    }
+
+    /**
+     * @return resolution of the wheel in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Stop the wheel thread. Tasks that have not fired yet are {@link Timeout#isCancelled()
+     * cancelled} and run right away, so threads waiting on them wake up and can tell their delay
+     * was cut short.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while (running && (sleep = deadline - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferPending();
+            expire(buckets, (int) (tick & mask));
+            tick++;
+        }
+        for (int idx = 0; idx < buckets.length; idx++) {
+            for (Timeout timeout = buckets[idx]; timeout != null; timeout = timeout.next) {
+                timeout.abort();
+            }
+            buckets[idx] = null;
+        }
+        abortPending();
+    }
+
+    private void abortPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            timeout.abort();
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long expiryTick = (timeout.deadline + tickNanos - 1) / tickNanos - 1;
+            // Tasks already overdue fire on the current tick.
+            long target = Math.max(expiryTick, tick);
+            timeout.rounds = (target - tick) / buckets.length;
+            int idx = (int) (target & mask);
+            timeout.next = buckets[idx];
+            buckets[idx] = timeout;
+        }
+    }
+
+    private static void expire(Timeout[] buckets, int idx) {
+        Timeout prev = null;
+        Timeout timeout = buckets[idx];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            boolean remove = timeout.cancelled || timeout.rounds <= 0;
+            if (remove) {
+                if (prev == null) {
+                    buckets[idx] = next;
+                } else {
+                    prev.next = next;
+                }
+                timeout.next = null;
+                if (!timeout.cancelled) {
+                    try {
+                        timeout.fire();
+                    } catch (RuntimeException e) {
+                        // A failing task must not stop the wheel for everybody else.
+                    }
+                }
+            } else {
+                timeout.rounds--;
+                prev = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private volatile boolean cancelled;
+        private volatile boolean fired;
+        private long rounds;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return <code>true</code> if the task was cancelled before it fired
+         */
+        public boolean cancel() {
+            cancelled = true;
+            return !fired;
+        }
+
+        /**
+         * @return <code>true</code> once the task has run
+         */
+        public boolean isFired() {
+            return fired;
+        }
+
+        /**
+         * @return <code>true</code> if the task was cancelled, or cut short by closing the wheel
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void fire() {
+            fired = true;
+            task.run();
+        }
+
+        private void abort() {
+            if (!cancelled && !fired) {
+                cancelled = true;
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // Other tasks must still be woken up.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.srini156.aerospike.client.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch over record digests. A digest is already a uniformly distributed hash, so
+ * each of the {@value #DEPTH} rows indexes its counters by a different 4 byte slice of it and no
+ * further hashing is needed. Estimates never undercount and overcount by at most
+ * <code>2 * total / width</code> with a probability of about 94%.
+ *
+ * @author srinivas.iyengar
+ */
+public final class CountMinSketch {
+    /**
+     * Number of rows, each using one of the digest's bytes 4-19. Bytes 0-1 pick the partition,
+     * which would make rows of records of one partition collide.
+     */
+    static final int DEPTH = 4;
+
+    private final AtomicLongArray counters;
+    private final int mask;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        int size = Integer.highestOneBit(Math.max(2, width));
+        if (size < width) {
+            size <<= 1;
+        }
+        this.counters = new AtomicLongArray(DEPTH * size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Count one occurrence of a digest.
+     *
+     * @return estimated number of occurrences including this one
+     */
+    public long add(byte[] digest) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(digest, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @return estimated number of occurrences of a digest
+     */
+    public long estimate(byte[] digest) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(digest, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Halve every counter, so that counts fade and recent occurrences outweigh old ones.
+     */
+    public void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(byte[] digest, int row) {
+        int offset = 4 + row * 4;
+        int hash = (digest[offset] & 0xFF) | (digest[offset + 1] & 0xFF) << 8
+                | (digest[offset + 2] & 0xFF) << 16 | (digest[offset + 3] & 0xFF) << 24;
+        return row * (mask + 1) + (hash & mask);
+    }
+}
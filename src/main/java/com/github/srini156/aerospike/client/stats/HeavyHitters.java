@@ -0,0 +1,114 @@
+package com.github.srini156.aerospike.client.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+import com.aerospike.client.Key;
+
+/**
+ * Top-K keys by estimated count. Every occurrence is counted in a {@link CountMinSketch}; a key
+ * already in the top-K just takes its new estimate, while another key only competes for a place,
+ * under a lock, once its estimate exceeds the smallest count in the top-K. Keys that are not hot
+ * therefore cost a few atomic increments and one map lookup.
+ *
+ * @author srinivas.iyengar
+ */
+public final class HeavyHitters {
+    private final int k;
+    private final ToIntFunction<Key> partitionId;
+    private final CountMinSketch sketch;
+    private final Map<Key, Candidate> top = new ConcurrentHashMap<>();
+    private volatile long floor;
+
+    /**
+     * @param k           number of keys tracked
+     * @param width       counters per row of the sketch
+     * @param partitionId partition of a key
+     */
+    public HeavyHitters(int k, int width, ToIntFunction<Key> partitionId) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of keys must be positive: " + k);
+        }
+        this.k = k;
+        this.partitionId = partitionId;
+        this.sketch = new CountMinSketch(width);
+    }
+
+    /**
+     * Count one occurrence of a key.
+     */
+    public void add(Key key) {
+        long estimate = sketch.add(key.digest);
+        Candidate candidate = top.get(key);
+        if (candidate != null) {
+            candidate.count = estimate;
+        } else if (estimate > floor) {
+            admit(key, estimate);
+        }
+    }
+
+    private synchronized void admit(Key key, long estimate) {
+        if (top.containsKey(key)) {
+            return;
+        }
+        if (top.size() >= k) {
+            Candidate coldest = coldest();
+            if (coldest.count >= estimate) {
+                floor = coldest.count;
+                return;
+            }
+            top.remove(coldest.key);
+        }
+        top.put(key, new Candidate(key, estimate));
+        floor = top.size() < k ? 0 : coldest().count;
+    }
+
+    private Candidate coldest() {
+        Candidate coldest = null;
+        for (Candidate candidate : top.values()) {
+            if (coldest == null || candidate.count < coldest.count) {
+                coldest = candidate;
+            }
+        }
+        return coldest;
+    }
+
+    /**
+     * @return the tracked keys, most frequent first
+     */
+    public List<HotKey> top() {
+        List<HotKey> keys = new ArrayList<>(top.size());
+        for (Candidate candidate : top.values()) {
+            keys.add(new HotKey(candidate.key, partitionId.applyAsInt(candidate.key), candidate.count));
+        }
+        keys.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return keys;
+    }
+
+    /**
+     * @return estimated count of any key, tracked or not
+     */
+    public long estimate(Key key) {
+        return sketch.estimate(key.digest);
+    }
+
+    public synchronized void clear() {
+        top.clear();
+        sketch.clear();
+        floor = 0;
+    }
+
+    private static final class Candidate {
+        private final Key key;
+        private volatile long count;
+
+        private Candidate(Key key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.srini156.aerospike.client.stats;
+
+import com.aerospike.client.Key;
+
+/**
+ * One of the most accessed keys with its estimated access count.
+ *
+ * @author srinivas.iyengar
+ */
+public final class HotKey {
+    private final Key key;
+    private final int partitionId;
+    private final long count;
+
+    HotKey(Key key, int partitionId, long count) {
+        this.key = key;
+        this.partitionId = partitionId;
+        this.count = count;
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @return partition of the key, whose master serves all its writes
+     */
+    public int getPartitionId() {
+        return partitionId;
+    }
+
+    /**
+     * @return estimated number of accesses, never less than the actual number
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return key + " (partition " + partitionId + "): " + count;
+    }
+}
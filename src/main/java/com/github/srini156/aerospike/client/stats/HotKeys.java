@@ -0,0 +1,190 @@
+package com.github.srini156.aerospike.client.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+import com.aerospike.client.Key;
+
+/**
+ * Access statistics to find the keys, sets and partitions that would hot-spot a node: the most
+ * read and most written keys are tracked by {@link HeavyHitters} in bounded memory, while sets
+ * and partitions, of which there are few, are counted exactly.
+ *
+ * @author srinivas.iyengar
+ */
+public final class HotKeys implements HotKeysMXBean {
+    private static final int SKETCH_WIDTH = 1 << 14;
+
+    private final int k;
+    private final ToIntFunction<Key> partitionId;
+    private final HeavyHitters reads;
+    private final HeavyHitters writes;
+    private final Map<String, LongAdder> setReads = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> setWrites = new ConcurrentHashMap<>();
+    private final AtomicLongArray partitionAccesses;
+    private final LongAdder readCount = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+
+    /**
+     * @param k           number of keys tracked for reads and for writes each
+     * @param partitions  number of partitions
+     * @param partitionId partition of a key
+     */
+    public HotKeys(int k, int partitions, ToIntFunction<Key> partitionId) {
+        this.k = k;
+        this.partitionId = partitionId;
+        this.reads = new HeavyHitters(k, SKETCH_WIDTH, partitionId);
+        this.writes = new HeavyHitters(k, SKETCH_WIDTH, partitionId);
+        this.partitionAccesses = new AtomicLongArray(partitions);
+    }
+
+    /**
+     * Count a read of a key, cheap enough to call on every read.
+     */
+    public void recordRead(Key key) {
+        readCount.increment();
+        reads.add(key);
+        count(setReads, key);
+        partitionAccesses.incrementAndGet(partitionId.applyAsInt(key));
+    }
+
+    /**
+     * Count a write of a key, cheap enough to call on every write.
+     */
+    public void recordWrite(Key key) {
+        writeCount.increment();
+        writes.add(key);
+        count(setWrites, key);
+        partitionAccesses.incrementAndGet(partitionId.applyAsInt(key));
+    }
+
+    private static void count(Map<String, LongAdder> sets, Key key) {
+        String set = key.namespace + ':' + (key.setName != null ? key.setName : "");
+        LongAdder count = sets.get(set);
+        if (count == null) {
+            count = sets.computeIfAbsent(set, name -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * @return most read keys, most frequent first
+     */
+    public List<HotKey> getHotReads() {
+        return reads.top();
+    }
+
+    /**
+     * @return most written keys, most frequent first
+     */
+    public List<HotKey> getHotWrites() {
+        return writes.top();
+    }
+
+    /**
+     * @return estimated number of reads of any key
+     */
+    public long estimateReads(Key key) {
+        return reads.estimate(key);
+    }
+
+    /**
+     * @return estimated number of writes of any key
+     */
+    public long estimateWrites(Key key) {
+        return writes.estimate(key);
+    }
+
+    /**
+     * @return reads and writes of a partition
+     */
+    public long getPartitionAccesses(int partitionId) {
+        return partitionAccesses.get(partitionId);
+    }
+
+    @Override
+    public long getReads() {
+        return readCount.sum();
+    }
+
+    @Override
+    public long getWrites() {
+        return writeCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getTopReadKeys() {
+        return describe(reads.top());
+    }
+
+    @Override
+    public Map<String, Long> getTopWriteKeys() {
+        return describe(writes.top());
+    }
+
+    private static Map<String, Long> describe(List<HotKey> keys) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (HotKey key : keys) {
+            counts.put(key.getKey().toString(), key.getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getSetReads() {
+        return sum(setReads);
+    }
+
+    @Override
+    public Map<String, Long> getSetWrites() {
+        return sum(setWrites);
+    }
+
+    private static Map<String, Long> sum(Map<String, LongAdder> sets) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        sets.forEach((set, count) -> counts.put(set, count.sum()));
+        return counts;
+    }
+
+    /**
+     * @return the <code>k</code> most accessed partitions with their reads and writes, most
+     * accessed first
+     */
+    @Override
+    public Map<Integer, Long> getTopPartitions() {
+        long[] accesses = new long[partitionAccesses.length()];
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < accesses.length; i++) {
+            accesses[i] = partitionAccesses.get(i);
+            if (accesses[i] > 0) {
+                ids.add(i);
+            }
+        }
+        ids.sort(Comparator.comparingLong((Integer id) -> accesses[id]).reversed());
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (Integer id : ids.subList(0, Math.min(k, ids.size()))) {
+            counts.put(id, accesses[id]);
+        }
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        reads.clear();
+        writes.clear();
+        setReads.clear();
+        setWrites.clear();
+        for (int i = 0; i < partitionAccesses.length(); i++) {
+            partitionAccesses.set(i, 0);
+        }
+        readCount.reset();
+        writeCount.reset();
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.srini156.aerospike.client.stats;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link HotKeys}. Keys are reported as
+ * <code>namespace:set:userKey:digest</code>, partitions by their id.
+ *
+ * @author srinivas.iyengar
+ */
+public interface HotKeysMXBean {
+    long getReads();
+
+    long getWrites();
+
+    /**
+     * @return most read keys with their estimated read counts
+     */
+    Map<String, Long> getTopReadKeys();
+
+    /**
+     * @return most written keys with their estimated write counts
+     */
+    Map<String, Long> getTopWriteKeys();
+
+    /**
+     * @return reads per <code>namespace:set</code>
+     */
+    Map<String, Long> getSetReads();
+
+    /**
+     * @return writes per <code>namespace:set</code>
+     */
+    Map<String, Long> getSetWrites();
+
+    /**
+     * @return most accessed partitions with their read and write counts
+     */
+    Map<Integer, Long> getTopPartitions();
+
+    void reset();
+}
@@ -0,0 +1,143 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+
+/**
+ * Bin-name table of one namespace, like the server's: every bin name written is given a small id
+ * once, and stored records refer to the one canonical copy of the name and carry the ids of
+ * their bins. A namespace holds at most {@link #LIMIT} names by default; a write adding a bin
+ * name beyond the limit fails with {@link ResultCode#BIN_NAME_TOO_LONG}, the server's error for
+ * it. Names are never dropped, even once no record has the bin any more.
+ * <p>
+ * Reads that project bins resolve the names they ask for once, into a {@link Projection}, and
+ * then pick the bins of each record by id.
+ *
+ * @author srinivas.iyengar
+ */
+public final class BinNames {
+    /**
+     * Most bin names a namespace holds by default, the server's limit.
+     */
+    public static final int LIMIT = 32767;
+
+    private final int limit;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = {};
+
+    /**
+     * @param limit most bin names the namespace holds
+     */
+    BinNames(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return id of the bin name, registered on first use
+     * @throws AerospikeException with {@link ResultCode#BIN_NAME_TOO_LONG} if the name is new
+     *                            and the table is full
+     */
+    int id(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    /**
+     * @return id of the bin name, -1 if no record was ever written with it
+     */
+    int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return canonical copy of the name of an id
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return number of bin names registered
+     */
+    public int size() {
+        return names.length;
+    }
+
+    private synchronized int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (names.length >= limit) {
+            throw new AerospikeException(ResultCode.BIN_NAME_TOO_LONG,
+                    "Bin name limit of " + limit + " reached, cannot add " + name);
+        }
+        String[] updated = Arrays.copyOf(names, names.length + 1);
+        updated[updated.length - 1] = name;
+        names = updated;
+        ids.put(name, updated.length - 1);
+        return updated.length - 1;
+    }
+
+    /**
+     * Point the bins of a record about to be stored at the canonical names and give them their
+     * ids, registering new names.
+     *
+     * @return the record, or a copy whose bins are {@link PackedBins} if they were not
+     * @throws AerospikeException with {@link ResultCode#BIN_NAME_TOO_LONG} if a name is new and
+     *                            the table is full
+     */
+    public Record intern(Record record) {
+        if (record == null || record.bins == null) {
+            return record;
+        }
+        PackedBins bins = PackedBins.packed(record.bins);
+        bins.intern(this);
+        return bins == record.bins ? record : new Record(bins, record.generation, record.expiration);
+    }
+
+    /**
+     * @param binNames bins to read
+     * @return the names resolved to ids, to pick from any number of records
+     */
+    public Projection projection(String[] binNames) {
+        return new Projection(this, binNames);
+    }
+
+    /**
+     * Bins a read asks for, resolved against a namespace's names once.
+     */
+    public static final class Projection {
+        private final BinNames dictionary;
+        private final String[] names;
+        private final int[] ids;
+
+        private Projection(BinNames dictionary, String[] binNames) {
+            String[] unique = Arrays.stream(binNames).distinct().toArray(String[]::new);
+            this.dictionary = dictionary;
+            this.names = new String[unique.length];
+            this.ids = new int[unique.length];
+            for (int i = 0; i < unique.length; i++) {
+                ids[i] = dictionary.find(unique[i]);
+                names[i] = ids[i] < 0 ? unique[i] : dictionary.name(ids[i]);
+            }
+        }
+
+        /**
+         * @return the record with only the projected bins it has, null if it is null
+         */
+        public Record apply(Record record) {
+            if (record == null) {
+                return null;
+            }
+            Map<String, Object> bins = record.bins == null ? null : PackedBins.project(record.bins, dictionary, names, ids);
+            return new Record(bins, record.generation, record.expiration);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+
+/**
+ * Bins of the columnar entries of one {@link PrimaryIndex} table: a vector per bin name, indexed
+ * by the table's slots, holding a {@link PackedBins} type tag, a <code>long</code> slot and, for
+ * values that are neither integers nor doubles, an object slot allocated on first use. A tag of
+ * 0 means the entry has no such bin. A scan that projects bins reads just their vectors instead
+ * of every bin of every record.
+ * <p>
+ * Columns are added as new bin names are written and only dropped when the table is resized
+ * and nothing is left in them. Like the rest of the table they are written under the index's
+ * write lock and read under its read lock.
+ *
+ * @author srinivas.iyengar
+ */
+final class Columns {
+    private final int capacity;
+    private String[] names = {};
+    private byte[][] types = {};
+    private long[][] numbers = {};
+    private Object[][] objects = {};
+
+    Columns(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return copy sharing nothing but the names with this one
+     */
+    Columns copy() {
+        Columns copy = new Columns(capacity);
+        copy.names = names;
+        copy.types = new byte[names.length][];
+        copy.numbers = new long[names.length][];
+        copy.objects = new Object[names.length][];
+        for (int c = 0; c < names.length; c++) {
+            copy.types[c] = types[c].clone();
+            copy.numbers[c] = numbers[c].clone();
+            copy.objects[c] = objects[c] == null ? null : objects[c].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @param newSlots slot each entry moved to, -1 for slots without a columnar entry
+     * @return columns for a table of <code>newCapacity</code>, without those that were empty
+     */
+    Columns resize(int newCapacity, int[] newSlots) {
+        Columns resized = new Columns(newCapacity);
+        for (int c = 0; c < names.length; c++) {
+            int column = -1;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (types[c][slot] != 0 && newSlots[slot] >= 0) {
+                    if (column < 0) {
+                        column = resized.add(names[c]);
+                    }
+                    int to = newSlots[slot];
+                    resized.types[column][to] = types[c][slot];
+                    resized.numbers[column][to] = numbers[c][slot];
+                    if (objects[c] != null && objects[c][slot] != null) {
+                        resized.objects(column)[to] = objects[c][slot];
+                    }
+                }
+            }
+        }
+        return resized;
+    }
+
+    /**
+     * Store the bins of an entry, replacing those it had.
+     */
+    void write(int slot, PackedBins bins) {
+        clear(slot);
+        for (int i = 0; i < bins.size(); i++) {
+            int column = column(bins.name(i));
+            byte type = bins.type(i);
+            types[column][slot] = type;
+            numbers[column][slot] = bins.longValue(i);
+            if (type == PackedBins.OBJECT) {
+                objects(column)[slot] = bins.value(i);
+            }
+        }
+    }
+
+    /**
+     * Remove the bins of an entry.
+     */
+    void clear(int slot) {
+        for (int c = 0; c < names.length; c++) {
+            types[c][slot] = 0;
+            if (objects[c] != null) {
+                objects[c][slot] = null;
+            }
+        }
+    }
+
+    void move(int from, int to) {
+        for (int c = 0; c < names.length; c++) {
+            types[c][to] = types[c][from];
+            numbers[c][to] = numbers[c][from];
+            if (objects[c] != null) {
+                objects[c][to] = objects[c][from];
+            }
+        }
+    }
+
+    /**
+     * @param binNames bins to read, null for all
+     * @return columns of those bins that exist, null for all
+     */
+    int[] select(String[] binNames) {
+        if (binNames == null) {
+            return null;
+        }
+        int[] selected = new int[binNames.length];
+        int count = 0;
+        for (String binName : binNames) {
+            int column = indexOf(binName);
+            if (column >= 0) {
+                selected[count++] = column;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * @param selected columns to read, from {@link #select}
+     * @return bins of an entry found in those columns
+     */
+    PackedBins row(int slot, int[] selected) {
+        int columns = selected == null ? names.length : selected.length;
+        int count = 0;
+        for (int i = 0; i < columns; i++) {
+            if (types[selected == null ? i : selected[i]][slot] != 0) {
+                count++;
+            }
+        }
+        String[] rowNames = new String[count];
+        byte[] rowTypes = new byte[count];
+        long[] rowNumbers = new long[count];
+        Object[] rowObjects = null;
+        int n = 0;
+        for (int i = 0; i < columns; i++) {
+            int c = selected == null ? i : selected[i];
+            byte type = types[c][slot];
+            if (type != 0) {
+                rowNames[n] = names[c];
+                rowTypes[n] = type;
+                rowNumbers[n] = numbers[c][slot];
+                if (type == PackedBins.OBJECT) {
+                    if (rowObjects == null) {
+                        rowObjects = new Object[count];
+                    }
+                    rowObjects[n] = objects[c][slot];
+                }
+                n++;
+            }
+        }
+        return new PackedBins(rowNames, rowTypes, rowNumbers, rowObjects);
+    }
+
+    private int indexOf(String name) {
+        for (int c = 0; c < names.length; c++) {
+            if (names[c].equals(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private int column(String name) {
+        int column = indexOf(name);
+        return column >= 0 ? column : add(name);
+    }
+
+    private int add(String name) {
+        int column = names.length;
+        names = Arrays.copyOf(names, column + 1);
+        names[column] = name;
+        types = Arrays.copyOf(types, column + 1);
+        types[column] = new byte[capacity];
+        numbers = Arrays.copyOf(numbers, column + 1);
+        numbers[column] = new long[capacity];
+        objects = Arrays.copyOf(objects, column + 1);
+        return column;
+    }
+
+    private Object[] objects(int column) {
+        if (objects[column] == null) {
+            objects[column] = new Object[capacity];
+        }
+        return objects[column];
+    }
+}
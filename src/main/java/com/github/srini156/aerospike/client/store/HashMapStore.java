@@ -0,0 +1,157 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+
+/**
+ * {@link RecordStore} keeping an immutable entry object per record in a
+ * {@link ConcurrentHashMap}. Reads and writes never lock, but every entry costs a map node, a
+ * digest wrapper and the entry itself, about three times what {@link PrimaryIndex} needs, and a
+ * frozen image is a copy of the map rather than a shared table. Columnar sets are stored as
+ * rows.
+ *
+ * @author srinivas.iyengar
+ */
+final class HashMapStore implements RecordStore {
+    private final ConcurrentHashMap<Digest, Entry> entries;
+
+    HashMapStore() {
+        entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Store starting out with the entries of an image.
+     */
+    HashMapStore(Image image) {
+        entries = new ConcurrentHashMap<>(image.entries);
+    }
+
+    @Override
+    public Record get(byte[] digest, Visibility visibility) {
+        Entry entry = entries.get(new Digest(digest));
+        return entry == null || entry.isTruncated(visibility) ? null : entry.record;
+    }
+
+    @Override
+    public long getLastUpdateTime(byte[] digest, Visibility visibility) {
+        Entry entry = entries.get(new Digest(digest));
+        return entry == null || entry.isTruncated(visibility) ? -1 : entry.lastUpdateTime;
+    }
+
+    @Override
+    public void put(byte[] digest, int setId, Value userKey, Record record, long lastUpdateTime, Layout layout) {
+        entries.compute(new Digest(digest), (key, current) -> new Entry(
+                setId == 0 && current != null ? current.setId : setId,
+                userKey == null && current != null ? current.userKey : userKey,
+                record, lastUpdateTime));
+    }
+
+    @Override
+    public Record remove(byte[] digest, Visibility visibility) {
+        Entry entry = entries.remove(new Digest(digest));
+        return entry == null || entry.isTruncated(visibility) ? null : entry.record;
+    }
+
+    @Override
+    public void forEach(int limit, String[] binNames, Visitor visitor) {
+        List<Map.Entry<Digest, Entry>> snapshot = new ArrayList<>(Math.min(entries.size(), Math.max(0, limit)));
+        for (Map.Entry<Digest, Entry> entry : entries.entrySet()) {
+            if (snapshot.size() >= limit) {
+                break;
+            }
+            snapshot.add(entry);
+        }
+        for (Map.Entry<Digest, Entry> entry : snapshot) {
+            Entry value = entry.getValue();
+            visitor.visit(entry.getKey().bytes.clone(), value.setId, value.userKey, value.record, value.lastUpdateTime);
+        }
+    }
+
+    @Override
+    public int removeIf(Filter filter) {
+        int dropped = 0;
+        for (Map.Entry<Digest, Entry> entry : entries.entrySet()) {
+            Entry value = entry.getValue();
+            if (filter.test(value.setId, value.record, value.lastUpdateTime) && entries.remove(entry.getKey(), value)) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Image freeze() {
+        // Entries are immutable, copying the map is enough.
+        return new Image(new HashMap<>(entries));
+    }
+
+    /**
+     * Copy of the map of a store.
+     */
+    static final class Image implements RecordStore.Image {
+        private final Map<Digest, Entry> entries;
+
+        private Image(Map<Digest, Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Digest as a map key. Digests are hashes already, so their first bytes are hash code
+     * enough.
+     */
+    private static final class Digest {
+        private final byte[] bytes;
+        private final int hash;
+
+        private Digest(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Digest && hash == ((Digest) other).hash && Arrays.equals(bytes, ((Digest) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final int setId;
+        private final Value userKey;
+        private final Record record;
+        private final long lastUpdateTime;
+
+        private Entry(int setId, Value userKey, Record record, long lastUpdateTime) {
+            this.setId = setId;
+            this.userKey = userKey;
+            this.record = record;
+            this.lastUpdateTime = lastUpdateTime;
+        }
+
+        private boolean isTruncated(Visibility visibility) {
+            return visibility.isTruncated(setId, lastUpdateTime);
+        }
+    }
+}
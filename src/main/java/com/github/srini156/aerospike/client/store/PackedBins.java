@@ -0,0 +1,441 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Value;
+import com.aerospike.client.Value.BooleanValue;
+import com.aerospike.client.Value.IntegerValue;
+import com.aerospike.client.Value.LongValue;
+
+/**
+ * Bins of a stored record laid out like the server's bin array rather than as a hash map: the
+ * bin names, a type tag per bin, a <code>long</code> slot holding integer and double values
+ * inline and an object slot for everything else. Integer and double values are only boxed when
+ * a caller reads them through the {@link Map} interface, so {@link RecordUpdates#add} increments
+ * a counter by copying a few small arrays instead of a hash map and its boxed values. Records
+ * have few bins, which are looked up by scanning the names like the server does.
+ * <p>
+ * Bins of stored records are never changed: updates and readers work on {@link #copy copies}.
+ * A copy shares the arrays of the bins it was taken from until either is changed, which copies
+ * the type, number and object arrays before writing to them. The names array is never
+ * written once filled, so copies keep sharing it; adding or removing a bin replaces it.
+ * <p>
+ * Bins of stored records are {@link #intern interned}: their names are the canonical copies
+ * held by the namespace's {@link BinNames} and they carry the names' ids, which copies share
+ * with the names.
+ *
+ * @author srinivas.iyengar
+ */
+public final class PackedBins extends AbstractMap<String, Object> {
+    static final byte INTEGER = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+    static final byte OBJECT = 4;
+
+    private String[] names;
+    private byte[] types;
+    private long[] numbers;
+    private Object[] objects;
+    private int[] ids;
+    private BinNames interned;
+    private boolean shared;
+
+    PackedBins(String[] names, byte[] types, long[] numbers, Object[] objects) {
+        this.names = names;
+        this.types = types;
+        this.numbers = numbers;
+        this.objects = objects;
+    }
+
+    /**
+     * @return bins of a new record, a bin named twice keeps its last value; booleans are stored
+     * as integers like the server does
+     */
+    public static PackedBins of(Bin[] bins) {
+        PackedBins packed = new PackedBins(new String[bins.length], new byte[bins.length], new long[bins.length], null);
+        int size = 0;
+        for (Bin bin : bins) {
+            int index = packed.indexOf(bin.name, size);
+            if (index < 0) {
+                index = size++;
+                packed.names[index] = bin.name;
+            }
+            packed.set(index, bin.value);
+        }
+        packed.trim(size);
+        return packed;
+    }
+
+    /**
+     * @return bins holding the same values as <code>bins</code>, a copy if it already is packed
+     */
+    public static PackedBins copyOf(Map<String, Object> bins) {
+        if (bins instanceof PackedBins) {
+            return ((PackedBins) bins).copy();
+        }
+        PackedBins packed = new PackedBins(new String[bins.size()], new byte[bins.size()], new long[bins.size()], null);
+        int index = 0;
+        for (Map.Entry<String, Object> bin : bins.entrySet()) {
+            packed.names[index] = bin.getKey();
+            packed.set(index++, bin.getValue());
+        }
+        return packed;
+    }
+
+    /**
+     * @return <code>bins</code> itself if it is packed, else a packed copy
+     */
+    static PackedBins packed(Map<String, Object> bins) {
+        return bins instanceof PackedBins ? (PackedBins) bins : copyOf(bins);
+    }
+
+    /**
+     * @return copy whose values can be set without affecting this one and the other way round,
+     * sharing the arrays until either is changed
+     */
+    PackedBins copy() {
+        // Stored bins are copied by every read, write the flag only once.
+        if (!shared) {
+            shared = true;
+        }
+        PackedBins copy = new PackedBins(names, types, numbers, objects);
+        copy.ids = ids;
+        copy.interned = interned;
+        copy.shared = true;
+        return copy;
+    }
+
+    /**
+     * Copy the value arrays before the first write if they are shared with other bins.
+     */
+    private void own() {
+        if (shared) {
+            types = types.clone();
+            numbers = numbers.clone();
+            objects = objects == null ? null : objects.clone();
+            shared = false;
+        }
+    }
+
+    /**
+     * Replace the names by the dictionary's canonical copies and record their ids, unless that
+     * was done already. The canonical copy of a name is equal to it, so this may write to a
+     * names array other bins share.
+     *
+     * @throws com.aerospike.client.AerospikeException if the dictionary cannot take a new name
+     */
+    void intern(BinNames dictionary) {
+        if (interned == dictionary) {
+            return;
+        }
+        int[] binIds = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            binIds[i] = dictionary.id(names[i]);
+            names[i] = dictionary.name(binIds[i]);
+        }
+        ids = binIds;
+        interned = dictionary;
+    }
+
+    /**
+     * Pick bins by id if <code>bins</code> were interned in the dictionary, else by name. If
+     * every bin asked for is found, the result shares the projection's names and ids.
+     *
+     * @param names canonical names of the bins asked for, no name twice
+     * @param ids   their ids in the dictionary, -1 for names it does not know
+     * @return the bins asked for that <code>bins</code> has
+     */
+    static PackedBins project(Map<String, Object> bins, BinNames dictionary, String[] names, int[] ids) {
+        PackedBins packed = bins instanceof PackedBins ? (PackedBins) bins : null;
+        boolean byId = packed != null && packed.interned == dictionary;
+        int count = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (byId ? packed.indexOfId(ids[i]) >= 0 : bins.containsKey(names[i])) {
+                count++;
+            }
+        }
+        boolean all = count == names.length;
+        PackedBins result = new PackedBins(all ? names : new String[count], new byte[count], new long[count], null);
+        int n = 0;
+        for (int i = 0; i < names.length && n < count; i++) {
+            if (packed != null) {
+                int index = byId ? packed.indexOfId(ids[i]) : packed.indexOf(names[i]);
+                if (index >= 0) {
+                    result.names[n] = names[i];
+                    result.types[n] = packed.types[index];
+                    result.numbers[n] = packed.numbers[index];
+                    if (packed.types[index] == OBJECT) {
+                        if (result.objects == null) {
+                            result.objects = new Object[count];
+                        }
+                        result.objects[n] = packed.objects[index];
+                    }
+                    n++;
+                }
+            } else if (bins.containsKey(names[i])) {
+                result.names[n] = names[i];
+                result.set(n++, bins.get(names[i]));
+            }
+        }
+        if (all && byId) {
+            result.ids = ids;
+            result.interned = dictionary;
+        }
+        return result;
+    }
+
+    private int indexOfId(int id) {
+        if (id >= 0) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the bin, -1 if there is no such bin
+     */
+    int indexOf(String name) {
+        return indexOf(name, names.length);
+    }
+
+    private int indexOf(String name, int size) {
+        for (int i = 0; i < size; i++) {
+            if (names[i] == name) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    byte type(int index) {
+        return types[index];
+    }
+
+    /**
+     * @return value of an {@link #INTEGER} or {@link #LONG} bin, the raw bits of a {@link #DOUBLE}
+     * one
+     */
+    long longValue(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * @return value of a {@link #DOUBLE} bin
+     */
+    double doubleValue(int index) {
+        return Double.longBitsToDouble(numbers[index]);
+    }
+
+    /**
+     * Store an integer, read back as an {@link Integer} if it was one and still fits, else as a
+     * {@link Long}.
+     */
+    void setLong(int index, long value) {
+        own();
+        if (types[index] != INTEGER || value != (int) value) {
+            types[index] = LONG;
+        }
+        numbers[index] = value;
+    }
+
+    void setDouble(int index, double value) {
+        own();
+        types[index] = DOUBLE;
+        numbers[index] = Double.doubleToRawLongBits(value);
+    }
+
+    private void set(int index, Value value) {
+        if (value instanceof IntegerValue) {
+            types[index] = INTEGER;
+            numbers[index] = value.toInteger();
+        } else if (value instanceof LongValue || value instanceof BooleanValue) {
+            types[index] = LONG;
+            numbers[index] = value.toLong();
+        } else {
+            set(index, value.getObject());
+        }
+    }
+
+    private void set(int index, Object value) {
+        if (value instanceof Integer) {
+            types[index] = INTEGER;
+            numbers[index] = (Integer) value;
+        } else if (value instanceof Long) {
+            types[index] = LONG;
+            numbers[index] = (Long) value;
+        } else if (value instanceof Double) {
+            setDouble(index, (Double) value);
+        } else {
+            types[index] = OBJECT;
+            if (objects == null) {
+                objects = new Object[names.length];
+            }
+            objects[index] = value;
+        }
+        if (types[index] != OBJECT && objects != null) {
+            objects[index] = null;
+        }
+    }
+
+    private void trim(int size) {
+        if (size < names.length) {
+            names = Arrays.copyOf(names, size);
+            types = Arrays.copyOf(types, size);
+            numbers = Arrays.copyOf(numbers, size);
+            objects = objects == null ? null : Arrays.copyOf(objects, size);
+        }
+    }
+
+    /**
+     * Set a bin from a client value, adding it if the record does not have it yet.
+     */
+    void write(String name, Value value) {
+        int index = indexOf(name);
+        if (index < 0) {
+            put(name, null);
+            index = names.length - 1;
+        }
+        own();
+        set(index, value);
+    }
+
+    /**
+     * @return value of the bin, boxed
+     */
+    Object value(int index) {
+        switch (types[index]) {
+            case INTEGER:
+                return (int) numbers[index];
+            case LONG:
+                return numbers[index];
+            case DOUBLE:
+                return Double.longBitsToDouble(numbers[index]);
+            default:
+                return objects[index];
+        }
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = key instanceof String ? indexOf((String) key) : -1;
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            Object previous = value(index);
+            own();
+            set(index, value);
+            return previous;
+        }
+        index = names.length;
+        names = Arrays.copyOf(names, index + 1);
+        names[index] = key;
+        ids = null;
+        interned = null;
+        types = Arrays.copyOf(types, index + 1);
+        numbers = Arrays.copyOf(numbers, index + 1);
+        objects = objects == null ? null : Arrays.copyOf(objects, index + 1);
+        shared = false;
+        set(index, value);
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = key instanceof String ? indexOf((String) key) : -1;
+        if (index < 0) {
+            return null;
+        }
+        Object previous = value(index);
+        int size = names.length - 1;
+        names = removed(names, new String[size], index, size);
+        ids = null;
+        interned = null;
+        types = removed(types, new byte[size], index, size);
+        numbers = removed(numbers, new long[size], index, size);
+        objects = objects == null ? null : removed(objects, new Object[size], index, size);
+        shared = false;
+        return previous;
+    }
+
+    private static <T> T removed(T from, T to, int index, int size) {
+        System.arraycopy(from, 0, to, 0, index);
+        System.arraycopy(from, index + 1, to, index, size - index);
+        return to;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return names.length;
+            }
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int next;
+                    private String last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = names[next];
+                        return new SimpleImmutableEntry<>(last, value(next++));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        PackedBins.this.remove(last);
+                        last = null;
+                        next--;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Map;
+
+/**
+ * Frozen contents of one partition of a {@link PartitionedStore} in every namespace. With the
+ * index engine images share index tables with the store they came from and the stores they are
+ * restored into; whoever writes first copies the table.
+ *
+ * @author srinivas.iyengar
+ */
+public final class PartitionImage {
+    final SetNames setNames;
+    final Map<String, RecordStore.Image> indexes;
+
+    PartitionImage(SetNames setNames, Map<String, RecordStore.Image> indexes) {
+        this.setNames = setNames;
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return number of entries in all namespaces, including truncated ones
+     */
+    public long size() {
+        long size = 0;
+        for (RecordStore.Image image : indexes.values()) {
+            size += image.size();
+        }
+        return size;
+    }
+}
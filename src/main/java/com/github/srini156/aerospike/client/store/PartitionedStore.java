@@ -0,0 +1,441 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.cluster.Node;
+
+/**
+ * Records held by one simulated node, split by namespace and partition the same way the server
+ * lays out its primary index. Partitions are created on first write, so a node only pays for
+ * the partitions it actually holds.
+ * <p>
+ * Each partition is a {@link RecordStore} keyed by digest, created by the store's
+ * {@link StorageEngine}: set names are kept once per namespace and referred to by id, user keys
+ * only when the client sent them. With the default engine, a {@link PrimaryIndex}, that costs a
+ * fixed few dozen bytes per record. Keys handed out by {@link #forEach} are rebuilt from the
+ * digest and carry a user key only if one was stored.
+ * <p>
+ * Sets marked columnar in the {@link SetNames} keep their bins column by column, which scans
+ * that project a few bins read much less of; see {@link PrimaryIndex}.
+ * <p>
+ * Partitions can be {@link #freeze frozen} into images, which the default engine shares with
+ * the store copy-on-write; that is how cluster snapshots and forks avoid copying records.
+ * <p>
+ * Every record carries its last-update-time. Records older than a truncation cutoff are hidden
+ * from reads and scans straight away and removed later by
+ * {@link #dropTruncated(String, String, int)}.
+ * <p>
+ * Durably deleted records leave a {@link #tombstone tombstone}: an entry keeping the record's
+ * generation, so a record written again counts on from it, that reads and scans skip. Tombstones
+ * take an index entry each until {@link #dropTombstones dropped}.
+ *
+ * @author srinivas.iyengar
+ */
+public final class PartitionedStore {
+    /**
+     * Number of partitions per namespace.
+     */
+    public static final int PARTITIONS = Node.PARTITIONS;
+
+    /**
+     * Bins of tombstones, told apart by identity.
+     */
+    private static final Map<String, Object> TOMBSTONE = Collections.unmodifiableMap(new HashMap<>());
+
+    /**
+     * Layout of tombstones, which have no bins to keep in columns.
+     */
+    private static final RecordStore.Layout ROWS = setId -> false;
+    private static final String[] NO_BINS = new String[0];
+
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+    private final Truncations truncations;
+    private final SetNames setNames;
+    private final StorageEngine engine;
+
+    /**
+     * @param truncations truncation cutoffs applying to this store
+     */
+    public PartitionedStore(Truncations truncations) {
+        this(truncations, new SetNames());
+    }
+
+    /**
+     * @param truncations truncation cutoffs applying to this store
+     * @param setNames    set ids shared with the other stores of the cluster
+     */
+    public PartitionedStore(Truncations truncations, SetNames setNames) {
+        this(truncations, setNames, StorageEngine.index());
+    }
+
+    /**
+     * @param truncations truncation cutoffs applying to this store
+     * @param setNames    set ids shared with the other stores of the cluster
+     * @param engine      engine storing each partition
+     */
+    public PartitionedStore(Truncations truncations, SetNames setNames, StorageEngine engine) {
+        this.truncations = truncations;
+        this.setNames = setNames;
+        this.engine = engine;
+    }
+
+    /**
+     * @return tombstone of a durably deleted record, to {@link #put} in its place
+     */
+    public static Record tombstone(int generation) {
+        return new Record(TOMBSTONE, generation, 0);
+    }
+
+    /**
+     * @return <code>true</code> if the record is a tombstone
+     */
+    public static boolean isTombstone(Record record) {
+        return record != null && record.bins == TOMBSTONE;
+    }
+
+    /**
+     * @return record or null if the partition does not hold the key or only its tombstone
+     */
+    public Record get(int partitionId, Key key) {
+        Record record = getEntry(partitionId, key);
+        return isTombstone(record) ? null : record;
+    }
+
+    /**
+     * @return record, its tombstone or null if the partition holds neither
+     */
+    public Record getEntry(int partitionId, Key key) {
+        Namespace namespace = namespaces.get(key.namespace);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        return index == null ? null : index.get(key.digest, namespace);
+    }
+
+    /**
+     * @return last-update-time of the record or its tombstone in nanoseconds since the epoch, -1
+     * if the partition holds neither
+     */
+    public long getLastUpdateTime(int partitionId, Key key) {
+        Namespace namespace = namespaces.get(key.namespace);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        return index == null ? -1 : index.getLastUpdateTime(key.digest, namespace);
+    }
+
+    /**
+     * Insert or replace a record. The user key is stored if the key carries one; a key without
+     * set name or user key keeps those already stored.
+     *
+     * @param lastUpdateTime time of the write in nanoseconds since the epoch, the same on every
+     *                       copy of the record
+     */
+    public void put(int partitionId, Key key, Record record, long lastUpdateTime) {
+        Namespace namespace = namespaces.computeIfAbsent(key.namespace, Namespace::new);
+        namespace.partition(partitionId).put(key.digest, namespace.setId(key.setName), key.userKey, record,
+                lastUpdateTime, isTombstone(record) ? ROWS : namespace);
+    }
+
+    /**
+     * Remove a record or its tombstone.
+     *
+     * @return removed record or null if the partition did not hold the key or only its tombstone
+     */
+    public Record remove(int partitionId, Key key) {
+        Namespace namespace = namespaces.get(key.namespace);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        Record removed = index == null ? null : index.remove(key.digest, namespace);
+        return isTombstone(removed) ? null : removed;
+    }
+
+    /**
+     * Visit every record of a partition. Iteration is weakly consistent: records written while
+     * iterating may or may not be visited.
+     */
+    public void forEach(String namespaceName, int partitionId, BiConsumer<Key, Record> consumer) {
+        forEach(namespaceName, partitionId, Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Visit a sample of the records of a partition: its first <code>limit</code> index entries,
+     * which are spread over the partition by digest. Only that much of the index is read.
+     * Truncated entries and tombstones count towards the limit but are not visited.
+     */
+    public void forEach(String namespaceName, int partitionId, int limit, BiConsumer<Key, Record> consumer) {
+        forEach(namespaceName, partitionId, limit, null, consumer);
+    }
+
+    /**
+     * Visit a sample of the records of a partition, as {@link #forEach(String, int, int, BiConsumer)}
+     * does, reading only some of their bins.
+     *
+     * @param binNames bins the consumer needs, null for all. Records of columnar sets are handed
+     *                 over with just those bins; other records may have more.
+     */
+    public void forEach(String namespaceName, int partitionId, int limit, String[] binNames,
+                        BiConsumer<Key, Record> consumer) {
+        Namespace namespace = namespaces.get(namespaceName);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        if (index != null) {
+            index.forEach(limit, binNames, (digest, setId, userKey, record, lastUpdateTime) -> {
+                if (!isTombstone(record) && !namespace.isTruncated(setId, lastUpdateTime)) {
+                    consumer.accept(new Key(namespaceName, digest, namespace.setName(setId), userKey), record);
+                }
+            });
+        }
+    }
+
+    /**
+     * Visit every record and tombstone of a partition, as migrations copy them.
+     */
+    public void forEachEntry(String namespaceName, int partitionId, BiConsumer<Key, Record> consumer) {
+        Namespace namespace = namespaces.get(namespaceName);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        if (index != null) {
+            index.forEach(Integer.MAX_VALUE, null, (digest, setId, userKey, record, lastUpdateTime) -> {
+                if (!namespace.isTruncated(setId, lastUpdateTime)) {
+                    consumer.accept(new Key(namespaceName, digest, namespace.setName(setId), userKey), record);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param includeBinData <code>false</code> if only record headers are wanted
+     * @param binNames       bins asked for, all if null or empty
+     * @param filterBinName  bin a filter reads, null if there is none
+     * @return bins a scan or query has to read, null for all
+     */
+    public static String[] binsToRead(boolean includeBinData, String[] binNames, String filterBinName) {
+        String[] read;
+        if (!includeBinData) {
+            read = new String[0];
+        } else if (binNames == null || binNames.length == 0) {
+            return null;
+        } else {
+            read = binNames;
+        }
+        if (filterBinName == null) {
+            return read;
+        }
+        String[] withFilter = Arrays.copyOf(read, read.length + 1);
+        withFilter[read.length] = filterBinName;
+        return withFilter;
+    }
+
+    /**
+     * Remove the records of a partition that have been truncated.
+     *
+     * @param setName set whose records to check, null to check the whole namespace
+     * @return number of records removed
+     */
+    public int dropTruncated(String namespaceName, String setName, int partitionId) {
+        Namespace namespace = namespaces.get(namespaceName);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        if (index == null) {
+            return 0;
+        }
+        int setId = -1;
+        if (setName != null) {
+            setId = namespace.sets.find(setName);
+            if (setId < 0) {
+                return 0;
+            }
+        }
+        return index.dropTruncated(setId, namespace);
+    }
+
+    /**
+     * Remove the tombstones of a partition in every namespace that are older than a cutoff.
+     *
+     * @param before last-update-time in nanoseconds since the epoch, tombstones written earlier
+     *               are removed
+     * @return number of tombstones removed
+     */
+    public int dropTombstones(int partitionId, long before) {
+        int dropped = 0;
+        for (Namespace namespace : namespaces.values()) {
+            RecordStore index = namespace.partitions.get(partitionId);
+            if (index != null) {
+                dropped += index.removeIf((setId, record, lastUpdateTime) ->
+                        isTombstone(record) && lastUpdateTime < before);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Count the tombstones of a partition of the namespace by visiting its entries.
+     *
+     * @return number of tombstones, including truncated ones that have not been dropped yet
+     */
+    public int countTombstones(String namespaceName, int partitionId) {
+        Namespace namespace = namespaces.get(namespaceName);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        if (index == null) {
+            return 0;
+        }
+        int[] count = new int[1];
+        index.forEach(Integer.MAX_VALUE, NO_BINS, (digest, setId, userKey, record, lastUpdateTime) -> {
+            if (isTombstone(record)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * @return number of tombstones in all namespaces, see {@link #countTombstones(String, int)}
+     */
+    public long countTombstones() {
+        long count = 0;
+        for (String namespace : namespaces.keySet()) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                count += countTombstones(namespace, i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return namespaces that have been written to
+     */
+    public Set<String> getNamespaces() {
+        return namespaces.keySet();
+    }
+
+    /**
+     * @return number of records in a partition of the namespace, including tombstones and
+     * truncated records that have not been dropped yet
+     */
+    public int size(String namespaceName, int partitionId) {
+        Namespace namespace = namespaces.get(namespaceName);
+        RecordStore index = namespace == null ? null : namespace.partitions.get(partitionId);
+        return index == null ? 0 : index.size();
+    }
+
+    /**
+     * @return number of records in all namespaces, including tombstones and truncated records
+     * that have not been dropped yet
+     */
+    public long size() {
+        long size = 0;
+        for (Namespace namespace : namespaces.values()) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                RecordStore index = namespace.partitions.get(i);
+                if (index != null) {
+                    size += index.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Freeze a partition in every namespace. With the index engine the image shares the
+     * partition's index tables, which the store copies before its next write to them, so this
+     * costs the same whatever the number of records.
+     *
+     * @return image to {@link #restore} the partition from, here or in another store sharing
+     * the same {@link SetNames} and storage engine
+     */
+    public PartitionImage freeze(int partitionId) {
+        Map<String, RecordStore.Image> images = new HashMap<>();
+        for (Namespace namespace : namespaces.values()) {
+            RecordStore index = namespace.partitions.get(partitionId);
+            if (index != null) {
+                images.put(namespace.name, index.freeze());
+            }
+        }
+        return new PartitionImage(setNames, images);
+    }
+
+    /**
+     * Replace a partition in every namespace by an image. Namespaces the image does not hold
+     * are emptied.
+     *
+     * @throws IllegalArgumentException if the image was frozen by a store with other set ids
+     *                                  or another storage engine
+     */
+    public void restore(int partitionId, PartitionImage image) {
+        if (image.setNames != setNames) {
+            throw new IllegalArgumentException("Partition image has different set ids");
+        }
+        // Restored before anything is replaced, so an image of another engine changes nothing.
+        Map<String, RecordStore> restored = new HashMap<>();
+        for (Map.Entry<String, RecordStore.Image> entry : image.indexes.entrySet()) {
+            restored.put(entry.getKey(), engine.restore(entry.getValue()));
+        }
+        for (Namespace namespace : namespaces.values()) {
+            if (!restored.containsKey(namespace.name)) {
+                namespace.partitions.set(partitionId, null);
+            }
+        }
+        for (Map.Entry<String, RecordStore> entry : restored.entrySet()) {
+            namespaces.computeIfAbsent(entry.getKey(), Namespace::new).partitions.set(partitionId, entry.getValue());
+        }
+    }
+
+    /**
+     * Drop a partition in every namespace.
+     */
+    public void clear(int partitionId) {
+        for (Namespace namespace : namespaces.values()) {
+            namespace.partitions.set(partitionId, null);
+        }
+    }
+
+    /**
+     * Drop all records.
+     */
+    public void clear() {
+        namespaces.clear();
+    }
+
+    /**
+     * Partitions of a namespace and the names of its sets.
+     */
+    private final class Namespace implements RecordStore.Visibility, RecordStore.Layout {
+        private final String name;
+        private final AtomicReferenceArray<RecordStore> partitions = new AtomicReferenceArray<>(PARTITIONS);
+        private final SetNames.Registry sets;
+
+        private Namespace(String name) {
+            this.name = name;
+            this.sets = setNames.namespace(name);
+        }
+
+        private RecordStore partition(int partitionId) {
+            RecordStore index = partitions.get(partitionId);
+            if (index == null) {
+                partitions.compareAndSet(partitionId, null, engine.create());
+                index = partitions.get(partitionId);
+            }
+            return index;
+        }
+
+        private int setId(String setName) {
+            return sets.id(setName);
+        }
+
+        private String setName(int setId) {
+            return sets.name(setId);
+        }
+
+        @Override
+        public boolean isTruncated(int setId, long lastUpdateTime) {
+            return truncations.isTruncated(name, sets.name(setId), lastUpdateTime);
+        }
+
+        @Override
+        public boolean isColumnar(int setId) {
+            return sets.isColumnar(setId);
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+
+/**
+ * Primary index of one partition: an open-addressing table with linear probing, keyed by the
+ * 20 byte digest the same way the server's index is. The digest is packed into three longs per
+ * slot together with the id of the record's set, next to the last-update-time and the record
+ * itself, so an entry costs a fixed 36 bytes with compressed references whatever the
+ * namespace, set and user key. User keys are only kept, in a column allocated on first use, for
+ * records written with {@link com.aerospike.client.policy.WritePolicy#sendKey}.
+ * <p>
+ * Records of columnar sets are not kept as they are: their bins go into the table's
+ * {@link Columns}, and the record column holds a header with just their generation and
+ * expiration. Reads rebuild the whole record; scans rebuild only the bins they project.
+ * <p>
+ * Writers take the write lock; readers probe optimistically and only fall back to the read lock
+ * if a write got in their way. Removal shifts the following entries back instead of leaving
+ * tombstones, so lookups never get slower as records come and go.
+ * <p>
+ * A table can be frozen into an {@link Image} and shared with other indexes. Tables are
+ * copy-on-write: the first write to a shared table makes a private copy of it, so an image costs
+ * nothing until then and one copy of the partition after.
+ *
+ * @author srinivas.iyengar
+ */
+final class PrimaryIndex implements RecordStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int WORDS = 3;
+    private static final long SET_MASK = 0xFFFFFFFFL;
+    /**
+     * Bins of the headers standing in for columnar records, told apart by identity.
+     */
+    private static final Map<String, Object> COLUMNAR = Collections.unmodifiableMap(new HashMap<>());
+
+    private final StampedLock lock = new StampedLock();
+    private Table table;
+    private volatile int size;
+
+    PrimaryIndex() {
+        table = new Table(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Index starting out with the entries of an image, sharing its table until the first write.
+     */
+    PrimaryIndex(Image image) {
+        table = image.table;
+        size = image.size;
+    }
+
+    /**
+     * Freeze the current entries. The table is shared with the image from now on, so the next
+     * write to this index works on a copy.
+     */
+    @Override
+    public Image freeze() {
+        long stamp = lock.writeLock();
+        try {
+            table.shared = true;
+            return new Image(table, size);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return table to write to, a private copy if the current one is shared with an image. Must
+     * be called under the write lock.
+     */
+    private Table writable() {
+        Table t = table;
+        if (t.shared) {
+            t = table = t.copy();
+        }
+        return t;
+    }
+
+    /**
+     * @return record or null if the index does not hold the digest or it has been truncated
+     */
+    @Override
+    public Record get(byte[] digest, Visibility visibility) {
+        long d0 = word(digest, 0);
+        long d1 = word(digest, 8);
+        int d2 = tail(digest);
+        long stamp = lock.tryOptimisticRead();
+        Table t = table;
+        int slot = t.find(d0, d1, d2);
+        Record record = slot < 0 ? null : t.records[slot];
+        long word = slot < 0 ? 0 : t.words[slot * WORDS + 2];
+        long lastUpdateTime = slot < 0 ? 0 : t.lastUpdateTimes[slot];
+        // Columns are rebuilt under the lock, they may be growing.
+        if (!lock.validate(stamp) || record != null && record.bins == COLUMNAR) {
+            stamp = lock.readLock();
+            try {
+                t = table;
+                slot = t.find(d0, d1, d2);
+                record = slot < 0 ? null : t.record(slot, null);
+                word = slot < 0 ? 0 : t.words[slot * WORDS + 2];
+                lastUpdateTime = slot < 0 ? 0 : t.lastUpdateTimes[slot];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (record == null || visibility.isTruncated(setId(word), lastUpdateTime)) {
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * @return last-update-time, -1 if the index does not hold the digest or it has been truncated
+     */
+    @Override
+    public long getLastUpdateTime(byte[] digest, Visibility visibility) {
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            int slot = t.find(word(digest, 0), word(digest, 8), tail(digest));
+            if (slot < 0) {
+                return -1;
+            }
+            long lastUpdateTime = t.lastUpdateTimes[slot];
+            return visibility.isTruncated(setId(t.words[slot * WORDS + 2]), lastUpdateTime) ? -1 : lastUpdateTime;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Insert or replace an entry. A set id of 0 or a null user key keep what the entry already
+     * has, as a key rebuilt from its digest alone knows neither.
+     *
+     * @param layout whether to store the record's bins in columns, asked for the entry's set
+     */
+    @Override
+    public void put(byte[] digest, int setId, Value userKey, Record record, long lastUpdateTime, Layout layout) {
+        long d0 = word(digest, 0);
+        long d1 = word(digest, 8);
+        int d2 = tail(digest);
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = t.find(d0, d1, d2);
+            if (slot < 0) {
+                t = (size + 1) * 4L > t.capacity * 3L ? (table = t.resize(t.capacity * 2)) : writable();
+                slot = t.probe(d1);
+                t.words[slot * WORDS] = d0;
+                t.words[slot * WORDS + 1] = d1;
+                t.words[slot * WORDS + 2] = (long) d2 << 32 | setId & SET_MASK;
+                size++;
+            } else {
+                // A copy has the same layout, the slot stays valid.
+                t = writable();
+                if (setId != 0) {
+                    t.words[slot * WORDS + 2] = (long) d2 << 32 | setId & SET_MASK;
+                }
+            }
+            if (userKey != null) {
+                t.userKeys()[slot] = userKey;
+            }
+            t.lastUpdateTimes[slot] = lastUpdateTime;
+            if (record.bins != null && layout.isColumnar(setId(t.words[slot * WORDS + 2]))) {
+                t.columns().write(slot, PackedBins.packed(record.bins));
+                t.records[slot] = new Record(COLUMNAR, record.generation, record.expiration);
+            } else {
+                if (t.columns != null) {
+                    t.columns.clear(slot);
+                }
+                t.records[slot] = record;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return removed record or null if the index did not hold the digest or it had been
+     * truncated
+     */
+    @Override
+    public Record remove(byte[] digest, Visibility visibility) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = t.find(word(digest, 0), word(digest, 8), tail(digest));
+            if (slot < 0) {
+                return null;
+            }
+            Record record = t.record(slot, null);
+            boolean truncated = visibility.isTruncated(setId(t.words[slot * WORDS + 2]), t.lastUpdateTimes[slot]);
+            writable().delete(slot);
+            size--;
+            return truncated ? null : record;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Visit a snapshot of the entries, taken under the read lock so the visitor is free to
+     * write to the index.
+     */
+    void forEach(Visitor visitor) {
+        forEach(Integer.MAX_VALUE, null, visitor);
+    }
+
+    /**
+     * Visit a snapshot of the first <code>limit</code> entries in table order. Slots are
+     * placed by digest, so those are a random sample of the index, and only the slots up to the
+     * last of them are walked.
+     *
+     * @param binNames bins the visitor needs, null for all. Columnar records are rebuilt with
+     *                 just those, reading no other column; other records are visited whole.
+     */
+    @Override
+    public void forEach(int limit, String[] binNames, Visitor visitor) {
+        long[] words;
+        long[] lastUpdateTimes;
+        Record[] records;
+        Value[] userKeys;
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            int count = Math.min(size, Math.max(0, limit));
+            words = new long[count * WORDS];
+            lastUpdateTimes = new long[count];
+            records = new Record[count];
+            userKeys = t.userKeys == null ? null : new Value[count];
+            int[] selected = t.columns == null ? null : t.columns.select(binNames);
+            int n = 0;
+            for (int slot = 0; slot < t.capacity && n < count; slot++) {
+                if (t.records[slot] != null) {
+                    System.arraycopy(t.words, slot * WORDS, words, n * WORDS, WORDS);
+                    lastUpdateTimes[n] = t.lastUpdateTimes[slot];
+                    records[n] = t.record(slot, selected);
+                    if (userKeys != null) {
+                        userKeys[n] = t.userKeys[slot];
+                    }
+                    n++;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int i = 0; i < records.length; i++) {
+            long word = words[i * WORDS + 2];
+            visitor.visit(digest(words[i * WORDS], words[i * WORDS + 1], (int) (word >>> 32)), setId(word),
+                    userKeys == null ? null : userKeys[i], records[i], lastUpdateTimes[i]);
+        }
+    }
+
+    /**
+     * Remove the entries a filter picks, under the write lock.
+     *
+     * @return number of entries removed
+     */
+    @Override
+    public int removeIf(Filter filter) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int dropped = 0;
+            for (int slot = 0; slot < t.capacity; ) {
+                if (t.records[slot] != null) {
+                    if (filter.test(setId(t.words[slot * WORDS + 2]), t.records[slot], t.lastUpdateTimes[slot])) {
+                        // Look at the slot again, the delete may have shifted a later entry into it.
+                        t = writable();
+                        t.delete(slot);
+                        size--;
+                        dropped++;
+                        continue;
+                    }
+                }
+                slot++;
+            }
+            return dropped;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return number of entries, including truncated ones that have not been dropped yet
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static int setId(long word) {
+        return (int) (word & SET_MASK);
+    }
+
+    private static long word(byte[] digest, int offset) {
+        long word = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            word = word << 8 | digest[i] & 0xFF;
+        }
+        return word;
+    }
+
+    private static int tail(byte[] digest) {
+        return (digest[16] & 0xFF) << 24 | (digest[17] & 0xFF) << 16 | (digest[18] & 0xFF) << 8 | digest[19] & 0xFF;
+    }
+
+    private static byte[] digest(long d0, long d1, int d2) {
+        byte[] digest = new byte[20];
+        for (int i = 7; i >= 0; i--) {
+            digest[i] = (byte) d0;
+            digest[8 + i] = (byte) d1;
+            d0 >>>= 8;
+            d1 >>>= 8;
+        }
+        for (int i = 19; i >= 16; i--) {
+            digest[i] = (byte) d2;
+            d2 >>>= 8;
+        }
+        return digest;
+    }
+
+    /**
+     * Entries frozen by {@link #freeze()}: a table no index writes to any more, and its size.
+     */
+    static final class Image implements RecordStore.Image {
+        private final Table table;
+        private final int size;
+
+        private Image(Table table, int size) {
+            this.table = table;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Columns of the index. A resize builds a new table, so arrays read from one table always
+     * have the same capacity even while probing optimistically.
+     */
+    private static final class Table {
+        private final int capacity;
+        private final int mask;
+        private final long[] words;
+        private final long[] lastUpdateTimes;
+        private final Record[] records;
+        private Value[] userKeys;
+        private Columns columns;
+        /**
+         * Set once an image holds the table, after which nobody writes to it.
+         */
+        private volatile boolean shared;
+
+        private Table(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.words = new long[capacity * WORDS];
+            this.lastUpdateTimes = new long[capacity];
+            this.records = new Record[capacity];
+        }
+
+        private Table(Table other) {
+            this.capacity = other.capacity;
+            this.mask = other.mask;
+            this.words = other.words.clone();
+            this.lastUpdateTimes = other.lastUpdateTimes.clone();
+            this.records = other.records.clone();
+            this.userKeys = other.userKeys == null ? null : other.userKeys.clone();
+            this.columns = other.columns == null ? null : other.columns.copy();
+        }
+
+        private Table copy() {
+            return new Table(this);
+        }
+
+        private Columns columns() {
+            if (columns == null) {
+                columns = new Columns(capacity);
+            }
+            return columns;
+        }
+
+        /**
+         * @param selected columns to read if the entry is columnar, null for all
+         * @return record of an occupied slot, rebuilt from the columns if it is columnar
+         */
+        private Record record(int slot, int[] selected) {
+            Record record = records[slot];
+            if (record.bins != COLUMNAR) {
+                return record;
+            }
+            return new Record(columns.row(slot, selected), record.generation, record.expiration);
+        }
+
+        private Value[] userKeys() {
+            if (userKeys == null) {
+                userKeys = new Value[capacity];
+            }
+            return userKeys;
+        }
+
+        private int home(long d1) {
+            // Digests are uniformly distributed, bytes 8-15 do not overlap the partition id.
+            return (int) (d1 ^ d1 >>> 32) & mask;
+        }
+
+        /**
+         * @return slot holding the digest, -1 if there is none
+         */
+        private int find(long d0, long d1, int d2) {
+            int slot = home(d1);
+            // Bounded, an optimistic reader may see the table in the middle of a shift.
+            for (int probes = 0; probes < capacity && records[slot] != null; probes++) {
+                int base = slot * WORDS;
+                if (words[base + 1] == d1 && words[base] == d0 && (int) (words[base + 2] >>> 32) == d2) {
+                    return slot;
+                }
+                slot = slot + 1 & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * @return first free slot for a digest not in the table
+         */
+        private int probe(long d1) {
+            int slot = home(d1);
+            while (records[slot] != null) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empty a slot and shift back the entries of its cluster that would no longer be found.
+         */
+        private void delete(int slot) {
+            int hole = slot;
+            for (int i = hole + 1 & mask; records[i] != null; i = i + 1 & mask) {
+                int home = home(words[i * WORDS + 1]);
+                if ((i - home & mask) >= (i - hole & mask)) {
+                    move(i, hole);
+                    hole = i;
+                }
+            }
+            records[hole] = null;
+            if (userKeys != null) {
+                userKeys[hole] = null;
+            }
+            if (columns != null) {
+                columns.clear(hole);
+            }
+        }
+
+        private void move(int from, int to) {
+            System.arraycopy(words, from * WORDS, words, to * WORDS, WORDS);
+            lastUpdateTimes[to] = lastUpdateTimes[from];
+            if (userKeys != null) {
+                userKeys[to] = userKeys[from];
+            }
+            records[to] = records[from];
+            if (columns != null) {
+                columns.move(from, to);
+            }
+        }
+
+        private Table resize(int newCapacity) {
+            Table resized = new Table(newCapacity);
+            int[] newSlots = columns == null ? null : new int[capacity];
+            for (int slot = 0; slot < capacity; slot++) {
+                if (newSlots != null) {
+                    newSlots[slot] = -1;
+                }
+                if (records[slot] != null) {
+                    int to = resized.probe(words[slot * WORDS + 1]);
+                    if (newSlots != null && records[slot].bins == COLUMNAR) {
+                        newSlots[slot] = to;
+                    }
+                    System.arraycopy(words, slot * WORDS, resized.words, to * WORDS, WORDS);
+                    resized.lastUpdateTimes[to] = lastUpdateTimes[slot];
+                    resized.records[to] = records[slot];
+                    if (userKeys != null) {
+                        resized.userKeys()[to] = userKeys[slot];
+                    }
+                }
+            }
+            if (columns != null) {
+                resized.columns = columns.resize(newCapacity, newSlots);
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.srini156.aerospike.client.store;
+
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+
+/**
+ * Records of one partition of one namespace, keyed by the 20 byte digest. This is the part of a
+ * {@link PartitionedStore} a {@link StorageEngine} plugs in; routing keys to partitions, set
+ * ids and truncation cutoffs stay with the partitioned store, which hands an engine what it
+ * needs through {@link Visibility} and {@link Layout}.
+ * <p>
+ * Entries are the digest, the id of the record's set, the user key if the client sent it, the
+ * record and its last-update-time. Records are stored and returned as they are, never copied;
+ * the callers copy on write. Implementations must be safe for concurrent use, writes of one key
+ * are never concurrent.
+ *
+ * @author srinivas.iyengar
+ */
+public interface RecordStore {
+
+    /**
+     * Tells whether an entry has been truncated.
+     */
+    interface Visibility {
+        boolean isTruncated(int setId, long lastUpdateTime);
+    }
+
+    /**
+     * Tells whether the entries of a set are stored column by column. Engines without a
+     * columnar layout ignore it.
+     */
+    interface Layout {
+        boolean isColumnar(int setId);
+    }
+
+    /**
+     * Receives the entries of a partition.
+     */
+    interface Visitor {
+        void visit(byte[] digest, int setId, Value userKey, Record record, long lastUpdateTime);
+    }
+
+    /**
+     * Picks entries to remove. Columnar records are given as their header, without bins.
+     */
+    interface Filter {
+        boolean test(int setId, Record record, long lastUpdateTime);
+    }
+
+    /**
+     * Frozen entries of a store, which later writes to the store do not change. Only the engine
+     * that froze an image can {@link StorageEngine#restore restore} it.
+     */
+    interface Image {
+        /**
+         * @return number of entries, including truncated ones
+         */
+        int size();
+    }
+
+    /**
+     * @return record or null if the store does not hold the digest or it has been truncated
+     */
+    Record get(byte[] digest, Visibility visibility);
+
+    /**
+     * @return last-update-time, -1 if the store does not hold the digest or it has been truncated
+     */
+    long getLastUpdateTime(byte[] digest, Visibility visibility);
+
+    /**
+     * Insert or replace an entry. A set id of 0 or a null user key keep what the entry already
+     * has, as a key rebuilt from its digest alone knows neither.
+     *
+     * @param layout whether to store the record's bins in columns, asked for the entry's set
+     */
+    void put(byte[] digest, int setId, Value userKey, Record record, long lastUpdateTime, Layout layout);
+
+    /**
+     * @return removed record or null if the store did not hold the digest or it had been
+     * truncated
+     */
+    Record remove(byte[] digest, Visibility visibility);
+
+    /**
+     * Visit a snapshot of at most <code>limit</code> entries, the same ones on every call while
+     * the store is not written. The visitor is free to write to the store.
+     *
+     * @param binNames bins the visitor needs, null for all. Records may be visited with more.
+     */
+    void forEach(int limit, String[] binNames, Visitor visitor);
+
+    /**
+     * Remove the entries a filter picks, in one pass over the store.
+     *
+     * @return number of entries removed
+     */
+    int removeIf(Filter filter);
+
+    /**
+     * Remove truncated entries.
+     *
+     * @param setId set whose entries to check, -1 for all entries
+     * @return number of entries removed
+     */
+    default int dropTruncated(int setId, Visibility visibility) {
+        return removeIf((entrySet, record, lastUpdateTime) ->
+                (setId < 0 || entrySet == setId) && visibility.isTruncated(entrySet, lastUpdateTime));
+    }
+
+    /**
+     * @return number of entries, including truncated ones that have not been dropped yet
+     */
+    int size();
+
+    /**
+     * @return image of the current entries
+     */
+    Image freeze();
+}
@@ -0,0 +1,166 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.command.ParticleType;
+
+/**
+ * Read-modify-write functions implementing the single record write commands, applied under the
+ * record lock by {@link com.github.srini156.aerospike.client.cluster.SimulatedCluster#write}.
+ * Shared by {@link com.github.srini156.aerospike.client.MockAerospikeClient} and the wire
+ * protocol server so both store records the same way. Updates return a new record rather than
+ * modify the one they are given, which replicas and change events may still hold.
+ *
+ * @author srinivas.iyengar
+ */
+public final class RecordUpdates {
+
+    private RecordUpdates() {
+    }
+
+    /**
+     * @return update replacing the record with <code>bins</code>
+     */
+    public static UnaryOperator<Record> put(Bin[] bins) {
+        return record -> newRecord(bins);
+    }
+
+    /**
+     * If the record does not exist, create it. If a bin is present but not a string, fail with
+     * {@link ResultCode#BIN_TYPE_ERROR}, else append the string.
+     *
+     * @return update appending <code>bins</code> to existing string bins
+     */
+    public static UnaryOperator<Record> append(Bin[] bins) {
+        return record -> {
+            if (record == null) {
+                return newRecord(bins);
+            }
+            PackedBins recordBins = PackedBins.copyOf(record.bins);
+            for (Bin bin : bins) {
+                int index = recordBins.indexOf(bin.name);
+                if (index >= 0) {
+                    recordBins.put(bin.name, string(recordBins, index) + bin.value.toString());
+                }
+            }
+            return new Record(recordBins, record.generation, record.expiration);
+        };
+    }
+
+    /**
+     * @return update prepending <code>bins</code> to existing string bins
+     */
+    public static UnaryOperator<Record> prepend(Bin[] bins) {
+        return record -> {
+            if (record == null) {
+                return newRecord(bins);
+            }
+            PackedBins recordBins = PackedBins.copyOf(record.bins);
+            for (Bin bin : bins) {
+                int index = recordBins.indexOf(bin.name);
+                if (index >= 0) {
+                    recordBins.put(bin.name, bin.value.toString() + string(recordBins, index));
+                }
+            }
+            return new Record(recordBins, record.generation, record.expiration);
+        };
+    }
+
+    /**
+     * Integers are added as <code>long</code>s whatever their boxed type, an {@link Integer} bin
+     * that overflows becomes a {@link Long} one. Doubles are added to double bins, any other mix
+     * fails with {@link ResultCode#BIN_TYPE_ERROR}. Values are added in place in a copy of the
+     * record's {@link PackedBins}, without boxing them.
+     *
+     * @return update adding <code>bins</code> to existing integer and double bins
+     */
+    public static UnaryOperator<Record> add(Bin[] bins) {
+        return record -> {
+            if (record == null) {
+                return newRecord(bins);
+            }
+            PackedBins recordBins = PackedBins.copyOf(record.bins);
+            for (Bin bin : bins) {
+                int index = recordBins.indexOf(bin.name);
+                if (index < 0) {
+                    continue;
+                }
+                byte type = recordBins.type(index);
+                int particleType = bin.value.getType();
+                if ((type == PackedBins.INTEGER || type == PackedBins.LONG) && particleType == ParticleType.INTEGER) {
+                    recordBins.setLong(index, recordBins.longValue(index) + bin.value.toLong());
+                } else if (type == PackedBins.DOUBLE && particleType == ParticleType.DOUBLE) {
+                    recordBins.setDouble(index, recordBins.doubleValue(index) + ((Number) bin.value.getObject()).doubleValue());
+                } else {
+                    throw binTypeError();
+                }
+            }
+            return new Record(recordBins, record.generation, record.expiration);
+        };
+    }
+
+    /**
+     * @return update resetting the record's expiration, failing with
+     * {@link ResultCode#KEY_NOT_FOUND_ERROR} if it does not exist
+     */
+    public static UnaryOperator<Record> touch(int expiration) {
+        return record -> {
+            if (record == null) {
+                throw new AerospikeException(ResultCode.KEY_NOT_FOUND_ERROR);
+            }
+            return new Record(record.bins, record.generation, expiration);
+        };
+    }
+
+    /**
+     * Write operations are applied as plain writes of their value, read operations are ignored.
+     *
+     * @return update applying the write operations of an operate command
+     */
+    public static UnaryOperator<Record> operate(Operation[] operations) {
+        List<Bin> writes = new ArrayList<>();
+        for (Operation operation : operations) {
+            switch (operation.type) {
+                case ADD:
+                case APPEND:
+                case WRITE:
+                case PREPEND:
+                    writes.add(new Bin(operation.binName, operation.value));
+            }
+        }
+        Bin[] bins = writes.toArray(new Bin[0]);
+        return record -> {
+            if (record == null) {
+                return newRecord(bins);
+            }
+            PackedBins recordBins = PackedBins.copyOf(record.bins);
+            for (Bin bin : bins) {
+                recordBins.write(bin.name, bin.value);
+            }
+            return new Record(recordBins, record.generation, record.expiration);
+        };
+    }
+
+    private static Record newRecord(Bin[] bins) {
+        return new Record(PackedBins.of(bins), 0, 0);
+    }
+
+    private static String string(PackedBins bins, int index) {
+        Object value = bins.value(index);
+        if (!(value instanceof String)) {
+            throw binTypeError();
+        }
+        return (String) value;
+    }
+
+    private static AerospikeException binTypeError() {
+        return new AerospikeException(ResultCode.BIN_TYPE_ERROR);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.srini156.aerospike.client.store;
+
+/**
+ * Share of each partition a scan reads, from {@link com.aerospike.client.policy.ScanPolicy#scanPercent}.
+ * Like the server, a sampled scan reads that percentage of every partition it visits and stops
+ * there, so a 1% scan costs about 1% of a full one. The fraction of a record rounded off one
+ * partition is carried over to the next, so scans of small partitions still read their share
+ * overall.
+ * <p>
+ * A sample is used by one scan of one node at a time.
+ *
+ * @author srinivas.iyengar
+ */
+public final class ScanSample {
+    private final int percent;
+    private long carried;
+
+    /**
+     * @param percent share to read, 100 or more for everything
+     */
+    public ScanSample(int percent) {
+        this.percent = percent;
+    }
+
+    /**
+     * @param partitionSize number of records in the partition
+     * @return number of records to read from it
+     */
+    public int limit(int partitionSize) {
+        if (percent >= 100) {
+            return Integer.MAX_VALUE;
+        }
+        long wanted = (long) partitionSize * Math.max(0, percent) + carried;
+        carried = wanted % 100;
+        return (int) (wanted / 100);
+    }
+}
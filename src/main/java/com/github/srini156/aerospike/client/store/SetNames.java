@@ -0,0 +1,124 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of the set names of each namespace, which index entries store instead of the name. Shared
+ * by the stores of all nodes of a cluster, and by clusters forked from it, so an index table
+ * means the same on every node and can be handed from one store to another as is. Ids are never
+ * reused; they start at 1, 0 stands for records without a set.
+ * <p>
+ * Sets can be switched to the columnar layout, see {@link PrimaryIndex}. That is a property of
+ * the set in the whole cluster, so it is kept here too, as is each namespace's {@link BinNames}
+ * table.
+ *
+ * @author srinivas.iyengar
+ */
+public final class SetNames {
+    private final Map<String, Registry> namespaces = new ConcurrentHashMap<>();
+    private final int binNameLimit;
+
+    /**
+     * Set ids with bin-name tables of the server's size.
+     */
+    public SetNames() {
+        this(BinNames.LIMIT);
+    }
+
+    /**
+     * @param binNameLimit most bin names each namespace holds
+     */
+    public SetNames(int binNameLimit) {
+        this.binNameLimit = binNameLimit;
+    }
+
+    Registry namespace(String namespace) {
+        return namespaces.computeIfAbsent(namespace, ns -> new Registry(binNameLimit));
+    }
+
+    /**
+     * @return bin-name table of the namespace
+     */
+    public BinNames binNames(String namespace) {
+        return namespace(namespace).binNames;
+    }
+
+    /**
+     * Store the set's records column by column from their next write on, or row by row again.
+     * Records already stored keep their layout until they are written.
+     */
+    public void setColumnar(String namespace, String setName, boolean columnar) {
+        Registry registry = namespace(namespace);
+        int setId = registry.id(setName);
+        synchronized (registry) {
+            boolean[] updated = Arrays.copyOf(registry.columnar, Math.max(registry.columnar.length, setId + 1));
+            updated[setId] = columnar;
+            registry.columnar = updated;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the set's records are written column by column
+     */
+    public boolean isColumnar(String namespace, String setName) {
+        Registry registry = namespaces.get(namespace);
+        int setId = registry == null ? -1 : setName == null ? 0 : registry.find(setName);
+        return setId >= 0 && registry.isColumnar(setId);
+    }
+
+    /**
+     * Set names of one namespace.
+     */
+    static final class Registry {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] names = {null};
+        private volatile boolean[] columnar = {};
+        private final BinNames binNames;
+
+        private Registry(int binNameLimit) {
+            this.binNames = new BinNames(binNameLimit);
+        }
+
+        /**
+         * @return id of the set, registered on first use
+         */
+        int id(String setName) {
+            if (setName == null) {
+                return 0;
+            }
+            Integer id = ids.get(setName);
+            return id != null ? id : register(setName);
+        }
+
+        /**
+         * @return id of the set, -1 if it was never registered
+         */
+        int find(String setName) {
+            Integer id = ids.get(setName);
+            return id != null ? id : -1;
+        }
+
+        String name(int id) {
+            return names[id];
+        }
+
+        boolean isColumnar(int id) {
+            boolean[] flags = columnar;
+            return id < flags.length && flags[id];
+        }
+
+        private synchronized int register(String setName) {
+            Integer id = ids.get(setName);
+            if (id != null) {
+                return id;
+            }
+            String[] updated = Arrays.copyOf(names, names.length + 1);
+            updated[updated.length - 1] = setName;
+            names = updated;
+            ids.put(setName, updated.length - 1);
+            return updated.length - 1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.srini156.aerospike.client.store;
+
+/**
+ * Creates the {@link RecordStore} of each partition of a node, see
+ * {@link com.github.srini156.aerospike.client.MockClientPolicy#storageEngine}. Engines trade
+ * memory for speed differently, so tests can pick the one that fits their data.
+ *
+ * @author srinivas.iyengar
+ */
+public interface StorageEngine {
+
+    /**
+     * @return empty store for one partition
+     */
+    RecordStore create();
+
+    /**
+     * @return store starting out with the entries of an image
+     * @throws IllegalArgumentException if the image was frozen by another engine
+     */
+    RecordStore restore(RecordStore.Image image);
+
+    /**
+     * Open-addressing index like the server's, see {@link PrimaryIndex}: a few dozen bytes per
+     * entry, images that share the table copy-on-write and columnar sets. The default.
+     *
+     * @return primary index engine
+     */
+    static StorageEngine index() {
+        return new StorageEngine() {
+            @Override
+            public RecordStore create() {
+                return new PrimaryIndex();
+            }
+
+            @Override
+            public RecordStore restore(RecordStore.Image image) {
+                if (!(image instanceof PrimaryIndex.Image)) {
+                    throw new IllegalArgumentException("Partition image was not frozen by the index engine");
+                }
+                return new PrimaryIndex((PrimaryIndex.Image) image);
+            }
+
+            @Override
+            public String toString() {
+                return "index";
+            }
+        };
+    }
+
+    /**
+     * Concurrent hash map of entry objects, see {@link HashMapStore}: lock-free reads and
+     * writes at the cost of an object per entry and images that copy the map. Sets are never
+     * stored column by column.
+     *
+     * @return hash map engine
+     */
+    static StorageEngine hashMap() {
+        return new StorageEngine() {
+            @Override
+            public RecordStore create() {
+                return new HashMapStore();
+            }
+
+            @Override
+            public RecordStore restore(RecordStore.Image image) {
+                if (!(image instanceof HashMapStore.Image)) {
+                    throw new IllegalArgumentException("Partition image was not frozen by the hash map engine");
+                }
+                return new HashMapStore((HashMapStore.Image) image);
+            }
+
+            @Override
+            public String toString() {
+                return "hashMap";
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Truncation cutoffs of a cluster, shared by the stores of all its nodes like the server shares
+ * them through system metadata. A record whose last-update-time is older than the cutoff of its
+ * namespace or set is gone as soon as the cutoff is set, even before the background drop has
+ * removed it.
+ *
+ * @author srinivas.iyengar
+ */
+public final class Truncations {
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+    private volatile boolean empty = true;
+
+    /**
+     * Truncate a set, or the whole namespace if <code>setName</code> is null. Cutoffs only move
+     * forward.
+     *
+     * @param cutoff records last updated before this time, in nanoseconds since the epoch, are
+     *               truncated
+     */
+    public void truncate(String namespace, String setName, long cutoff) {
+        Namespace marks = namespaces.computeIfAbsent(namespace, ns -> new Namespace());
+        if (setName == null) {
+            synchronized (marks) {
+                marks.cutoff = Math.max(marks.cutoff, cutoff);
+            }
+        } else {
+            marks.sets.merge(setName, cutoff, Math::max);
+        }
+        empty = false;
+    }
+
+    /**
+     * @return <code>true</code> if a record of the set last updated at
+     * <code>lastUpdateTime</code> has been truncated
+     */
+    public boolean isTruncated(String namespace, String setName, long lastUpdateTime) {
+        if (empty) {
+            return false;
+        }
+        Namespace marks = namespaces.get(namespace);
+        if (marks == null) {
+            return false;
+        }
+        if (lastUpdateTime < marks.cutoff) {
+            return true;
+        }
+        Long setCutoff = setName == null ? null : marks.sets.get(setName);
+        return setCutoff != null && lastUpdateTime < setCutoff;
+    }
+
+    /**
+     * @return independent copy of the current cutoffs
+     */
+    public Truncations copy() {
+        Truncations copy = new Truncations();
+        copy.restore(this);
+        return copy;
+    }
+
+    /**
+     * Replace the cutoffs with those of <code>other</code>, including moving them back.
+     */
+    public synchronized void restore(Truncations other) {
+        for (Map.Entry<String, Namespace> entry : other.namespaces.entrySet()) {
+            Namespace marks = new Namespace();
+            marks.cutoff = entry.getValue().cutoff;
+            marks.sets.putAll(entry.getValue().sets);
+            namespaces.put(entry.getKey(), marks);
+        }
+        namespaces.keySet().retainAll(other.namespaces.keySet());
+        empty = other.empty;
+    }
+
+    private static final class Namespace {
+        private final Map<String, Long> sets = new ConcurrentHashMap<>();
+        private volatile long cutoff = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+
+/**
+ * Record UDFs written in Java and registered under a package and function name. They are called
+ * directly with a {@link MutableRecord}, with no interpreter in between, in the same atomic
+ * per-record context as a Lua UDF. A Java function takes precedence over a Lua function of the
+ * same name, so it can stand in for a Lua module whose logic it mirrors.
+ *
+ * @author srinivas.iyengar
+ */
+public final class JavaUdfs {
+    private final Map<String, Map<String, BiFunction<MutableRecord, Value[], Object>>> packages =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Register a function, replacing any function of the same name.
+     */
+    public void register(String packageName, String functionName, BiFunction<MutableRecord, Value[], Object> function) {
+        packages.computeIfAbsent(packageName, name -> new ConcurrentHashMap<>()).put(functionName, function);
+    }
+
+    /**
+     * Remove all functions of a package.
+     */
+    public void remove(String packageName) {
+        packages.remove(packageName);
+    }
+
+    /**
+     * @return call of the function on the record of <code>key</code>, to be applied as a write,
+     * null if no such function is registered
+     */
+    public UdfCall call(Key key, String packageName, String functionName, Value[] args) {
+        Map<String, BiFunction<MutableRecord, Value[], Object>> functions = packages.get(packageName);
+        BiFunction<MutableRecord, Value[], Object> function = functions == null ? null : functions.get(functionName);
+        if (function == null) {
+            return null;
+        }
+        return new UdfCall() {
+            @Override
+            public Record apply(Record current) {
+                MutableRecord record = new MutableRecord(key, current);
+                try {
+                    setResult(function.apply(record, args));
+                } catch (AerospikeException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    throw new AerospikeException(ResultCode.UDF_BAD_RESPONSE, e);
+                }
+                return record.commit();
+            }
+        };
+    }
+}
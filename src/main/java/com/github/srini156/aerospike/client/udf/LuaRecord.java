@@ -0,0 +1,52 @@
+package com.github.srini156.aerospike.client.udf;
+
+import com.aerospike.client.lua.LuaInstance;
+import com.aerospike.client.lua.LuaUtil;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaUserdata;
+import org.luaj.vm2.LuaValue;
+
+/**
+ * The <code>rec</code> argument of a Lua record UDF, a view of a {@link MutableRecord}. Bins are
+ * read and written with <code>rec['bin']</code>.
+ *
+ * @author srinivas.iyengar
+ */
+final class LuaRecord extends LuaUserdata {
+    private final LuaInstance instance;
+    private final MutableRecord record;
+
+    LuaRecord(LuaInstance instance, MutableRecord record) {
+        super(record);
+        this.instance = instance;
+        this.record = record;
+    }
+
+    /**
+     * @return record behind a <code>rec</code> argument
+     */
+    static MutableRecord check(LuaValue value) {
+        if (!(value instanceof LuaRecord)) {
+            throw new LuaError("record expected, got " + value.typename());
+        }
+        return ((LuaRecord) value).record;
+    }
+
+    @Override
+    public LuaValue get(LuaValue name) {
+        return name.isstring() ? instance.getLuaValue(record.get(name.tojstring())) : NIL;
+    }
+
+    @Override
+    public void set(LuaValue name, LuaValue value) {
+        if (!name.isstring()) {
+            throw new LuaError("bin name must be a string");
+        }
+        record.put(name.tojstring(), value.isnil() ? null : LuaUtil.luaToObject(value));
+    }
+
+    @Override
+    public String tojstring() {
+        return "record(" + record.getKey() + ')';
+    }
+}
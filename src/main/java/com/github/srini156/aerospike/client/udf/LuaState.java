@@ -0,0 +1,172 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.aerospike.client.Log;
+import com.aerospike.client.Value;
+import com.aerospike.client.lua.LuaBytes;
+import com.aerospike.client.lua.LuaInstance;
+import com.aerospike.client.lua.LuaList;
+import com.aerospike.client.lua.LuaMap;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+/**
+ * A Lua interpreter set up the way the server sets one up for record UDFs: the client's
+ * <code>list</code>, <code>map</code> and <code>bytes</code> modules plus <code>record</code>
+ * and <code>aerospike</code> implemented against {@link MutableRecord}. Each registered module is
+ * run once per state in its own environment, and run again only when it is re-registered.
+ * A state is used by one thread at a time.
+ *
+ * @author srinivas.iyengar
+ */
+final class LuaState {
+    private final LuaInstance instance = new LuaInstance();
+    private final LuaValue globals = instance.getPackage("_G");
+    private final Map<String, Loaded> loaded = new HashMap<>();
+
+    LuaState() {
+        instance.registerPackage("aerospike", aerospikeLib());
+        instance.registerPackage("record", recordLib());
+        // The client only ever runs the part of a stream after the first reduce, and the
+        // stream_ops aggregate it ships fails to copy a map or list initial value.
+        globals.set("aggregate", function(args -> aggregate(args.arg(1), args.arg(2), args.arg(3))));
+    }
+
+    LuaInstance getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return function of the given version of a module, null if the module does not define it
+     */
+    LuaValue function(LuaUdfs.Module module, String functionName) {
+        Loaded entry = loaded.get(module.name);
+        if (entry == null || entry.generation != module.generation) {
+            LuaTable env = new LuaTable();
+            LuaTable meta = new LuaTable();
+            meta.set(LuaValue.INDEX, globals);
+            env.setmetatable(meta);
+            new LuaClosure(module.prototype, env).call();
+            entry = new Loaded(module.generation, env);
+            loaded.put(module.name, entry);
+        }
+        LuaValue function = entry.env.rawget(functionName);
+        return function.isfunction() ? function : null;
+    }
+
+    private LuaTable aerospikeLib() {
+        LuaTable lib = new LuaTable();
+        lib.set("exists", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg(2)).exists())));
+        lib.set("create", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg(2)).create())));
+        lib.set("update", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg(2)).update())));
+        lib.set("remove", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg(2)).remove())));
+        lib.set("log", function(args -> {
+            String message = args.arg(3).tojstring();
+            switch (args.arg(2).toint()) {
+                case 1:
+                    Log.warn(message);
+                    break;
+                case 2:
+                    Log.info(message);
+                    break;
+                default:
+                    Log.debug(message);
+            }
+            return LuaValue.NIL;
+        }));
+        return lib;
+    }
+
+    private LuaTable recordLib() {
+        LuaTable lib = new LuaTable();
+        lib.set("ttl", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg1()).getExpiration())));
+        lib.set("set_ttl", function(args -> {
+            LuaRecord.check(args.arg1()).setExpiration(args.checkint(2));
+            return LuaValue.NIL;
+        }));
+        lib.set("gen", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg1()).getGeneration())));
+        lib.set("numbins", function(args -> LuaValue.valueOf(LuaRecord.check(args.arg1()).getBins().size())));
+        lib.set("bin_names", function(args ->
+                instance.getLuaList(new ArrayList<>(LuaRecord.check(args.arg1()).getBins().keySet()))));
+        lib.set("setname", function(args -> {
+            String setName = LuaRecord.check(args.arg1()).getKey().setName;
+            return setName == null ? LuaValue.NIL : LuaValue.valueOf(setName);
+        }));
+        lib.set("key", function(args -> {
+            Value userKey = LuaRecord.check(args.arg1()).getKey().userKey;
+            return userKey == null ? LuaValue.NIL : userKey.getLuaValue(instance);
+        }));
+        lib.set("digest", function(args -> new LuaBytes(instance, LuaRecord.check(args.arg1()).getKey().digest)));
+        return lib;
+    }
+
+    /**
+     * The server's <code>aggregate</code> stream operation: folds the stream into a copy of
+     * <code>init</code>, starting over with a fresh copy whenever a number reaches 1000.
+     */
+    private static LuaValue aggregate(LuaValue next, LuaValue init, LuaValue f) {
+        return new ZeroArgFunction() {
+            private boolean done;
+
+            @Override
+            public LuaValue call() {
+                if (done) {
+                    return NIL;
+                }
+                LuaValue a = copy(init);
+                for (LuaValue b = next.call(); !b.isnil(); b = next.call()) {
+                    a = f.call(a, b);
+                    if (a.isnumber() && a.todouble() >= 1000) {
+                        return a;
+                    }
+                }
+                done = true;
+                return a;
+            }
+        };
+    }
+
+    private static LuaValue copy(LuaValue value) {
+        if (value instanceof LuaMap) {
+            return ((LuaMap) value).clone();
+        }
+        if (value instanceof LuaList) {
+            return ((LuaList) value).clone();
+        }
+        if (value.istable()) {
+            LuaTable copy = new LuaTable();
+            for (Varargs entry = value.next(LuaValue.NIL); !entry.arg1().isnil(); entry = value.next(entry.arg1())) {
+                copy.set(entry.arg1(), entry.arg(2));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static LuaValue function(Function<Varargs, LuaValue> body) {
+        return new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return body.apply(args);
+            }
+        };
+    }
+
+    private static final class Loaded {
+        private final long generation;
+        private final LuaTable env;
+
+        private Loaded(long generation, LuaTable env) {
+            this.generation = generation;
+            this.env = env;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.lua.LuaUtil;
+import com.aerospike.client.query.KeyRecord;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.compiler.LuaC;
+
+/**
+ * Lua record and stream UDFs, run in-process by LuaJ. A module is compiled once when it is registered and
+ * the compiled chunk is shared by every interpreter. Interpreters are expensive to set up, so
+ * they are pooled and each call borrows one for its duration.
+ * <p>
+ * Registering a module again replaces it in one step: a call picks the module version once, and
+ * a pooled interpreter still holding an older version reloads it before use.
+ *
+ * @author srinivas.iyengar
+ */
+public final class LuaUdfs {
+    private final Map<String, Module> modules = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+    private final BlockingQueue<LuaState> states;
+
+    /**
+     * @param poolSize number of idle interpreters kept for reuse
+     */
+    public LuaUdfs(int poolSize) {
+        this.states = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Compile and register a module, replacing any module of the same name.
+     *
+     * @param serverPath file name of the module, the package name is the file name without its
+     *                   <code>.lua</code> extension
+     * @throws AerospikeException if the module does not compile
+     */
+    public void register(String serverPath, String code) {
+        String name = packageName(serverPath);
+        Prototype prototype;
+        try {
+            prototype = LuaC.instance.compile(new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)), name);
+        } catch (IOException | LuaError e) {
+            throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Registration failed: compile error: " + e.getMessage());
+        }
+        modules.put(name, new Module(name, prototype, generations.incrementAndGet()));
+    }
+
+    /**
+     * Remove a module, calls already running keep using it.
+     */
+    public void remove(String serverPath) {
+        modules.remove(packageName(serverPath));
+    }
+
+    /**
+     * @return <code>true</code> if a module of that package name is registered
+     */
+    public boolean contains(String packageName) {
+        return modules.containsKey(packageName);
+    }
+
+    /**
+     * @return call of <code>packageName.functionName(rec, args...)</code> on the record of
+     * <code>key</code>, to be applied as a write
+     */
+    public UdfCall call(Key key, String packageName, String functionName, Value[] args) {
+        return new UdfCall() {
+            @Override
+            public Record apply(Record current) {
+                Module module = module(packageName);
+                LuaState state = borrow();
+                try {
+                    LuaValue function = state.function(module, functionName);
+                    if (function == null) {
+                        throw functionNotFound(packageName, functionName);
+                    }
+                    MutableRecord record = new MutableRecord(key, current);
+                    LuaValue[] luaArgs = new LuaValue[args.length + 1];
+                    luaArgs[0] = new LuaRecord(state.getInstance(), record);
+                    for (int i = 0; i < args.length; i++) {
+                        luaArgs[i + 1] = args[i].getLuaValue(state.getInstance());
+                    }
+                    Varargs returned = function.invoke(LuaValue.varargsOf(luaArgs));
+                    setResult(LuaUtil.luaToObject(returned.arg1()));
+                    return record.commit();
+                } catch (LuaError e) {
+                    throw executionError(e);
+                } finally {
+                    release(state);
+                }
+            }
+        };
+    }
+
+    /**
+     * Run the stream UDF <code>packageName.functionName(stream, args...)</code> over records the
+     * way a cluster does: the operations up to and including the first reduce run on every
+     * source in parallel, each source being what one node holds, and the rest of the stream
+     * combines their partial results on the calling thread like the client's final reduce.
+     *
+     * @param sources  records of each parallel worker
+     * @param capacity number of partial results buffered before the workers block
+     * @param sink     receives the results, returns <code>false</code> to stop early
+     * @throws AerospikeException if the module or function is not registered or fails
+     */
+    public void aggregate(String packageName, String functionName, Value[] args, List<Iterator<KeyRecord>> sources,
+                          int capacity, Predicate<Object> sink) {
+        new StreamAggregation(this, module(packageName), functionName, args).run(sources, capacity, sink);
+    }
+
+    Module module(String packageName) {
+        Module module = modules.get(packageName);
+        if (module == null) {
+            throw new AerospikeException(ResultCode.UDF_BAD_RESPONSE, "UDF: module not found: " + packageName);
+        }
+        return module;
+    }
+
+    LuaState borrow() {
+        LuaState state = states.poll();
+        return state != null ? state : new LuaState();
+    }
+
+    void release(LuaState state) {
+        states.offer(state);
+    }
+
+    static AerospikeException functionNotFound(String packageName, String functionName) {
+        return new AerospikeException(ResultCode.UDF_BAD_RESPONSE,
+                "UDF: function not found: " + packageName + '.' + functionName);
+    }
+
+    static AerospikeException executionError(LuaError e) {
+        return new AerospikeException(ResultCode.UDF_BAD_RESPONSE, "UDF: Execution Error 1 : " + e.getMessage());
+    }
+
+    private static String packageName(String serverPath) {
+        return serverPath.endsWith(".lua") ? serverPath.substring(0, serverPath.length() - 4) : serverPath;
+    }
+
+    /**
+     * A registered version of a module.
+     */
+    static final class Module {
+        final String name;
+        final Prototype prototype;
+        final long generation;
+
+        private Module(String name, Prototype prototype, long generation) {
+            this.name = name;
+            this.prototype = prototype;
+            this.generation = generation;
+        }
+    }
+}
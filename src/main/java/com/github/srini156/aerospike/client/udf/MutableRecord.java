@@ -0,0 +1,145 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.github.srini156.aerospike.client.store.PackedBins;
+
+/**
+ * Record handed to a UDF, with the semantics of the server's Lua <code>rec</code>: bins can be
+ * read and changed freely, but changes are only stored if the function calls
+ * {@link #create()} or {@link #update()}, and {@link #remove()} deletes the record. The function
+ * runs under the record lock, so nothing else changes the record meanwhile.
+ *
+ * @author srinivas.iyengar
+ */
+public final class MutableRecord {
+    private enum Action {
+        NONE, WRITE, DELETE
+    }
+
+    private final Key key;
+    private final Record current;
+    private final Map<String, Object> bins;
+    private int expiration;
+    private boolean exists;
+    private Action action = Action.NONE;
+
+    MutableRecord(Key key, Record current) {
+        this.key = key;
+        this.current = current;
+        this.bins = current == null ? new HashMap<>() : new HashMap<>(current.bins);
+        this.expiration = current == null ? 0 : current.expiration;
+        this.exists = current != null;
+    }
+
+    /**
+     * @return key the UDF was called with, carrying a user key only if the client sent it
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @return value of the bin, null if the record does not have it
+     */
+    public Object get(String binName) {
+        return bins.get(binName);
+    }
+
+    /**
+     * Set a bin, a null value removes it.
+     */
+    public void put(String binName, Object value) {
+        if (value == null) {
+            bins.remove(binName);
+        } else {
+            bins.put(binName, value);
+        }
+    }
+
+    /**
+     * @return bins as changed so far, read-only
+     */
+    public Map<String, Object> getBins() {
+        return Collections.unmodifiableMap(bins);
+    }
+
+    public int getGeneration() {
+        return current == null ? 0 : current.generation;
+    }
+
+    public int getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * Set the expiration to store with the record on {@link #create()} or {@link #update()}.
+     */
+    public void setExpiration(int expiration) {
+        this.expiration = expiration;
+    }
+
+    /**
+     * @return <code>true</code> if the record exists, taking create and remove calls of this
+     * function into account
+     */
+    public boolean exists() {
+        return exists;
+    }
+
+    /**
+     * Store the record if it does not exist yet.
+     *
+     * @return 0 on success, 1 if the record already exists
+     */
+    public int create() {
+        if (exists) {
+            return 1;
+        }
+        return update();
+    }
+
+    /**
+     * Store the record, creating it if needed.
+     *
+     * @return 0
+     */
+    public int update() {
+        exists = true;
+        action = Action.WRITE;
+        return 0;
+    }
+
+    /**
+     * Delete the record.
+     *
+     * @return 0 on success, 2 if the record does not exist
+     */
+    public int remove() {
+        if (!exists) {
+            return 2;
+        }
+        exists = false;
+        action = Action.DELETE;
+        return 0;
+    }
+
+    /**
+     * @return record to store: the stored one if the function did not write, null if it
+     * removed the record
+     */
+    Record commit() {
+        switch (action) {
+            case WRITE:
+                return new Record(PackedBins.copyOf(bins), getGeneration(), expiration);
+            case DELETE:
+                return null;
+            default:
+                return current;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.aerospike.client.Value;
+import com.aerospike.client.lua.LuaInstance;
+import com.aerospike.client.lua.LuaUtil;
+import com.aerospike.client.query.KeyRecord;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+/**
+ * One run of a stream UDF. Workers pull records from their source and push what the server
+ * scope of the stream makes of them onto a bounded queue of partial results, which the calling
+ * thread drains through the client scope of the stream. Partial results cross from one
+ * interpreter to another as plain Java objects, the way they cross the wire from a server.
+ *
+ * @author srinivas.iyengar
+ */
+final class StreamAggregation {
+    private static final int SCOPE_SERVER = 1;
+    private static final int SCOPE_CLIENT = 2;
+    private static final Object END = new Object();
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mock-aerospike-aggregate-" + THREAD_ID.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LuaUdfs udfs;
+    private final LuaUdfs.Module module;
+    private final String functionName;
+    private final Value[] args;
+
+    StreamAggregation(LuaUdfs udfs, LuaUdfs.Module module, String functionName, Value[] args) {
+        this.udfs = udfs;
+        this.module = module;
+        this.functionName = functionName;
+        this.args = args == null ? new Value[0] : args;
+    }
+
+    void run(List<Iterator<KeyRecord>> sources, int capacity, Predicate<Object> sink) {
+        BlockingQueue<Object> partials = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        List<Future<?>> workers = new ArrayList<>(sources.size());
+        try {
+            for (Iterator<KeyRecord> source : sources) {
+                workers.add(WORKERS.submit(() -> {
+                    try {
+                        aggregate(source, partials);
+                        partials.put(END);
+                    } catch (RuntimeException e) {
+                        partials.put(new Failure(e));
+                    }
+                    return null;
+                }));
+            }
+            combine(new Partials(partials, sources.size()), sink);
+        } finally {
+            // Stops workers still running when the consumer gave up or a worker failed.
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Server scope: feed the records of one source through the stream up to its first reduce.
+     */
+    private void aggregate(Iterator<KeyRecord> source, BlockingQueue<Object> partials) throws InterruptedException {
+        LuaState state = udfs.borrow();
+        try {
+            LuaInstance instance = state.getInstance();
+            LuaValue records = new ZeroArgFunction() {
+                @Override
+                public LuaValue call() {
+                    if (Thread.currentThread().isInterrupted() || !source.hasNext()) {
+                        return NIL;
+                    }
+                    KeyRecord next = source.next();
+                    return new LuaRecord(instance, new MutableRecord(next.key, next.record));
+                }
+            };
+            LuaValue values = stream(state, SCOPE_SERVER, records);
+            for (LuaValue value = values.call(); !value.isnil(); value = values.call()) {
+                Object partial = LuaUtil.luaToObject(value);
+                if (partial != null) {
+                    partials.put(partial);
+                }
+            }
+        } catch (LuaError e) {
+            throw LuaUdfs.executionError(e);
+        } finally {
+            udfs.release(state);
+        }
+    }
+
+    /**
+     * Client scope: feed the partial results through the rest of the stream into the sink.
+     */
+    private void combine(Partials partials, Predicate<Object> sink) {
+        LuaState state = udfs.borrow();
+        try {
+            partials.instance = state.getInstance();
+            LuaValue values = stream(state, SCOPE_CLIENT, partials);
+            for (LuaValue value = values.call(); !value.isnil(); value = values.call()) {
+                Object result = LuaUtil.luaToObject(value);
+                if (result != null && !sink.test(result)) {
+                    return;
+                }
+            }
+            if (partials.failure != null) {
+                throw partials.failure;
+            }
+        } catch (LuaError e) {
+            throw partials.failure != null ? partials.failure : LuaUdfs.executionError(e);
+        } finally {
+            udfs.release(state);
+        }
+    }
+
+    /**
+     * @return iterator over the values the operations of one scope make of <code>input</code>
+     */
+    private LuaValue stream(LuaState state, int scope, LuaValue input) {
+        LuaValue function = state.function(module, functionName);
+        if (function == null) {
+            throw LuaUdfs.functionNotFound(module.name, functionName);
+        }
+        LuaInstance instance = state.getInstance();
+        LuaValue[] luaArgs = new LuaValue[args.length + 1];
+        luaArgs[0] = instance.getFunction("StreamOps_create").call();
+        for (int i = 0; i < args.length; i++) {
+            luaArgs[i + 1] = args[i].getLuaValue(instance);
+        }
+        LuaValue ops = function.invoke(LuaValue.varargsOf(luaArgs)).arg1();
+        LuaValue selected = instance.getFunction("StreamOps_select").call(ops.get("ops"), LuaValue.valueOf(scope));
+        return instance.getFunction("StreamOps_apply").call(input, selected);
+    }
+
+    /**
+     * Lua iterator over the partial results of the workers, ending once all of them are done or
+     * one of them failed.
+     */
+    private static final class Partials extends ZeroArgFunction {
+        private final BlockingQueue<Object> queue;
+        private int running;
+        private LuaInstance instance;
+        private RuntimeException failure;
+
+        private Partials(BlockingQueue<Object> queue, int workers) {
+            this.queue = queue;
+            this.running = workers;
+        }
+
+        @Override
+        public LuaValue call() {
+            try {
+                while (running > 0 && failure == null) {
+                    Object partial = queue.take();
+                    if (partial == END) {
+                        running--;
+                    } else if (partial instanceof Failure) {
+                        failure = ((Failure) partial).cause;
+                    } else {
+                        return instance.getLuaValue(partial);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return NIL;
+        }
+    }
+
+    private static final class Failure {
+        private final RuntimeException cause;
+
+        private Failure(RuntimeException cause) {
+            this.cause = cause;
+        }
+    }
+}
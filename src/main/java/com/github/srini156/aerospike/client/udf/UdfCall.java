@@ -0,0 +1,28 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.function.UnaryOperator;
+
+import com.aerospike.client.Record;
+
+/**
+ * One invocation of a record UDF. Applied by
+ * {@link com.github.srini156.aerospike.client.cluster.SimulatedCluster#write} under the record
+ * lock like any other write: it receives the stored record and returns what to store, while the
+ * value the function returned is kept for the caller.
+ *
+ * @author srinivas.iyengar
+ */
+public abstract class UdfCall implements UnaryOperator<Record> {
+    private Object result;
+
+    /**
+     * @return value returned by the function, null until it has run
+     */
+    public Object getResult() {
+        return result;
+    }
+
+    protected void setResult(Object result) {
+        this.result = result;
+    }
+}
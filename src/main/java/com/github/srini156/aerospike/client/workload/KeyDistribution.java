@@ -0,0 +1,82 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.util.Random;
+
+/**
+ * Picks which record of a key space a command goes to.
+ *
+ * @author srinivas.iyengar
+ */
+public interface KeyDistribution {
+
+    /**
+     * Draw the next key.
+     *
+     * @param random random source owned by the calling thread
+     * @return key index in <code>[0, keyCount)</code>
+     */
+    int next(Random random);
+
+    /**
+     * @param keyCount size of the key space
+     * @return distribution where every key is equally likely
+     */
+    static KeyDistribution uniform(int keyCount) {
+        return random -> random.nextInt(keyCount);
+    }
+
+    /**
+     * Zipfian keys: key 0 is the hottest, key <code>i</code> is drawn with a probability
+     * proportional to <code>1 / (i + 1)^theta</code>. With the customary theta of 0.99 and a
+     * million keys the hottest key gets about 7% of the traffic.
+     * <p>
+     * Uses the rejection-free generator from Gray et al., "Quickly Generating Billion-Record
+     * Synthetic Databases", like YCSB. Set-up is linear in <code>keyCount</code>, drawing a key is
+     * constant time.
+     *
+     * @param keyCount size of the key space
+     * @param theta    skew, between 0 (exclusive) and 1 (exclusive)
+     * @return Zipfian distribution
+     */
+    static KeyDistribution zipfian(int keyCount, double theta) {
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("Zipfian theta must be between 0 and 1: " + theta);
+        }
+        double sum = 0;
+        for (int i = 1; i <= keyCount; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        final double zetaN = sum;
+        // zeta(2), also the cumulative weight of the two hottest keys.
+        final double zeta2 = 1 + Math.pow(0.5, theta);
+        final double alpha = 1 / (1 - theta);
+        final double eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta2 / zetaN);
+        return random -> {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1) {
+                return 0;
+            }
+            if (uz < zeta2) {
+                return 1;
+            }
+            return Math.min(keyCount - 1, (int) (keyCount * Math.pow(eta * u - eta + 1, alpha)));
+        };
+    }
+
+    /**
+     * @param name <code>uniform</code>, <code>zipfian</code> or <code>zipfian,theta</code>
+     * @return distribution over <code>keyCount</code> keys
+     */
+    static KeyDistribution parse(String name, int keyCount) {
+        String[] parts = name.split(",");
+        switch (parts[0].trim().toLowerCase()) {
+            case "uniform":
+                return uniform(keyCount);
+            case "zipfian":
+                return zipfian(keyCount, parts.length > 1 ? Double.parseDouble(parts[1]) : 0.99);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + name);
+        }
+    }
+}
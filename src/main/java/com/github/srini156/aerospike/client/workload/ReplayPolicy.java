@@ -0,0 +1,27 @@
+package com.github.srini156.aerospike.client.workload;
+
+/**
+ * Container object for {@link TrafficReplayer} configuration.
+ *
+ * @author srinivas.iyengar
+ */
+public class ReplayPolicy {
+    /**
+     * Number of threads issuing the commands. Commands of the same record always go to the same
+     * thread, so their order is kept. Default: 16
+     */
+    public int threads = 16;
+
+    /**
+     * Pace relative to the recording: 1 replays each command at the offset it was recorded at,
+     * 2 twice as fast. Latencies are then measured from when a command was due, so a slow
+     * response delays the following commands without hiding their wait. 0 replays as fast as
+     * possible. Default: 1
+     */
+    public double speed = 1;
+
+    /**
+     * Commands buffered per thread ahead of their turn. Default: 1024
+     */
+    public int queueSize = 1024;
+}
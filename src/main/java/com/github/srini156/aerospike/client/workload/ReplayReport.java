@@ -0,0 +1,111 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * Throughput, errors and latency percentiles per command kind of a replay, next to the
+ * latencies the same commands had when they were recorded.
+ *
+ * @author srinivas.iyengar
+ */
+public final class ReplayReport {
+    private final double elapsedSeconds;
+    private final Map<CommandType, LatencyHistogram> latencies;
+    private final Map<CommandType, LatencyHistogram> recorded;
+    private final Map<CommandType, Long> errors;
+
+    ReplayReport(double elapsedSeconds, Map<CommandType, LatencyHistogram> latencies,
+                 Map<CommandType, LatencyHistogram> recorded, Map<CommandType, Long> errors) {
+        this.elapsedSeconds = elapsedSeconds;
+        this.latencies = new EnumMap<>(latencies);
+        this.recorded = new EnumMap<>(recorded);
+        this.errors = new EnumMap<>(errors);
+    }
+
+    /**
+     * @return seconds the replay took
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * @return number of commands of the given kind that succeeded when replayed
+     */
+    public long getCount(CommandType command) {
+        return getLatency(command).getCount();
+    }
+
+    /**
+     * @return number of commands replayed, successful or not
+     */
+    public long getTotal() {
+        long total = 0;
+        for (CommandType command : CommandType.values()) {
+            total += getCount(command) + getErrors(command);
+        }
+        return total;
+    }
+
+    /**
+     * @return number of commands of the given kind that failed when replayed
+     */
+    public long getErrors(CommandType command) {
+        return errors.getOrDefault(command, 0L);
+    }
+
+    /**
+     * @return successful commands of the given kind per second
+     */
+    public double getThroughput(CommandType command) {
+        return elapsedSeconds > 0 ? getCount(command) / elapsedSeconds : 0;
+    }
+
+    /**
+     * @return latencies of the successful replayed commands of the given kind
+     */
+    public LatencyHistogram getLatency(CommandType command) {
+        LatencyHistogram latency = latencies.get(command);
+        return latency == null ? new LatencyHistogram() : latency;
+    }
+
+    /**
+     * @return latencies the commands of the given kind had when they were recorded
+     */
+    public LatencyHistogram getRecordedLatency(CommandType command) {
+        LatencyHistogram latency = recorded.get(command);
+        return latency == null ? new LatencyHistogram() : latency;
+    }
+
+    /**
+     * @return one line per command kind with throughput and p50/p99/max latencies in
+     * milliseconds, replayed and as recorded
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (CommandType command : CommandType.values()) {
+            LatencyHistogram latency = getLatency(command);
+            LatencyHistogram before = getRecordedLatency(command);
+            if (latency.getCount() == 0 && getErrors(command) == 0) {
+                continue;
+            }
+            report.append(String.format(Locale.ROOT,
+                    "%8.1fs %-16s tps=%-10.0f errors=%-6d p50=%.3f p99=%.3f max=%.3f ms"
+                            + " (recorded p50=%.3f p99=%.3f max=%.3f ms)%n",
+                    elapsedSeconds, command, getThroughput(command), getErrors(command),
+                    latency.getPercentile(50, TimeUnit.MILLISECONDS),
+                    latency.getPercentile(99, TimeUnit.MILLISECONDS),
+                    latency.getMax(TimeUnit.MILLISECONDS),
+                    before.getPercentile(50, TimeUnit.MILLISECONDS),
+                    before.getPercentile(99, TimeUnit.MILLISECONDS),
+                    before.getMax(TimeUnit.MILLISECONDS)));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,535 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Value;
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * Compact binary log of client commands, written by {@link TrafficRecorder} and replayed by
+ * {@link TrafficReplayer}. The log starts with the magic <code>ASTL</code> and a version byte,
+ * followed by one entry per command:
+ * <pre>
+ * command        1 byte, code of the {@link CommandType}
+ * start          varint, microseconds since recording started
+ * duration       varint, microseconds
+ * result code    zigzag varint, 0 for success
+ * keys           varint count, then per key: namespace, set, 20 byte digest
+ * expiration     zigzag varint, writes only
+ * payload        bin names of a read, bins of a write, operations of an operate or
+ *                package, function and arguments of a UDF call
+ * </pre>
+ * Namespaces, sets, bin names and UDF names are strings from a dictionary built while writing:
+ * a varint id, followed by the string itself the first time the id appears. Keys are logged by
+ * digest only, so user keys never reach the log. Values are tagged with their type: null,
+ * integer, double, string, blob, boolean, or a list or map of such values. Nothing is read with
+ * Java serialization, so logs captured elsewhere are safe to replay. Commands and operation
+ * types are written as fixed codes rather than enum ordinals.
+ *
+ * @author srinivas.iyengar
+ */
+public final class TrafficLog {
+    private static final int MAGIC = 'A' << 24 | 'S' << 16 | 'T' << 8 | 'L';
+    private static final int VERSION = 2;
+
+    /**
+     * Commands by their code in the log. Codes must never change, new commands are appended.
+     */
+    private static final CommandType[] COMMANDS = {
+            CommandType.GET, CommandType.GET_HEADER, CommandType.EXISTS, CommandType.PUT, CommandType.APPEND,
+            CommandType.PREPEND, CommandType.ADD, CommandType.DELETE, CommandType.TOUCH, CommandType.OPERATE,
+            CommandType.BATCH_GET, CommandType.BATCH_GET_HEADER, CommandType.BATCH_EXISTS, CommandType.SCAN,
+            CommandType.QUERY, CommandType.UDF, CommandType.TRUNCATE};
+
+    /**
+     * Operation types by their code in the log. Codes must never change, new types are appended.
+     */
+    private static final Operation.Type[] OPERATION_TYPES = {
+            Operation.Type.READ, Operation.Type.READ_HEADER, Operation.Type.WRITE, Operation.Type.CDT_READ,
+            Operation.Type.CDT_MODIFY, Operation.Type.MAP_READ, Operation.Type.MAP_MODIFY, Operation.Type.ADD,
+            Operation.Type.APPEND, Operation.Type.PREPEND, Operation.Type.TOUCH, Operation.Type.BIT_READ,
+            Operation.Type.BIT_MODIFY, Operation.Type.DELETE};
+
+    private static final Map<CommandType, Integer> COMMAND_CODES = codes(COMMANDS);
+    private static final Map<Operation.Type, Integer> OPERATION_TYPE_CODES = codes(OPERATION_TYPES);
+
+    private static final int NULL = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int STRING = 3;
+    private static final int BYTES = 4;
+    private static final int BOOLEAN = 5;
+    private static final int LIST = 6;
+    private static final int MAP = 7;
+
+    private TrafficLog() {
+    }
+
+    /**
+     * One logged command.
+     */
+    public static final class Entry {
+        private static final String[] NO_NAMES = new String[0];
+
+        final CommandType command;
+        final Key[] keys;
+        long startMicros;
+        long durationMicros;
+        int resultCode;
+        int expiration;
+        String[] binNames = NO_NAMES;
+        Bin[] bins;
+        Operation[] operations;
+        String packageName;
+        String functionName;
+        Value[] args;
+
+        Entry(CommandType command, Key... keys) {
+            this.command = command;
+            this.keys = keys;
+        }
+
+        public CommandType getCommand() {
+            return command;
+        }
+
+        /**
+         * @return keys of the command, with their digest but without user key
+         */
+        public Key[] getKeys() {
+            return keys;
+        }
+
+        /**
+         * @return microseconds between the start of the recording and the start of the command
+         */
+        public long getStartMicros() {
+            return startMicros;
+        }
+
+        /**
+         * @return microseconds the command took when it was recorded
+         */
+        public long getDurationMicros() {
+            return durationMicros;
+        }
+
+        /**
+         * @return result code the command failed with when it was recorded, 0 if it succeeded
+         */
+        public int getResultCode() {
+            return resultCode;
+        }
+    }
+
+    /**
+     * Appends entries to a stream. Safe for concurrent use, entries are written in the order
+     * their commands completed.
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final long startNanos;
+
+        /**
+         * @param out stream the log is written to, wrap it in a
+         *            {@link java.util.zip.GZIPOutputStream} to compress the log further
+         */
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * @return time on the {@link System#nanoTime()} scale the recording started at
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * Log a command.
+         *
+         * @param entry     command, with the payload its kind needs
+         * @param start     {@link System#nanoTime()} the command started at
+         * @param duration  nanoseconds the command took
+         */
+        public synchronized void write(Entry entry, long start, long duration) throws IOException {
+            out.writeByte(code(COMMAND_CODES, entry.command));
+            writeVarLong(Math.max(0, TimeUnit.NANOSECONDS.toMicros(start - startNanos)));
+            writeVarLong(Math.max(0, TimeUnit.NANOSECONDS.toMicros(duration)));
+            writeVarLong(zigzag(entry.resultCode));
+            writeVarLong(entry.keys.length);
+            for (Key key : entry.keys) {
+                writeString(key.namespace);
+                writeString(key.setName);
+                out.write(key.digest);
+            }
+            if (entry.command.isWrite()) {
+                writeVarLong(zigzag(entry.expiration));
+            }
+            switch (entry.command) {
+                case GET:
+                case BATCH_GET:
+                    writeVarLong(entry.binNames.length);
+                    for (String binName : entry.binNames) {
+                        writeString(binName);
+                    }
+                    break;
+                case PUT:
+                case APPEND:
+                case PREPEND:
+                case ADD:
+                    writeVarLong(entry.bins.length);
+                    for (Bin bin : entry.bins) {
+                        writeString(bin.name);
+                        writeValue(bin.value);
+                    }
+                    break;
+                case OPERATE:
+                    writeVarLong(entry.operations.length);
+                    for (Operation operation : entry.operations) {
+                        out.writeByte(code(OPERATION_TYPE_CODES, operation.type));
+                        writeString(operation.binName);
+                        writeValue(operation.value);
+                    }
+                    break;
+                case UDF:
+                    writeString(entry.packageName);
+                    writeString(entry.functionName);
+                    writeVarLong(entry.args.length);
+                    for (Value arg : entry.args) {
+                        writeValue(arg);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void writeString(String string) throws IOException {
+            if (string == null) {
+                writeVarLong(0);
+                return;
+            }
+            Integer id = strings.get(string);
+            if (id != null) {
+                writeVarLong(id);
+                return;
+            }
+            id = strings.size() + 1;
+            strings.put(string, id);
+            writeVarLong(id);
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeValue(Value value) throws IOException {
+            writeObject(value == null ? null : value.getObject());
+        }
+
+        private void writeObject(Object object) throws IOException {
+            if (object == null) {
+                out.writeByte(NULL);
+            } else if (object instanceof Long || object instanceof Integer || object instanceof Short
+                    || object instanceof Byte) {
+                out.writeByte(LONG);
+                writeVarLong(zigzag(((Number) object).longValue()));
+            } else if (object instanceof Double || object instanceof Float) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(((Number) object).doubleValue());
+            } else if (object instanceof String) {
+                out.writeByte(STRING);
+                writeBytes(((String) object).getBytes(StandardCharsets.UTF_8));
+            } else if (object instanceof byte[]) {
+                out.writeByte(BYTES);
+                writeBytes((byte[]) object);
+            } else if (object instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) object);
+            } else if (object instanceof List) {
+                List<?> list = (List<?>) object;
+                out.writeByte(LIST);
+                writeVarLong(list.size());
+                for (Object element : list) {
+                    writeObject(element);
+                }
+            } else if (object instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) object;
+                out.writeByte(MAP);
+                writeVarLong(map.size());
+                for (Map.Entry<?, ?> element : map.entrySet()) {
+                    writeObject(element.getKey());
+                    writeObject(element.getValue());
+                }
+            } else {
+                throw new IOException("Cannot log value of " + object.getClass());
+            }
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            writeVarLong(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the entries of a log in the order they were written. Not thread safe.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a traffic log");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported traffic log version " + version);
+            }
+            strings.add(null);
+        }
+
+        /**
+         * @return next entry, null at the end of the log
+         */
+        public Entry next() throws IOException {
+            int command = in.read();
+            if (command < 0) {
+                return null;
+            }
+            try {
+                if (command >= COMMANDS.length) {
+                    throw new IOException("Unknown command code " + command);
+                }
+                return read(COMMANDS[command]);
+            } catch (EOFException e) {
+                throw new IOException("Truncated traffic log", e);
+            }
+        }
+
+        private Entry read(CommandType command) throws IOException {
+            long start = readVarLong();
+            long duration = readVarLong();
+            int resultCode = (int) unzigzag(readVarLong());
+            Key[] keys = new Key[(int) readVarLong()];
+            for (int i = 0; i < keys.length; i++) {
+                String namespace = readString();
+                String setName = readString();
+                byte[] digest = new byte[20];
+                in.readFully(digest);
+                keys[i] = new Key(namespace, digest, setName, null);
+            }
+            Entry entry = new Entry(command, keys);
+            entry.startMicros = start;
+            entry.durationMicros = duration;
+            entry.resultCode = resultCode;
+            if (command.isWrite()) {
+                entry.expiration = (int) unzigzag(readVarLong());
+            }
+            switch (command) {
+                case GET:
+                case BATCH_GET:
+                    entry.binNames = new String[(int) readVarLong()];
+                    for (int i = 0; i < entry.binNames.length; i++) {
+                        entry.binNames[i] = readString();
+                    }
+                    break;
+                case PUT:
+                case APPEND:
+                case PREPEND:
+                case ADD:
+                    entry.bins = new Bin[(int) readVarLong()];
+                    for (int i = 0; i < entry.bins.length; i++) {
+                        entry.bins[i] = new Bin(readString(), readValue());
+                    }
+                    break;
+                case OPERATE:
+                    entry.operations = new Operation[(int) readVarLong()];
+                    for (int i = 0; i < entry.operations.length; i++) {
+                        int code = in.readUnsignedByte();
+                        if (code >= OPERATION_TYPES.length) {
+                            throw new IOException("Unknown operation type code " + code);
+                        }
+                        Operation.Type type = OPERATION_TYPES[code];
+                        entry.operations[i] = new Operation(type, readString(), readValue());
+                    }
+                    break;
+                case UDF:
+                    entry.packageName = readString();
+                    entry.functionName = readString();
+                    entry.args = new Value[(int) readVarLong()];
+                    for (int i = 0; i < entry.args.length; i++) {
+                        entry.args[i] = readValue();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return entry;
+        }
+
+        private String readString() throws IOException {
+            int id = (int) readVarLong();
+            if (id < strings.size()) {
+                return strings.get(id);
+            }
+            String string = new String(readBytes(), StandardCharsets.UTF_8);
+            strings.add(string);
+            return string;
+        }
+
+        private Value readValue() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case NULL:
+                    return Value.getAsNull();
+                case LONG:
+                    return Value.get(unzigzag(readVarLong()));
+                case DOUBLE:
+                    return Value.get(in.readDouble());
+                case STRING:
+                    return Value.get(new String(readBytes(), StandardCharsets.UTF_8));
+                case BYTES:
+                    return Value.get(readBytes());
+                case BOOLEAN:
+                    return Value.get(in.readBoolean());
+                case LIST:
+                    return Value.get(readList());
+                case MAP:
+                    return Value.get(readMap());
+                default:
+                    throw new IOException("Unknown value type " + tag);
+            }
+        }
+
+        private Object readObject() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case LONG:
+                    return unzigzag(readVarLong());
+                case DOUBLE:
+                    return in.readDouble();
+                case STRING:
+                    return new String(readBytes(), StandardCharsets.UTF_8);
+                case BYTES:
+                    return readBytes();
+                case BOOLEAN:
+                    return in.readBoolean();
+                case LIST:
+                    return readList();
+                case MAP:
+                    return readMap();
+                default:
+                    throw new IOException("Unknown value type " + tag);
+            }
+        }
+
+        private List<Object> readList() throws IOException {
+            int size = (int) readVarLong();
+            List<Object> list = new ArrayList<>(Math.min(size, 1024));
+            for (int i = 0; i < size; i++) {
+                list.add(readObject());
+            }
+            return list;
+        }
+
+        private Map<Object, Object> readMap() throws IOException {
+            int size = (int) readVarLong();
+            Map<Object, Object> map = new LinkedHashMap<>(Math.min(size, 1024));
+            for (int i = 0; i < size; i++) {
+                map.put(readObject(), readObject());
+            }
+            return map;
+        }
+
+        private byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[(int) readVarLong()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static <T> Map<T, Integer> codes(T[] values) {
+        Map<T, Integer> codes = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            codes.put(values[i], i);
+        }
+        return codes;
+    }
+
+    private static <T> int code(Map<T, Integer> codes, T value) throws IOException {
+        Integer code = codes.get(value);
+        if (code == null) {
+            throw new IOException("No log code for " + value);
+        }
+        return code;
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,617 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Calendar;
+import java.util.List;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.AerospikeException.InvalidNode;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.Value;
+import com.aerospike.client.admin.Privilege;
+import com.aerospike.client.admin.Role;
+import com.aerospike.client.admin.User;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.cluster.ClusterStats;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.listener.*;
+import com.aerospike.client.policy.AdminPolicy;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.InfoPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.ResultSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.IndexTask;
+import com.aerospike.client.task.RegisterTask;
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * Decorator for any {@link IAerospikeClient} that logs the commands it passes on to a
+ * {@link TrafficLog}, to be replayed by {@link TrafficReplayer}. Single-record reads and
+ * writes, operate, record UDF calls and batch reads are logged with their timing and result;
+ * scans, queries, background jobs and the asynchronous variants are passed through unlogged.
+ * A failure to write the log never fails a command: logging stops and the failure is reported
+ * by {@link #getFailure()}.
+ *
+ * @author srinivas.iyengar
+ */
+public class TrafficRecorder implements IAerospikeClient {
+    private final IAerospikeClient delegate;
+    private final TrafficLog.Writer log;
+    private volatile IOException failure;
+
+    /**
+     * @param delegate client the commands go to
+     * @param out      stream the log is written to
+     */
+    public TrafficRecorder(IAerospikeClient delegate, OutputStream out) throws IOException {
+        this.delegate = delegate;
+        this.log = new TrafficLog.Writer(out);
+    }
+
+    public IAerospikeClient getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return exception that stopped logging, null while logging works
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Write the buffered part of the log to its stream.
+     */
+    public void flush() throws IOException {
+        log.flush();
+    }
+
+    private TrafficLog.Entry write(CommandType command, WritePolicy policy, Key key) {
+        TrafficLog.Entry entry = new TrafficLog.Entry(command, key);
+        entry.expiration = (policy != null ? policy : delegate.getWritePolicyDefault()).expiration;
+        return entry;
+    }
+
+    private <T> T record(TrafficLog.Entry entry, Command<T> command) {
+        long start = System.nanoTime();
+        try {
+            return command.run();
+        } catch (AerospikeException e) {
+            entry.resultCode = e.getResultCode();
+            throw e;
+        } finally {
+            long duration = System.nanoTime() - start;
+            if (failure == null) {
+                try {
+                    log.write(entry, start, duration);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Command<T> {
+        T run();
+    }
+
+    @Override
+    public Policy getReadPolicyDefault() {
+        return delegate.getReadPolicyDefault();
+    }
+
+    @Override
+    public WritePolicy getWritePolicyDefault() {
+        return delegate.getWritePolicyDefault();
+    }
+
+    @Override
+    public ScanPolicy getScanPolicyDefault() {
+        return delegate.getScanPolicyDefault();
+    }
+
+    @Override
+    public QueryPolicy getQueryPolicyDefault() {
+        return delegate.getQueryPolicyDefault();
+    }
+
+    @Override
+    public BatchPolicy getBatchPolicyDefault() {
+        return delegate.getBatchPolicyDefault();
+    }
+
+    @Override
+    public InfoPolicy getInfoPolicyDefault() {
+        return delegate.getInfoPolicyDefault();
+    }
+
+    /**
+     * Close the log, then the delegate.
+     */
+    @Override
+    public void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            fail(e);
+        }
+        delegate.close();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public Node[] getNodes() {
+        return delegate.getNodes();
+    }
+
+    @Override
+    public List<String> getNodeNames() {
+        return delegate.getNodeNames();
+    }
+
+    @Override
+    public Node getNode(String nodeName) throws InvalidNode {
+        return delegate.getNode(nodeName);
+    }
+
+    @Override
+    public ClusterStats getClusterStats() {
+        return delegate.getClusterStats();
+    }
+
+    @Override
+    public void put(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        TrafficLog.Entry entry = write(CommandType.PUT, policy, key);
+        entry.bins = bins;
+        record(entry, () -> {
+            delegate.put(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void put(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        delegate.put(eventLoop, writeListener, writePolicy, key, bins);
+    }
+
+    @Override
+    public void append(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        TrafficLog.Entry entry = write(CommandType.APPEND, policy, key);
+        entry.bins = bins;
+        record(entry, () -> {
+            delegate.append(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void append(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        delegate.append(eventLoop, writeListener, writePolicy, key, bins);
+    }
+
+    @Override
+    public void prepend(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        TrafficLog.Entry entry = write(CommandType.PREPEND, policy, key);
+        entry.bins = bins;
+        record(entry, () -> {
+            delegate.prepend(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void prepend(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        delegate.prepend(eventLoop, writeListener, writePolicy, key, bins);
+    }
+
+    @Override
+    public void add(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+        TrafficLog.Entry entry = write(CommandType.ADD, policy, key);
+        entry.bins = bins;
+        record(entry, () -> {
+            delegate.add(policy, key, bins);
+            return null;
+        });
+    }
+
+    @Override
+    public void add(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key, Bin... bins) throws AerospikeException {
+        delegate.add(eventLoop, writeListener, writePolicy, key, bins);
+    }
+
+    @Override
+    public boolean delete(WritePolicy policy, Key key) throws AerospikeException {
+        return record(write(CommandType.DELETE, policy, key), () -> delegate.delete(policy, key));
+    }
+
+    @Override
+    public void delete(EventLoop eventLoop, DeleteListener deleteListener, WritePolicy writePolicy, Key key) throws AerospikeException {
+        delegate.delete(eventLoop, deleteListener, writePolicy, key);
+    }
+
+    @Override
+    public void truncate(InfoPolicy infoPolicy, String ns, String set, Calendar beforeLastUpdate) throws AerospikeException {
+        delegate.truncate(infoPolicy, ns, set, beforeLastUpdate);
+    }
+
+    @Override
+    public void touch(WritePolicy policy, Key key) throws AerospikeException {
+        record(write(CommandType.TOUCH, policy, key), () -> {
+            delegate.touch(policy, key);
+            return null;
+        });
+    }
+
+    @Override
+    public void touch(EventLoop eventLoop, WriteListener writeListener, WritePolicy writePolicy, Key key) throws AerospikeException {
+        delegate.touch(eventLoop, writeListener, writePolicy, key);
+    }
+
+    @Override
+    public boolean exists(Policy policy, Key key) throws AerospikeException {
+        return record(new TrafficLog.Entry(CommandType.EXISTS, key), () -> delegate.exists(policy, key));
+    }
+
+    @Override
+    public void exists(EventLoop eventLoop, ExistsListener existsListener, Policy policy, Key key) throws AerospikeException {
+        delegate.exists(eventLoop, existsListener, policy, key);
+    }
+
+    @Override
+    public boolean[] exists(BatchPolicy policy, Key[] keys) throws AerospikeException {
+        return record(new TrafficLog.Entry(CommandType.BATCH_EXISTS, keys), () -> delegate.exists(policy, keys));
+    }
+
+    @Override
+    public void exists(EventLoop eventLoop, ExistsArrayListener existsArrayListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.exists(eventLoop, existsArrayListener, batchPolicy, keys);
+    }
+
+    @Override
+    public void exists(EventLoop eventLoop, ExistsSequenceListener existsSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.exists(eventLoop, existsSequenceListener, batchPolicy, keys);
+    }
+
+    @Override
+    public Record get(Policy policy, Key key) throws AerospikeException {
+        return record(new TrafficLog.Entry(CommandType.GET, key), () -> delegate.get(policy, key));
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordListener recordListener, Policy policy, Key key) throws AerospikeException {
+        delegate.get(eventLoop, recordListener, policy, key);
+    }
+
+    @Override
+    public Record get(Policy policy, Key key, String... binNames) throws AerospikeException {
+        TrafficLog.Entry entry = new TrafficLog.Entry(CommandType.GET, key);
+        entry.binNames = binNames;
+        return record(entry, () -> delegate.get(policy, key, binNames));
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordListener recordListener, Policy policy, Key key, String... binNames) throws AerospikeException {
+        delegate.get(eventLoop, recordListener, policy, key, binNames);
+    }
+
+    @Override
+    public Record getHeader(Policy policy, Key key) throws AerospikeException {
+        return record(new TrafficLog.Entry(CommandType.GET_HEADER, key), () -> delegate.getHeader(policy, key));
+    }
+
+    @Override
+    public void getHeader(EventLoop eventLoop, RecordListener recordListener, Policy policy, Key key) throws AerospikeException {
+        delegate.getHeader(eventLoop, recordListener, policy, key);
+    }
+
+    @Override
+    public void get(BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
+        delegate.get(policy, records);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, BatchListListener batchListListener, BatchPolicy batchPolicy, List<BatchRead> list) throws AerospikeException {
+        delegate.get(eventLoop, batchListListener, batchPolicy, list);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, BatchSequenceListener batchSequenceListener, BatchPolicy batchPolicy, List<BatchRead> list) throws AerospikeException {
+        delegate.get(eventLoop, batchSequenceListener, batchPolicy, list);
+    }
+
+    @Override
+    public Record[] get(BatchPolicy policy, Key[] keys) throws AerospikeException {
+        return record(new TrafficLog.Entry(CommandType.BATCH_GET, keys), () -> delegate.get(policy, keys));
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordArrayListener recordArrayListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.get(eventLoop, recordArrayListener, batchPolicy, keys);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.get(eventLoop, recordSequenceListener, batchPolicy, keys);
+    }
+
+    @Override
+    public Record[] get(BatchPolicy policy, Key[] keys, String... binNames) throws AerospikeException {
+        TrafficLog.Entry entry = new TrafficLog.Entry(CommandType.BATCH_GET, keys);
+        entry.binNames = binNames;
+        return record(entry, () -> delegate.get(policy, keys, binNames));
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordArrayListener recordArrayListener, BatchPolicy batchPolicy, Key[] keys, String... binNames) throws AerospikeException {
+        delegate.get(eventLoop, recordArrayListener, batchPolicy, keys, binNames);
+    }
+
+    @Override
+    public void get(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys, String... binNames) throws AerospikeException {
+        delegate.get(eventLoop, recordSequenceListener, batchPolicy, keys, binNames);
+    }
+
+    @Override
+    public Record[] getHeader(BatchPolicy policy, Key[] keys) throws AerospikeException {
+        return record(new TrafficLog.Entry(CommandType.BATCH_GET_HEADER, keys), () -> delegate.getHeader(policy, keys));
+    }
+
+    @Override
+    public void getHeader(EventLoop eventLoop, RecordArrayListener recordArrayListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.getHeader(eventLoop, recordArrayListener, batchPolicy, keys);
+    }
+
+    @Override
+    public void getHeader(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, BatchPolicy batchPolicy, Key[] keys) throws AerospikeException {
+        delegate.getHeader(eventLoop, recordSequenceListener, batchPolicy, keys);
+    }
+
+    @Override
+    public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
+        TrafficLog.Entry entry = write(CommandType.OPERATE, policy, key);
+        entry.operations = operations;
+        return record(entry, () -> delegate.operate(policy, key, operations));
+    }
+
+    @Override
+    public void operate(EventLoop eventLoop, RecordListener recordListener, WritePolicy writePolicy, Key key, Operation... operations) throws AerospikeException {
+        delegate.operate(eventLoop, recordListener, writePolicy, key, operations);
+    }
+
+    @Override
+    public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanAll(policy, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanAll(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, ScanPolicy scanPolicy, String namespace, String setName, String... binNames) throws AerospikeException {
+        delegate.scanAll(eventLoop, recordSequenceListener, scanPolicy, namespace, setName, binNames);
+    }
+
+    @Override
+    public void scanNode(ScanPolicy policy, String nodeName, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanNode(policy, nodeName, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanNode(ScanPolicy policy, Node node, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanNode(policy, node, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanPartitions(ScanPolicy scanPolicy, PartitionFilter partitionFilter, String namespace, String setName, ScanCallback callback, String... binNames) throws AerospikeException {
+        delegate.scanPartitions(scanPolicy, partitionFilter, namespace, setName, callback, binNames);
+    }
+
+    @Override
+    public void scanPartitions(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, ScanPolicy scanPolicy, PartitionFilter partitionFilter, String namespace, String setName, String... binNames) throws AerospikeException {
+        delegate.scanPartitions(eventLoop, recordSequenceListener, scanPolicy, partitionFilter, namespace, setName, binNames);
+    }
+
+    @Override
+    public RegisterTask register(Policy policy, String clientPath, String serverPath, Language language) throws AerospikeException {
+        return delegate.register(policy, clientPath, serverPath, language);
+    }
+
+    @Override
+    public RegisterTask register(Policy policy, ClassLoader resourceLoader, String resourcePath, String serverPath, Language language) throws AerospikeException {
+        return delegate.register(policy, resourceLoader, resourcePath, serverPath, language);
+    }
+
+    @Override
+    public RegisterTask registerUdfString(Policy policy, String code, String serverPath, Language language) throws AerospikeException {
+        return delegate.registerUdfString(policy, code, serverPath, language);
+    }
+
+    @Override
+    public void removeUdf(InfoPolicy policy, String serverPath) throws AerospikeException {
+        delegate.removeUdf(policy, serverPath);
+    }
+
+    @Override
+    public Object execute(WritePolicy policy, Key key, String packageName, String functionName, Value... args) throws AerospikeException {
+        TrafficLog.Entry entry = write(CommandType.UDF, policy, key);
+        entry.packageName = packageName;
+        entry.functionName = functionName;
+        entry.args = args;
+        return record(entry, () -> delegate.execute(policy, key, packageName, functionName, args));
+    }
+
+    @Override
+    public void execute(EventLoop eventLoop, ExecuteListener executeListener, WritePolicy writePolicy, Key key, String packageName, String functionName, Value... functionArgs) throws AerospikeException {
+        delegate.execute(eventLoop, executeListener, writePolicy, key, packageName, functionName, functionArgs);
+    }
+
+    @Override
+    public ExecuteTask execute(WritePolicy policy, Statement statement, String packageName, String functionName, Value... functionArgs) throws AerospikeException {
+        return delegate.execute(policy, statement, packageName, functionName, functionArgs);
+    }
+
+    @Override
+    public ExecuteTask execute(WritePolicy writePolicy, Statement statement, Operation... operations) throws AerospikeException {
+        return delegate.execute(writePolicy, statement, operations);
+    }
+
+    @Override
+    public RecordSet query(QueryPolicy policy, Statement statement) throws AerospikeException {
+        return delegate.query(policy, statement);
+    }
+
+    @Override
+    public void query(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, QueryPolicy queryPolicy, Statement statement) throws AerospikeException {
+        delegate.query(eventLoop, recordSequenceListener, queryPolicy, statement);
+    }
+
+    @Override
+    public RecordSet queryNode(QueryPolicy policy, Statement statement, Node node) throws AerospikeException {
+        return delegate.queryNode(policy, statement, node);
+    }
+
+    @Override
+    public RecordSet queryPartitions(QueryPolicy queryPolicy, Statement statement, PartitionFilter partitionFilter) throws AerospikeException {
+        return delegate.queryPartitions(queryPolicy, statement, partitionFilter);
+    }
+
+    @Override
+    public void queryPartitions(EventLoop eventLoop, RecordSequenceListener recordSequenceListener, QueryPolicy queryPolicy, Statement statement, PartitionFilter partitionFilter) throws AerospikeException {
+        delegate.queryPartitions(eventLoop, recordSequenceListener, queryPolicy, statement, partitionFilter);
+    }
+
+    @Override
+    public ResultSet queryAggregate(QueryPolicy policy, Statement statement, String packageName, String functionName, Value... functionArgs) throws AerospikeException {
+        return delegate.queryAggregate(policy, statement, packageName, functionName, functionArgs);
+    }
+
+    @Override
+    public ResultSet queryAggregate(QueryPolicy policy, Statement statement) throws AerospikeException {
+        return delegate.queryAggregate(policy, statement);
+    }
+
+    @Override
+    public ResultSet queryAggregateNode(QueryPolicy queryPolicy, Statement statement, Node node) throws AerospikeException {
+        return delegate.queryAggregateNode(queryPolicy, statement, node);
+    }
+
+    @Override
+    public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName, String binName, IndexType indexType) throws AerospikeException {
+        return delegate.createIndex(policy, namespace, setName, indexName, binName, indexType);
+    }
+
+    @Override
+    public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName, String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+        return delegate.createIndex(policy, namespace, setName, indexName, binName, indexType, indexCollectionType);
+    }
+
+    @Override
+    public void createIndex(EventLoop eventLoop, IndexListener indexListener, Policy policy, String namespace, String setName, String indexName, String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+        delegate.createIndex(eventLoop, indexListener, policy, namespace, setName, indexName, binName, indexType, indexCollectionType);
+    }
+
+    @Override
+    public IndexTask dropIndex(Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+        return delegate.dropIndex(policy, namespace, setName, indexName);
+    }
+
+    @Override
+    public void dropIndex(EventLoop eventLoop, IndexListener indexListener, Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+        delegate.dropIndex(eventLoop, indexListener, policy, namespace, setName, indexName);
+    }
+
+    @Override
+    public void info(EventLoop eventLoop, InfoListener infoListener, InfoPolicy infoPolicy, Node node, String... commands) throws AerospikeException {
+        delegate.info(eventLoop, infoListener, infoPolicy, node, commands);
+    }
+
+    @Override
+    public void createUser(AdminPolicy policy, String user, String password, List<String> roles) throws AerospikeException {
+        delegate.createUser(policy, user, password, roles);
+    }
+
+    @Override
+    public void dropUser(AdminPolicy policy, String user) throws AerospikeException {
+        delegate.dropUser(policy, user);
+    }
+
+    @Override
+    public void changePassword(AdminPolicy policy, String user, String password) throws AerospikeException {
+        delegate.changePassword(policy, user, password);
+    }
+
+    @Override
+    public void grantRoles(AdminPolicy policy, String user, List<String> roles) throws AerospikeException {
+        delegate.grantRoles(policy, user, roles);
+    }
+
+    @Override
+    public void revokeRoles(AdminPolicy policy, String user, List<String> roles) throws AerospikeException {
+        delegate.revokeRoles(policy, user, roles);
+    }
+
+    @Override
+    public void createRole(AdminPolicy policy, String roleName, List<Privilege> privileges) throws AerospikeException {
+        delegate.createRole(policy, roleName, privileges);
+    }
+
+    @Override
+    public void dropRole(AdminPolicy policy, String roleName) throws AerospikeException {
+        delegate.dropRole(policy, roleName);
+    }
+
+    @Override
+    public void grantPrivileges(AdminPolicy policy, String roleName, List<Privilege> privileges) throws AerospikeException {
+        delegate.grantPrivileges(policy, roleName, privileges);
+    }
+
+    @Override
+    public void revokePrivileges(AdminPolicy policy, String roleName, List<Privilege> privileges) throws AerospikeException {
+        delegate.revokePrivileges(policy, roleName, privileges);
+    }
+
+    @Override
+    public User queryUser(AdminPolicy policy, String user) throws AerospikeException {
+        return delegate.queryUser(policy, user);
+    }
+
+    @Override
+    public List<User> queryUsers(AdminPolicy policy) throws AerospikeException {
+        return delegate.queryUsers(policy);
+    }
+
+    @Override
+    public Role queryRole(AdminPolicy policy, String roleName) throws AerospikeException {
+        return delegate.queryRole(policy, roleName);
+    }
+
+    @Override
+    public List<Role> queryRoles(AdminPolicy policy) throws AerospikeException {
+        return delegate.queryRoles(policy);
+    }
+}
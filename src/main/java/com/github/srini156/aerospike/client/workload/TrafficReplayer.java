@@ -0,0 +1,200 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.github.srini156.aerospike.client.CommandType;
+
+/**
+ * Replays a {@link TrafficLog} against any {@link IAerospikeClient}, typically a
+ * {@link com.github.srini156.aerospike.client.MockAerospikeClient} built from the code under
+ * test. The log is read on the calling thread and its commands are handed to worker threads by
+ * the digest of their first key, so commands of one record run in their recorded order. Commands
+ * run at their recorded pace, scaled by {@link ReplayPolicy#speed}, or as fast as the workers
+ * can issue them.
+ * <pre>
+ * try (InputStream log = new FileInputStream("traffic.log")) {
+ *     System.out.print(new TrafficReplayer(new MockAerospikeClient(), new ReplayPolicy()).run(log));
+ * }
+ * </pre>
+ *
+ * @author srinivas.iyengar
+ */
+public class TrafficReplayer {
+    private static final TrafficLog.Entry END = new TrafficLog.Entry(CommandType.GET);
+
+    private final IAerospikeClient client;
+    private final ReplayPolicy policy;
+    private final Map<CommandType, LatencyHistogram> latencies = new EnumMap<>(CommandType.class);
+    private final Map<CommandType, LatencyHistogram> recorded = new EnumMap<>(CommandType.class);
+    private final Map<CommandType, AtomicLong> errors = new EnumMap<>(CommandType.class);
+
+    public TrafficReplayer(IAerospikeClient client, ReplayPolicy policy) {
+        if (policy.threads < 1) {
+            throw new IllegalArgumentException("Replay needs at least one thread: " + policy.threads);
+        }
+        if (policy.speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative: " + policy.speed);
+        }
+        this.client = client;
+        this.policy = policy;
+        for (CommandType command : CommandType.values()) {
+            latencies.put(command, new LatencyHistogram());
+            recorded.put(command, new LatencyHistogram());
+            errors.put(command, new AtomicLong());
+        }
+    }
+
+    /**
+     * Replay a whole log.
+     *
+     * @param log stream of a log written by {@link TrafficRecorder}
+     * @return report of the replay
+     */
+    public ReplayReport run(InputStream log) throws IOException, InterruptedException {
+        TrafficLog.Reader reader = new TrafficLog.Reader(log);
+        List<BlockingQueue<TrafficLog.Entry>> queues = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < policy.threads; i++) {
+            BlockingQueue<TrafficLog.Entry> queue = new ArrayBlockingQueue<>(Math.max(1, policy.queueSize));
+            Thread worker = new Thread(() -> work(queue, start), "replay-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            queues.add(queue);
+            workers.add(worker);
+        }
+        try {
+            for (TrafficLog.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                recorded.get(entry.command).record(TimeUnit.MICROSECONDS.toNanos(entry.durationMicros));
+                queues.get(thread(entry)).put(entry);
+            }
+            for (BlockingQueue<TrafficLog.Entry> queue : queues) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } finally {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+        Map<CommandType, Long> errorCounts = new EnumMap<>(CommandType.class);
+        errors.forEach((command, count) -> errorCounts.put(command, count.get()));
+        return new ReplayReport((System.nanoTime() - start) / 1e9, latencies, recorded, errorCounts);
+    }
+
+    private int thread(TrafficLog.Entry entry) {
+        if (entry.keys.length == 0) {
+            return 0;
+        }
+        byte[] digest = entry.keys[0].digest;
+        int hash = (digest[4] & 0xFF) | (digest[5] & 0xFF) << 8 | (digest[6] & 0xFF) << 16 | (digest[7] & 0x7F) << 24;
+        return hash % policy.threads;
+    }
+
+    private void work(BlockingQueue<TrafficLog.Entry> queue, long start) {
+        try {
+            for (TrafficLog.Entry entry = queue.take(); entry != END; entry = queue.take()) {
+                long begin;
+                if (policy.speed > 0) {
+                    long due = start + (long) (TimeUnit.MICROSECONDS.toNanos(entry.startMicros) / policy.speed);
+                    for (long now = System.nanoTime(); now < due; now = System.nanoTime()) {
+                        LockSupport.parkNanos(due - now);
+                    }
+                    begin = due;
+                } else {
+                    begin = System.nanoTime();
+                }
+                try {
+                    execute(entry);
+                } catch (RuntimeException e) {
+                    // Mostly AerospikeException, anything else must not stop the worker either.
+                    errors.get(entry.command).incrementAndGet();
+                    continue;
+                }
+                latencies.get(entry.command).record(System.nanoTime() - begin);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(TrafficLog.Entry entry) {
+        Key key = entry.keys.length > 0 ? entry.keys[0] : null;
+        switch (entry.command) {
+            case GET:
+                if (entry.binNames.length == 0) {
+                    client.get(null, key);
+                } else {
+                    client.get(null, key, entry.binNames);
+                }
+                break;
+            case GET_HEADER:
+                client.getHeader(null, key);
+                break;
+            case EXISTS:
+                client.exists(null, key);
+                break;
+            case BATCH_GET:
+                if (entry.binNames.length == 0) {
+                    client.get((BatchPolicy) null, entry.keys);
+                } else {
+                    client.get((BatchPolicy) null, entry.keys, entry.binNames);
+                }
+                break;
+            case BATCH_GET_HEADER:
+                client.getHeader((BatchPolicy) null, entry.keys);
+                break;
+            case BATCH_EXISTS:
+                client.exists((BatchPolicy) null, entry.keys);
+                break;
+            case PUT:
+                client.put(writePolicy(entry), key, entry.bins);
+                break;
+            case APPEND:
+                client.append(writePolicy(entry), key, entry.bins);
+                break;
+            case PREPEND:
+                client.prepend(writePolicy(entry), key, entry.bins);
+                break;
+            case ADD:
+                client.add(writePolicy(entry), key, entry.bins);
+                break;
+            case DELETE:
+                client.delete(writePolicy(entry), key);
+                break;
+            case TOUCH:
+                client.touch(writePolicy(entry), key);
+                break;
+            case OPERATE:
+                client.operate(writePolicy(entry), key, entry.operations);
+                break;
+            case UDF:
+                client.execute(writePolicy(entry), key, entry.packageName, entry.functionName, entry.args);
+                break;
+            default:
+                throw new IllegalStateException("Command is not replayable: " + entry.command);
+        }
+    }
+
+    private WritePolicy writePolicy(TrafficLog.Entry entry) {
+        WritePolicy writePolicy = new WritePolicy(client.getWritePolicyDefault());
+        writePolicy.expiration = entry.expiration;
+        return writePolicy;
+    }
+}
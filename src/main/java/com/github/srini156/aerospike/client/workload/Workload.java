@@ -0,0 +1,351 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.IAerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+
+/**
+ * Load driver modelled on asbenchmark. Drives any {@link IAerospikeClient}, including
+ * {@link MockAerospikeClient}, with a mix of reads, updates and read-modify-writes over a key
+ * space and reports throughput and latency percentiles at every interval.
+ * <pre>
+ * WorkloadPolicy policy = new WorkloadPolicy();
+ * policy.readPercent = 80;
+ * policy.keyDistribution = "zipfian";
+ * WorkloadReport total = new Workload(client, policy).run(System.out::print);
+ * </pre>
+ * Run {@link #main(String[])} with <code>--help</code> for the command line options.
+ *
+ * @author srinivas.iyengar
+ */
+public class Workload {
+    /**
+     * Kinds of commands a workload issues.
+     */
+    public enum Command {
+        READ, BATCH_READ, UPDATE, READ_MODIFY_WRITE
+    }
+
+    private static final String COUNTER_BIN = "counter";
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+    private static final String USAGE = "Usage: Workload [options]\n"
+            + "  -h host         server to connect to, in-process mock if omitted\n"
+            + "  -p port         server port, default 3000\n"
+            + "  -n namespace    default test\n"
+            + "  -s set          default testset\n"
+            + "  -k keys         key space size, default 100000\n"
+            + "  -b bins         bins per record, default 1\n"
+            + "  -o bytes        bytes per bin, default 100\n"
+            + "  -w RU,r[,m]     r% reads, m% read-modify-writes, the rest updates, default RU,50\n"
+            + "  -B size         keys per batch read, default 1\n"
+            + "  -K dist         uniform or zipfian[,theta], default uniform\n"
+            + "  -z threads      default 16\n"
+            + "  -g tps          target throughput, default unlimited\n"
+            + "  -O              open loop: fixed schedule, latency measured from when a command was due\n"
+            + "  -d seconds      duration, default 10\n"
+            + "  -i seconds      report interval, default 1\n"
+            + "  --no-preload    do not write the key space first\n";
+
+    private final IAerospikeClient client;
+    private final WorkloadPolicy policy;
+    private final KeyDistribution keys;
+    private final Map<Command, LatencyHistogram> latencies = new EnumMap<>(Command.class);
+    private final Map<Command, AtomicLong> errors = new EnumMap<>(Command.class);
+    private volatile boolean stopped;
+
+    public Workload(IAerospikeClient client, WorkloadPolicy policy) {
+        if (policy.readPercent < 0 || policy.readModifyWritePercent < 0
+                || policy.readPercent + policy.readModifyWritePercent > 100) {
+            throw new IllegalArgumentException("Read and read-modify-write percentages must add up to at most 100");
+        }
+        this.client = client;
+        this.policy = policy;
+        this.keys = KeyDistribution.parse(policy.keyDistribution, policy.keyCount);
+        for (Command command : Command.values()) {
+            latencies.put(command, new LatencyHistogram());
+            errors.put(command, new AtomicLong());
+        }
+    }
+
+    /**
+     * Run the workload for {@link WorkloadPolicy#durationSeconds}.
+     *
+     * @param progress receives a report at the end of every interval
+     * @return report of the whole run
+     */
+    public WorkloadReport run(Consumer<WorkloadReport> progress) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(policy.threads, runnable -> {
+            Thread thread = new Thread(runnable, "mock-aerospike-workload-" + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (policy.preload) {
+                await(submit(executor, this::preload));
+            }
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(policy.durationSeconds);
+            List<Future<?>> workers = submit(executor, this::work);
+
+            Map<Command, LatencyHistogram> total = new EnumMap<>(Command.class);
+            Map<Command, Long> totalErrors = new EnumMap<>(Command.class);
+            long intervalStart = start;
+            while (intervalStart < end) {
+                long intervalEnd = Math.min(end, intervalStart + TimeUnit.SECONDS.toNanos(policy.reportIntervalSeconds));
+                for (long now = System.nanoTime(); now < intervalEnd; now = System.nanoTime()) {
+                    TimeUnit.NANOSECONDS.sleep(intervalEnd - now);
+                }
+                if (intervalEnd >= end) {
+                    stopped = true;
+                    await(workers);
+                }
+                long now = System.nanoTime();
+                WorkloadReport report = drain(start, intervalStart, now, total, totalErrors);
+                progress.accept(report);
+                intervalStart = now;
+            }
+            return new WorkloadReport(seconds(System.nanoTime() - start), seconds(intervalStart - start), total,
+                    totalErrors);
+        } finally {
+            stopped = true;
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop a running workload early.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    private WorkloadReport drain(long start, long intervalStart, long now, Map<Command, LatencyHistogram> total,
+                                 Map<Command, Long> totalErrors) {
+        Map<Command, LatencyHistogram> interval = new EnumMap<>(Command.class);
+        Map<Command, Long> intervalErrors = new EnumMap<>(Command.class);
+        for (Command command : Command.values()) {
+            LatencyHistogram latency = latencies.get(command).drain();
+            interval.put(command, latency);
+            total.computeIfAbsent(command, c -> new LatencyHistogram()).add(latency);
+            long errorCount = errors.get(command).getAndSet(0);
+            intervalErrors.put(command, errorCount);
+            totalErrors.merge(command, errorCount, Long::sum);
+        }
+        return new WorkloadReport(seconds(now - start), seconds(now - intervalStart), interval, intervalErrors);
+    }
+
+    private List<Future<?>> submit(ExecutorService executor, IntConsumer task) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < policy.threads; i++) {
+            int thread = i;
+            futures.add(executor.submit(() -> task.accept(thread)));
+        }
+        return futures;
+    }
+
+    private static void await(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Workload thread failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Write this thread's share of the key space.
+     */
+    private void preload(int thread) {
+        Bin[] bins = bins();
+        for (int i = thread; i < policy.keyCount && !stopped; i += policy.threads) {
+            client.put(null, key(i), bins);
+        }
+    }
+
+    private void work(int thread) {
+        Random random = ThreadLocalRandom.current();
+        Bin[] bins = bins();
+        Bin increment = new Bin(COUNTER_BIN, 1L);
+        // Each thread runs at an equal share of the target throughput.
+        long interval = policy.targetThroughput > 0
+                ? TimeUnit.SECONDS.toNanos(policy.threads) / policy.targetThroughput : 0;
+        long due = System.nanoTime();
+        while (!stopped) {
+            if (interval > 0) {
+                for (long now = System.nanoTime(); now < due && !stopped; now = System.nanoTime()) {
+                    LockSupport.parkNanos(due - now);
+                }
+                if (!policy.openLoop) {
+                    // A closed loop does not catch up after a slow response.
+                    due = Math.max(due, System.nanoTime());
+                }
+            }
+            long start = policy.openLoop && interval > 0 ? due : System.nanoTime();
+            due += interval;
+            Command command = kind(random.nextInt(100));
+            try {
+                execute(command, random, bins, increment);
+            } catch (AerospikeException e) {
+                errors.get(command).incrementAndGet();
+                continue;
+            }
+            latencies.get(command).record(System.nanoTime() - start);
+        }
+    }
+
+    private void execute(Command command, Random random, Bin[] bins, Bin increment) {
+        switch (command) {
+            case READ:
+                client.get(null, key(keys.next(random)));
+                break;
+            case BATCH_READ:
+                Key[] batch = new Key[policy.batchSize];
+                for (int i = 0; i < batch.length; i++) {
+                    batch[i] = key(keys.next(random));
+                }
+                client.get(null, batch);
+                break;
+            case READ_MODIFY_WRITE:
+                client.operate(null, key(keys.next(random)), Operation.add(increment), Operation.get());
+                break;
+            default:
+                client.put(null, key(keys.next(random)), bins);
+        }
+    }
+
+    /**
+     * @param dice uniform in <code>[0, 100)</code>
+     */
+    private Command kind(int dice) {
+        if (dice < policy.readPercent) {
+            return policy.batchSize <= 1 ? Command.READ : Command.BATCH_READ;
+        }
+        return dice < policy.readPercent + policy.readModifyWritePercent ? Command.READ_MODIFY_WRITE : Command.UPDATE;
+    }
+
+    private Key key(int index) {
+        return new Key(policy.namespace, policy.setName, index);
+    }
+
+    private Bin[] bins() {
+        Bin[] bins = new Bin[policy.binCount];
+        byte[] value = new byte[policy.binSize];
+        ThreadLocalRandom.current().nextBytes(value);
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = new Bin("bin" + i, value);
+        }
+        return bins;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    /**
+     * Run a workload from the command line against a server, or in-process against
+     * {@link MockAerospikeClient} when no host is given. Options follow asbenchmark,
+     * <code>--help</code> lists them.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        WorkloadPolicy policy = new WorkloadPolicy();
+        String host = null;
+        int port = 3000;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("--help")) {
+                System.out.print(USAGE);
+                return;
+            }
+            if (option.equals("-O")) {
+                policy.openLoop = true;
+                continue;
+            }
+            if (option.equals("--no-preload")) {
+                policy.preload = false;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "-h":
+                    host = value;
+                    break;
+                case "-p":
+                    port = Integer.parseInt(value);
+                    break;
+                case "-n":
+                    policy.namespace = value;
+                    break;
+                case "-s":
+                    policy.setName = value;
+                    break;
+                case "-k":
+                    policy.keyCount = Integer.parseInt(value);
+                    break;
+                case "-b":
+                    policy.binCount = Integer.parseInt(value);
+                    break;
+                case "-o":
+                    policy.binSize = Integer.parseInt(value);
+                    break;
+                case "-w":
+                    String[] mix = value.split(",");
+                    if (!mix[0].equals("RU") || mix.length < 2) {
+                        throw new IllegalArgumentException("Workload must be RU,<read%>[,<rmw%>]: " + value);
+                    }
+                    policy.readPercent = Integer.parseInt(mix[1]);
+                    policy.readModifyWritePercent = mix.length > 2 ? Integer.parseInt(mix[2]) : 0;
+                    break;
+                case "-B":
+                    policy.batchSize = Integer.parseInt(value);
+                    break;
+                case "-K":
+                    policy.keyDistribution = value;
+                    break;
+                case "-z":
+                    policy.threads = Integer.parseInt(value);
+                    break;
+                case "-g":
+                    policy.targetThroughput = Integer.parseInt(value);
+                    break;
+                case "-d":
+                    policy.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "-i":
+                    policy.reportIntervalSeconds = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        try (IAerospikeClient client = host == null ? new MockAerospikeClient() : new AerospikeClient(host, port)) {
+            WorkloadReport total = new Workload(client, policy).run(System.out::print);
+            System.out.println("Total:");
+            System.out.print(total);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.srini156.aerospike.client.workload;
+
+/**
+ * Container object for {@link Workload} configuration. Defaults follow asbenchmark.
+ *
+ * @author srinivas.iyengar
+ */
+public class WorkloadPolicy {
+    /**
+     * Namespace of the records. Default: test
+     */
+    public String namespace = "test";
+
+    /**
+     * Set of the records. Default: testset
+     */
+    public String setName = "testset";
+
+    /**
+     * Number of distinct keys, named by integer user key <code>0..keyCount-1</code>.
+     * Default: 100000
+     */
+    public int keyCount = 100000;
+
+    /**
+     * Bins written per record. Default: 1
+     */
+    public int binCount = 1;
+
+    /**
+     * Size in bytes of the blob written to each bin. Default: 100
+     */
+    public int binSize = 100;
+
+    /**
+     * Percentage of commands that read. Default: 50
+     */
+    public int readPercent = 50;
+
+    /**
+     * Percentage of commands that read-modify-write one record with a single
+     * <code>operate</code> (increment a counter bin and read the record back). The rest of the
+     * commands are plain updates. Default: 0
+     */
+    public int readModifyWritePercent;
+
+    /**
+     * Keys per read. Values above 1 turn reads into batch reads. Default: 1
+     */
+    public int batchSize = 1;
+
+    /**
+     * Which keys commands go to. Default: uniform
+     */
+    public String keyDistribution = "uniform";
+
+    /**
+     * Number of threads issuing commands. Default: 16
+     */
+    public int threads = 16;
+
+    /**
+     * Commands per second across all threads, 0 for as fast as possible. Default: 0
+     */
+    public int targetThroughput;
+
+    /**
+     * With a target throughput, issue commands on a fixed schedule whatever the latency and
+     * measure latency from the time a command was due rather than from when it was sent. This
+     * includes the queueing delay a slow server causes and avoids coordinated omission.
+     * Closed-loop threads instead wait for each response before sending the next command.
+     * Default: false
+     */
+    public boolean openLoop;
+
+    /**
+     * Write every key once before the run starts. Default: true
+     */
+    public boolean preload = true;
+
+    /**
+     * Length of the run in seconds. Default: 10
+     */
+    public int durationSeconds = 10;
+
+    /**
+     * Seconds between progress reports. Default: 1
+     */
+    public int reportIntervalSeconds = 1;
+}
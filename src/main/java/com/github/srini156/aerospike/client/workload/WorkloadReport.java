@@ -0,0 +1,94 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput, errors and latency percentiles per command kind, either for one reporting
+ * interval or for a whole run.
+ *
+ * @author srinivas.iyengar
+ */
+public final class WorkloadReport {
+    private final double elapsedSeconds;
+    private final double intervalSeconds;
+    private final Map<Workload.Command, LatencyHistogram> latencies;
+    private final Map<Workload.Command, Long> errors;
+
+    WorkloadReport(double elapsedSeconds, double intervalSeconds, Map<Workload.Command, LatencyHistogram> latencies,
+                   Map<Workload.Command, Long> errors) {
+        this.elapsedSeconds = elapsedSeconds;
+        this.intervalSeconds = intervalSeconds;
+        this.latencies = new EnumMap<>(latencies);
+        this.errors = new EnumMap<>(errors);
+    }
+
+    /**
+     * @return seconds since the run started
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    /**
+     * @return seconds covered by this report
+     */
+    public double getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /**
+     * @return number of successful commands of the given kind
+     */
+    public long getCount(Workload.Command command) {
+        return getLatency(command).getCount();
+    }
+
+    /**
+     * @return number of failed commands of the given kind
+     */
+    public long getErrors(Workload.Command command) {
+        return errors.getOrDefault(command, 0L);
+    }
+
+    /**
+     * @return successful commands of the given kind per second
+     */
+    public double getThroughput(Workload.Command command) {
+        return intervalSeconds > 0 ? getCount(command) / intervalSeconds : 0;
+    }
+
+    /**
+     * @return latencies of the successful commands of the given kind
+     */
+    public LatencyHistogram getLatency(Workload.Command command) {
+        LatencyHistogram latency = latencies.get(command);
+        return latency == null ? new LatencyHistogram() : latency;
+    }
+
+    /**
+     * @return one line per command kind with throughput and p50/p90/p99/p99.9/max latencies in
+     * milliseconds
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Workload.Command command : Workload.Command.values()) {
+            LatencyHistogram latency = getLatency(command);
+            if (latency.getCount() == 0 && getErrors(command) == 0) {
+                continue;
+            }
+            report.append(String.format(Locale.ROOT,
+                    "%8.1fs %-18s tps=%-10.0f errors=%-6d p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f ms%n",
+                    elapsedSeconds, command, getThroughput(command), getErrors(command),
+                    latency.getPercentile(50, TimeUnit.MILLISECONDS),
+                    latency.getPercentile(90, TimeUnit.MILLISECONDS),
+                    latency.getPercentile(99, TimeUnit.MILLISECONDS),
+                    latency.getPercentile(99.9, TimeUnit.MILLISECONDS),
+                    latency.getMax(TimeUnit.MILLISECONDS)));
+        }
+        return report.toString();
+    }
+}
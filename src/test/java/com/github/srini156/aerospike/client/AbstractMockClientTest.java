@@ -0,0 +1,44 @@
+package com.github.srini156.aerospike.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.testng.annotations.AfterMethod;
+
+/**
+ * Base of tests that create mock clients. Every client created by {@link #newClient} or handed
+ * to {@link #closeAfterTest} is closed after each test method, whether it passed or not, so no
+ * job, timer wheel or tomb-raider thread outlives its test.
+ *
+ * @author srinivas.iyengar
+ */
+public abstract class AbstractMockClientTest {
+    private final List<MockAerospikeClient> clients = new ArrayList<>();
+
+    /**
+     * @param customizer sets the policy fields the test needs on a default policy
+     * @return client to be closed after the test method
+     */
+    protected MockAerospikeClient newClient(Consumer<MockClientPolicy> customizer) {
+        MockClientPolicy policy = new MockClientPolicy();
+        customizer.accept(policy);
+        return closeAfterTest(new MockAerospikeClient(policy));
+    }
+
+    /**
+     * @return <code>client</code>, to be closed after the test method, e.g. a fork
+     */
+    protected MockAerospikeClient closeAfterTest(MockAerospikeClient client) {
+        clients.add(client);
+        return client;
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void closeClients() {
+        for (MockAerospikeClient client : clients) {
+            client.close();
+        }
+        clients.clear();
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.srini156.aerospike.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.listener.BatchSequenceListener;
+import com.aerospike.client.listener.ExistsSequenceListener;
+import com.aerospike.client.listener.RecordSequenceListener;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+import com.github.srini156.aerospike.client.sim.FaultRule;
+import com.github.srini156.aerospike.client.sim.LatencyDistribution;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the async batch reads streaming to sequence listeners.
+ *
+ * @author srinivas.iyengar
+ */
+public class AsyncBatchTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+
+    private MockAerospikeClient seededClient(int nodeCount, int records) {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = nodeCount);
+        for (int i = 0; i < records; i++) {
+            client.put(null, new Key(NAMESPACE, "s", i), new Bin("id", i), new Bin("name", "name-" + i));
+        }
+        return client;
+    }
+
+    private static Key[] keys(int count) {
+        Key[] keys = new Key[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new Key(NAMESPACE, "s", i);
+        }
+        return keys;
+    }
+
+    /**
+     * Keeps what a sequence listener was called with.
+     */
+    private static final class Recorder implements RecordSequenceListener, ExistsSequenceListener, BatchSequenceListener {
+        private final long start = System.nanoTime();
+        private final Map<Key, Record> records = new HashMap<>();
+        private final Map<Key, Boolean> exists = new HashMap<>();
+        private final List<BatchRead> batchReads = new ArrayList<>();
+        private long firstMillis = -1;
+        private int successes;
+        private AerospikeException failure;
+
+        private void received() {
+            if (firstMillis < 0) {
+                firstMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onRecord(Key key, Record record) {
+            received();
+            records.put(key, record);
+        }
+
+        @Override
+        public void onExists(Key key, boolean exists) {
+            received();
+            this.exists.put(key, exists);
+        }
+
+        @Override
+        public void onRecord(BatchRead batchRead) {
+            received();
+            batchReads.add(batchRead);
+        }
+
+        @Override
+        public void onSuccess() {
+            successes++;
+        }
+
+        @Override
+        public void onFailure(AerospikeException failure) {
+            this.failure = failure;
+        }
+    }
+
+    @Test
+    public void shouldStreamEveryKey() {
+        MockAerospikeClient client = seededClient(3, 80);
+        Key[] keys = keys(100);
+        Recorder recorder = new Recorder();
+        client.get(null, recorder, null, keys);
+        assertEquals(recorder.successes, 1);
+        assertNull(recorder.failure);
+        assertEquals(recorder.records.size(), 100);
+        for (int i = 0; i < 100; i++) {
+            Record record = recorder.records.get(keys[i]);
+            if (i < 80) {
+                assertEquals(record.getValue("id"), i);
+            } else {
+                assertNull(record);
+            }
+        }
+
+        Recorder exists = new Recorder();
+        client.exists(null, exists, null, keys);
+        assertEquals(exists.successes, 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals((boolean) exists.exists.get(keys[i]), i < 80);
+        }
+
+        Recorder projected = new Recorder();
+        client.get(null, projected, null, keys, "name");
+        assertEquals(projected.records.get(keys[3]).bins.keySet(), new HashSet<>(Arrays.asList("name")));
+
+        Recorder headers = new Recorder();
+        client.getHeader(null, headers, null, keys);
+        assertNull(headers.records.get(keys[3]).bins);
+        assertEquals(headers.records.get(keys[3]).generation, 1);
+    }
+
+    @Test
+    public void shouldHandOverRecordsOfAnsweredNodesFirst() {
+        MockAerospikeClient client = seededClient(4, 200);
+        for (SimulatedNode node : client.getCluster().getNodes()) {
+            node.setFaultRule(new FaultRule().latency(LatencyDistribution.fixed(100, TimeUnit.MILLISECONDS)));
+        }
+        Recorder recorder = new Recorder();
+        long start = System.nanoTime();
+        client.get(null, recorder, null, keys(200));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(recorder.records.size(), 200);
+        // The first record waits for its node only, the batch for every node.
+        assertTrue(recorder.firstMillis >= 95 && recorder.firstMillis < 300, "first " + recorder.firstMillis);
+        assertTrue(elapsed >= 395, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void shouldFailOnNodeError() {
+        MockAerospikeClient client = seededClient(2, 50);
+        Key[] keys = keys(50);
+        SimulatedNode failing = client.getCluster().getMaster(keys[49]);
+        failing.setFaultRule(new FaultRule().error(ResultCode.SERVER_NOT_AVAILABLE, 1.0));
+        Recorder recorder = new Recorder();
+        client.get(null, recorder, null, keys);
+        assertEquals(recorder.successes, 0);
+        assertEquals(recorder.failure.getResultCode(), ResultCode.SERVER_NOT_AVAILABLE);
+        assertTrue(recorder.records.size() < 50);
+        for (Key key : recorder.records.keySet()) {
+            assertNotSame(client.getCluster().getMaster(key), failing);
+        }
+    }
+
+    @Test
+    public void shouldReadBatchKeys() {
+        MockAerospikeClient client = seededClient(2, 10);
+        List<BatchRead> batchReads = Arrays.asList(new BatchRead(new Key(NAMESPACE, "s", 1), true),
+                new BatchRead(new Key(NAMESPACE, "s", 2), new String[]{"name"}),
+                new BatchRead(new Key(NAMESPACE, "s", 3), false),
+                new BatchRead(new Key(NAMESPACE, "s", 20), true));
+        client.get(null, batchReads);
+        assertEquals(batchReads.get(0).record.bins.size(), 2);
+        assertEquals(batchReads.get(1).record.bins.keySet(), new HashSet<>(Arrays.asList("name")));
+        assertNull(batchReads.get(2).record.bins);
+        assertEquals(batchReads.get(2).record.generation, 1);
+        assertNull(batchReads.get(3).record);
+
+        for (BatchRead batchRead : batchReads) {
+            batchRead.record = null;
+        }
+        Recorder recorder = new Recorder();
+        client.get(null, recorder, null, batchReads);
+        assertEquals(recorder.successes, 1);
+        assertEquals(new HashSet<>(recorder.batchReads), new HashSet<>(batchReads));
+        assertEquals(batchReads.get(1).record.getString("name"), "name-2");
+        assertNull(batchReads.get(3).record);
+    }
+}
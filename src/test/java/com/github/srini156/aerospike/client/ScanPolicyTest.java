@@ -0,0 +1,73 @@
+package com.github.srini156.aerospike.client;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.ScanPolicy;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for sampled and throttled scans.
+ *
+ * @author srinivas.iyengar
+ */
+public class ScanPolicyTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "scan";
+    private static final int RECORDS = 10_000;
+    private static final int NODES = 3;
+
+    private MockAerospikeClient seededClient() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = NODES);
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, new Key(NAMESPACE, SET, i), new Bin("id", i));
+        }
+        return client;
+    }
+
+    @Test
+    public void shouldReadScanPercentOfRecords() {
+        MockAerospikeClient client = seededClient();
+        ScanPolicy policy = new ScanPolicy();
+        policy.scanPercent = 10;
+        Set<Object> sampled = new HashSet<>();
+        client.scanAll(policy, NAMESPACE, SET, (key, record) -> assertTrue(sampled.add(record.getValue("id"))));
+
+        // Each node rounds its own share down.
+        assertTrue(sampled.size() > RECORDS / 10 - NODES && sampled.size() <= RECORDS / 10, "Sampled " + sampled.size());
+    }
+
+    @Test
+    public void shouldRejectInvalidScanPercent() {
+        MockAerospikeClient client = seededClient();
+        ScanPolicy policy = new ScanPolicy();
+        policy.scanPercent = 0;
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> client.scanAll(policy, NAMESPACE, SET, (key, record) -> fail()));
+        assertEquals(e.getResultCode(), ResultCode.PARAMETER_ERROR);
+    }
+
+    @Test
+    public void shouldThrottleToRecordsPerSecond() {
+        MockAerospikeClient client = seededClient();
+        ScanPolicy policy = new ScanPolicy();
+        policy.scanPercent = 3;
+        policy.recordsPerSecond = 1000;
+        AtomicInteger count = new AtomicInteger();
+        long start = System.nanoTime();
+        client.scanAll(policy, NAMESPACE, SET, (key, record) -> count.incrementAndGet());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // About 300 records at 1000 per second on each node in turn.
+        assertTrue(count.get() > 290);
+        assertTrue(elapsedMillis >= 200, "Finished in " + elapsedMillis + "ms");
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.srini156.aerospike.client;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.github.srini156.aerospike.client.cluster.SimulatedCluster;
+import com.github.srini156.aerospike.client.cluster.SimulatedNode;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for truncating sets and namespaces.
+ *
+ * @author srinivas.iyengar
+ */
+public class TruncateTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+    private static final int RECORDS = 500;
+
+    private static void load(MockAerospikeClient client, String set) {
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, new Key(NAMESPACE, set, i), new Bin("id", i));
+        }
+    }
+
+    private static int scan(MockAerospikeClient client, String set) {
+        AtomicInteger count = new AtomicInteger();
+        client.scanAll(null, NAMESPACE, set, (key, record) -> count.incrementAndGet());
+        return count.get();
+    }
+
+    private static long recordCount(SimulatedCluster cluster) {
+        long count = 0;
+        for (SimulatedNode node : cluster.getNodes()) {
+            count += node.getRecordCount();
+        }
+        return count;
+    }
+
+    @Test
+    public void shouldTruncateOnlyTheSet() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        load(client, "a");
+        load(client, "b");
+
+        client.truncate(null, NAMESPACE, "a", null);
+
+        // Gone for readers before the background drop.
+        assertNull(client.get(null, new Key(NAMESPACE, "a", 1)));
+        assertFalse(client.exists(null, new Key(NAMESPACE, "a", 2)));
+        assertEquals(scan(client, "a"), 0);
+        assertEquals(scan(client, "b"), RECORDS);
+
+        assertTrue(client.getCluster().awaitTruncations(10, TimeUnit.SECONDS));
+        // One master and one replica copy of each record of set b.
+        assertEquals(recordCount(client.getCluster()), 2 * RECORDS);
+    }
+
+    @Test
+    public void shouldTruncateNamespace() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 1);
+        load(client, "a");
+        load(client, null);
+
+        client.truncate(null, NAMESPACE, null, null);
+
+        assertNull(client.get(null, new Key(NAMESPACE, (String) null, 1)));
+        assertTrue(client.getCluster().awaitTruncations(10, TimeUnit.SECONDS));
+        assertEquals(recordCount(client.getCluster()), 0);
+    }
+
+    @Test
+    public void shouldKeepRecordsUpdatedAfterCutoff() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 2);
+        load(client, "a");
+        Thread.sleep(5);
+        Calendar cutoff = Calendar.getInstance();
+        Thread.sleep(5);
+        Key updated = new Key(NAMESPACE, "a", 7);
+        client.put(null, updated, new Bin("id", -7));
+
+        client.truncate(null, NAMESPACE, "a", cutoff);
+
+        assertEquals(client.get(null, updated).getValue("id"), -7);
+        assertNull(client.get(null, new Key(NAMESPACE, "a", 8)));
+        assertEquals(scan(client, "a"), 1);
+        assertTrue(client.getCluster().awaitTruncations(10, TimeUnit.SECONDS));
+        assertEquals(recordCount(client.getCluster()), 2);
+    }
+
+    @Test
+    public void shouldWriteAfterTruncate() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 1);
+        Key key = new Key(NAMESPACE, "a", 1);
+        client.put(null, key, new Bin("id", 1), new Bin("old", "x"));
+        client.truncate(null, NAMESPACE, "a", null);
+
+        // Appending to a truncated record starts a new one.
+        client.append(null, key, new Bin("name", "new"));
+        assertEquals(client.get(null, key).bins.size(), 1);
+        assertEquals(client.get(null, key).getValue("name"), "new");
+    }
+
+    @Test
+    public void shouldRejectFutureCutoff() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 1);
+        Calendar future = Calendar.getInstance();
+        future.add(Calendar.HOUR, 1);
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> client.truncate(null, NAMESPACE, "a", future));
+        assertEquals(e.getResultCode(), ResultCode.PARAMETER_ERROR);
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.srini156.aerospike.client.cdc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Value;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.CommandType;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the change stream of {@link MockAerospikeClient#subscribe}.
+ *
+ * @author srinivas.iyengar
+ */
+public class ChangeStreamTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "cdc";
+
+    private static Consumer<MockClientPolicy> changes(int bufferSize, ChangeStream.Overflow overflow) {
+        return policy -> {
+            policy.changeBufferSize = bufferSize;
+            policy.changeOverflow = overflow;
+        };
+    }
+
+    private static void awaitCaughtUp(MockAerospikeClient client, ChangeSubscription subscription) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (subscription.getSequence() < client.getCluster().getChanges().getSequence()) {
+            assertTrue(System.nanoTime() < deadline, "Subscriber did not catch up");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void shouldPublishEveryMutation() throws Exception {
+        MockAerospikeClient client = newClient(changes(1024, ChangeStream.Overflow.BLOCK));
+        Key key = new Key(NAMESPACE, SET, 1);
+        client.put(null, key, new Bin("before", 0));
+        assertNull(client.getCluster().getChanges(), "Nothing is allocated before the first subscription");
+
+        List<CommandType> types = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        ChangeSubscription subscription = client.subscribe((event, sequence, endOfBatch) -> {
+            types.add(event.getType());
+            values.add(event.getRecord() == null ? null : event.getRecord().getValue("a"));
+            if (event.getKey() != null) {
+                assertEquals(event.getKey().digest, key.digest);
+                assertEquals(event.getSetName(), SET);
+            }
+        });
+        client.put(null, key, new Bin("a", 1));
+        client.add(null, key, new Bin("a", 2));
+        client.touch(null, key);
+        client.operate(null, key, Operation.put(new Bin("a", 5)));
+        client.delete(null, key);
+        // Deleting a missing record changes nothing.
+        client.delete(null, key);
+        client.truncate(null, NAMESPACE, SET, null);
+        awaitCaughtUp(client, subscription);
+        subscription.close();
+
+        assertEquals(types, Arrays.asList(CommandType.PUT, CommandType.ADD, CommandType.TOUCH, CommandType.OPERATE,
+                CommandType.DELETE, CommandType.TRUNCATE));
+        assertEquals(values, Arrays.asList(1, 3, 3, 5, null, null));
+    }
+
+    @Test
+    public void shouldDeliverConcurrentWritesInOrder() throws Exception {
+        MockAerospikeClient client = newClient(changes(64, ChangeStream.Overflow.BLOCK));
+        int threads = 4;
+        int writes = 5_000;
+        Map<Value, Long> lastValues = new HashMap<>();
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        long[] previous = {-1};
+        ChangeSubscription subscription = client.subscribe((event, sequence, endOfBatch) -> {
+            assertEquals(sequence, previous[0] + 1);
+            previous[0] = sequence;
+            long value = ((Number) event.getRecord().getValue("v")).longValue();
+            Long last = lastValues.put(Value.get(event.getKey().digest), value);
+            assertTrue(last == null || last < value, "Out of order for " + event.getKey());
+            received.incrementAndGet();
+            if (endOfBatch) {
+                batches.incrementAndGet();
+            }
+        });
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < writes; i++) {
+                    client.put(null, new Key(NAMESPACE, SET, thread * 10 + i % 10), new Bin("v", i));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        awaitCaughtUp(client, subscription);
+        subscription.close();
+
+        assertNull(subscription.getFailure());
+        assertEquals(received.get(), threads * writes);
+        assertTrue(batches.get() <= received.get());
+        assertEquals(client.getCluster().getChanges().getDropped(), 0);
+    }
+
+    @Test
+    public void shouldDropEventsWhenFull() throws Exception {
+        MockAerospikeClient client = newClient(changes(16, ChangeStream.Overflow.DROP));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger received = new AtomicInteger();
+        ChangeSubscription subscription = client.subscribe((event, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.incrementAndGet();
+        });
+        for (int i = 0; i < 100; i++) {
+            client.put(null, new Key(NAMESPACE, SET, i), new Bin("v", i));
+        }
+        release.countDown();
+        awaitCaughtUp(client, subscription);
+        subscription.close();
+
+        ChangeStream changes = client.getCluster().getChanges();
+        assertEquals(changes.getCapacity(), 16);
+        assertTrue(changes.getDropped() >= 100 - 16);
+        assertEquals(received.get() + changes.getDropped(), 100);
+    }
+
+    @Test
+    public void shouldDropEventOfInterruptedBlockedWriter() throws Exception {
+        MockAerospikeClient client = newClient(changes(4, ChangeStream.Overflow.BLOCK));
+        CountDownLatch release = new CountDownLatch(1);
+        ChangeSubscription subscription = client.subscribe((event, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                client.put(null, new Key(NAMESPACE, SET, i), new Bin("v", i));
+            }
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        writer.start();
+        ChangeStream changes = client.getCluster().getChanges();
+        // Four events fill the ring, the writer then waits for the stalled subscriber.
+        while (changes.getSequence() < 3) {
+            Thread.sleep(1);
+        }
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(writer.isAlive());
+        assertTrue(interrupted.get());
+        assertTrue(changes.getDropped() > 0);
+        release.countDown();
+        subscription.close();
+    }
+
+    @Test
+    public void shouldEndSubscriptionWhenListenerThrows() throws Exception {
+        MockAerospikeClient client = newClient(changes(4, ChangeStream.Overflow.BLOCK));
+        ChangeSubscription subscription = client.subscribe((event, sequence, endOfBatch) -> {
+            throw new IllegalStateException("Broken consumer");
+        });
+        // Writes must not block on the failed subscriber once it is gone.
+        for (int i = 0; i < 100; i++) {
+            client.put(null, new Key(NAMESPACE, SET, i), new Bin("v", i));
+        }
+        assertTrue(subscription.isClosed());
+        assertEquals(subscription.getFailure().getMessage(), "Broken consumer");
+        assertFalse(client.getCluster().getChanges().hasSubscribers());
+    }
+}
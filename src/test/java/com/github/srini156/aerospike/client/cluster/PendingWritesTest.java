@@ -0,0 +1,155 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.CommandType;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for per-record write queues and <code>KEY_BUSY</code>.
+ *
+ * @author srinivas.iyengar
+ */
+public class PendingWritesTest extends AbstractMockClientTest {
+    private static final Key HOT = new Key("test", "counters", "hot");
+
+    private static int pending(SimulatedCluster cluster) {
+        // A record is only reported once it has been contended, i.e. from its second write on.
+        List<RecordContention> contention = cluster.getContention();
+        return contention.isEmpty() ? 0 : contention.get(0).getPending();
+    }
+
+    private static void awaitPending(SimulatedCluster cluster, int pending) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pending(cluster) != pending) {
+            assertTrue(System.nanoTime() < deadline, "Pending writes: " + pending(cluster));
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void shouldRejectWritesBeyondPendingLimit() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.transactionPendingLimit = 2);
+        SimulatedCluster cluster = client.getCluster();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Record>> writes = new ArrayList<>();
+            writes.add(executor.submit(() -> cluster.write(HOT, CommandType.PUT, current -> {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new Record(null, 1, 0);
+            })));
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 2; i++) {
+                writes.add(executor.submit(() -> cluster.write(HOT, CommandType.PUT, current -> current)));
+                awaitPending(cluster, i + 2);
+            }
+
+            AerospikeException busy = expectThrows(AerospikeException.class,
+                    () -> client.put(null, HOT, new Bin("count", 1)));
+            assertEquals(busy.getResultCode(), ResultCode.KEY_BUSY);
+            // Other records are not affected.
+            client.put(null, new Key("test", "counters", "cold"), new Bin("count", 1));
+
+            release.countDown();
+            for (Future<Record> write : writes) {
+                write.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        RecordContention contention = cluster.getContention().get(0);
+        assertEquals(contention.getKey(), HOT);
+        assertEquals(contention.getPending(), 0);
+        assertEquals(contention.getMaxPending(), 3);
+        assertEquals(contention.getQueued(), 2);
+        assertEquals(contention.getRejected(), 1);
+        assertEquals(cluster.getContention().size(), 1);
+
+        cluster.clearContention();
+        assertTrue(cluster.getContention().isEmpty());
+        client.put(null, HOT, new Bin("count", 2));
+        assertTrue(cluster.getContention().isEmpty());
+    }
+
+    @Test
+    public void shouldTrackMostContendedRecordsOnly() {
+        PendingWrites writes = new PendingWrites(new RecordLocks(1024), 0);
+        for (int i = 0; i < 2 * PendingWrites.TRACKED; i++) {
+            Key key = new Key("test", "counters", i);
+            writes.enter(key);
+            for (int j = 0; j <= i % 3; j++) {
+                writes.enter(key);
+                writes.exit(key);
+            }
+            writes.exit(key);
+        }
+        List<RecordContention> contended = writes.contended();
+        assertEquals(contended.size(), PendingWrites.TRACKED);
+        assertEquals(contended.get(0).getQueued(), 3);
+        assertEquals(contended.get(0).getMaxPending(), 2);
+        assertEquals(contended.get(0).getPending(), 0);
+        writes.clear();
+        assertTrue(writes.contended().isEmpty());
+        assertEquals(new MockClientPolicy().transactionPendingLimit, 0);
+    }
+
+    @Test
+    public void shouldQueueWithoutLimit() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.transactionPendingLimit = 0);
+        SimulatedCluster cluster = client.getCluster();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(40);
+        try {
+            executor.submit(() -> cluster.write(HOT, CommandType.PUT, current -> {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return current;
+            }));
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 39; i++) {
+                writes.add(executor.submit(() -> client.add(null, HOT, new Bin("count", 1))));
+            }
+            awaitPending(cluster, 40);
+            release.countDown();
+            for (Future<?> write : writes) {
+                write.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(client.get(null, HOT).getValue("count"), 39);
+        assertEquals(cluster.getContention().get(0).getRejected(), 0);
+    }
+}
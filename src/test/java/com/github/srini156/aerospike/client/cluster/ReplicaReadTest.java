@@ -0,0 +1,128 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.Replica;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.sim.FaultRule;
+import com.github.srini156.aerospike.client.sim.LatencyDistribution;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for replica selection of reads against a simulated cluster.
+ *
+ * @author srinivas.iyengar
+ */
+public class ReplicaReadTest extends AbstractMockClientTest {
+    private final Key key = new Key("test", "replica", "key");
+
+    private static Policy readPolicy(Replica replica) {
+        Policy policy = new Policy();
+        policy.replica = replica;
+        return policy;
+    }
+
+    private SimulatedNode prole(MockAerospikeClient client) {
+        List<SimulatedNode> replicas = client.getCluster().getReplicas(SimulatedCluster.partitionId(key));
+        assertEquals(replicas.size(), 2);
+        return replicas.get(1);
+    }
+
+    @Test
+    public void shouldReadFromMaster() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        client.put(null, key, new Bin("bin", "value"));
+        prole(client).setReplicationLag(1, TimeUnit.HOURS);
+        client.put(null, key, new Bin("bin", "updated"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(client.get(readPolicy(Replica.MASTER), key).bins.get("bin"), "updated");
+        }
+    }
+
+    @Test
+    public void shouldExposeReadYourWriteGapOnLaggingProle() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        client.put(null, key, new Bin("bin", "value"));
+        SimulatedNode prole = prole(client).setReplicationLag(200, TimeUnit.MILLISECONDS);
+        client.put(null, key, new Bin("bin", "updated"));
+        assertEquals(prole.getPendingReplicaWrites(), 1);
+
+        int stale = 0;
+        for (int i = 0; i < 10; i++) {
+            if ("value".equals(client.get(readPolicy(Replica.MASTER_PROLES), key).bins.get("bin"))) {
+                stale++;
+            }
+        }
+        assertEquals(stale, 5);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (prole.getPendingReplicaWrites() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(client.get(readPolicy(Replica.MASTER_PROLES), key).bins.get("bin"), "updated");
+        }
+    }
+
+    @Test
+    public void shouldFailOverToProleWhenMasterIsDown() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        client.put(null, key, new Bin("bin", "value"));
+        SimulatedNode master = client.getCluster().getMaster(key).setAvailable(false);
+
+        assertEquals(client.get(readPolicy(Replica.SEQUENCE), key).bins.get("bin"), "value");
+        AerospikeException ae = expectThrows(AerospikeException.class,
+                () -> client.get(readPolicy(Replica.MASTER), key));
+        assertEquals(ae.getResultCode(), ResultCode.SERVER_NOT_AVAILABLE);
+        ae = expectThrows(AerospikeException.class, () -> client.put(null, key, new Bin("bin", "updated")));
+        assertEquals(ae.getResultCode(), ResultCode.SERVER_NOT_AVAILABLE);
+
+        master.setAvailable(true);
+        assertEquals(client.get(readPolicy(Replica.MASTER), key).bins.get("bin"), "value");
+    }
+
+    @Test
+    public void shouldRetrySlowMasterOnProle() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 2);
+        client.put(null, key, new Bin("bin", "value"));
+        client.getCluster().getMaster(key).setFaultRule(new FaultRule()
+                .latency(LatencyDistribution.fixed(1, TimeUnit.SECONDS)));
+        Policy policy = readPolicy(Replica.SEQUENCE);
+        policy.socketTimeout = 20;
+        policy.maxRetries = 1;
+        long start = System.nanoTime();
+        assertEquals(client.get(policy, key).bins.get("bin"), "value");
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 19 && elapsed < 500, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void shouldPreferLocalRack() {
+        MockAerospikeClient client = newClient(policy -> {
+            policy.nodeCount = 2;
+            policy.rackAware = true;
+            policy.rackId = 2;
+        });
+        client.put(null, key, new Bin("bin", "value"));
+        SimulatedNode master = client.getCluster().getMaster(key).setRackId(1);
+        SimulatedNode prole = prole(client).setRackId(2).setReplicationLag(1, TimeUnit.HOURS);
+        assertNotSame(master, prole);
+        client.put(null, key, new Bin("bin", "updated"));
+
+        // The prole is in the client's rack, so it serves the read and misses the update.
+        assertEquals(client.get(readPolicy(Replica.PREFER_RACK), key).bins.get("bin"), "value");
+        assertEquals(client.get(readPolicy(Replica.SEQUENCE), key).bins.get("bin"), "updated");
+
+        prole.setAvailable(false);
+        assertEquals(client.get(readPolicy(Replica.PREFER_RACK), key).bins.get("bin"), "updated");
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.cluster.Partitions;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the simulated multi-node cluster.
+ *
+ * @author srinivas.iyengar
+ */
+public class SimulatedClusterTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "cluster";
+    private static final int RECORDS = 2000;
+
+    private static Key key(int i) {
+        return new Key(NAMESPACE, SET, "key-" + i);
+    }
+
+    private static void load(MockAerospikeClient client) {
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, key(i), new Bin("id", i));
+        }
+    }
+
+    private static Set<Object> scanIds(MockAerospikeClient client, Node node) {
+        Set<Object> ids = new HashSet<>();
+        client.scanNode(null, node, NAMESPACE, SET, (key, record) -> {
+            synchronized (ids) {
+                assertTrue(ids.add(record.bins.get("id")), "duplicate " + record.bins);
+            }
+        });
+        return ids;
+    }
+
+    @Test
+    public void shouldExposeNodes() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        Node[] nodes = client.getNodes();
+        assertEquals(nodes.length, 3);
+        List<String> names = client.getNodeNames();
+        assertEquals(names.size(), 3);
+        for (Node node : nodes) {
+            assertTrue(names.contains(node.getName()));
+            assertSame(client.getNode(node.getName()), node);
+        }
+        expectThrows(AerospikeException.InvalidNode.class, () -> client.getNode("missing"));
+    }
+
+    @Test
+    public void shouldPublishPartitionOwnership() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        SimulatedCluster cluster = client.getCluster();
+        client.put(null, key(0), new Bin("id", 0));
+        Partitions partitions = cluster.getClientCluster().partitionMap.get(NAMESPACE);
+        assertNotNull(partitions);
+        int owned = 0;
+        for (SimulatedNode node : cluster.getNodes()) {
+            List<Integer> masterPartitions = cluster.getMasterPartitions(node);
+            assertFalse(masterPartitions.isEmpty());
+            owned += masterPartitions.size();
+            for (int partitionId : masterPartitions) {
+                assertSame(partitions.replicas[0].get(partitionId), node.getNode());
+                Node prole = partitions.replicas[1].get(partitionId);
+                assertNotNull(prole);
+                assertNotSame(prole, node.getNode());
+            }
+        }
+        assertEquals(owned, SimulatedCluster.PARTITIONS);
+    }
+
+    @Test
+    public void shouldReplicateWrites() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        load(client);
+        long copies = 0;
+        for (SimulatedNode node : client.getCluster().getNodes()) {
+            copies += node.getRecordCount();
+        }
+        assertEquals(copies, 2L * RECORDS);
+    }
+
+    @Test
+    public void shouldScanOnlyOwnedPartitions() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        load(client);
+        Set<Object> all = new HashSet<>();
+        for (Node node : client.getNodes()) {
+            Set<Object> ids = scanIds(client, node);
+            assertTrue(ids.size() < RECORDS, "node scanned " + ids.size());
+            for (Object id : ids) {
+                assertTrue(all.add(id), "scanned twice " + id);
+            }
+        }
+        assertEquals(all.size(), RECORDS);
+
+        Set<Object> scanned = new HashSet<>();
+        client.scanAll(null, NAMESPACE, SET, (key, record) -> scanned.add(record.bins.get("id")));
+        assertEquals(scanned, all);
+    }
+
+    @Test
+    public void shouldQueryNode() {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 2);
+        load(client);
+        Statement statement = new Statement();
+        statement.setNamespace(NAMESPACE);
+        statement.setSetName(SET);
+        statement.setFilter(Filter.range("id", 100, 199));
+        int total = 0;
+        for (Node node : client.getNodes()) {
+            int count = 0;
+            try (RecordSet recordSet = client.queryNode(null, statement, node)) {
+                while (recordSet.next()) {
+                    long id = (Integer) recordSet.getRecord().bins.get("id");
+                    assertTrue(id >= 100 && id <= 199);
+                    count++;
+                }
+            }
+            assertTrue(count < 100);
+            total += count;
+        }
+        assertEquals(total, 100);
+    }
+
+    @Test
+    public void shouldMigrateWhenNodesJoinAndLeave() throws Exception {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = 3);
+        SimulatedCluster cluster = client.getCluster();
+        load(client);
+
+        // Rolling restart: replace every node one at a time while writing.
+        for (String nodeName : client.getNodeNames()) {
+            cluster.removeNode(nodeName);
+            for (int i = 0; i < RECORDS; i += 10) {
+                client.put(null, key(i), new Bin("id", i), new Bin("restarted", nodeName));
+            }
+            cluster.addNode();
+            assertTrue(cluster.awaitMigrations(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(client.getNodes().length, 3);
+        long copies = 0;
+        for (SimulatedNode node : cluster.getNodes()) {
+            assertFalse(cluster.getMasterPartitions(node).isEmpty());
+            copies += node.getRecordCount();
+        }
+        assertEquals(copies, 2L * RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals(client.get(null, key(i)).bins.get("id"), i);
+        }
+        Set<Object> all = new HashSet<>();
+        for (Node node : client.getNodes()) {
+            all.addAll(scanIds(client, node));
+        }
+        assertEquals(all.size(), RECORDS);
+    }
+}
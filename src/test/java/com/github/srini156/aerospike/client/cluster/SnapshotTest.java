@@ -0,0 +1,141 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.Replica;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for snapshots, restores and forks of the simulated cluster.
+ *
+ * @author srinivas.iyengar
+ */
+public class SnapshotTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "base";
+    private static final int RECORDS = 2000;
+
+    private MockAerospikeClient seededClient(int nodeCount) {
+        MockAerospikeClient client = newClient(policy -> policy.nodeCount = nodeCount);
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, key(i), new Bin("id", i));
+        }
+        return client;
+    }
+
+    private static Key key(int i) {
+        return new Key(NAMESPACE, SET, i);
+    }
+
+    private static void mutate(MockAerospikeClient client) {
+        for (int i = 0; i < 100; i++) {
+            client.put(null, key(i), new Bin("id", -i));
+            client.delete(null, key(100 + i));
+            client.put(null, key(RECORDS + i), new Bin("id", i));
+        }
+        client.put(null, new Key(NAMESPACE, "other", 1), new Bin("id", 1));
+        client.truncate(null, NAMESPACE, SET, null);
+    }
+
+    private static void assertBase(MockAerospikeClient client) {
+        Policy proles = new Policy();
+        proles.replica = Replica.MASTER_PROLES;
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals(client.get(null, key(i)).getValue("id"), i);
+            assertEquals(client.get(proles, key(i)).getValue("id"), i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertNull(client.get(null, key(RECORDS + i)));
+        }
+        assertNull(client.get(null, new Key(NAMESPACE, "other", 1)));
+        AtomicInteger scanned = new AtomicInteger();
+        client.scanAll(null, NAMESPACE, SET, (key, record) -> scanned.incrementAndGet());
+        assertEquals(scanned.get(), RECORDS);
+    }
+
+    @Test
+    public void shouldRestoreRepeatedly() throws Exception {
+        MockAerospikeClient client = seededClient(3);
+        Snapshot snapshot = client.snapshot();
+        assertEquals(snapshot.size(), RECORDS);
+
+        for (int scenario = 0; scenario < 3; scenario++) {
+            mutate(client);
+            assertNull(client.get(null, key(0)));
+            client.getCluster().awaitTruncations(10, TimeUnit.SECONDS);
+            client.restore(snapshot);
+            assertBase(client);
+        }
+    }
+
+    @Test
+    public void shouldIsolateForks() {
+        MockAerospikeClient client = seededClient(3);
+        MockAerospikeClient fork = closeAfterTest(client.fork());
+        assertBase(fork);
+
+        mutate(fork);
+        assertBase(client);
+
+        client.put(null, key(RECORDS + 1000), new Bin("id", 1));
+        assertNull(fork.get(null, key(RECORDS + 1000)));
+    }
+
+    @Test
+    public void shouldKeepStoreApartFromReturnedRecords() {
+        MockAerospikeClient client = seededClient(1);
+        Snapshot snapshot = client.snapshot();
+        MockAerospikeClient fork = closeAfterTest(client.fork());
+
+        client.get(null, key(1)).bins.put("id", 42);
+        client.get(null, key(1)).bins.put("extra", 1);
+        client.get(null, new Key[]{key(1)})[0].bins.remove("id");
+        client.operate(null, key(2), Operation.get()).bins.put("id", 42);
+        client.scanAll(null, NAMESPACE, SET, (key, record) -> record.bins.put("id", 42));
+
+        assertEquals(client.get(null, key(1)).bins, Collections.singletonMap("id", 1));
+        assertEquals(client.get(null, key(2)).getValue("id"), 2);
+        assertEquals(fork.get(null, key(1)).bins, Collections.singletonMap("id", 1));
+        fork.restore(snapshot);
+        assertBase(fork);
+        client.restore(snapshot);
+        assertBase(client);
+    }
+
+    @Test
+    public void shouldForkIntoClusterOfAnotherSize() {
+        MockAerospikeClient client = seededClient(3);
+        Snapshot snapshot = client.snapshot();
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.nodeCount = 5;
+        SimulatedCluster cluster = new SimulatedCluster(policy, snapshot);
+        try {
+            long records = 0;
+            for (SimulatedNode node : cluster.getNodes()) {
+                records += node.getRecordCount();
+            }
+            // Every partition has a master and one replica.
+            assertEquals(records, 2L * RECORDS);
+            assertEquals(cluster.read(key(7)).getValue("id"), 7);
+        } finally {
+            cluster.close();
+        }
+    }
+
+    @Test
+    public void shouldRejectSnapshotOfUnrelatedCluster() {
+        Snapshot snapshot = seededClient(1).snapshot();
+        expectThrows(IllegalArgumentException.class, () -> seededClient(1).restore(snapshot));
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.srini156.aerospike.client.cluster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.WritePolicy;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.store.StorageEngine;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the tombstones of durable deletes and the tomb-raider removing them.
+ *
+ * @author srinivas.iyengar
+ */
+public class TombstoneTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "graves";
+
+    private static final WritePolicy DURABLE = new WritePolicy();
+
+    static {
+        DURABLE.durableDelete = true;
+    }
+
+    @DataProvider
+    public static Object[][] engines() {
+        return new Object[][]{{StorageEngine.index()}, {StorageEngine.hashMap()}};
+    }
+
+    private static Consumer<MockClientPolicy> policy(int nodeCount, StorageEngine engine, long eligibleAgeMillis) {
+        return policy -> {
+            policy.nodeCount = nodeCount;
+            policy.storageEngine = engine;
+            policy.tombRaiderEligibleAgeMillis = eligibleAgeMillis;
+            policy.tombRaiderPeriodMillis = 0;
+        };
+    }
+
+    private static Key key(int i) {
+        return new Key(NAMESPACE, SET, i);
+    }
+
+    private static int scan(MockAerospikeClient client) {
+        AtomicInteger scanned = new AtomicInteger();
+        client.scanAll(null, NAMESPACE, SET, (key, record) -> scanned.incrementAndGet());
+        return scanned.get();
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldHideTombstones(StorageEngine engine) {
+        MockAerospikeClient client = newClient(policy(1, engine, 0));
+        for (int i = 0; i < 1000; i++) {
+            client.put(null, key(i), new Bin("id", i));
+        }
+        for (int i = 0; i < 900; i++) {
+            assertTrue(client.delete(DURABLE, key(i)));
+        }
+        assertFalse(client.delete(DURABLE, key(0)));
+        assertNull(client.get(null, key(0)));
+        assertFalse(client.exists(null, key(0)));
+        assertEquals(client.get(null, key(900)).getValue("id"), 900);
+        assertEquals(scan(client), 100);
+
+        SimulatedNode node = client.getCluster().getNodes().get(0);
+        assertEquals(node.getRecordCount(), 100);
+        assertEquals(node.getTombstoneCount(), 900);
+    }
+
+    @Test
+    public void shouldContinueGenerationAfterDurableDelete() {
+        MockAerospikeClient client = newClient(policy(2, StorageEngine.index(), 0));
+        client.put(null, key(1), new Bin("id", 1));
+        client.put(null, key(1), new Bin("id", 2));
+        client.delete(DURABLE, key(1));
+        client.put(null, key(1), new Bin("id", 3));
+        assertEquals(client.get(null, key(1)).generation, 4);
+        assertEquals(client.getCluster().getTombstoneCount(), 0);
+
+        client.put(null, key(2), new Bin("id", 1));
+        client.delete(null, key(2));
+        client.put(null, key(2), new Bin("id", 2));
+        assertEquals(client.get(null, key(2)).generation, 1);
+    }
+
+    @Test
+    public void shouldLeaveNoTombstoneForNonDurableDelete() {
+        MockAerospikeClient client = newClient(policy(2, StorageEngine.index(), 0));
+        client.put(null, key(1), new Bin("id", 1));
+        client.delete(DURABLE, key(2));
+        assertTrue(client.delete(null, key(1)));
+        assertEquals(client.getCluster().getTombstoneCount(), 0);
+
+        client.put(null, key(3), new Bin("id", 1));
+        client.delete(DURABLE, key(3));
+        assertEquals(client.getCluster().getTombstoneCount(), 2);
+        // Deleting what is only a tombstone changes nothing.
+        assertFalse(client.delete(null, key(3)));
+        assertEquals(client.getCluster().getTombstoneCount(), 2);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldRaidEligibleTombstones(StorageEngine engine) {
+        MockAerospikeClient client = newClient(policy(2, engine, 0));
+        for (int i = 0; i < 100; i++) {
+            client.put(null, key(i), new Bin("id", i));
+            client.delete(DURABLE, key(i));
+        }
+        assertEquals(client.getCluster().getTombstoneCount(), 200);
+        assertEquals(client.getCluster().raidTombstones(), 200);
+        assertEquals(client.getCluster().getTombstoneCount(), 0);
+        assertEquals(client.getCluster().raidTombstones(), 0);
+
+        client = newClient(policy(2, engine, TimeUnit.DAYS.toMillis(1)));
+        client.put(null, key(1), new Bin("id", 1));
+        client.delete(DURABLE, key(1));
+        assertEquals(client.getCluster().raidTombstones(), 0);
+        assertEquals(client.getCluster().getTombstoneCount(), 2);
+    }
+
+    @Test
+    public void shouldRaidInBackground() throws Exception {
+        MockAerospikeClient client = newClient(policy -> {
+            policy.tombRaiderEligibleAgeMillis = 0;
+            policy.tombRaiderPeriodMillis = 10;
+        });
+        client.put(null, key(1), new Bin("id", 1));
+        client.delete(DURABLE, key(1));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (client.getCluster().getTombstoneCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(client.getCluster().getTombstoneCount(), 0);
+    }
+
+    @Test
+    public void shouldMigrateTombstones() throws Exception {
+        MockAerospikeClient client = newClient(policy(1, StorageEngine.index(), 0));
+        for (int i = 0; i < 500; i++) {
+            client.put(null, key(i), new Bin("id", i));
+            client.delete(DURABLE, key(i));
+        }
+        SimulatedCluster cluster = client.getCluster();
+        cluster.addNode();
+        assertTrue(cluster.awaitMigrations(10, TimeUnit.SECONDS));
+        assertEquals(cluster.getTombstoneCount(), 1000);
+        assertEquals(scan(client), 0);
+        for (int i = 0; i < 500; i++) {
+            client.put(null, key(i), new Bin("id", i));
+            assertEquals(client.get(null, key(i)).generation, 3);
+        }
+        assertEquals(cluster.getTombstoneCount(), 0);
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.srini156.aerospike.client.job;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for background jobs started by execute with a statement.
+ *
+ * @author srinivas.iyengar
+ */
+public class BackgroundJobTest {
+    private static final int RECORDS = 200;
+
+    private MockAerospikeClient client;
+
+    @BeforeClass
+    public void setUp() {
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.nodeCount = 2;
+        client = new MockAerospikeClient(policy);
+        client.registerUdf("jobs", "double", (rec, args) -> {
+            rec.put("id", (Long) rec.get("id") * 2);
+            rec.update();
+            return null;
+        });
+    }
+
+    @AfterClass
+    public void tearDown() {
+        client.close();
+    }
+
+    private void load(String set) {
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, new Key("test", set, i), new Bin("id", (long) i));
+        }
+    }
+
+    private static Statement statement(String set) {
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName(set);
+        return statement;
+    }
+
+    @Test
+    public void shouldApplyOperationsToMatchingRecords() {
+        load("ops");
+        Statement statement = statement("ops");
+        statement.setFilter(Filter.range("id", 0, 49));
+        ExecuteTask task = client.execute(null, statement, Operation.put(new Bin("flag", "set")));
+        task.waitTillComplete(10, 10_000);
+        assertTrue(task.isDone());
+        for (int i = 0; i < RECORDS; i++) {
+            Record record = client.get(null, new Key("test", "ops", i));
+            assertEquals(record.getValue("flag"), i < 50 ? "set" : null);
+            assertEquals(record.getLong("id"), i);
+        }
+        BackgroundJob job = client.getJob(statement.getTaskId());
+        assertFalse(job.isScan());
+        assertEquals(job.getRecordsSucceeded(), 50);
+        assertEquals(job.getProgress(), 100);
+    }
+
+    @Test
+    public void shouldApplyUdfToEveryRecordOfSet() {
+        load("udf");
+        Statement statement = statement("udf");
+        ExecuteTask task = client.execute(null, statement, "jobs", "double");
+        task.waitTillComplete(10, 10_000);
+        for (int i = 0; i < RECORDS; i++) {
+            assertEquals(client.get(null, new Key("test", "udf", i)).getLong("id"), 2L * i);
+        }
+        BackgroundJob job = client.getJob(statement.getTaskId());
+        assertTrue(job.isScan());
+        assertEquals(job.getRecordsSucceeded(), RECORDS);
+    }
+
+    @Test
+    public void shouldCountFailedRecords() {
+        load("failing");
+        Statement statement = statement("failing");
+        client.execute(null, statement, "jobs", "missing").waitTillComplete(10, 10_000);
+        BackgroundJob job = client.getJob(statement.getTaskId());
+        assertEquals(job.getRecordsFailed(), RECORDS);
+        assertEquals(job.getRecordsSucceeded(), 0);
+    }
+
+    @Test
+    public void shouldThrottleToRecordsPerSecond() throws InterruptedException {
+        load("throttled");
+        Statement statement = statement("throttled");
+        statement.setRecordsPerSecond(500);
+        long start = System.nanoTime();
+        ExecuteTask task = client.execute(null, statement, Operation.put(new Bin("flag", 1)));
+        assertFalse(task.isDone());
+        BackgroundJob job = client.getJob(statement.getTaskId());
+        assertTrue(job.await(10, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 200 records at 500 per second take about 400ms.
+        assertTrue(elapsedMillis >= 300, "Finished in " + elapsedMillis + "ms");
+        assertTrue(task.isDone());
+        assertEquals(job.getRecordsSucceeded(), RECORDS);
+    }
+
+    @Test
+    public void shouldCountRuntimeExceptionsAsFailedRecords() throws InterruptedException {
+        BackgroundJobs jobs = new BackgroundJobs(2);
+        BackgroundJob job = jobs.submit(1, true, Arrays.asList(0, 1), 0, new BackgroundJobs.Work() {
+            @Override
+            public void scan(int partitionId, Consumer<Key> keys) {
+                for (int i = 0; i < 10; i++) {
+                    keys.accept(new Key("test", "odd", partitionId * 10 + i));
+                }
+            }
+
+            @Override
+            public void apply(Key key) {
+                if (key.userKey.toInteger() % 2 == 1) {
+                    throw new IllegalStateException("odd");
+                }
+            }
+        });
+        assertTrue(job.await(10, TimeUnit.SECONDS));
+        assertFalse(job.isAbandoned());
+        assertEquals(job.getRecordsSucceeded(), 10);
+        assertEquals(job.getRecordsFailed(), 10);
+        jobs.close();
+    }
+
+    @Test
+    public void shouldAbandonJobWhoseScanFails() throws InterruptedException {
+        BackgroundJobs jobs = new BackgroundJobs(2);
+        BackgroundJob job = jobs.submit(1, true, Arrays.asList(0, 1, 2), 0, new BackgroundJobs.Work() {
+            @Override
+            public void scan(int partitionId, Consumer<Key> keys) {
+                if (partitionId == 1) {
+                    throw new IllegalArgumentException("bad filter");
+                }
+            }
+
+            @Override
+            public void apply(Key key) {
+            }
+        });
+        assertTrue(job.await(10, TimeUnit.SECONDS));
+        assertTrue(job.isAbandoned());
+        assertEquals(job.getFailure().getMessage(), "bad filter");
+        jobs.close();
+    }
+
+    @Test
+    public void shouldStopOtherWorkersOfFailedJob() throws InterruptedException {
+        BackgroundJobs jobs = new BackgroundJobs(2);
+        CountDownLatch applying = new CountDownLatch(1);
+        AtomicInteger applied = new AtomicInteger();
+        BackgroundJob job = jobs.submit(1, true, Arrays.asList(0, 1, 2, 3), 0, new BackgroundJobs.Work() {
+            @Override
+            public void scan(int partitionId, Consumer<Key> keys) {
+                if (partitionId == 0) {
+                    try {
+                        applying.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("node down");
+                }
+                for (int i = 0; i < 1000; i++) {
+                    keys.accept(new Key("test", "jobs", partitionId * 1000 + i));
+                }
+            }
+
+            @Override
+            public void apply(Key key) {
+                applying.countDown();
+                applied.incrementAndGet();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(job.await(10, TimeUnit.SECONDS));
+        assertTrue(job.isAbandoned());
+        Thread.sleep(50);
+        int stopped = applied.get();
+        Thread.sleep(50);
+        assertEquals(applied.get(), stopped);
+        assertTrue(stopped < 3000, "applied " + stopped);
+        jobs.close();
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.srini156.aerospike.client.nearcache;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.stats.HotKeys;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the near cache in front of a mock client.
+ *
+ * @author srinivas.iyengar
+ */
+public class NearCacheClientTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "cached";
+
+    private static MockAerospikeClient newServer() {
+        MockClientPolicy policy = new MockClientPolicy();
+        // Counts the reads that reach the server.
+        policy.hotKeys = 1;
+        return new MockAerospikeClient(policy);
+    }
+
+    private static long serverReads(MockAerospikeClient server) {
+        HotKeys hotKeys = server.getCluster().getHotKeys();
+        return hotKeys.getReads();
+    }
+
+    private static Key key(int i) {
+        return new Key(NAMESPACE, SET, i);
+    }
+
+    @Test
+    public void shouldServeRepeatedReadsFromCache() {
+        MockAerospikeClient server = newServer();
+        NearCacheClient client = new NearCacheClient(server);
+        client.put(null, key(1), new Bin("a", 1), new Bin("b", "x"));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(client.get(null, key(1)).getValue("a"), 1);
+        }
+        assertEquals(client.get(null, key(1), "b").bins.size(), 1);
+        assertTrue(client.exists(null, key(1)));
+        assertEquals(client.getHeader(null, key(1)).generation, 1);
+        assertEquals(serverReads(server), 1);
+        assertEquals(client.getMisses(), 1);
+        assertEquals(client.getHits(), 102);
+
+        assertNull(client.get(null, key(2)));
+        assertNull(client.get(null, key(2)));
+        assertEquals(serverReads(server), 3);
+    }
+
+    @Test
+    public void shouldWriteThrough() {
+        MockAerospikeClient server = newServer();
+        NearCacheClient client = new NearCacheClient(server);
+        client.put(null, key(1), new Bin("a", 1));
+        assertEquals(client.get(null, key(1)).getValue("a"), 1);
+
+        client.put(null, key(1), new Bin("a", 2));
+        assertEquals(server.get(null, key(1)).getValue("a"), 2);
+        assertEquals(client.get(null, key(1)).getValue("a"), 2);
+
+        Record operated = client.operate(null, key(1), Operation.put(new Bin("a", 3)), Operation.get("a"));
+        assertEquals(operated.getValue("a"), 3);
+        assertEquals(client.get(null, key(1)).generation, 3);
+
+        assertTrue(client.delete(null, key(1)));
+        assertNull(client.get(null, key(1)));
+        assertFalse(client.exists(null, key(1)));
+
+        client.put(null, key(2), new Bin("a", 1));
+        client.get(null, key(2));
+        client.truncate(null, NAMESPACE, SET, null);
+        assertEquals(client.getCachedRecords(), 0);
+    }
+
+    @Test
+    public void shouldRevalidateGeneration() throws Exception {
+        MockAerospikeClient server = newServer();
+        NearCachePolicy policy = new NearCachePolicy();
+        policy.revalidateMillis = 1;
+        NearCacheClient client = new NearCacheClient(server, policy);
+        NearCacheClient trusting = new NearCacheClient(server);
+        client.put(null, key(1), new Bin("a", 1));
+        assertEquals(client.get(null, key(1)).getValue("a"), 1);
+        assertEquals(trusting.get(null, key(1)).getValue("a"), 1);
+
+        // Written by another client, bypassing both caches.
+        server.put(null, key(1), new Bin("a", 2));
+        Thread.sleep(5);
+        assertEquals(trusting.get(null, key(1)).getValue("a"), 1);
+        assertEquals(client.get(null, key(1)).getValue("a"), 2);
+
+        // Unchanged records are served after a header read.
+        Thread.sleep(5);
+        assertEquals(client.get(null, key(1)).getValue("a"), 2);
+        assertEquals(client.getHits(), 1);
+    }
+
+    @Test
+    public void shouldExpireWithTtl() throws Exception {
+        MockAerospikeClient server = newServer();
+        NearCachePolicy policy = new NearCachePolicy();
+        policy.maxTtl = 1;
+        NearCacheClient client = new NearCacheClient(server, policy);
+        client.put(null, key(1), new Bin("a", 1));
+        client.get(null, key(1));
+        client.get(null, key(1));
+        assertEquals(client.getMisses(), 1);
+        Thread.sleep(1100);
+        client.get(null, key(1));
+        assertEquals(client.getMisses(), 2);
+    }
+
+    @Test
+    public void shouldMergeBatchWithCache() {
+        MockAerospikeClient server = newServer();
+        NearCacheClient client = new NearCacheClient(server);
+        Key[] keys = new Key[10];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(i);
+            if (i % 3 != 0) {
+                client.put(null, keys[i], new Bin("a", i));
+            }
+        }
+        client.get(null, key(1));
+        client.get(null, key(2));
+
+        Record[] records = client.get((BatchPolicy) null, keys);
+        for (int i = 0; i < keys.length; i++) {
+            if (i % 3 == 0) {
+                assertNull(records[i]);
+            } else {
+                assertEquals(records[i].getValue("a"), i);
+            }
+        }
+        assertEquals(client.getHits(), 2);
+        assertEquals(client.getCachedRecords(), 6);
+
+        boolean[] exists = client.exists((BatchPolicy) null, keys);
+        Record[] headers = client.getHeader((BatchPolicy) null, keys);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(exists[i], i % 3 != 0);
+            assertEquals(headers[i] != null, i % 3 != 0);
+        }
+    }
+
+    @Test
+    public void shouldKeepFrequentlyReadRecordsThroughScans() {
+        MockAerospikeClient server = newServer();
+        NearCachePolicy policy = new NearCachePolicy();
+        policy.maxRecords = 100;
+        NearCacheClient client = new NearCacheClient(server, policy);
+        WritePolicy writePolicy = new WritePolicy();
+        for (int i = 0; i < 2000; i++) {
+            server.put(writePolicy, key(i), new Bin("a", i));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                client.get(null, key(i));
+            }
+        }
+        long misses = client.getMisses();
+        // A one-off pass over cold records.
+        for (int i = 1000; i < 2000; i++) {
+            client.get(null, key(i));
+        }
+        assertEquals(client.getCachedRecords(), 100);
+        assertTrue(client.getEvictions() > 0);
+
+        long before = client.getMisses();
+        for (int i = 0; i < 50; i++) {
+            client.get(null, key(i));
+        }
+        assertEquals(misses, 50);
+        assertEquals(client.getMisses() - before, 0);
+    }
+}
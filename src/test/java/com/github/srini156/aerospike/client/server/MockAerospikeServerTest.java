@@ -0,0 +1,219 @@
+package com.github.srini156.aerospike.client.server;
+
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Host;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.command.Buffer;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.github.srini156.aerospike.client.BaseAerospikeClientTest;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.sim.FaultRule;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the BaseTests with the real AerospikeClient against {@link MockAerospikeServer}, plus
+ * multi-record commands and a multi-node cluster over the wire.
+ *
+ * @author srinivas.iyengar
+ */
+public class MockAerospikeServerTest extends BaseAerospikeClientTest {
+    private static final String SET = "server";
+    private static final int RECORDS = 500;
+
+    private final MockAerospikeServer server;
+
+    /**
+     * Default Constructor.
+     */
+    public MockAerospikeServerTest() {
+        this(start(1));
+    }
+
+    private MockAerospikeServerTest(MockAerospikeServer server) {
+        super(new AerospikeClient(new ClientPolicy(), server.getHosts()));
+        this.server = server;
+    }
+
+    private static MockAerospikeServer start(int nodeCount) {
+        MockClientPolicy clientPolicy = new MockClientPolicy();
+        clientPolicy.nodeCount = nodeCount;
+        MockServerPolicy policy = new MockServerPolicy();
+        policy.port = 0;
+        policy.ioThreads = 2;
+        // Small buffers so scans span several proto groups.
+        policy.bufferSize = 4096;
+        return new MockAerospikeServer(new MockAerospikeClient(clientPolicy), policy).start();
+    }
+
+    private static void load(AerospikeClient client) {
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, new Key("test", SET, "key-" + i), new Bin("id", i), new Bin("name", "name-" + i));
+        }
+    }
+
+    @Test
+    public void shouldShareRecordsWithMockClient() {
+        Key key = new Key("test", SET, "shared");
+        server.getClient().put(null, key, new Bin("a", "mock"));
+        assertEquals(aerospikeClient.get(null, key).bins.get("a"), "mock");
+        aerospikeClient.put(null, key, new Bin("a", "wire"));
+        assertEquals(server.getClient().get(null, key).bins.get("a"), "wire");
+    }
+
+    @Test
+    public void shouldSendCompressedCommands() {
+        Key key = new Key("test", SET, "compressed");
+        WritePolicy policy = new WritePolicy();
+        policy.compress = true;
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            value.append("compressible-");
+        }
+        aerospikeClient.put(policy, key, new Bin("a", value.toString()));
+        assertEquals(aerospikeClient.get(null, key).bins.get("a"), value.toString());
+    }
+
+    @Test
+    public void shouldCloseConnectionOnOversizedMessage() throws Exception {
+        Host host = server.getHosts()[0];
+        try (Socket socket = new Socket(host.name, host.port)) {
+            socket.setSoTimeout(10_000);
+            byte[] header = new byte[8];
+            // Version 2, type 3 (message), the largest 48 bit size.
+            Buffer.longToBytes(2L << 56 | 3L << 48 | 0xFFFFFFFFFFFFL, header, 0);
+            socket.getOutputStream().write(header);
+            assertEquals(socket.getInputStream().read(), -1);
+        }
+    }
+
+    @Test
+    public void shouldTruncateSet() {
+        Key key = new Key("test", "truncated", "a");
+        aerospikeClient.put(null, key, new Bin("a", 1));
+        aerospikeClient.truncate(null, "test", "truncated", null);
+        assertNull(aerospikeClient.get(null, key));
+    }
+
+    @Test
+    public void shouldRejectUdf() {
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> aerospikeClient.execute(null, key1, "pkg", "fn"));
+        assertEquals(e.getResultCode(), ResultCode.UNSUPPORTED_FEATURE);
+    }
+
+    @Test
+    public void shouldSampleAndThrottleScan() {
+        for (int i = 0; i < RECORDS; i++) {
+            aerospikeClient.put(null, new Key("test", "sampled", i), new Bin("id", i));
+        }
+        ScanPolicy policy = new ScanPolicy();
+        policy.scanPercent = 20;
+        policy.recordsPerSecond = 500;
+        AtomicInteger count = new AtomicInteger();
+        long start = System.nanoTime();
+        aerospikeClient.scanAll(policy, "test", "sampled", (key, record) -> count.incrementAndGet());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The namespace holds other sets, so the set's share of the sample varies.
+        assertTrue(count.get() > RECORDS / 10 && count.get() < RECORDS * 3 / 10, "Scanned " + count.get());
+        assertTrue(elapsedMillis >= count.get() * 1000L / 500 / 2, "Finished in " + elapsedMillis + "ms");
+    }
+
+    @Test
+    public void shouldServeMultiNodeCluster() throws Exception {
+        try (MockAerospikeServer cluster = start(3);
+             AerospikeClient client = new AerospikeClient(new ClientPolicy(), cluster.getHosts()[0])) {
+            assertEquals(client.getNodes().length, 3);
+            load(client);
+
+            Key[] keys = new Key[RECORDS];
+            for (int i = 0; i < RECORDS; i++) {
+                keys[i] = new Key("test", SET, "key-" + i);
+            }
+            Record[] records = client.get(null, keys, "id");
+            for (int i = 0; i < RECORDS; i++) {
+                assertEquals(records[i].bins.get("id"), (long) i);
+                assertFalse(records[i].bins.containsKey("name"));
+            }
+
+            Set<Object> scanned = new HashSet<>();
+            client.scanAll(null, "test", SET, (key, record) -> {
+                synchronized (scanned) {
+                    scanned.add(record.getValue("id"));
+                }
+            });
+            assertEquals(scanned.size(), RECORDS);
+
+            Statement statement = new Statement();
+            statement.setNamespace("test");
+            statement.setSetName(SET);
+            statement.setBinNames("name");
+            statement.setFilter(Filter.range("id", 10, 19));
+            int count = 0;
+            try (RecordSet recordSet = client.query(null, statement)) {
+                while (recordSet.next()) {
+                    assertTrue(recordSet.getRecord().getString("name").startsWith("name-1"));
+                    assertNull(recordSet.getRecord().getValue("id"));
+                    count++;
+                }
+            }
+            assertEquals(count, 10);
+        }
+    }
+
+    @Test
+    public void shouldFollowNodesJoiningTheCluster() throws Exception {
+        try (MockAerospikeServer cluster = start(2);
+             AerospikeClient client = new AerospikeClient(new ClientPolicy(), cluster.getHosts())) {
+            load(client);
+            cluster.getClient().getCluster().addNode();
+            assertTrue(cluster.getClient().getCluster().awaitMigrations(10, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (client.getNodes().length < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(client.getNodes().length, 3);
+            for (int i = 0; i < RECORDS; i++) {
+                assertNotNull(client.get(null, new Key("test", SET, "key-" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void shouldInjectFaults() throws Exception {
+        try (MockAerospikeServer cluster = start(1);
+             AerospikeClient client = new AerospikeClient(new ClientPolicy(), cluster.getHosts())) {
+            Key key = new Key("test", SET, "faulty");
+            cluster.getClient().getCluster().getNodes().get(0)
+                    .setFaultRule(new FaultRule().error(ResultCode.KEY_BUSY, 1));
+            AerospikeException e = expectThrows(AerospikeException.class, () -> client.get(null, key));
+            assertEquals(e.getResultCode(), ResultCode.KEY_BUSY);
+        }
+    }
+
+    @AfterClass
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        server.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.srini156.aerospike.client.sim;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.WritePolicy;
+import com.github.srini156.aerospike.client.CommandType;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for latency and fault injection.
+ *
+ * @author srinivas.iyengar
+ */
+public class FaultSimulatorTest {
+
+    private final FaultSimulator simulator = new FaultSimulator();
+
+    @AfterClass
+    public void tearDown() {
+        simulator.close();
+    }
+
+    @Test
+    public void shouldDelayByFixedLatency() {
+        simulator.forCommand("fixed", CommandType.GET, new FaultRule()
+                .latency(LatencyDistribution.fixed(30, TimeUnit.MILLISECONDS)));
+        long start = System.nanoTime();
+        simulator.simulate(CommandType.GET, "fixed", new Policy());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 29, "elapsed " + elapsed);
+        assertTrue(elapsed < 1000, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void shouldTimeoutAtDeadline() {
+        simulator.forNamespace("slow", new FaultRule()
+                .latency(LatencyDistribution.fixed(10, TimeUnit.SECONDS)));
+        Policy policy = new Policy();
+        policy.totalTimeout = 50;
+        policy.maxRetries = 5;
+        long start = System.nanoTime();
+        AerospikeException.Timeout timeout = expectThrows(AerospikeException.Timeout.class,
+                () -> simulator.simulate(CommandType.GET, "slow", policy));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(timeout.client);
+        assertEquals(timeout.getResultCode(), ResultCode.TIMEOUT);
+        assertTrue(elapsed >= 49, "elapsed " + elapsed);
+        assertTrue(elapsed < 1000, "elapsed " + elapsed);
+    }
+
+    @Test
+    public void shouldRetrySocketTimeouts() {
+        simulator.forNamespace("retry", new FaultRule()
+                .latency(LatencyDistribution.fixed(1, TimeUnit.SECONDS)));
+        Policy policy = new Policy();
+        policy.socketTimeout = 10;
+        policy.totalTimeout = 0;
+        policy.maxRetries = 2;
+        AerospikeException.Timeout timeout = expectThrows(AerospikeException.Timeout.class,
+                () -> simulator.simulate(CommandType.GET, "retry", policy));
+        assertEquals(timeout.getIteration(), 3);
+    }
+
+    @Test
+    public void shouldInjectErrors() {
+        simulator.forCommand("busy", CommandType.PUT, new FaultRule().error(ResultCode.KEY_BUSY, 1.0));
+        AerospikeException ae = expectThrows(AerospikeException.class,
+                () -> simulator.simulate(CommandType.PUT, "busy", new WritePolicy()));
+        assertEquals(ae.getResultCode(), ResultCode.KEY_BUSY);
+        // Other commands on the namespace are unaffected.
+        simulator.simulate(CommandType.GET, "busy", new Policy());
+    }
+
+    @Test
+    public void shouldInjectErrorsAtRate() {
+        simulator.forNamespace("overload", new FaultRule().error(ResultCode.DEVICE_OVERLOAD, 0.25));
+        int failures = 0;
+        for (int i = 0; i < 4000; i++) {
+            try {
+                simulator.simulate(CommandType.PUT, "overload", new WritePolicy());
+            } catch (AerospikeException ae) {
+                assertEquals(ae.getResultCode(), ResultCode.DEVICE_OVERLOAD);
+                failures++;
+            }
+        }
+        assertTrue(failures > 800 && failures < 1200, "failures " + failures);
+    }
+
+    @Test
+    public void shouldSampleHistogramBuckets() {
+        LatencyDistribution histogram = LatencyDistribution.histogram(
+                new long[]{1, 2, 4, 8}, new long[]{0, 10, 0, 10}, TimeUnit.MILLISECONDS);
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(histogram.sampleNanos(random));
+            assertTrue(millis == 1 || (millis >= 4 && millis < 8), "sample " + millis);
+        }
+    }
+
+    @Test
+    public void shouldSimulateClientCommands() {
+        FaultSimulator clientSimulator = new FaultSimulator();
+        clientSimulator.forCommand(CommandType.PUT, new FaultRule().error(ResultCode.DEVICE_OVERLOAD, 1.0));
+        MockClientPolicy clientPolicy = new MockClientPolicy();
+        clientPolicy.simulator = clientSimulator;
+        MockAerospikeClient client = new MockAerospikeClient(clientPolicy);
+        Key key = new Key("test", "sim", "key");
+        AerospikeException ae = expectThrows(AerospikeException.class,
+                () -> client.put(null, key, new Bin("bin", 1)));
+        assertEquals(ae.getResultCode(), ResultCode.DEVICE_OVERLOAD);
+        assertFalse(client.exists(null, key));
+        clientSimulator.close();
+    }
+
+    @Test
+    public void shouldFailDelayedCommandsOnClose() throws Exception {
+        FaultSimulator closing = new FaultSimulator();
+        closing.forCommand(CommandType.GET, new FaultRule().latency(LatencyDistribution.fixed(1, TimeUnit.HOURS)));
+        AerospikeException[] failure = new AerospikeException[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                closing.simulate(CommandType.GET, "test", new Policy());
+            } catch (AerospikeException e) {
+                failure[0] = e;
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        closing.close();
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(waiter.isAlive());
+        assertEquals(failure[0].getResultCode(), ResultCode.CLIENT_ERROR);
+
+        AerospikeException ae = expectThrows(AerospikeException.class,
+                () -> closing.simulate(CommandType.GET, "test", new Policy()));
+        assertEquals(ae.getResultCode(), ResultCode.CLIENT_ERROR);
+    }
+}
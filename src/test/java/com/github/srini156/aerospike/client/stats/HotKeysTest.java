@@ -0,0 +1,110 @@
+package com.github.srini156.aerospike.client.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.github.srini156.aerospike.client.AbstractMockClientTest;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.cluster.SimulatedCluster;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for hot key tracking.
+ *
+ * @author srinivas.iyengar
+ */
+public class HotKeysTest extends AbstractMockClientTest {
+    private static final String NAMESPACE = "test";
+
+    private static Key key(String set, int i) {
+        return new Key(NAMESPACE, set, i);
+    }
+
+    @Test
+    public void shouldFindHottestKeys() {
+        MockAerospikeClient client = newClient(policy -> policy.hotKeys = 5);
+        for (int i = 0; i < 2000; i++) {
+            client.put(null, key("cold", i), new Bin("v", i));
+            client.get(null, key("cold", i));
+        }
+        for (int i = 0; i < 500; i++) {
+            client.operate(null, key("hot", 1), Operation.add(new Bin("v", 1)), Operation.get());
+            client.get(null, key("hot", 2));
+            if (i % 2 == 0) {
+                client.put(null, key("hot", 3), new Bin("v", i));
+            }
+        }
+
+        HotKeys hotKeys = client.getCluster().getHotKeys();
+        List<HotKey> writes = hotKeys.getHotWrites();
+        assertEquals(writes.size(), 5);
+        assertEquals(writes.get(0).getKey(), key("hot", 1));
+        assertEquals(writes.get(1).getKey(), key("hot", 3));
+        assertTrue(writes.get(0).getCount() >= 500);
+        assertTrue(writes.get(1).getCount() >= 250);
+        assertEquals(writes.get(0).getPartitionId(), SimulatedCluster.partitionId(key("hot", 1)));
+
+        List<HotKey> reads = hotKeys.getHotReads();
+        assertEquals(reads.get(0).getKey(), key("hot", 2));
+        assertTrue(reads.get(0).getCount() >= 500);
+        assertTrue(hotKeys.estimateReads(key("cold", 7)) >= 1);
+        assertTrue(hotKeys.estimateReads(key("cold", 7)) < 100);
+
+        assertEquals(hotKeys.getWrites(), 2000 + 500 + 250);
+        assertEquals(hotKeys.getReads(), 2000 + 500);
+        assertEquals(hotKeys.getSetWrites().get(NAMESPACE + ":cold").longValue(), 2000);
+        assertEquals(hotKeys.getSetWrites().get(NAMESPACE + ":hot").longValue(), 750);
+        int hottest = SimulatedCluster.partitionId(key("hot", 1));
+        assertTrue(hotKeys.getTopPartitions().containsKey(hottest));
+        assertTrue(hotKeys.getPartitionAccesses(hottest) >= 500);
+
+        hotKeys.reset();
+        assertTrue(hotKeys.getHotWrites().isEmpty());
+        assertEquals(hotKeys.getReads(), 0);
+        assertEquals(hotKeys.estimateWrites(key("hot", 1)), 0);
+    }
+
+    @Test
+    public void shouldNotTrackByDefault() {
+        assertNull(newClient(policy -> policy.hotKeys = 0).getCluster().getHotKeys());
+    }
+
+    @Test
+    public void shouldReportThroughJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("com.github.srini156.aerospike:type=HotKeys,*");
+        int registered = server.queryNames(pattern, null).size();
+        MockAerospikeClient client = newClient(policy -> policy.hotKeys = 3);
+        for (int i = 0; i < 10; i++) {
+            client.put(null, key("jmx", 1), new Bin("v", i));
+        }
+
+        Set<ObjectName> names = server.queryNames(pattern, null);
+        assertEquals(names.size(), registered + 1);
+        ObjectName name = null;
+        for (ObjectName candidate : names) {
+            if ((Long) server.getAttribute(candidate, "Writes") == 10) {
+                name = candidate;
+            }
+        }
+        assertNotNull(name);
+        TabularData top = (TabularData) server.getAttribute(name, "TopWriteKeys");
+        assertEquals(top.size(), 1);
+        CompositeData row = (CompositeData) top.values().iterator().next();
+        // The user key is not sent by default.
+        assertEquals(row.get("key"), new Key(NAMESPACE, key("jmx", 1).digest, "jmx", null).toString());
+        assertEquals(row.get("value"), 10L);
+        client.close();
+        assertEquals(server.queryNames(pattern, null).size(), registered);
+    }
+}
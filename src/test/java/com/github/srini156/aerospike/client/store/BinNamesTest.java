@@ -0,0 +1,102 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the per-namespace {@link BinNames} table.
+ *
+ * @author srinivas.iyengar
+ */
+public class BinNamesTest {
+    private static final String NAMESPACE = "test";
+
+    @Test
+    public void shouldShareCanonicalNames() {
+        MockAerospikeClient client = new MockAerospikeClient();
+        for (int i = 0; i < 10; i++) {
+            // A new string per record, as names decoded from the wire would be.
+            client.put(null, new Key(NAMESPACE, "s", i), new Bin(new String("count".toCharArray()), i));
+        }
+        PackedBins first = (PackedBins) client.get(null, new Key(NAMESPACE, "s", 0)).bins;
+        for (int i = 1; i < 10; i++) {
+            PackedBins bins = (PackedBins) client.get(null, new Key(NAMESPACE, "s", i)).bins;
+            assertSame(bins.name(0), first.name(0));
+        }
+        assertEquals(client.getCluster().getBinNames(NAMESPACE).size(), 1);
+        // Updates keep the names of the record they start from.
+        client.add(null, new Key(NAMESPACE, "s", 0), new Bin("count", 1));
+        assertSame(((PackedBins) client.get(null, new Key(NAMESPACE, "s", 0)).bins).name(0), first.name(0));
+    }
+
+    @Test
+    public void shouldRejectBinNamesBeyondLimit() {
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.binNameLimit = 3;
+        MockAerospikeClient client = new MockAerospikeClient(policy);
+        Key key = new Key(NAMESPACE, "s", 1);
+        client.put(null, key, new Bin("a", 1), new Bin("b", 2));
+        client.put(null, new Key(NAMESPACE, "s", 2), new Bin("c", 3), new Bin("a", 4));
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> client.put(null, key, new Bin("a", 5), new Bin("d", 6)));
+        assertEquals(e.getResultCode(), ResultCode.BIN_NAME_TOO_LONG);
+        assertEquals(client.get(null, key).bins.keySet(), new HashSet<>(Arrays.asList("a", "b")));
+        // Names already known can still be written, other namespaces have their own table.
+        client.put(null, key, new Bin("c", 7));
+        client.put(null, new Key("other", "s", 1), new Bin("d", 8));
+        assertEquals(client.getCluster().getBinNames(NAMESPACE).size(), 3);
+    }
+
+    @Test
+    public void shouldProjectById() {
+        MockAerospikeClient client = new MockAerospikeClient();
+        Key[] keys = new Key[5];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Key(NAMESPACE, "s", i);
+            client.put(null, keys[i], new Bin("name", "n" + i), new Bin("id", i), new Bin("score", i / 2.0));
+        }
+        client.put(null, keys[4], new Bin("id", 4));
+
+        Record one = client.get(null, keys[1], "score", "missing", "score");
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("score", 0.5);
+        assertEquals(one.bins, expected);
+        assertEquals(one.generation, 1);
+
+        Record[] records = client.get(null, keys, "id", "name");
+        for (int i = 0; i < 4; i++) {
+            assertEquals(records[i].bins.keySet(), new HashSet<>(Arrays.asList("id", "name")));
+            assertEquals(records[i].getValue("name"), "n" + i);
+            assertEquals(records[i].getValue("id"), i);
+        }
+        assertEquals(records[4].bins.keySet(), new HashSet<>(Arrays.asList("id")));
+        // Records having every bin asked for share the projection's names.
+        assertSame(((PackedBins) records[0].bins).name(0), ((PackedBins) records[3].bins).name(0));
+    }
+
+    @Test
+    public void shouldInternRecordsOfAnyMap() {
+        BinNames binNames = new SetNames().binNames(NAMESPACE);
+        Map<String, Object> bins = new HashMap<>();
+        bins.put("v", 1);
+        Record record = binNames.intern(new Record(bins, 1, 0));
+        assertTrue(record.bins instanceof PackedBins);
+        assertEquals(record.bins, bins);
+        assertSame(binNames.intern(record), record);
+        assertNull(binNames.intern(null));
+        assertEquals(binNames.projection(new String[]{"v"}).apply(new Record(bins, 1, 0)).bins, bins);
+    }
+}
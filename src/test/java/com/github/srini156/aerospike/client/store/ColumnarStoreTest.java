@@ -0,0 +1,189 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for sets stored in the columnar layout.
+ *
+ * @author srinivas.iyengar
+ */
+public class ColumnarStoreTest {
+    private static final String NAMESPACE = "test";
+    private static final int PARTITION = 7;
+
+    private static PartitionedStore columnarStore(String... sets) {
+        SetNames setNames = new SetNames();
+        for (String set : sets) {
+            setNames.setColumnar(NAMESPACE, set, true);
+        }
+        return new PartitionedStore(new Truncations(), setNames);
+    }
+
+    private static Record record(int i, int generation) {
+        Bin[] bins = {new Bin("id", i), new Bin("total", (long) i * 10), new Bin("score", i / 4.0),
+                new Bin("name", "name-" + i), new Bin("tags", Arrays.asList("a", "b"))};
+        // Every third record lacks a bin, so columns have holes.
+        Bin[] some = i % 3 == 0 ? Arrays.copyOf(bins, 3) : bins;
+        return new Record(PackedBins.of(some), generation, i);
+    }
+
+    @Test
+    public void shouldRebuildWholeRecordOnRead() {
+        PartitionedStore store = columnarStore("c");
+        for (int i = 0; i < 6; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, "c", i), record(i, i + 1), i);
+        }
+        for (int i = 0; i < 6; i++) {
+            Record record = store.get(PARTITION, new Key(NAMESPACE, "c", i));
+            Record expected = record(i, i + 1);
+            assertEquals(record.bins, expected.bins);
+            assertEquals(record.generation, i + 1);
+            assertEquals(record.expiration, i);
+        }
+        assertNull(store.get(PARTITION, new Key(NAMESPACE, "c", 100)));
+    }
+
+    @Test
+    public void shouldReadOnlyProjectedColumns() {
+        PartitionedStore store = columnarStore("c");
+        for (int i = 0; i < 20; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, i % 2 == 0 ? "c" : "rows", i), record(i, 1), i);
+        }
+        Map<Object, Map<String, Object>> scanned = new HashMap<>();
+        store.forEach(NAMESPACE, PARTITION, Integer.MAX_VALUE, new String[]{"name", "missing"}, (key, record) -> {
+            if ("c".equals(key.setName)) {
+                scanned.put(key, record.bins);
+            } else {
+                // Row records are handed over whole.
+                assertTrue(record.bins.containsKey("id"));
+            }
+        });
+        assertEquals(scanned.size(), 10);
+        for (int i = 0; i < 20; i += 2) {
+            Map<String, Object> bins = scanned.get(new Key(NAMESPACE, "c", i));
+            assertEquals(bins.keySet(), i % 3 == 0 ? new HashSet<>() : new HashSet<>(Arrays.asList("name")));
+        }
+        store.forEach(NAMESPACE, PARTITION, Integer.MAX_VALUE, new String[0],
+                (key, record) -> assertTrue(record.bins.isEmpty() || !"c".equals(key.setName)));
+    }
+
+    @Test
+    public void shouldMatchMapUnderRandomWritesAndDeletes() {
+        PartitionedStore store = columnarStore("c");
+        Map<Key, Map<String, Object>> expected = new HashMap<>();
+        Random random = new Random(42);
+        // One partition, so the table grows and deletes shift columnar entries around.
+        for (int i = 0; i < 20_000; i++) {
+            int k = random.nextInt(2_000);
+            Key key = new Key(NAMESPACE, k % 4 == 0 ? "rows" : "c", k);
+            if (random.nextInt(3) == 0) {
+                Map<String, Object> removed = expected.remove(key);
+                Record record = store.remove(PARTITION, key);
+                assertEquals(record == null ? null : record.bins, removed);
+            } else {
+                Record record = record(random.nextInt(1_000), 1);
+                expected.put(key, record.bins);
+                store.put(PARTITION, key, record, i);
+            }
+        }
+        for (int k = 0; k < 2_000; k++) {
+            Key key = new Key(NAMESPACE, k % 4 == 0 ? "rows" : "c", k);
+            Record record = store.get(PARTITION, key);
+            assertEquals(record == null ? null : record.bins, expected.get(key));
+        }
+        Map<Key, Map<String, Object>> scanned = new HashMap<>();
+        store.forEach(NAMESPACE, PARTITION, (key, record) -> scanned.put(key, record.bins));
+        assertEquals(scanned, expected);
+    }
+
+    @Test
+    public void shouldSwitchLayoutOnNextWrite() {
+        SetNames setNames = new SetNames();
+        PartitionedStore store = new PartitionedStore(new Truncations(), setNames);
+        Key key = new Key(NAMESPACE, "s", 1);
+        store.put(PARTITION, key, record(1, 1), 1);
+        setNames.setColumnar(NAMESPACE, "s", true);
+        assertTrue(setNames.isColumnar(NAMESPACE, "s"));
+        assertFalse(setNames.isColumnar(NAMESPACE, "other"));
+        String[] name = {"name"};
+        store.forEach(NAMESPACE, PARTITION, Integer.MAX_VALUE, name, (k, record) -> assertEquals(record.bins.size(), 5));
+        store.put(PARTITION, key, record(2, 2), 2);
+        store.forEach(NAMESPACE, PARTITION, Integer.MAX_VALUE, name, (k, record) -> assertEquals(record.bins.size(), 1));
+        setNames.setColumnar(NAMESPACE, "s", false);
+        store.put(PARTITION, key, record(3, 3), 3);
+        store.forEach(NAMESPACE, PARTITION, Integer.MAX_VALUE, name, (k, record) -> assertEquals(record.bins.size(), 3));
+        assertEquals(store.get(PARTITION, key).bins, record(3, 3).bins);
+    }
+
+    @Test
+    public void shouldCopyFrozenColumnsOnWrite() {
+        SetNames setNames = new SetNames();
+        setNames.setColumnar(NAMESPACE, "c", true);
+        PartitionedStore store = new PartitionedStore(new Truncations(), setNames);
+        for (int i = 0; i < 100; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, "c", i), record(i, 1), i);
+        }
+        PartitionImage image = store.freeze(PARTITION);
+        store.put(PARTITION, new Key(NAMESPACE, "c", 1), record(-1, 2), 100);
+        store.remove(PARTITION, new Key(NAMESPACE, "c", 2));
+
+        PartitionedStore other = new PartitionedStore(new Truncations(), setNames);
+        other.restore(PARTITION, image);
+        assertEquals(other.get(PARTITION, new Key(NAMESPACE, "c", 1)).bins, record(1, 1).bins);
+        assertEquals(other.get(PARTITION, new Key(NAMESPACE, "c", 2)).bins, record(2, 1).bins);
+        assertEquals(store.get(PARTITION, new Key(NAMESPACE, "c", 1)).bins, record(-1, 2).bins);
+        assertNull(store.get(PARTITION, new Key(NAMESPACE, "c", 2)));
+    }
+
+    @Test
+    public void shouldProjectScansAndQueriesOfColumnarSet() {
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.columnarSets.add(NAMESPACE + ".events");
+        MockAerospikeClient client = new MockAerospikeClient(policy);
+        for (int i = 0; i < 100; i++) {
+            client.put(null, new Key(NAMESPACE, "events", i), new Bin("id", i), new Bin("name", "name-" + i),
+                    new Bin("payload", new byte[64]));
+        }
+        Record read = client.get(null, new Key(NAMESPACE, "events", 5));
+        assertEquals(read.bins.size(), 3);
+        assertEquals(read.generation, 1);
+
+        Map<Key, Record> scanned = new HashMap<>();
+        client.scanAll(null, NAMESPACE, "events", scanned::put, "name");
+        assertEquals(scanned.size(), 100);
+        for (Record record : scanned.values()) {
+            assertEquals(record.bins.keySet(), new HashSet<>(Arrays.asList("name")));
+        }
+
+        Statement statement = new Statement();
+        statement.setNamespace(NAMESPACE);
+        statement.setSetName("events");
+        statement.setBinNames("name");
+        statement.setFilter(Filter.range("id", 10, 19));
+        int count = 0;
+        try (RecordSet recordSet = client.query(null, statement)) {
+            while (recordSet.next()) {
+                assertTrue(recordSet.getRecord().getString("name").startsWith("name-1"));
+                assertEquals(recordSet.getRecord().bins.size(), 1);
+                count++;
+            }
+        }
+        assertEquals(count, 10);
+    }
+}
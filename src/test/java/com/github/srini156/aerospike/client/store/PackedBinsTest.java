@@ -0,0 +1,135 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for {@link PackedBins} and the updates storing records in it.
+ *
+ * @author srinivas.iyengar
+ */
+public class PackedBinsTest {
+
+    private static Record add(Record record, Bin... bins) {
+        return RecordUpdates.add(bins).apply(record);
+    }
+
+    @Test
+    public void shouldReadLikeHashMap() {
+        Record record = RecordUpdates.put(new Bin[]{new Bin("i", 1), new Bin("l", 2L), new Bin("d", 0.5),
+                new Bin("s", "text"), new Bin("b", true), new Bin("list", Arrays.asList(1L, 2L)), new Bin("i", 3)})
+                .apply(null);
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("i", 3);
+        expected.put("l", 2L);
+        expected.put("d", 0.5);
+        expected.put("s", "text");
+        expected.put("b", 1L);
+        expected.put("list", Arrays.asList(1L, 2L));
+        assertTrue(record.bins instanceof PackedBins);
+        assertEquals(record.bins, expected);
+        assertEquals(expected, record.bins);
+        assertEquals(record.bins.hashCode(), expected.hashCode());
+        assertNull(record.bins.get("missing"));
+        assertFalse(record.bins.containsKey(1));
+    }
+
+    @Test
+    public void shouldAddWithoutChangingPreviousRecord() {
+        Record first = RecordUpdates.put(new Bin[]{new Bin("count", 1), new Bin("total", 10L), new Bin("score", 1.5)})
+                .apply(null);
+        Record second = add(first, new Bin("count", 2L), new Bin("total", 5), new Bin("score", 0.25));
+        assertEquals(second.bins.get("count"), 3);
+        assertEquals(second.bins.get("total"), 15L);
+        assertEquals(second.bins.get("score"), 1.75);
+        assertEquals(first.bins.get("count"), 1);
+        assertEquals(first.bins.get("total"), 10L);
+        assertEquals(first.bins.get("score"), 1.5);
+    }
+
+    @Test
+    public void shouldWidenOverflowingInteger() {
+        Record record = RecordUpdates.put(new Bin[]{new Bin("count", Integer.MAX_VALUE)}).apply(null);
+        assertEquals(add(record, new Bin("count", 1)).bins.get("count"), Integer.MAX_VALUE + 1L);
+    }
+
+    @Test
+    public void shouldAddToRecordFromAnyMap() {
+        Map<String, Object> bins = new HashMap<>();
+        bins.put("count", 1);
+        assertEquals(add(new Record(bins, 1, 0), new Bin("count", 1L)).bins.get("count"), 2);
+    }
+
+    @Test
+    public void shouldRejectMismatchedAdd() {
+        Record record = RecordUpdates.put(new Bin[]{new Bin("count", 1), new Bin("score", 1.5), new Bin("name", "a")})
+                .apply(null);
+        for (Bin bin : new Bin[]{new Bin("count", 0.5), new Bin("score", 1), new Bin("name", 1)}) {
+            AerospikeException e = expectThrows(AerospikeException.class, () -> add(record, bin));
+            assertEquals(e.getResultCode(), ResultCode.BIN_TYPE_ERROR);
+        }
+    }
+
+    @Test
+    public void shouldChangeTypeOnOperateWrite() {
+        Record record = RecordUpdates.put(new Bin[]{new Bin("v", 1)}).apply(null);
+        record = RecordUpdates.operate(new Operation[]{
+                Operation.put(new Bin("v", "one")),
+                Operation.put(new Bin("w", 2.0))}).apply(record);
+        assertEquals(record.bins.get("v"), "one");
+        assertEquals(record.bins.get("w"), 2.0);
+        assertEquals(RecordUpdates.append(new Bin[]{new Bin("v", "!")}).apply(record).bins.get("v"), "one!");
+    }
+
+    @Test
+    public void shouldSupportMapChanges() {
+        PackedBins bins = PackedBins.of(new Bin[]{new Bin("a", 1), new Bin("b", "x"), new Bin("c", 2.0)});
+        PackedBins copy = bins.copy();
+        assertEquals(bins.put("a", "one"), 1);
+        assertNull(bins.put("d", 4L));
+        assertEquals(bins.remove("b"), "x");
+        assertEquals(bins.size(), 3);
+        assertEquals(bins.get("a"), "one");
+        assertEquals(bins.get("c"), 2.0);
+        assertEquals(bins.get("d"), 4L);
+        Iterator<Map.Entry<String, Object>> entries = bins.entrySet().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().getKey().equals("c")) {
+                entries.remove();
+            }
+        }
+        assertEquals(bins.keySet(), new HashSet<>(Arrays.asList("a", "d")));
+        // The copy shares the names, which changes to the original must not reach.
+        assertEquals(copy.keySet(), new HashSet<>(Arrays.asList("a", "b", "c")));
+        assertEquals(copy.get("a"), 1);
+        assertEquals(copy.get("b"), "x");
+    }
+
+    @Test
+    public void shouldKeepCopiesApartWhenChangingExistingBins() {
+        PackedBins bins = PackedBins.of(new Bin[]{new Bin("a", 1), new Bin("b", "x"), new Bin("c", 2.0)});
+        PackedBins copy = bins.copy();
+        PackedBins other = copy.copy();
+        assertEquals(copy.put("a", 42), 1);
+        assertEquals(copy.put("b", "y"), "x");
+        assertEquals(bins.put("c", 3.0), 2.0);
+        assertEquals(bins.get("a"), 1);
+        assertEquals(bins.get("b"), "x");
+        assertEquals(copy.get("a"), 42);
+        assertEquals(copy.get("b"), "y");
+        assertEquals(copy.get("c"), 2.0);
+        assertEquals(other, PackedBins.of(new Bin[]{new Bin("a", 1), new Bin("b", "x"), new Bin("c", 2.0)}));
+    }
+}
@@ -0,0 +1,224 @@
+package com.github.srini156.aerospike.client.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Conformance tests of the {@link RecordStore} contract, run against every
+ * {@link StorageEngine} through {@link PartitionedStore} and a client.
+ *
+ * @author srinivas.iyengar
+ */
+public class PartitionedStoreTest {
+    private static final String NAMESPACE = "test";
+    private static final int PARTITION = 7;
+
+    @DataProvider
+    public static Object[][] engines() {
+        return new Object[][]{{StorageEngine.index()}, {StorageEngine.hashMap()}};
+    }
+
+    private static Record record(int value) {
+        return new Record(Collections.singletonMap("v", value), 1, 0);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldMatchMapUnderRandomWritesAndDeletes(StorageEngine engine) {
+        PartitionedStore store = new PartitionedStore(new Truncations(), new SetNames(), engine);
+        Map<Key, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        // All keys in one partition so the table grows and deletes shift long probe runs.
+        for (int i = 0; i < 20_000; i++) {
+            Key key = new Key(NAMESPACE, "s", random.nextInt(2_000));
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                Record record = store.remove(PARTITION, key);
+                assertEquals(record == null ? null : record.getValue("v"), removed);
+            } else {
+                expected.put(key, i);
+                store.put(PARTITION, key, record(i), i);
+            }
+        }
+        assertEquals(store.size(NAMESPACE, PARTITION), expected.size());
+        for (int k = 0; k < 2_000; k++) {
+            Key key = new Key(NAMESPACE, "s", k);
+            Record record = store.get(PARTITION, key);
+            assertEquals(record == null ? null : record.getValue("v"), expected.get(key));
+            assertEquals(store.getLastUpdateTime(PARTITION, key), expected.containsKey(key) ? (long) expected.get(key) : -1L);
+        }
+        Map<Key, Object> scanned = new HashMap<>();
+        store.forEach(NAMESPACE, PARTITION, (key, record) -> scanned.put(key, record.getValue("v")));
+        assertEquals(scanned, expected);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldVisitOnlyTheSample(StorageEngine engine) {
+        PartitionedStore store = new PartitionedStore(new Truncations(), new SetNames(), engine);
+        for (int i = 0; i < 1_000; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, "s", i), record(i), i);
+        }
+        Map<Key, Object> sampled = new HashMap<>();
+        store.forEach(NAMESPACE, PARTITION, 10, (key, record) -> sampled.put(key, record.getValue("v")));
+        assertEquals(sampled.size(), 10);
+        Map<Key, Object> again = new HashMap<>();
+        store.forEach(NAMESPACE, PARTITION, 10, (key, record) -> again.put(key, record.getValue("v")));
+        assertEquals(again, sampled);
+
+        ScanSample sample = new ScanSample(10);
+        int total = 0;
+        for (int i = 0; i < 100; i++) {
+            total += sample.limit(3);
+        }
+        // The 0.3 records of each partition add up.
+        assertEquals(total, 30);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldCopyFrozenPartitionOnWrite(StorageEngine engine) {
+        SetNames setNames = new SetNames();
+        PartitionedStore store = new PartitionedStore(new Truncations(), setNames, engine);
+        for (int i = 0; i < 100; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, "s", i), record(i), i);
+        }
+        PartitionImage image = store.freeze(PARTITION);
+        PartitionedStore other = new PartitionedStore(new Truncations(), setNames, engine);
+        other.restore(PARTITION, image);
+
+        store.put(PARTITION, new Key(NAMESPACE, "s", 0), record(-1), 100);
+        store.remove(PARTITION, new Key(NAMESPACE, "s", 1));
+        other.put(PARTITION, new Key(NAMESPACE, "t", 100), record(100), 100);
+
+        assertEquals(store.get(PARTITION, new Key(NAMESPACE, "s", 0)).getValue("v"), -1);
+        assertNull(store.get(PARTITION, new Key(NAMESPACE, "s", 1)));
+        assertNull(store.get(PARTITION, new Key(NAMESPACE, "t", 100)));
+        assertEquals(other.get(PARTITION, new Key(NAMESPACE, "s", 0)).getValue("v"), 0);
+        assertEquals(other.get(PARTITION, new Key(NAMESPACE, "s", 1)).getValue("v"), 1);
+        assertEquals(image.size(), 100);
+
+        store.restore(PARTITION, image);
+        assertEquals(store.get(PARTITION, new Key(NAMESPACE, "s", 0)).getValue("v"), 0);
+        assertEquals(store.size(NAMESPACE, PARTITION), 100);
+        expectThrows(IllegalArgumentException.class,
+                () -> new PartitionedStore(new Truncations(), new SetNames(), engine).restore(PARTITION, image));
+        // Images of another engine are refused without touching the partition.
+        StorageEngine otherEngine = engine.create() instanceof PrimaryIndex ? StorageEngine.hashMap() : StorageEngine.index();
+        PartitionedStore mixed = new PartitionedStore(new Truncations(), setNames, otherEngine);
+        mixed.put(PARTITION, new Key(NAMESPACE, "s", 0), record(7), 1);
+        expectThrows(IllegalArgumentException.class, () -> mixed.restore(PARTITION, image));
+        assertEquals(mixed.get(PARTITION, new Key(NAMESPACE, "s", 0)).getValue("v"), 7);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldKeepUserKeyOnlyWhenSent(StorageEngine engine) {
+        PartitionedStore store = new PartitionedStore(new Truncations(), new SetNames(), engine);
+        Key sent = new Key(NAMESPACE, "s", "sent");
+        Key notSent = new Key(NAMESPACE, "s", "not-sent");
+        store.put(PARTITION, sent, record(1), 1);
+        store.put(PARTITION, new Key(NAMESPACE, notSent.digest, "s", null), record(2), 1);
+        // A digest-only rewrite keeps the stored user key and set.
+        store.put(PARTITION, new Key(NAMESPACE, sent.digest, null, null), record(3), 2);
+
+        Map<Key, Key> scanned = new HashMap<>();
+        store.forEach(NAMESPACE, PARTITION, (key, record) -> scanned.put(key, key));
+        assertEquals(scanned.size(), 2);
+        assertEquals(scanned.get(sent).userKey, sent.userKey);
+        assertEquals(scanned.get(sent).setName, "s");
+        assertNull(scanned.get(notSent).userKey);
+        assertEquals(scanned.get(notSent).setName, "s");
+        assertEquals(store.get(PARTITION, sent).getValue("v"), 3);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldDropTruncatedSet(StorageEngine engine) {
+        Truncations truncations = new Truncations();
+        PartitionedStore store = new PartitionedStore(truncations, new SetNames(), engine);
+        for (int i = 0; i < 100; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, i % 2 == 0 ? "even" : "odd", i), record(i), i);
+        }
+        truncations.truncate(NAMESPACE, "even", 50);
+
+        assertNull(store.get(PARTITION, new Key(NAMESPACE, "even", 10)));
+        assertNotNull(store.get(PARTITION, new Key(NAMESPACE, "even", 60)));
+        assertNotNull(store.get(PARTITION, new Key(NAMESPACE, "odd", 11)));
+        assertEquals(store.dropTruncated(NAMESPACE, "even", PARTITION), 25);
+        assertEquals(store.dropTruncated(NAMESPACE, "missing", PARTITION), 0);
+        assertEquals(store.size(NAMESPACE, PARTITION), 75);
+        for (int i = 0; i < 100; i++) {
+            Record record = store.get(PARTITION, new Key(NAMESPACE, i % 2 == 0 ? "even" : "odd", i));
+            assertEquals(record != null, i % 2 == 1 || i >= 50, "record " + i);
+        }
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldHideTruncatedRecordsUntilDropped(StorageEngine engine) {
+        Truncations truncations = new Truncations();
+        PartitionedStore store = new PartitionedStore(truncations, new SetNames(), engine);
+        Key key = new Key(NAMESPACE, "s", 1);
+        store.put(PARTITION, key, record(1), 10);
+        truncations.truncate(NAMESPACE, "s", 20);
+        assertNull(store.get(PARTITION, key));
+        assertEquals(store.getLastUpdateTime(PARTITION, key), -1L);
+        store.forEach(NAMESPACE, PARTITION, (k, record) -> fail("visited truncated " + k));
+        assertEquals(store.size(NAMESPACE, PARTITION), 1);
+        // Removing a truncated record drops it but does not return it.
+        assertNull(store.remove(PARTITION, key));
+        assertEquals(store.size(NAMESPACE, PARTITION), 0);
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldLetVisitorWrite(StorageEngine engine) {
+        PartitionedStore store = new PartitionedStore(new Truncations(), new SetNames(), engine);
+        for (int i = 0; i < 100; i++) {
+            store.put(PARTITION, new Key(NAMESPACE, "s", i), record(i), i);
+        }
+        store.forEach(NAMESPACE, PARTITION, (key, record) -> {
+            if ((Integer) record.getValue("v") % 2 == 0) {
+                store.remove(PARTITION, key);
+            } else {
+                store.put(PARTITION, key, record(-1), 1_000);
+            }
+        });
+        assertEquals(store.size(NAMESPACE, PARTITION), 50);
+        store.forEach(NAMESPACE, PARTITION, (key, record) -> assertEquals(record.getValue("v"), -1));
+    }
+
+    @Test(dataProvider = "engines")
+    public void shouldServeClient(StorageEngine engine) throws InterruptedException {
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.nodeCount = 2;
+        policy.storageEngine = engine;
+        MockAerospikeClient client = new MockAerospikeClient(policy);
+        for (int i = 0; i < 1_000; i++) {
+            client.put(null, new Key(NAMESPACE, "s", i), new Bin("v", i));
+        }
+        client.add(null, new Key(NAMESPACE, "s", 1), new Bin("v", 10));
+        assertEquals(client.get(null, new Key(NAMESPACE, "s", 1)).getValue("v"), 11);
+        assertTrue(client.delete(null, new Key(NAMESPACE, "s", 2)));
+
+        MockAerospikeClient fork = client.fork();
+        fork.put(null, new Key(NAMESPACE, "s", 1), new Bin("v", 0));
+        assertEquals(client.get(null, new Key(NAMESPACE, "s", 1)).getValue("v"), 11);
+
+        client.getCluster().addNode();
+        assertTrue(client.getCluster().awaitMigrations(30, TimeUnit.SECONDS));
+        Map<Key, Object> scanned = new HashMap<>();
+        client.scanAll(null, NAMESPACE, "s", (key, record) -> scanned.put(key, record.getValue("v")));
+        assertEquals(scanned.size(), 999);
+        assertEquals(fork.get(null, new Key(NAMESPACE, "s", 1)).getValue("v"), 0);
+        fork.close();
+        client.close();
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for Java record UDFs.
+ *
+ * @author srinivas.iyengar
+ */
+public class JavaUdfTest {
+    private MockAerospikeClient client;
+
+    @BeforeClass
+    public void setUp() {
+        client = new MockAerospikeClient();
+        client.registerUdf("counter", "increment", (rec, args) -> {
+            Object current = rec.get(args[0].toString());
+            rec.put(args[0].toString(), (current == null ? 0 : (Long) current) + args[1].toLong());
+            rec.update();
+            return rec.get(args[0].toString());
+        });
+        client.registerUdf("counter", "peek", (rec, args) -> {
+            rec.put("n", -1L);
+            return rec.exists();
+        });
+        client.registerUdf("counter", "drop", (rec, args) -> rec.remove());
+        client.registerUdf("counter", "fail", (rec, args) -> {
+            throw new IllegalStateException("bad input");
+        });
+    }
+
+    @Test
+    public void shouldUpdateRecord() {
+        Key key = new Key("test", "java", "increment");
+        assertEquals(client.execute(null, key, "counter", "increment", Value.get("n"), Value.get(5)), 5L);
+        assertEquals(client.execute(null, key, "counter", "increment", Value.get("n"), Value.get(2)), 7L);
+        assertEquals(client.get(null, key).getValue("n"), 7L);
+    }
+
+    @Test
+    public void shouldDiscardChangesWithoutUpdate() {
+        Key key = new Key("test", "java", "peek");
+        client.put(null, key, new Bin("n", 1L));
+        assertEquals(client.execute(null, key, "counter", "peek"), true);
+        assertEquals(client.get(null, key).getValue("n"), 1L);
+        assertEquals(client.execute(null, new Key("test", "java", "missing"), "counter", "peek"), false);
+    }
+
+    @Test
+    public void shouldRemoveRecord() {
+        Key key = new Key("test", "java", "remove");
+        client.put(null, key, new Bin("a", 1));
+        assertEquals(client.execute(null, key, "counter", "drop"), 0);
+        assertFalse(client.exists(null, key));
+        assertEquals(client.execute(null, key, "counter", "drop"), 2);
+    }
+
+    @Test
+    public void shouldWrapExceptions() {
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> client.execute(null, new Key("test", "java", "fail"), "counter", "fail"));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void shouldTakePrecedenceOverLua() {
+        Key key = new Key("test", "java", "precedence");
+        client.registerUdfString(null, "function which(rec) return 'lua' end", "standin.lua", Language.LUA);
+        assertEquals(client.execute(null, key, "standin", "which"), "lua");
+        client.registerUdf("standin", "which", (rec, args) -> "java");
+        assertEquals(client.execute(null, key, "standin", "which"), "java");
+        client.removeJavaUdfs("standin");
+        assertEquals(client.execute(null, key, "standin", "which"), "lua");
+    }
+
+    @Test
+    public void shouldApplyAtomically() throws Exception {
+        Key key = new Key("test", "java", "atomic");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int n = 0; n < 1_000; n++) {
+                        client.execute(null, key, "counter", "increment", Value.get("n"), Value.get(1));
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(client.get(null, key).getValue("n"), 8_000L);
+    }
+}
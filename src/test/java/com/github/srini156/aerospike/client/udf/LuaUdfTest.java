@@ -0,0 +1,153 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.task.RegisterTask;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for Lua record UDFs.
+ *
+ * @author srinivas.iyengar
+ */
+public class LuaUdfTest {
+    private MockAerospikeClient client;
+
+    @BeforeClass
+    public void setUp() {
+        client = new MockAerospikeClient();
+        RegisterTask task = client.register(null, LuaUdfTest.class.getClassLoader(), "udf/counter.lua", "counter.lua",
+                Language.LUA);
+        assertTrue(task.isDone());
+    }
+
+    @Test
+    public void shouldUpdateRecord() {
+        Key key = new Key("test", "lua", "increment");
+        assertEquals(client.execute(null, key, "counter", "increment", Value.get("n"), Value.get(5)), 5L);
+        assertEquals(client.execute(null, key, "counter", "increment", Value.get("n"), Value.get(2)), 7L);
+        assertEquals(client.get(null, key).getValue("n"), 7L);
+    }
+
+    @Test
+    public void shouldDiscardChangesWithoutUpdate() {
+        Key key = new Key("test", "lua", "peek");
+        client.put(null, key, new Bin("n", 1L));
+        assertEquals(client.execute(null, key, "counter", "peek_increment", Value.get("n"), Value.get(5)), 6L);
+        assertEquals(client.get(null, key).getValue("n"), 1L);
+        client.execute(null, new Key("test", "lua", "peek-missing"), "counter", "peek_increment", Value.get("n"),
+                Value.get(5));
+        assertNull(client.get(null, new Key("test", "lua", "peek-missing")));
+    }
+
+    @Test
+    public void shouldExposeRecordMetadata() {
+        Key key = new Key("test", "lua", "describe");
+        WritePolicy policy = new WritePolicy();
+        policy.sendKey = true;
+        client.put(policy, key, new Bin("a", 1), new Bin("b", 2));
+        Map<?, ?> description = (Map<?, ?>) client.execute(null, key, "counter", "describe");
+        assertEquals(description.get("setname"), "lua");
+        assertEquals(description.get("key"), "describe");
+        assertEquals(description.get("numbins"), 2L);
+        assertEquals(description.get("first"), true);
+    }
+
+    @Test
+    public void shouldPassAndStoreLists() {
+        Key key = new Key("test", "lua", "lists");
+        assertEquals(client.execute(null, key, "counter", "append_all", Value.get("l"), Value.get(Arrays.asList(1, 2))), 2L);
+        assertEquals(client.execute(null, key, "counter", "append_all", Value.get("l"), Value.get(Arrays.asList("x"))), 3L);
+        assertEquals(client.get(null, key).getList("l"), Arrays.asList(1L, 2L, "x"));
+    }
+
+    @Test
+    public void shouldRemoveRecord() {
+        Key key = new Key("test", "lua", "remove");
+        client.put(null, key, new Bin("a", 1));
+        assertEquals(client.execute(null, key, "counter", "drop"), 0L);
+        assertFalse(client.exists(null, key));
+    }
+
+    @Test
+    public void shouldReportErrors() {
+        Key key = new Key("test", "lua", "errors");
+        AerospikeException e = expectThrows(AerospikeException.class, () -> client.execute(null, key, "counter", "fail"));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+        assertTrue(e.getMessage().contains("bad input"), e.getMessage());
+        e = expectThrows(AerospikeException.class, () -> client.execute(null, key, "counter", "missing"));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+        e = expectThrows(AerospikeException.class, () -> client.execute(null, key, "missing", "fail"));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+        e = expectThrows(AerospikeException.class,
+                () -> client.registerUdfString(null, "function broken(", "broken.lua", Language.LUA));
+        assertEquals(e.getResultCode(), ResultCode.PARAMETER_ERROR);
+    }
+
+    @Test
+    public void shouldReplaceModuleAtomically() throws Exception {
+        client.registerUdfString(null, "function version(rec) return 1 end", "versioned.lua", Language.LUA);
+        Key key = new Key("test", "lua", "versioned");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean replaced = new AtomicBoolean();
+        try {
+            Future<?>[] callers = new Future<?>[4];
+            for (int i = 0; i < callers.length; i++) {
+                callers[i] = executor.submit(() -> {
+                    long last = 1;
+                    for (int n = 0; n < 2_000; n++) {
+                        boolean registered = replaced.get();
+                        long version = (Long) client.execute(null, key, "versioned", "version");
+                        // Once a call sees the new version, no later call sees the old one.
+                        assertTrue(version >= last, "went back from " + last + " to " + version);
+                        if (registered) {
+                            assertEquals(version, 2L);
+                        }
+                        last = version;
+                    }
+                    return null;
+                });
+            }
+            Thread.sleep(20);
+            client.registerUdfString(null, "function version(rec) return 2 end", "versioned.lua", Language.LUA);
+            replaced.set(true);
+            for (Future<?> caller : callers) {
+                caller.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(client.execute(null, key, "versioned", "version"), 2L);
+
+        client.removeUdf(null, "versioned.lua");
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> client.execute(null, key, "versioned", "version"));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+    }
+
+    @Test
+    public void shouldListBinsInModuleScope() {
+        client.registerUdfString(null, "function names(rec) return record.bin_names(rec) end", "names.lua", Language.LUA);
+        Key key = new Key("test", "lua", "names");
+        client.put(null, key, new Bin("only", 1));
+        assertEquals((List<?>) client.execute(null, key, "names", "names"), Arrays.asList("only"));
+    }
+}
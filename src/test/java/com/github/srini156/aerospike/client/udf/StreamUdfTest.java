@@ -0,0 +1,134 @@
+package com.github.srini156.aerospike.client.udf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.ResultSet;
+import com.aerospike.client.query.Statement;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for Lua stream UDFs run by queryAggregate.
+ *
+ * @author srinivas.iyengar
+ */
+public class StreamUdfTest {
+    private static final String SET = "stream";
+    private static final int RECORDS = 1000;
+
+    private MockAerospikeClient client;
+
+    @BeforeClass
+    public void setUp() {
+        MockClientPolicy policy = new MockClientPolicy();
+        policy.nodeCount = 3;
+        client = new MockAerospikeClient(policy);
+        client.register(null, StreamUdfTest.class.getClassLoader(), "udf/stats.lua", "stats.lua", Language.LUA);
+        for (int i = 0; i < RECORDS; i++) {
+            client.put(null, new Key("test", SET, i), new Bin("id", i), new Bin("group", "g" + i % 4));
+        }
+        client.put(null, new Key("test", "other", 0), new Bin("id", 1_000_000));
+    }
+
+    private static Statement statement() {
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName(SET);
+        return statement;
+    }
+
+    private static List<Object> results(ResultSet resultSet) {
+        List<Object> results = new ArrayList<>();
+        try {
+            while (resultSet.next()) {
+                results.add(resultSet.getObject());
+            }
+        } finally {
+            resultSet.close();
+        }
+        return results;
+    }
+
+    @Test
+    public void shouldReduceAcrossPartitions() {
+        List<Object> results = results(client.queryAggregate(null, statement(), "stats", "sum", Value.get("id")));
+        assertEquals(results.size(), 1);
+        assertEquals(results.get(0), (long) RECORDS * (RECORDS - 1) / 2);
+    }
+
+    @Test
+    public void shouldApplyFilterAndArguments() {
+        Statement statement = statement();
+        statement.setFilter(Filter.range("id", 100, 199));
+        statement.setAggregateFunction("stats", "count_above", Value.get("id"), Value.get(149));
+        assertEquals(results(client.queryAggregate(null, statement)), Collections.singletonList(50L));
+    }
+
+    @Test
+    public void shouldMergeGroupedPartials() {
+        List<Object> results = results(client.queryAggregate(null, statement(), "stats", "count_by", Value.get("group")));
+        assertEquals(results.size(), 1);
+        Map<?, ?> counts = (Map<?, ?>) results.get(0);
+        assertEquals(counts.size(), 4);
+        for (Object count : counts.values()) {
+            assertEquals(count, (long) RECORDS / 4);
+        }
+    }
+
+    @Test
+    public void shouldStreamMappedValues() {
+        Set<Object> ids = new HashSet<>(results(client.queryAggregate(null, statement(), "stats", "values",
+                Value.get("id"))));
+        assertEquals(ids.size(), RECORDS);
+        assertTrue(ids.contains(0L) && ids.contains((long) RECORDS - 1));
+    }
+
+    @Test
+    public void shouldAggregateOneNode() {
+        long total = 0;
+        for (Node node : client.getNodes()) {
+            Statement statement = statement();
+            statement.setAggregateFunction("stats", "sum", Value.get("id"));
+            for (Object partial : results(client.queryAggregateNode(null, statement, node))) {
+                total += (Long) partial;
+            }
+        }
+        assertEquals(total, (long) RECORDS * (RECORDS - 1) / 2);
+    }
+
+    @Test
+    public void shouldStopWhenClosedEarly() {
+        ResultSet resultSet = client.queryAggregate(null, statement(), "stats", "values", Value.get("id"));
+        assertTrue(resultSet.next());
+        resultSet.close();
+        // The pool is free again for the next aggregation.
+        assertEquals(results(client.queryAggregate(null, statement(), "stats", "sum", Value.get("id"))).size(), 1);
+    }
+
+    @Test
+    public void shouldReportUdfErrors() {
+        AerospikeException e = expectThrows(AerospikeException.class,
+                () -> results(client.queryAggregate(null, statement(), "stats", "fail")));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+        e = expectThrows(AerospikeException.class,
+                () -> results(client.queryAggregate(null, statement(), "missing", "sum")));
+        assertEquals(e.getResultCode(), ResultCode.UDF_BAD_RESPONSE);
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchPolicy;
+import com.github.srini156.aerospike.client.CommandType;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for recording and replaying traffic.
+ *
+ * @author srinivas.iyengar
+ */
+public class TrafficReplayTest {
+    private static final String NAMESPACE = "test";
+    private static final String SET = "traffic";
+
+    private static Key key(int i) {
+        return new Key(NAMESPACE, SET, "user-" + i);
+    }
+
+    private static byte[] record(MockAerospikeClient server) throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(server, log);
+        for (int i = 0; i < 100; i++) {
+            recorder.put(null, key(i), new Bin("name", "user " + i), new Bin("visits", i), new Bin("score", i / 2.0));
+        }
+        recorder.get(null, key(1));
+        recorder.get(null, key(2), "name");
+        recorder.operate(null, key(3), Operation.put(new Bin("tags", Arrays.asList("a", "b"))), Operation.get());
+        recorder.get((BatchPolicy) null, new Key[]{key(4), key(5)});
+        recorder.delete(null, key(6));
+        recorder.exists(null, key(6));
+        expectThrows(AerospikeException.class, () -> recorder.touch(null, key(1000)));
+        assertNull(recorder.getFailure());
+        // Closing the recorder would close the server too.
+        recorder.flush();
+        return log.toByteArray();
+    }
+
+    @Test
+    public void shouldLogCommandsCompactly() throws Exception {
+        byte[] log = record(new MockAerospikeClient());
+        // Digest, dictionary ids, varints and three small values per put.
+        assertTrue(log.length < 107 * 60, "log size " + log.length);
+
+        TrafficLog.Reader reader = new TrafficLog.Reader(new ByteArrayInputStream(log));
+        for (int i = 0; i < 100; i++) {
+            TrafficLog.Entry put = reader.next();
+            assertEquals(put.getCommand(), CommandType.PUT);
+            assertEquals(put.getKeys()[0], key(i));
+            assertNull(put.getKeys()[0].userKey);
+            assertEquals(put.getKeys()[0].setName, SET);
+            assertEquals(put.bins[0], new Bin("name", "user " + i));
+            assertEquals(put.bins[1].value.toLong(), i);
+            assertEquals(put.bins[2].value.getObject(), i / 2.0);
+        }
+        TrafficLog.Entry get = reader.next();
+        assertEquals(get.getCommand(), CommandType.GET);
+        assertEquals(get.binNames.length, 0);
+        assertEquals(reader.next().binNames, new String[]{"name"});
+        TrafficLog.Entry operate = reader.next();
+        assertEquals(operate.operations[0].type, Operation.Type.WRITE);
+        assertEquals(operate.operations[0].value.getObject(), Arrays.asList("a", "b"));
+        assertEquals(operate.operations[1].type, Operation.Type.READ);
+        assertEquals(reader.next().getKeys().length, 2);
+        assertEquals(reader.next().getCommand(), CommandType.DELETE);
+        assertEquals(reader.next().getCommand(), CommandType.EXISTS);
+        TrafficLog.Entry touch = reader.next();
+        assertEquals(touch.getCommand(), CommandType.TOUCH);
+        assertEquals(touch.getResultCode(), ResultCode.KEY_NOT_FOUND_ERROR);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void shouldLogNestedCollections() throws Exception {
+        Map<Object, Object> profile = new LinkedHashMap<>();
+        profile.put("name", "user");
+        profile.put(7L, Arrays.asList(1L, 2.5, null, true, new byte[]{1, 2}));
+        profile.put("tags", Collections.singletonMap("a", Collections.emptyList()));
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(new MockAerospikeClient(), log);
+        recorder.put(null, key(1), new Bin("profile", profile), new Bin("list", Arrays.asList(profile, "x")));
+        recorder.flush();
+
+        TrafficLog.Reader reader = new TrafficLog.Reader(new ByteArrayInputStream(log.toByteArray()));
+        TrafficLog.Entry put = reader.next();
+        Map<?, ?> logged = (Map<?, ?>) put.bins[0].value.getObject();
+        assertEquals(new ArrayList<>(logged.keySet()), new ArrayList<>(profile.keySet()));
+        List<?> scalars = (List<?>) logged.get(7L);
+        assertEquals(scalars.subList(0, 4), Arrays.asList(1L, 2.5, null, true));
+        assertEquals((byte[]) scalars.get(4), new byte[]{1, 2});
+        assertEquals(logged.get("tags"), Collections.singletonMap("a", Collections.emptyList()));
+        List<?> list = (List<?>) put.bins[1].value.getObject();
+        assertEquals(((Map<?, ?>) list.get(0)).get("name"), "user");
+        assertEquals(list.get(1), "x");
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void shouldReplayIntoMock() throws Exception {
+        MockAerospikeClient original = new MockAerospikeClient();
+        byte[] log = record(original);
+
+        ReplayPolicy policy = new ReplayPolicy();
+        policy.threads = 4;
+        policy.speed = 0;
+        MockAerospikeClient replayed = new MockAerospikeClient();
+        ReplayReport report = new TrafficReplayer(replayed, policy).run(new ByteArrayInputStream(log));
+
+        assertEquals(report.getTotal(), 107);
+        assertEquals(report.getCount(CommandType.PUT), 100);
+        assertEquals(report.getErrors(CommandType.TOUCH), 1);
+        assertEquals(report.getRecordedLatency(CommandType.PUT).getCount(), 100);
+        assertTrue(report.toString().contains("PUT"));
+        for (int i = 0; i < 100; i++) {
+            // User keys are not logged, records are found by digest.
+            assertEquals(replayed.get(null, key(i)) == null, i == 6);
+            if (i != 6) {
+                assertEquals(replayed.get(null, key(i)).getString("name"), original.get(null, key(i)).getString("name"));
+            }
+        }
+        assertEquals(replayed.get(null, key(3)).getList("tags"), Arrays.asList("a", "b"));
+    }
+
+    @Test
+    public void shouldReplayAtRecordedPace() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (TrafficRecorder recorder = new TrafficRecorder(new MockAerospikeClient(), log)) {
+            for (int i = 0; i < 5; i++) {
+                recorder.put(null, key(i), new Bin("v", i));
+                Thread.sleep(50);
+            }
+        }
+        ReplayPolicy policy = new ReplayPolicy();
+        policy.threads = 2;
+        ReplayReport paced = new TrafficReplayer(new MockAerospikeClient(), policy).run(new ByteArrayInputStream(log.toByteArray()));
+        assertTrue(paced.getElapsedSeconds() >= 0.19, "paced replay took " + paced.getElapsedSeconds());
+
+        policy.speed = 4;
+        ReplayReport fast = new TrafficReplayer(new MockAerospikeClient(), policy).run(new ByteArrayInputStream(log.toByteArray()));
+        assertTrue(fast.getElapsedSeconds() < paced.getElapsedSeconds());
+        assertEquals(fast.getCount(CommandType.PUT), 5);
+        assertTrue(fast.getLatency(CommandType.PUT).getMax(TimeUnit.SECONDS) < 1);
+        assertEquals(Collections.singletonList(fast.getErrors(CommandType.PUT)), Collections.singletonList(0L));
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.srini156.aerospike.client.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.ResultCode;
+import com.github.srini156.aerospike.client.MockAerospikeClient;
+import com.github.srini156.aerospike.client.MockClientPolicy;
+import com.github.srini156.aerospike.client.sim.FaultRule;
+import com.github.srini156.aerospike.client.sim.FaultSimulator;
+import com.github.srini156.aerospike.client.sim.LatencyDistribution;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests for the workload generator.
+ *
+ * @author srinivas.iyengar
+ */
+public class WorkloadTest {
+
+    private static WorkloadPolicy policy() {
+        WorkloadPolicy policy = new WorkloadPolicy();
+        policy.keyCount = 1000;
+        policy.threads = 4;
+        policy.durationSeconds = 1;
+        return policy;
+    }
+
+    @Test
+    public void shouldSkewZipfianKeys() {
+        KeyDistribution zipfian = KeyDistribution.zipfian(10000, 0.99);
+        Random random = new Random(42);
+        int[] counts = new int[10000];
+        for (int i = 0; i < 100000; i++) {
+            counts[zipfian.next(random)]++;
+        }
+        // 1 / zeta(10000, 0.99) is about 10%, the next keys follow 1/i.
+        assertTrue(counts[0] > 8000 && counts[0] < 12000, "hottest key " + counts[0]);
+        assertTrue(counts[0] > counts[1] && counts[1] > counts[10] && counts[10] > counts[1000]);
+    }
+
+    @Test
+    public void shouldReportPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getPercentile(50, TimeUnit.MICROSECONDS), 500, 500 * 0.07);
+        assertEquals(histogram.getPercentile(99, TimeUnit.MICROSECONDS), 990, 990 * 0.07);
+        assertEquals(histogram.getMax(TimeUnit.MICROSECONDS), 1000, 0.001);
+
+        LatencyHistogram drained = histogram.drain();
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(drained.getCount(), 1000);
+        histogram.add(drained);
+        assertEquals(histogram.getCount(), 1000);
+    }
+
+    @Test
+    public void shouldRunMixedWorkload() throws Exception {
+        MockAerospikeClient client = new MockAerospikeClient();
+        WorkloadPolicy policy = policy();
+        policy.readPercent = 60;
+        policy.readModifyWritePercent = 20;
+        policy.keyDistribution = "zipfian";
+        List<WorkloadReport> reports = new ArrayList<>();
+        WorkloadReport total = new Workload(client, policy).run(reports::add);
+
+        assertFalse(reports.isEmpty());
+        long reads = total.getCount(Workload.Command.READ);
+        long rmw = total.getCount(Workload.Command.READ_MODIFY_WRITE);
+        long updates = total.getCount(Workload.Command.UPDATE);
+        long all = reads + rmw + updates;
+        assertTrue(all > 1000);
+        assertEquals((double) reads / all, 0.6, 0.05);
+        assertEquals((double) rmw / all, 0.2, 0.05);
+        assertEquals(reports.stream().mapToLong(r -> r.getCount(Workload.Command.READ)).sum(), reads);
+
+        // An update replaces the bins, so only records last hit by a read-modify-write have a counter.
+        AtomicLong counted = new AtomicLong();
+        client.scanAll(null, policy.namespace, policy.setName, (key, record) -> {
+            Object counter = record.getValue("counter");
+            if (counter != null) {
+                counted.addAndGet(((Number) counter).longValue());
+            }
+        });
+        assertTrue(counted.get() > 0);
+        assertEquals(client.getCluster().getNodes().get(0).getRecordCount(), policy.keyCount);
+    }
+
+    @Test
+    public void shouldRunBatchReads() throws Exception {
+        WorkloadPolicy policy = policy();
+        policy.readPercent = 100;
+        policy.batchSize = 10;
+        WorkloadReport total = new Workload(new MockAerospikeClient(), policy).run(report -> {
+        });
+        assertTrue(total.getCount(Workload.Command.BATCH_READ) > 0);
+        assertEquals(total.getCount(Workload.Command.READ), 0);
+    }
+
+    @Test
+    public void shouldHoldTargetThroughput() throws Exception {
+        WorkloadPolicy policy = policy();
+        policy.durationSeconds = 2;
+        policy.targetThroughput = 2000;
+        WorkloadReport total = new Workload(new MockAerospikeClient(), policy).run(report -> {
+        });
+        double throughput = total.getThroughput(Workload.Command.READ) + total.getThroughput(Workload.Command.UPDATE);
+        assertEquals(throughput, 2000, 300);
+    }
+
+    @Test
+    public void shouldCountQueueingDelayInOpenLoop() throws Exception {
+        MockClientPolicy clientPolicy = new MockClientPolicy();
+        clientPolicy.simulator = new FaultSimulator().forNamespace("test",
+                new FaultRule().latency(LatencyDistribution.fixed(5, TimeUnit.MILLISECONDS)));
+        WorkloadPolicy policy = policy();
+        policy.preload = false;
+        policy.readPercent = 100;
+        policy.threads = 1;
+        // One thread can do 200 commands per second, ask for 400.
+        policy.targetThroughput = 400;
+
+        WorkloadReport closed = new Workload(new MockAerospikeClient(clientPolicy), policy).run(report -> {
+        });
+        policy.openLoop = true;
+        WorkloadReport open = new Workload(new MockAerospikeClient(clientPolicy), policy).run(report -> {
+        });
+
+        assertTrue(closed.getLatency(Workload.Command.READ).getPercentile(99, TimeUnit.MILLISECONDS) < 50);
+        assertTrue(open.getLatency(Workload.Command.READ).getPercentile(99, TimeUnit.MILLISECONDS) > 200);
+    }
+
+    @Test
+    public void shouldCountErrors() throws Exception {
+        MockClientPolicy clientPolicy = new MockClientPolicy();
+        clientPolicy.simulator = new FaultSimulator().forNamespace("test",
+                new FaultRule().error(ResultCode.KEY_BUSY, 0.5));
+        WorkloadPolicy policy = policy();
+        policy.preload = false;
+        policy.readPercent = 0;
+        WorkloadReport total = new Workload(new MockAerospikeClient(clientPolicy), policy).run(report -> {
+        });
+        long updates = total.getCount(Workload.Command.UPDATE);
+        long errors = total.getErrors(Workload.Command.UPDATE);
+        assertEquals((double) errors / (updates + errors), 0.5, 0.05);
+    }
+}
@@ -0,0 +1,48 @@
+-- Record UDFs used by LuaUdfTest.
+
+local function bump(rec, bin, by)
+    rec[bin] = (rec[bin] or 0) + by
+end
+
+function increment(rec, bin, by)
+    bump(rec, bin, by)
+    if aerospike:exists(rec) then
+        aerospike:update(rec)
+    else
+        aerospike:create(rec)
+    end
+    return rec[bin]
+end
+
+function peek_increment(rec, bin, by)
+    bump(rec, bin, by)
+    return rec[bin]
+end
+
+function describe(rec)
+    local names = record.bin_names(rec)
+    return map {
+        setname = record.setname(rec),
+        key = record.key(rec),
+        numbins = record.numbins(rec),
+        first = list.size(names) > 0
+    }
+end
+
+function append_all(rec, bin, values)
+    local current = rec[bin] or list()
+    for value in list.iterator(values) do
+        list.append(current, value)
+    end
+    rec[bin] = current
+    aerospike:update(rec)
+    return list.size(current)
+end
+
+function drop(rec)
+    return aerospike:remove(rec)
+end
+
+function fail(rec)
+    error("bad input")
+end
@@ -0,0 +1,48 @@
+-- Stream UDFs used by StreamUdfTest.
+
+local function add(a, b)
+    return a + b
+end
+
+function sum(stream, bin)
+    local function value(rec)
+        return rec[bin] or 0
+    end
+    return stream : map(value) : reduce(add)
+end
+
+function count_above(stream, bin, min)
+    local function above(rec)
+        return rec[bin] > min
+    end
+    local function one(rec)
+        return 1
+    end
+    return stream : filter(above) : map(one) : reduce(add)
+end
+
+function count_by(stream, bin)
+    local function group(counts, rec)
+        local k = rec[bin]
+        counts[k] = (counts[k] or 0) + 1
+        return counts
+    end
+    local function merge(a, b)
+        return map.merge(a, b, add)
+    end
+    return stream : aggregate(map(), group) : reduce(merge)
+end
+
+function values(stream, bin)
+    local function value(rec)
+        return rec[bin]
+    end
+    return stream : map(value)
+end
+
+function fail(stream)
+    local function explode(rec)
+        error("bad record")
+    end
+    return stream : map(explode)
+end